@@ -48,7 +48,7 @@ public abstract class AbstractCacheMap<K,V> implements Cache<K,V> {
 			this.key = key;
 			this.cachedObject = object;
 			this.ttl = ttl;
-			this.lastAccess = System.currentTimeMillis();
+			this.lastAccess = currentTimeMillis();
 		}
 
 		final K2 key;
@@ -61,10 +61,10 @@ public abstract class AbstractCacheMap<K,V> implements Cache<K,V> {
 			if (ttl == 0) {
 				return false;
 			}
-			return lastAccess + ttl < System.currentTimeMillis();
+			return lastAccess + ttl < currentTimeMillis();
 		}
 		V2 getObject() {
-			lastAccess = System.currentTimeMillis();
+			lastAccess = currentTimeMillis();
 			accessCount++;
 			return cachedObject;
 		}
@@ -74,8 +74,8 @@ public abstract class AbstractCacheMap<K,V> implements Cache<K,V> {
 	//读写锁可以同时多个读,可以获得更好的并发性,而用synchronize每次只允许一个线程
 	//但是ReentrantReadWriteLock Non-fair mode (default)不能保证请求锁的顺序,但是有个更高的吞吐量比Fair mode
 	private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
-	private final Lock readLock = cacheLock.readLock();
-	private final Lock writeLock = cacheLock.writeLock();
+	protected final Lock readLock = cacheLock.readLock();
+	protected final Lock writeLock = cacheLock.writeLock();
 
 
 	// ---------------------------------------------------------------- properties
@@ -105,6 +105,14 @@ public abstract class AbstractCacheMap<K,V> implements Cache<K,V> {
 	 */
 	protected boolean existCustomTimeout;
 
+	/**
+	 * Returns current time used for expiration. By default, it is the
+	 * system time; subclasses may provide less precise, but faster clock.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
 	/**
 	 * Returns <code>true</code> if prune of expired objects should be invoked.
 	 * For internal use.
@@ -0,0 +1,664 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent, segmented cache for highly concurrent reads.
+ * <p>
+ * Keys are distributed over segments. Each segment holds a <code>ConcurrentHashMap</code>,
+ * so {@link #get(Object)} never takes a lock. Access is recorded directly into the
+ * cached entry (last access time and approximate access count) without any
+ * synchronization. Only modifications lock the segment that owns the key.
+ * <p>
+ * Cache size is shared by all segments. Eviction is approximate: when cache is full,
+ * a small random sample of entries of the segment that received the new entry (or
+ * of another segment, when it holds nothing else) is inspected and expired entry or,
+ * if there is none, the least recently used (or least frequently used, depending
+ * on {@link EvictionPolicy}) sampled entry is removed. For small segments the whole
+ * segment is inspected. Eviction is done after the new entry is added, so concurrent
+ * writers may exceed the cache size for a moment.
+ * <p>
+ * Statistics are kept per segment, so threads hitting different segments do not
+ * contend on the same counters.
+ * <p>
+ * Summary: fast, not blocking on reads, approximate LRU or LFU.
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+	/**
+	 * Eviction policy used to choose a victim from the sampled entries.
+	 */
+	public enum EvictionPolicy {
+		/**
+		 * Least recently used sampled entry is evicted.
+		 */
+		LRU,
+		/**
+		 * Least frequently used sampled entry is evicted.
+		 */
+		LFU
+	}
+
+	/**
+	 * Default number of segments.
+	 */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * Number of entries sampled on eviction.
+	 */
+	protected static final int SAMPLE_SIZE = 8;
+
+	protected final Segment<K, V>[] segments;
+	protected final int segmentMask;
+	protected final int cacheSize;
+	protected final long timeout;
+	protected final EvictionPolicy evictionPolicy;
+	protected final AtomicInteger totalCount = new AtomicInteger();
+
+	public ConcurrentCache(int cacheSize) {
+		this(cacheSize, 0);
+	}
+
+	public ConcurrentCache(int cacheSize, long timeout) {
+		this(cacheSize, timeout, EvictionPolicy.LRU, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Creates new concurrent cache.
+	 * @param cacheSize max cache size, 0 for no limit
+	 * @param timeout default timeout, may be 0
+	 * @param evictionPolicy eviction policy
+	 * @param concurrencyLevel estimated number of concurrently updating threads
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentCache(int cacheSize, long timeout, EvictionPolicy evictionPolicy, int concurrencyLevel) {
+		if (cacheSize < 0 || timeout < 0 || concurrencyLevel <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.cacheSize = cacheSize;
+		this.timeout = timeout;
+		this.evictionPolicy = evictionPolicy;
+
+		int segmentsCount = 1;
+		while (segmentsCount < concurrencyLevel) {
+			segmentsCount <<= 1;
+		}
+		if (cacheSize != 0) {
+			// more segments than elements are not needed
+			while (segmentsCount > 1 && segmentsCount > cacheSize) {
+				segmentsCount >>= 1;
+			}
+		}
+
+		this.segmentMask = segmentsCount - 1;
+		this.segments = new Segment[segmentsCount];
+
+		int initialCapacity = cacheSize != 0 ? cacheSize / segmentsCount + 1 : 16;
+
+		for (int i = 0; i < segmentsCount; i++) {
+			segments[i] = new Segment<>(this, initialCapacity);
+		}
+	}
+
+	/**
+	 * Returns segment for given key.
+	 */
+	protected Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		h *= 0x9E3779B9;
+		return segments[(h >>> 16) & segmentMask];
+	}
+
+	// ---------------------------------------------------------------- properties
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getCacheTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Returns eviction policy.
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Returns number of segments.
+	 */
+	public int getSegmentsCount() {
+		return segments.length;
+	}
+
+	// ---------------------------------------------------------------- put
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void put(K key, V object, long timeout) {
+		Segment<K, V> segment = segmentFor(key);
+
+		CacheEntry<K, V> entry = new CacheEntry<>(key, object, timeout);
+		boolean added;
+
+		segment.lock();
+		try {
+			added = segment.put(entry);
+		}
+		finally {
+			segment.unlock();
+		}
+
+		if (added && cacheSize != 0) {
+			while (totalCount.get() > cacheSize) {
+				if (!evict(segment, entry)) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Evicts one entry other than the new one, preferably from the segment
+	 * that received the new entry. Segments are locked one at a time.
+	 * Returns <code>false</code> if there was nothing to evict.
+	 */
+	protected boolean evict(Segment<K, V> preferred, CacheEntry<K, V> newEntry) {
+		int start = 0;
+		while (segments[start] != preferred) {
+			start++;
+		}
+
+		for (int i = 0; i < segments.length; i++) {
+			Segment<K, V> segment = segments[(start + i) & segmentMask];
+
+			segment.lock();
+			try {
+				if (segment.count != 0 && segment.evict(evictionPolicy, newEntry)) {
+					return true;
+				}
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- get
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+
+		CacheEntry<K, V> entry = segment.map.get(key);
+
+		if (entry == null) {
+			segment.missCount.incrementAndGet();
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+
+		if (entry.isExpired(now)) {
+			segment.lock();
+			try {
+				segment.remove(entry);
+			}
+			finally {
+				segment.unlock();
+			}
+			segment.missCount.incrementAndGet();
+			return null;
+		}
+
+		segment.hitCount.incrementAndGet();
+		return entry.access(now);
+	}
+
+	/**
+	 * Returns hit count.
+	 */
+	public long getHitCount() {
+		long count = 0;
+		for (Segment<K, V> segment : segments) {
+			count += segment.hitCount.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns miss count.
+	 */
+	public long getMissCount() {
+		long count = 0;
+		for (Segment<K, V> segment : segments) {
+			count += segment.missCount.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of evicted elements, not counting expired ones.
+	 */
+	public long getEvictionCount() {
+		long count = 0;
+		for (Segment<K, V> segment : segments) {
+			count += segment.evictionCount.get();
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Iterator<V> iterator() {
+		return new ConcurrentCacheValuesIterator();
+	}
+
+	// ---------------------------------------------------------------- prune
+
+	/**
+	 * Prunes expired elements from all segments. Segments are locked one by one,
+	 * so only the writers of the segment being pruned are blocked.
+	 * Returns the number of removed objects.
+	 */
+	public int prune() {
+		int count = 0;
+		long now = System.currentTimeMillis();
+
+		for (Segment<K, V> segment : segments) {
+			segment.lock();
+			try {
+				count += segment.pruneExpired(now);
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+		return count;
+	}
+
+	// ---------------------------------------------------------------- common
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isFull() {
+		if (cacheSize == 0) {
+			return false;
+		}
+		return size() >= cacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+
+		segment.lock();
+		try {
+			CacheEntry<K, V> entry = segment.map.get(key);
+			if (entry != null) {
+				segment.remove(entry);
+			}
+		}
+		finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.lock();
+			try {
+				segment.clear();
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+		return totalCount.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Callback method invoked on cached object removal: on eviction,
+	 * expiration or explicit removal, but not when the value is replaced.
+	 * Invoked while the segment of the key is locked. By default does nothing.
+	 */
+	protected void onRemove(K key, V cachedObject) {
+	}
+
+	// ---------------------------------------------------------------- entry
+
+	/**
+	 * Cached entry. Access data is updated without locking,
+	 * therefore access count is just an approximation.
+	 */
+	protected static class CacheEntry<K, V> {
+		final K key;
+		final V cachedObject;
+		final long ttl;
+		volatile long lastAccess;
+		volatile int accessCount;
+		int index;					// position in segment entries, guarded by segment lock
+
+		CacheEntry(K key, V cachedObject, long ttl) {
+			this.key = key;
+			this.cachedObject = cachedObject;
+			this.ttl = ttl;
+			this.lastAccess = System.currentTimeMillis();
+		}
+
+		boolean isExpired(long now) {
+			if (ttl == 0) {
+				return false;
+			}
+			return lastAccess + ttl < now;
+		}
+
+		V access(long now) {
+			lastAccess = now;
+			accessCount++;
+			return cachedObject;
+		}
+	}
+
+	// ---------------------------------------------------------------- segment
+
+	/**
+	 * Cache segment. Entries map is read without locking; all modifications
+	 * are done while holding the segment lock. Besides the map, entries are
+	 * stored in an array, so random sampling and removal are both <code>O(1)</code>.
+	 */
+	@SuppressWarnings("serial")
+	protected static class Segment<K, V> extends ReentrantLock {
+		final ConcurrentCache<K, V> cache;
+		final ConcurrentHashMap<K, CacheEntry<K, V>> map;
+		final AtomicLong hitCount = new AtomicLong();
+		final AtomicLong missCount = new AtomicLong();
+		final AtomicLong evictionCount = new AtomicLong();
+
+		CacheEntry<K, V>[] entries;
+		volatile int count;
+
+		@SuppressWarnings("unchecked")
+		Segment(ConcurrentCache<K, V> cache, int initialCapacity) {
+			this.cache = cache;
+			this.map = new ConcurrentHashMap<>(initialCapacity);
+			this.entries = new CacheEntry[initialCapacity];
+		}
+
+		/**
+		 * Puts new entry, replacing existing one. Returns <code>true</code>
+		 * if entry is added and not replaced.
+		 */
+		@SuppressWarnings("unchecked")
+		boolean put(CacheEntry<K, V> entry) {
+			CacheEntry<K, V> existing = map.get(entry.key);
+
+			if (existing != null) {
+				entry.index = existing.index;
+				entries[entry.index] = entry;
+				map.put(entry.key, entry);
+				return false;
+			}
+
+			if (count == entries.length) {
+				CacheEntry<K, V>[] newEntries = new CacheEntry[count << 1];
+				System.arraycopy(entries, 0, newEntries, 0, count);
+				entries = newEntries;
+			}
+
+			entry.index = count;
+			entries[count] = entry;
+			map.put(entry.key, entry);
+			count = count + 1;
+			cache.totalCount.incrementAndGet();
+			return true;
+		}
+
+		/**
+		 * Removes an entry if it is still present in the segment.
+		 */
+		void remove(CacheEntry<K, V> entry) {
+			if (!map.remove(entry.key, entry)) {
+				return;
+			}
+			int last = count - 1;
+			CacheEntry<K, V> lastEntry = entries[last];
+			entries[entry.index] = lastEntry;
+			lastEntry.index = entry.index;
+			entries[last] = null;
+			count = last;
+			cache.totalCount.decrementAndGet();
+			cache.onRemove(entry.key, entry.cachedObject);
+		}
+
+		/**
+		 * Evicts one entry chosen from the random sample, except the excluded
+		 * one. Expired entries are preferred. On LFU eviction, access counts of
+		 * sampled entries are aged, so the previously popular entries may
+		 * eventually go away. Returns <code>false</code> if nothing is evicted.
+		 */
+		@SuppressWarnings("unchecked")
+		boolean evict(EvictionPolicy evictionPolicy, CacheEntry<K, V> excluded) {
+			long now = System.currentTimeMillis();
+			CacheEntry<K, V> victim = null;
+
+			boolean sampleAll = count <= SAMPLE_SIZE;
+			int samples = sampleAll ? count : SAMPLE_SIZE;
+			ThreadLocalRandom random = sampleAll ? null : ThreadLocalRandom.current();
+
+			CacheEntry<K, V>[] sampled = new CacheEntry[samples];
+
+			for (int i = 0; i < samples; i++) {
+				CacheEntry<K, V> candidate = entries[sampleAll ? i : random.nextInt(count)];
+
+				if (candidate == excluded) {
+					continue;
+				}
+				if (candidate.isExpired(now)) {
+					remove(candidate);
+					return true;
+				}
+				sampled[i] = candidate;
+
+				if (victim == null) {
+					victim = candidate;
+					continue;
+				}
+				if (evictionPolicy == EvictionPolicy.LFU) {
+					if (candidate.accessCount < victim.accessCount) {
+						victim = candidate;
+					}
+				} else {
+					if (candidate.lastAccess < victim.lastAccess) {
+						victim = candidate;
+					}
+				}
+			}
+
+			if (victim == null) {
+				return false;
+			}
+
+			if (evictionPolicy == EvictionPolicy.LFU) {
+				int minAccessCount = victim.accessCount;
+				if (minAccessCount > 0) {
+					for (CacheEntry<K, V> entry : sampled) {
+						if (entry != null && entry.accessCount >= minAccessCount) {
+							entry.accessCount -= minAccessCount;
+						}
+					}
+				}
+			}
+
+			remove(victim);
+			evictionCount.incrementAndGet();
+			return true;
+		}
+
+		/**
+		 * Removes all expired entries.
+		 */
+		int pruneExpired(long now) {
+			int removed = 0;
+			int i = 0;
+			while (i < count) {
+				CacheEntry<K, V> entry = entries[i];
+				if (entry.isExpired(now)) {
+					remove(entry);		// last entry is moved to the current index
+					removed++;
+				} else {
+					i++;
+				}
+			}
+			return removed;
+		}
+
+		void clear() {
+			map.clear();
+			for (int i = 0; i < count; i++) {
+				entries[i] = null;
+			}
+			cache.totalCount.addAndGet(-count);
+			count = 0;
+		}
+	}
+
+	// ---------------------------------------------------------------- iterator
+
+	/**
+	 * Weakly consistent iterator over non-expired values.
+	 */
+	protected class ConcurrentCacheValuesIterator implements Iterator<V> {
+		private final long now = System.currentTimeMillis();
+		private int segmentIndex;
+		private Iterator<CacheEntry<K, V>> iterator;
+		private CacheEntry<K, V> nextEntry;
+		private CacheEntry<K, V> lastEntry;
+
+		ConcurrentCacheValuesIterator() {
+			iterator = segments[0].map.values().iterator();
+			nextValue();
+		}
+
+		/**
+		 * Resolves next value. If next value doesn't exist, next value will be <code>null</code>.
+		 */
+		private void nextValue() {
+			while (true) {
+				while (iterator.hasNext()) {
+					nextEntry = iterator.next();
+					if (!nextEntry.isExpired(now)) {
+						return;
+					}
+				}
+				segmentIndex++;
+				if (segmentIndex == segments.length) {
+					break;
+				}
+				iterator = segments[segmentIndex].map.values().iterator();
+			}
+			nextEntry = null;
+		}
+
+		public boolean hasNext() {
+			return nextEntry != null;
+		}
+
+		public V next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastEntry = nextEntry;
+			nextValue();
+			return lastEntry.cachedObject;
+		}
+
+		public void remove() {
+			if (lastEntry == null) {
+				throw new IllegalStateException();
+			}
+			Segment<K, V> segment = segmentFor(lastEntry.key);
+			segment.lock();
+			try {
+				segment.remove(lastEntry);
+			}
+			finally {
+				segment.unlock();
+			}
+			lastEntry = null;
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import jodd.io.StreamUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Files LFU cache that stores files content outside of the heap, either
+ * in direct byte buffers or in memory-mapped regions. Large cached content
+ * therefore does not increase garbage collection pauses. Returned buffers
+ * are read-only views that may be written to a channel without copying.
+ * <p>
+ * Cached file is revalidated on each access by comparing its last-modified
+ * time and length; unchanged files are never read again.
+ * <p>
+ * Memory-mapped files share the content with the file system, so changing
+ * or truncating a mapped file while it is in use is not safe.
+ * Direct buffers are released when they are garbage collected.
+ */
+public class FileBufferLFUCache {
+
+	/**
+	 * Cached file content.
+	 */
+	protected static class FileBuffer {
+		final ByteBuffer buffer;
+		final long lastModified;
+		final long length;
+
+		FileBuffer(ByteBuffer buffer, long lastModified, long length) {
+			this.buffer = buffer;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		boolean isModified(File file) {
+			return (file.lastModified() != lastModified) || (file.length() != length);
+		}
+	}
+
+	protected final LFUCache<File, FileBuffer> cache;
+	protected final int maxSize;
+	protected final int maxFileSize;
+	protected final boolean memoryMapped;
+
+	protected int usedSize;
+
+	/**
+	 * Creates file LFU cache with specified size. Sets
+	 * {@link #maxFileSize max available file size} to half of this value.
+	 */
+	public FileBufferLFUCache(int maxSize) {
+		this(maxSize, maxSize / 2, 0, false);
+	}
+
+	public FileBufferLFUCache(int maxSize, int maxFileSize) {
+		this(maxSize, maxFileSize, 0, false);
+	}
+
+	/**
+	 * Creates new File LFU cache.
+	 * @param maxSize total cache size in bytes
+	 * @param maxFileSize max available file size in bytes, may be 0
+	 * @param timeout timeout, may be 0
+	 * @param memoryMapped if <code>true</code> files are memory-mapped, otherwise they are read in direct buffers
+	 */
+	public FileBufferLFUCache(int maxSize, int maxFileSize, long timeout, boolean memoryMapped) {
+		this.cache = new LFUCache<File, FileBuffer>(0, timeout) {
+			@Override
+			public boolean isFull() {
+				return usedSize > FileBufferLFUCache.this.maxSize;
+			}
+
+			@Override
+			protected boolean isReallyFull(File file) {
+				return isFull();
+			}
+
+			@Override
+			protected void onRemove(File key, FileBuffer cachedObject) {
+				usedSize -= cachedObject.length;
+			}
+
+		};
+		this.maxSize = maxSize;
+		this.maxFileSize = maxFileSize;
+		this.memoryMapped = memoryMapped;
+	}
+
+	// ---------------------------------------------------------------- get
+
+	/**
+	 * Returns max cache size in bytes.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns actually used size in bytes.
+	 */
+	public int getUsedSize() {
+		return usedSize;
+	}
+
+	/**
+	 * Returns maximum allowed file size that can be added to the cache.
+	 * Files larger than this value will be not added, even if there is
+	 * enough room.
+	 */
+	public int getMaxFileSize() {
+		return maxFileSize;
+	}
+
+	/**
+	 * Returns <code>true</code> if files are memory-mapped.
+	 */
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+
+	/**
+	 * Returns number of cached files.
+	 */
+	public int getCachedFilesCount() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns timeout.
+	 */
+	public long getCacheTimeout() {
+		return cache.getCacheTimeout();
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public void clear() {
+		cache.clear();
+		usedSize = 0;
+	}
+
+	// ---------------------------------------------------------------- get
+
+	public ByteBuffer getFileBuffer(String fileName) throws IOException {
+		return getFileBuffer(new File(fileName));
+	}
+
+	/**
+	 * Returns read-only buffer with the file content. Each invocation returns
+	 * a new view, with its own position and limit, over the same cached content.
+	 */
+	public ByteBuffer getFileBuffer(File file) throws IOException {
+		FileBuffer fileBuffer = cache.get(file);
+
+		if (fileBuffer != null) {
+			if (!fileBuffer.isModified(file)) {
+				return fileBuffer.buffer.asReadOnlyBuffer();
+			}
+			cache.remove(file);
+			usedSize -= fileBuffer.length;
+		}
+
+		// add file
+		long lastModified = file.lastModified();
+		ByteBuffer buffer = readFile(file);
+		fileBuffer = new FileBuffer(buffer, lastModified, buffer.remaining());
+
+		if ((maxFileSize != 0) && (fileBuffer.length > maxFileSize)) {
+			// don't cache files that size exceed max allowed file size
+			return buffer.asReadOnlyBuffer();
+		}
+
+		usedSize += fileBuffer.length;
+
+		// put file into cache
+		// if used size > total, purge() will be invoked
+		cache.put(file, fileBuffer);
+
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Reads file content into direct buffer or maps it into memory.
+	 */
+	protected ByteBuffer readFile(File file) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + file);
+			}
+
+			if (memoryMapped) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					break;
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+		finally {
+			StreamUtil.close(input);
+		}
+	}
+
+}
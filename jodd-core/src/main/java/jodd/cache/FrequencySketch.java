@@ -0,0 +1,138 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+/**
+ * Count-min sketch of access frequencies with 4-bit counters, used as an
+ * admission filter by {@link TinyLFUCache}. Each item is mapped to four
+ * counters; its frequency is the minimum of them, so it is an estimate
+ * that may only be higher than the real value. Counters saturate at 15.
+ * <p>
+ * To keep the history fresh, all counters are halved when the number
+ * of increments reaches the sample size (ten times the cache size).
+ */
+public class FrequencySketch {
+
+	private static final long[] SEEDS = {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	protected final long[] table;
+	protected final int tableMask;
+	protected final int sampleSize;
+	protected int size;
+
+	/**
+	 * Creates new sketch for a cache with given maximum size.
+	 */
+	public FrequencySketch(int maximumSize) {
+		int tableSize = 1;
+		while (tableSize < maximumSize) {
+			tableSize <<= 1;
+		}
+		this.table = new long[tableSize];
+		this.tableMask = tableSize - 1;
+		this.sampleSize = maximumSize == 0 ? 10 : maximumSize * 10;
+	}
+
+	/**
+	 * Returns estimated number of occurrences of an element, up to 15.
+	 */
+	public int frequency(Object element) {
+		int hash = spread(element.hashCode());
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			long h = rehash(hash, i);
+			int value = (int) ((table[tableIndex(h)] >>> counterOffset(h)) & 0xFL);
+			if (value < frequency) {
+				frequency = value;
+			}
+		}
+		return frequency;
+	}
+
+	/**
+	 * Increments popularity of an element, if it is not already at maximum.
+	 * Periodically ages all counters.
+	 */
+	public void increment(Object element) {
+		int hash = spread(element.hashCode());
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			long h = rehash(hash, i);
+			int index = tableIndex(h);
+			int offset = counterOffset(h);
+			long mask = 0xFL << offset;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && (++size == sampleSize)) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halves all counters.
+	 */
+	protected void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = size >>> 1;
+	}
+
+	/**
+	 * Clears the sketch.
+	 */
+	public void clear() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 0;
+		}
+		size = 0;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+	private static long rehash(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		return h + (h >>> 32);
+	}
+
+	private int tableIndex(long h) {
+		return (int) h & tableMask;
+	}
+
+	private static int counterOffset(long h) {
+		return ((int) (h >>> 40) & 15) << 2;
+	}
+}
@@ -26,7 +26,7 @@
 package jodd.cache;
 
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -34,32 +34,180 @@ import java.util.TimerTask;
  * Timed cache. Not limited by size, objects are removed only when they are expired.
  * Prune is not invoked explicitly by standard {@link Cache} methods, however,
  * it is possible to schedule prunes on fined-rate delays.
+ * <p>
+ * Expiration of both default and custom timeouts is tracked by a {@link TimerWheel},
+ * so prune visits only the objects whose timeout was reached and not the whole cache.
+ * Optionally, cache may use a coarse clock that is updated in the background,
+ * instead of reading the system time on every access.
  */
 public class TimedCache<K, V> extends AbstractCacheMap<K, V> {
 
+	protected final TimerWheel<K> timerWheel;
+	protected final Map<K, TimerWheel.Timeout<K>> timeouts;
+	protected final TimerWheel.Expiration<K> expiration;
+
 	public TimedCache(long timeout) {
 		this.cacheSize = 0;
 		this.timeout = timeout;
 		cacheMap = new HashMap<>();
+		timeouts = new HashMap<>();
+		timerWheel = new TimerWheel<>(currentTimeMillis());
+		expiration = new TimerWheel.Expiration<K>() {
+			public long expire(K key, long now) {
+				return expireObject(key, now);
+			}
+		};
+	}
+
+	// ---------------------------------------------------------------- put
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(K key, V object, long timeout) {
+		writeLock.lock();
+		try {
+			super.put(key, object, timeout);
+
+			TimerWheel.Timeout<K> existing = timeouts.get(key);
+
+			if (timeout == 0) {
+				if (existing != null) {
+					timerWheel.cancel(existing);
+					timeouts.remove(key);
+				}
+				return;
+			}
+
+			long deadline = currentTimeMillis() + timeout;
+
+			if (existing != null) {
+				timerWheel.reschedule(existing, deadline);
+			} else {
+				timeouts.put(key, timerWheel.schedule(key, deadline));
+			}
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(K key) {
+		writeLock.lock();
+		try {
+			super.remove(key);
+
+			TimerWheel.Timeout<K> existing = timeouts.remove(key);
+			if (existing != null) {
+				timerWheel.cancel(existing);
+			}
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		writeLock.lock();
+		try {
+			super.clear();
+			timeouts.clear();
+			timerWheel.clear();
+		}
+		finally {
+			writeLock.unlock();
+		}
 	}
 
 	// ---------------------------------------------------------------- prune
 
 	/**
-	 * Prunes expired elements from the cache. Returns the number of removed objects.
+	 * Prunes expired elements from the cache by advancing the timer wheel
+	 * with the same clock used for deadlines. Returns the number of removed objects.
 	 */
 	@Override
 	protected int pruneCache() {
-        int count = 0;
-		Iterator<CacheObject<K,V>> values = cacheMap.values().iterator();
-		while (values.hasNext()) {
-			CacheObject co = values.next();
-			if (co.isExpired()) {
-				values.remove();
-				count++;
-			}
+		int size = cacheMap.size();
+		timerWheel.advance(currentTimeMillis(), expiration);
+		return size - cacheMap.size();
+	}
+
+	/**
+	 * Invoked by timer wheel when timeout of a key is reached. Since accessing
+	 * the object extends its life, timeout is returned when object is not yet expired.
+	 * Objects already removed from the cache are simply dropped.
+	 */
+	protected long expireObject(K key, long now) {
+		CacheObject<K, V> co = cacheMap.get(key);
+
+		if (co == null || co.ttl == 0) {
+			timeouts.remove(key);
+			return 0;
+		}
+
+		long deadline = co.lastAccess + co.ttl;
+
+		if (deadline < now) {
+			cacheMap.remove(key);
+			timeouts.remove(key);
+			return 0;
+		}
+		return deadline;
+	}
+
+
+	// ---------------------------------------------------------------- clock
+
+	protected volatile long clock;
+	protected Timer clockTimer;
+
+	/**
+	 * Returns current time. When coarse clock is used, returns
+	 * the time of the last clock tick.
+	 */
+	@Override
+	protected long currentTimeMillis() {
+		if (clockTimer == null) {
+			return System.currentTimeMillis();
+		}
+		return clock;
+	}
+
+	/**
+	 * Starts coarse clock with given resolution. Expiration checks will
+	 * then use the time updated in the background, with less precision.
+	 */
+	public void scheduleClock(long resolution) {
+		cancelClockSchedule();
+		clock = System.currentTimeMillis();
+		clockTimer = new Timer(true);
+		clockTimer.scheduleAtFixedRate(
+				new TimerTask() {
+					@Override
+					public void run() {
+						clock = System.currentTimeMillis();
+					}
+				}, resolution, resolution
+		);
+	}
+
+	/**
+	 * Cancels coarse clock, system time will be used again.
+	 */
+	public void cancelClockSchedule() {
+		if (clockTimer != null) {
+			clockTimer.cancel();
+			clockTimer = null;
 		}
-		return count;
 	}
 
 
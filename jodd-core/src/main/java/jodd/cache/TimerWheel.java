@@ -0,0 +1,272 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+/**
+ * Hierarchical timing wheel for scheduling expiration of cached elements.
+ * Time is divided into five levels of buckets with growing resolution
+ * (64ms, 4s, 4.6min, 4.6h and 12 days). Scheduling and cancellation are
+ * done in constant time. When the wheel is {@link #advance(long, Expiration) advanced},
+ * only the buckets that time passed over are visited: due timeouts are handed
+ * to the {@link Expiration} callback, others are cascaded to the lower levels.
+ * Therefore each timeout is touched only a constant number of times
+ * before it expires.
+ * <p>
+ * Expiration is precise up to the resolution of the lowest level.
+ * Timer wheel is not thread-safe.
+ */
+public class TimerWheel<T> {
+
+	private static final int[] BUCKETS = {64, 64, 64, 64, 1};
+	private static final int[] SHIFT = {6, 12, 18, 24, 30};
+
+	/**
+	 * Callback invoked for due timeouts.
+	 */
+	public interface Expiration<T> {
+		/**
+		 * Invoked when timeout of an item is reached. Returns the new
+		 * deadline if item has to be rescheduled, or <code>0</code>
+		 * if item is expired and timeout should be dropped.
+		 */
+		long expire(T item, long now);
+	}
+
+	/**
+	 * Scheduled timeout of an item.
+	 */
+	public static class Timeout<T> {
+		final T item;
+		long deadline;
+		Timeout<T> prev;
+		Timeout<T> next;
+
+		Timeout(T item, long deadline) {
+			this.item = item;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Returns scheduled item.
+		 */
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * Returns time when this timeout is due.
+		 */
+		public long getDeadline() {
+			return deadline;
+		}
+
+		/**
+		 * Returns <code>true</code> if timeout is still scheduled.
+		 */
+		public boolean isScheduled() {
+			return next != null;
+		}
+	}
+
+	protected final Timeout<T>[][] wheel;
+	protected long currentTime;
+	protected int size;
+
+	@SuppressWarnings("unchecked")
+	public TimerWheel(long currentTime) {
+		this.currentTime = currentTime;
+		this.wheel = new Timeout[BUCKETS.length][];
+		for (int i = 0; i < BUCKETS.length; i++) {
+			wheel[i] = new Timeout[BUCKETS[i]];
+			for (int j = 0; j < BUCKETS[i]; j++) {
+				Timeout<T> sentinel = new Timeout<>(null, 0);
+				sentinel.prev = sentinel.next = sentinel;
+				wheel[i][j] = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Returns time of the last advance.
+	 */
+	public long getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * Returns number of scheduled timeouts.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules an item to be expired at given deadline.
+	 */
+	public Timeout<T> schedule(T item, long deadline) {
+		Timeout<T> timeout = new Timeout<>(item, deadline);
+		link(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Reschedules existing timeout to a new deadline.
+	 */
+	public void reschedule(Timeout<T> timeout, long deadline) {
+		if (timeout.isScheduled()) {
+			unlink(timeout);
+		}
+		timeout.deadline = deadline;
+		link(timeout);
+	}
+
+	/**
+	 * Cancels the timeout, if it is still scheduled.
+	 */
+	public void cancel(Timeout<T> timeout) {
+		if (timeout.isScheduled()) {
+			unlink(timeout);
+		}
+	}
+
+	/**
+	 * Advances the wheel to the given time, processing all passed buckets.
+	 * Returns the number of expired timeouts.
+	 */
+	public int advance(long now, Expiration<T> expiration) {
+		long previousTime = currentTime;
+		if (now <= previousTime) {
+			return 0;
+		}
+		currentTime = now;
+
+		int count = 0;
+		for (int i = 0; i < SHIFT.length; i++) {
+			long previousTicks = previousTime >>> SHIFT[i];
+			long currentTicks = now >>> SHIFT[i];
+			if (currentTicks == previousTicks) {
+				break;
+			}
+			count += expire(i, previousTicks, currentTicks - previousTicks, expiration);
+		}
+		return count;
+	}
+
+	/**
+	 * Processes buckets of a level that were passed since previous advance.
+	 * Current bucket is visited as well, since it may hold timeouts that
+	 * were due in the meantime.
+	 */
+	protected int expire(int level, long previousTicks, long delta, Expiration<T> expiration) {
+		Timeout<T>[] buckets = wheel[level];
+		int mask = buckets.length - 1;
+		int start = (int) (previousTicks & mask);
+		int end = start + (int) Math.min(delta + 1, buckets.length);
+
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			Timeout<T> sentinel = buckets[i & mask];
+			Timeout<T> timeout = sentinel.next;
+			sentinel.prev = sentinel.next = sentinel;
+
+			while (timeout != sentinel) {
+				Timeout<T> next = timeout.next;
+				timeout.prev = timeout.next = null;
+				size--;
+
+				if (timeout.deadline <= currentTime) {
+					long deadline = expiration.expire(timeout.item, currentTime);
+					if (deadline == 0) {
+						count++;
+					} else {
+						timeout.deadline = deadline;
+						link(timeout);
+					}
+				} else {
+					link(timeout);
+				}
+				timeout = next;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Clears all timeouts.
+	 */
+	public void clear() {
+		for (Timeout<T>[] buckets : wheel) {
+			for (Timeout<T> sentinel : buckets) {
+				Timeout<T> timeout = sentinel.next;
+				while (timeout != sentinel) {
+					Timeout<T> next = timeout.next;
+					timeout.prev = timeout.next = null;
+					timeout = next;
+				}
+				sentinel.prev = sentinel.next = sentinel;
+			}
+		}
+		size = 0;
+	}
+
+	// ---------------------------------------------------------------- buckets
+
+	/**
+	 * Links timeout into the bucket that matches its deadline.
+	 */
+	private void link(Timeout<T> timeout) {
+		Timeout<T> sentinel = findBucket(timeout.deadline);
+		timeout.prev = sentinel.prev;
+		timeout.next = sentinel;
+		sentinel.prev.next = timeout;
+		sentinel.prev = timeout;
+		size++;
+	}
+
+	private void unlink(Timeout<T> timeout) {
+		timeout.prev.next = timeout.next;
+		timeout.next.prev = timeout.prev;
+		timeout.prev = timeout.next = null;
+		size--;
+	}
+
+	/**
+	 * Finds the bucket on the lowest level that can hold given deadline.
+	 * Overdue timeouts are placed in the current bucket of the first level.
+	 */
+	private Timeout<T> findBucket(long deadline) {
+		long time = Math.max(deadline, currentTime);
+		long duration = time - currentTime;
+		int last = SHIFT.length - 1;
+		for (int i = 0; i < last; i++) {
+			if (duration < (1L << SHIFT[i + 1])) {
+				long ticks = time >>> SHIFT[i];
+				return wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+			}
+		}
+		return wheel[last][0];
+	}
+}
@@ -0,0 +1,497 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache.
+ * <p>
+ * New elements are added to a small LRU window (1% of the cache). Elements
+ * evicted from the window are candidates for the main space, a segmented LRU
+ * made of a probation and a protected (80%) part. When the cache is full,
+ * the candidate is admitted only if its estimated access frequency, kept in a
+ * {@link FrequencySketch}, is higher than the frequency of the probation
+ * victim. Elements accessed again while on probation are promoted to the
+ * protected part. All operations, including eviction, are done in constant time.
+ * <p>
+ * Since one-time accessed elements never get enough frequency to replace
+ * the popular ones, the cache is resistant to scans; the window gives new
+ * elements a chance to build their frequency.
+ * <p>
+ * Summary for W-TinyLFU: fast, captures both recency and frequency, scan resistant.
+ */
+public class TinyLFUCache<K, V> implements Cache<K, V> {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	protected final int cacheSize;
+	protected final long timeout;
+	protected final int windowSize;
+	protected final int protectedSize;
+
+	protected final Map<K, Node<K, V>> cacheMap;
+	protected final FrequencySketch sketch;
+	protected final ReentrantLock lock = new ReentrantLock();
+
+	private final Node<K, V> window = new Node<>(null, null, 0);
+	private final Node<K, V> probation = new Node<>(null, null, 0);
+	private final Node<K, V> protectedQueue = new Node<>(null, null, 0);
+
+	private int windowCount;
+	private int protectedCount;
+
+	public TinyLFUCache(int cacheSize) {
+		this(cacheSize, 0);
+	}
+
+	/**
+	 * Creates new W-TinyLFU cache. Cache size must be set.
+	 */
+	public TinyLFUCache(int cacheSize, long timeout) {
+		if (cacheSize <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive");
+		}
+		this.cacheSize = cacheSize;
+		this.timeout = timeout;
+		this.windowSize = Math.max(1, cacheSize / 100);
+		this.protectedSize = (int) ((cacheSize - windowSize) * 0.8);
+		this.cacheMap = new HashMap<>(cacheSize + 1);
+		this.sketch = new FrequencySketch(cacheSize);
+
+		window.prev = window.next = window;
+		probation.prev = probation.next = probation;
+		protectedQueue.prev = protectedQueue.next = protectedQueue;
+	}
+
+	// ---------------------------------------------------------------- properties
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getCacheTimeout() {
+		return timeout;
+	}
+
+	// ---------------------------------------------------------------- put
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void put(K key, V object) {
+		put(key, object, timeout);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void put(K key, V object, long timeout) {
+		lock.lock();
+		try {
+			sketch.increment(key);
+
+			Node<K, V> existing = cacheMap.get(key);
+			if (existing != null) {
+				unlink(existing);
+				if (existing.queue == WINDOW) {
+					windowCount--;
+				} else if (existing.queue == PROTECTED) {
+					protectedCount--;
+				}
+				// replaced value is not removed, so onRemove is not invoked
+				cacheMap.remove(key);
+			}
+
+			Node<K, V> node = new Node<>(key, object, timeout);
+			node.queue = WINDOW;
+			linkLast(window, node);
+			windowCount++;
+			cacheMap.put(key, node);
+
+			if (windowCount > windowSize) {
+				Node<K, V> candidate = window.next;
+				unlink(candidate);
+				windowCount--;
+				candidate.queue = PROBATION;
+				linkLast(probation, candidate);
+
+				if (cacheMap.size() > cacheSize) {
+					evict(candidate);
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Evicts either the candidate that just left the window or the probation
+	 * victim. Candidate is admitted only if its estimated frequency is higher
+	 * than the victim's one.
+	 */
+	protected void evict(Node<K, V> candidate) {
+		Node<K, V> victim = probation.next;
+		if (victim == candidate) {
+			if (protectedCount == 0) {
+				removeNode(candidate);
+				evictionCount++;
+				return;
+			}
+			victim = protectedQueue.next;
+		}
+
+		if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+			removeNode(victim);
+		} else {
+			removeNode(candidate);
+		}
+		evictionCount++;
+	}
+
+	// ---------------------------------------------------------------- get
+
+	protected long hitCount;
+	protected long missCount;
+	protected long evictionCount;
+
+	/**
+	 * Returns hit count.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns miss count.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns number of evicted elements, not counting expired ones.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the ratio of hits to all requests, or <code>0</code>
+	 * if there were no requests.
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		if (requests == 0) {
+			return 0;
+		}
+		return (double) hitCount / requests;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V get(K key) {
+		lock.lock();
+		try {
+			sketch.increment(key);
+
+			Node<K, V> node = cacheMap.get(key);
+			if (node == null) {
+				missCount++;
+				return null;
+			}
+			if (node.isExpired()) {
+				removeNode(node);
+				missCount++;
+				return null;
+			}
+
+			hitCount++;
+			onAccess(node);
+			return node.getObject();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves accessed node within its queue. Nodes on probation are
+	 * promoted to the protected queue, demoting the oldest protected
+	 * node when protected queue is full.
+	 */
+	private void onAccess(Node<K, V> node) {
+		unlink(node);
+		switch (node.queue) {
+			case WINDOW:
+				linkLast(window, node);
+				break;
+			case PROTECTED:
+				linkLast(protectedQueue, node);
+				break;
+			default:
+				node.queue = PROTECTED;
+				linkLast(protectedQueue, node);
+				protectedCount++;
+				if (protectedCount > protectedSize) {
+					Node<K, V> demoted = protectedQueue.next;
+					unlink(demoted);
+					protectedCount--;
+					demoted.queue = PROBATION;
+					linkLast(probation, demoted);
+				}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Iterator<V> iterator() {
+		return new TinyLFUValuesIterator();
+	}
+
+	// ---------------------------------------------------------------- prune
+
+	/**
+	 * Prunes expired elements from the cache. Returns the number of removed objects.
+	 * Size limit is maintained on each put, so no other element is removed.
+	 */
+	public int prune() {
+		lock.lock();
+		try {
+			int count = 0;
+			Iterator<Node<K, V>> values = cacheMap.values().iterator();
+			while (values.hasNext()) {
+				Node<K, V> node = values.next();
+				if (node.isExpired()) {
+					values.remove();
+					detach(node);
+					onRemove(node.key, node.cachedObject);
+					count++;
+				}
+			}
+			return count;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	// ---------------------------------------------------------------- common
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isFull() {
+		return cacheMap.size() >= cacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void remove(K key) {
+		lock.lock();
+		try {
+			Node<K, V> node = cacheMap.get(key);
+			if (node != null) {
+				removeNode(node);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			cacheMap.clear();
+			window.prev = window.next = window;
+			probation.prev = probation.next = probation;
+			protectedQueue.prev = protectedQueue.next = protectedQueue;
+			windowCount = 0;
+			protectedCount = 0;
+			sketch.clear();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+		return cacheMap.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Callback method invoked on cached object removal.
+	 * By default does nothing.
+	 */
+	protected void onRemove(K key, V cachedObject) {
+	}
+
+	// ---------------------------------------------------------------- queues
+
+	private void removeNode(Node<K, V> node) {
+		cacheMap.remove(node.key);
+		detach(node);
+		onRemove(node.key, node.cachedObject);
+	}
+
+	private void detach(Node<K, V> node) {
+		unlink(node);
+		if (node.queue == WINDOW) {
+			windowCount--;
+		} else if (node.queue == PROTECTED) {
+			protectedCount--;
+		}
+	}
+
+	private static <K, V> void linkLast(Node<K, V> head, Node<K, V> node) {
+		node.prev = head.prev;
+		node.next = head;
+		head.prev.next = node;
+		head.prev = node;
+	}
+
+	private static <K, V> void unlink(Node<K, V> node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = node.next = null;
+	}
+
+	/**
+	 * Cached element, linked in one of the queues.
+	 */
+	protected static class Node<K, V> {
+		final K key;
+		final V cachedObject;
+		final long ttl;
+		long lastAccess;
+		int queue;
+		Node<K, V> prev;
+		Node<K, V> next;
+
+		Node(K key, V cachedObject, long ttl) {
+			this.key = key;
+			this.cachedObject = cachedObject;
+			this.ttl = ttl;
+			this.lastAccess = System.currentTimeMillis();
+		}
+
+		boolean isExpired() {
+			if (ttl == 0) {
+				return false;
+			}
+			return lastAccess + ttl < System.currentTimeMillis();
+		}
+
+		V getObject() {
+			lastAccess = System.currentTimeMillis();
+			return cachedObject;
+		}
+	}
+
+	// ---------------------------------------------------------------- iterator
+
+	/**
+	 * Iterator over non-expired values.
+	 */
+	protected class TinyLFUValuesIterator implements Iterator<V> {
+		private final Iterator<Node<K, V>> iterator = cacheMap.values().iterator();
+		private Node<K, V> nextValue;
+		private Node<K, V> current;
+
+		/**
+		 * Resolves next value. If next value doesn't exist, next value will be <code>null</code>.
+		 */
+		private void nextValue() {
+			while (iterator.hasNext()) {
+				nextValue = iterator.next();
+				if (!nextValue.isExpired()) {
+					return;
+				}
+			}
+			nextValue = null;
+		}
+
+		public boolean hasNext() {
+			if (nextValue == null) {
+				nextValue();
+			}
+			return nextValue != null;
+		}
+
+		public V next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			current = nextValue;
+			nextValue = null;
+			return current.cachedObject;
+		}
+
+		/**
+		 * Removes current element. Can not be called
+		 * after {@link #hasNext()} moved to the next element.
+		 */
+		public void remove() {
+			if (current == null || nextValue != null) {
+				throw new IllegalStateException();
+			}
+			iterator.remove();
+			detach(current);
+			onRemove(current.key, current.cachedObject);
+			current = null;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import jodd.util.ThreadUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentCacheTest {
+
+	@Test
+	public void testCacheLRU() {
+		Cache<String, String> cache = new ConcurrentCache<>(3, 0, ConcurrentCache.EvictionPolicy.LRU, 1);
+		cache.put("1", "1");
+		cache.put("2", "2");
+		assertFalse(cache.isFull());
+		cache.put("3", "3");
+		assertTrue(cache.isFull());
+
+		ThreadUtil.sleep(5);
+		assertNotNull(cache.get("1"));
+		assertNotNull(cache.get("2"));
+		cache.put("4", "4");        // new element, cache is full, 3 is least recently used
+		assertNull(cache.get("3"));
+		assertNotNull(cache.get("1"));
+		assertNotNull(cache.get("2"));
+		assertNotNull(cache.get("4"));
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void testCacheLFU() {
+		Cache<String, String> cache = new ConcurrentCache<>(3, 0, ConcurrentCache.EvictionPolicy.LFU, 1);
+		cache.put("1", "1");
+		cache.put("2", "2");
+		cache.put("3", "3");
+
+		cache.get("3");
+		cache.get("3");
+		cache.get("3");
+		cache.get("2");
+		cache.get("2");
+		cache.get("1");
+
+		cache.put("4", "4");
+		assertNull(cache.get("1"));
+		assertNotNull(cache.get("2"));
+		assertNotNull(cache.get("3"));
+		assertNotNull(cache.get("4"));
+	}
+
+	@Test
+	public void testCacheTime() {
+		Cache<String, String> cache = new ConcurrentCache<>(3, 0, ConcurrentCache.EvictionPolicy.LRU, 1);
+		cache.put("1", "1", 50);
+		cache.put("2", "2");
+		cache.put("3", "3");
+		assertTrue(cache.isFull());
+
+		ThreadUtil.sleep(100);
+		assertNull(cache.get("1"));     // expired
+		assertFalse(cache.isFull());
+		assertEquals(2, cache.size());
+
+		cache.put("1", "1", 50);
+		ThreadUtil.sleep(100);
+		assertEquals(1, cache.prune());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testSegments() {
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(1000);
+		assertEquals(16, cache.getSegmentsCount());
+
+		for (int i = 0; i < 5000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 1000);
+		assertTrue(cache.isFull());
+		assertEquals(4000, cache.getEvictionCount());
+
+		cache = new ConcurrentCache<>(3);
+		assertEquals(2, cache.getSegmentsCount());
+	}
+
+	@Test
+	public void testSharedSize() {
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(100, 0, ConcurrentCache.EvictionPolicy.LRU, 16);
+
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, i);
+		}
+		// segments are not filled evenly, but the whole cache size is used
+		assertEquals(100, cache.size());
+		assertEquals(0, cache.getEvictionCount());
+
+		cache.put(100, 100);
+		assertEquals(100, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(Integer.valueOf(100), cache.get(100));
+	}
+
+	@Test
+	public void testOnRemove() {
+		final List<String> removed = new ArrayList<>();
+
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(2, 0, ConcurrentCache.EvictionPolicy.LRU, 1) {
+			@Override
+			protected void onRemove(String key, String cachedObject) {
+				removed.add(key);
+			}
+		};
+		cache.put("1", "1");
+		cache.put("1", "one");
+		assertTrue(removed.isEmpty());
+
+		cache.put("2", "2");
+		ThreadUtil.sleep(10);
+		cache.get("1");
+		cache.put("3", "3");
+		assertEquals(1, removed.size());
+		assertEquals("2", removed.get(0));
+
+		cache.remove("1");
+		assertEquals(2, removed.size());
+		assertEquals("1", removed.get(1));
+	}
+
+	@Test
+	public void testIteratorAndStats() {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<>(0);
+		cache.put("1", "1");
+		cache.put("2", "2");
+		cache.put("3", "3");
+
+		cache.get("1");
+		cache.get("1");
+		cache.get("4");
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		int count = 0;
+		Iterator<String> iterator = cache.iterator();
+		while (iterator.hasNext()) {
+			String value = iterator.next();
+			if (value.equals("2")) {
+				iterator.remove();
+			}
+			count++;
+		}
+		assertEquals(3, count);
+		assertEquals(2, cache.size());
+		assertNull(cache.get("2"));
+
+		cache.clear();
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(100);
+		final CountDownLatch latch = new CountDownLatch(8);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+
+		for (int t = 0; t < 8; t++) {
+			final int offset = t * 1000;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 10000; i++) {
+							int key = offset + (i % 500);
+							cache.put(key, key);
+							Integer value = cache.get(key - 1);
+							if (value != null && value != key - 1) {
+								throw new IllegalStateException();
+							}
+						}
+					} catch (Throwable throwable) {
+						error.set(throwable);
+					} finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+
+		latch.await();
+		assertNull(error.get());
+		assertTrue(cache.size() <= 100);
+	}
+}
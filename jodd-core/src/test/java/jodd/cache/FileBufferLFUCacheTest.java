@@ -0,0 +1,132 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import jodd.io.FileUtil;
+import jodd.util.SystemUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import static org.junit.Assert.*;
+
+public class FileBufferLFUCacheTest {
+
+	private File tempFolder = new File(SystemUtil.tempDir());
+
+	private File file(String fileName, int size) throws IOException {
+		byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) i;
+		}
+
+		File file = new File(tempFolder, fileName);
+		file.deleteOnExit();
+
+		FileUtil.writeBytes(file, bytes);
+
+		return file;
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		FileBufferLFUCache cache = new FileBufferLFUCache(25);
+
+		assertEquals(25, cache.getMaxSize());
+		assertEquals(12, cache.getMaxFileSize());
+
+		File a = file("ba", 10);
+		File b = file("bb", 9);
+		File c = file("bc", 7);
+
+		cache.getFileBuffer(a);
+		cache.getFileBuffer(a);
+		cache.getFileBuffer(a);
+		cache.getFileBuffer(b);
+
+		assertEquals(2, cache.getCachedFilesCount());
+		assertEquals(19, cache.getUsedSize());
+
+		cache.getFileBuffer(c);        // b is out, a(2), c(1)
+
+		assertEquals(2, cache.getCachedFilesCount());
+		assertEquals(17, cache.getUsedSize());
+
+		cache.getFileBuffer(c);
+		cache.getFileBuffer(c);
+		cache.getFileBuffer(c);
+
+		cache.getFileBuffer(b);        // a is out
+
+		assertEquals(2, cache.getCachedFilesCount());
+		assertEquals(16, cache.getUsedSize());
+	}
+
+	@Test
+	public void testBuffers() throws IOException {
+		for (boolean memoryMapped : new boolean[] {false, true}) {
+			FileBufferLFUCache cache = new FileBufferLFUCache(100, 50, 0, memoryMapped);
+			File a = file("bufa", 20);
+
+			ByteBuffer buffer = cache.getFileBuffer(a);
+			assertTrue(buffer.isReadOnly());
+			assertTrue(buffer.isDirect());
+			assertEquals(20, buffer.remaining());
+			buffer.position(10);
+
+			ByteBuffer buffer2 = cache.getFileBuffer(a);
+			assertEquals(0, buffer2.position());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			WritableByteChannel channel = Channels.newChannel(out);
+			channel.write(buffer2);
+			assertArrayEquals(FileUtil.readBytes(a), out.toByteArray());
+		}
+	}
+
+	@Test
+	public void testRevalidate() throws IOException {
+		FileBufferLFUCache cache = new FileBufferLFUCache(100);
+		File a = file("bufr", 10);
+
+		assertEquals(10, cache.getFileBuffer(a).remaining());
+		assertEquals(10, cache.getUsedSize());
+
+		FileUtil.writeBytes(a, new byte[] {1, 2, 3});
+		a.setLastModified(a.lastModified() + 2000);
+
+		ByteBuffer buffer = cache.getFileBuffer(a);
+		assertEquals(3, buffer.remaining());
+		assertEquals(1, buffer.get());
+		assertEquals(3, cache.getUsedSize());
+		assertEquals(1, cache.getCachedFilesCount());
+	}
+}
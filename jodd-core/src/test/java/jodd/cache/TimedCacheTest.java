@@ -0,0 +1,163 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import jodd.util.ThreadUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimedCacheTest {
+
+	@Test
+	public void testCache() {
+		TimedCache<String, String> cache = new TimedCache<>(50);
+		cache.put("1", "1");
+		cache.put("2", "2", 0);			// never expires
+		cache.put("3", "3", 1000);
+		assertEquals(3, cache.size());
+		assertEquals(2, cache.timerWheel.size());
+
+		ThreadUtil.sleep(200);
+		assertEquals(1, cache.prune());
+		assertNull(cache.get("1"));
+		assertNotNull(cache.get("2"));
+		assertNotNull(cache.get("3"));
+		assertEquals(1, cache.timerWheel.size());
+
+		cache.put("3", "3", 0);
+		assertEquals(0, cache.timerWheel.size());
+
+		cache.put("4", "4");
+		cache.remove("4");
+		assertEquals(0, cache.timerWheel.size());
+
+		cache.put("5", "5");
+		cache.clear();
+		assertTrue(cache.isEmpty());
+		assertEquals(0, cache.timerWheel.size());
+	}
+
+	@Test
+	public void testAccessExtendsTimeout() {
+		TimedCache<String, String> cache = new TimedCache<>(300);
+		cache.put("1", "1");
+		for (int i = 0; i < 4; i++) {
+			ThreadUtil.sleep(150);
+			assertNotNull(cache.get("1"));
+			assertEquals(0, cache.prune());
+		}
+		ThreadUtil.sleep(500);
+		assertEquals(1, cache.prune());
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testCoarseClock() {
+		TimedCache<String, String> cache = new TimedCache<>(50);
+		cache.scheduleClock(10);
+		try {
+			cache.put("1", "1");
+			assertNotNull(cache.get("1"));
+			ThreadUtil.sleep(200);
+			assertNull(cache.get("1"));
+		}
+		finally {
+			cache.cancelClockSchedule();
+		}
+	}
+
+	@Test
+	public void testPruneUsesCacheClock() {
+		final long[] time = new long[] {1000000};
+
+		TimedCache<String, String> cache = new TimedCache<String, String>(100) {
+			@Override
+			protected long currentTimeMillis() {
+				return time[0];
+			}
+		};
+		cache.put("1", "1");
+
+		time[0] += 50;
+		assertEquals(0, cache.prune());
+		assertEquals(1, cache.size());
+
+		time[0] += 200;
+		assertEquals(1, cache.prune());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testTimerWheel() {
+		final List<Integer> expired = new ArrayList<>();
+		TimerWheel.Expiration<Integer> expiration = new TimerWheel.Expiration<Integer>() {
+			public long expire(Integer item, long now) {
+				expired.add(item);
+				return 0;
+			}
+		};
+
+		long start = 1000000;
+		TimerWheel<Integer> timerWheel = new TimerWheel<>(start);
+		Random random = new Random(11);
+		long[] deadlines = new long[5000];
+
+		for (int i = 0; i < deadlines.length; i++) {
+			// from milliseconds up to few days
+			long delay = (long) Math.pow(2, random.nextInt(29)) + random.nextInt(64);
+			deadlines[i] = start + delay;
+			timerWheel.schedule(Integer.valueOf(i), deadlines[i]);
+		}
+
+		TimerWheel.Timeout<Integer> cancelled = timerWheel.schedule(Integer.valueOf(-1), start + 100);
+		timerWheel.cancel(cancelled);
+		assertEquals(deadlines.length, timerWheel.size());
+
+		long now = start;
+		while (timerWheel.size() > 0) {
+			now += 1 + random.nextInt(1 << 20);
+			int size = expired.size();
+			timerWheel.advance(now, expiration);
+
+			for (int i = size; i < expired.size(); i++) {
+				assertTrue(deadlines[expired.get(i)] <= now);
+			}
+			for (int i = 0; i < deadlines.length; i++) {
+				// everything due before the previous bucket is expired
+				if (deadlines[i] < now - 64) {
+					assertTrue(expired.contains(Integer.valueOf(i)));
+				}
+			}
+		}
+		assertEquals(deadlines.length, expired.size());
+		assertFalse(expired.contains(Integer.valueOf(-1)));
+	}
+}
@@ -0,0 +1,194 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.cache;
+
+import jodd.mutable.MutableInteger;
+import jodd.util.ThreadUtil;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class TinyLFUCacheTest {
+
+	@Test
+	public void testCache() {
+		Cache<String, String> cache = new TinyLFUCache<>(3);
+		cache.put("1", "1");
+		cache.put("2", "2");
+		assertFalse(cache.isFull());
+		cache.put("3", "3");
+		assertTrue(cache.isFull());
+
+		assertEquals("1", cache.get("1"));
+		assertEquals("2", cache.get("2"));
+		assertEquals("3", cache.get("3"));
+
+		cache.put("4", "4");            // 4 enters the window, 3 is not frequent enough for main
+		assertEquals(3, cache.size());
+		assertNull(cache.get("3"));
+		assertNotNull(cache.get("4"));
+		assertNotNull(cache.get("1"));
+		assertNotNull(cache.get("2"));
+
+		cache.remove("1");
+		assertEquals(2, cache.size());
+		assertNull(cache.get("1"));
+
+		cache.clear();
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testScanResistance() {
+		TinyLFUCache<Integer, Integer> tinyLFUCache = new TinyLFUCache<>(100);
+		LRUCache<Integer, Integer> lruCache = new LRUCache<>(100);
+
+		for (int round = 0; round < 10; round++) {
+			// hot set
+			for (int i = 0; i < 50; i++) {
+				access(tinyLFUCache, i);
+				access(lruCache, i);
+			}
+			// scan
+			for (int i = 0; i < 200; i++) {
+				int key = 1000 + round * 200 + i;
+				access(tinyLFUCache, key);
+				access(lruCache, key);
+			}
+		}
+
+		int tinyLFUHot = 0;
+		int lruHot = 0;
+		for (int i = 0; i < 50; i++) {
+			if (tinyLFUCache.get(i) != null) {
+				tinyLFUHot++;
+			}
+			if (lruCache.get(i) != null) {
+				lruHot++;
+			}
+		}
+		assertEquals(0, lruHot);
+		assertTrue(tinyLFUHot >= 45);
+		assertTrue(tinyLFUCache.getHitRate() > 0.1);
+		assertTrue(tinyLFUCache.getEvictionCount() > 0);
+	}
+
+	private void access(Cache<Integer, Integer> cache, int key) {
+		if (cache.get(key) == null) {
+			cache.put(key, key);
+		}
+	}
+
+	@Test
+	public void testStats() {
+		TinyLFUCache<String, String> cache = new TinyLFUCache<>(10);
+		assertEquals(0, cache.getHitRate(), 0.0001);
+
+		cache.put("1", "1");
+		cache.get("1");
+		cache.get("1");
+		cache.get("1");
+		cache.get("2");
+
+		assertEquals(3, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.75, cache.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void testCacheTime() {
+		Cache<String, String> cache = new TinyLFUCache<>(3);
+		cache.put("1", "1", 50);
+		cache.put("2", "2");
+		cache.put("3", "3", 50);
+
+		ThreadUtil.sleep(100);
+		assertNull(cache.get("1"));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.prune());
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get("2"));
+	}
+
+	@Test
+	public void testIteratorAndOnRemove() {
+		final MutableInteger mutableInteger = new MutableInteger();
+		Cache<String, String> cache = new TinyLFUCache<String, String>(10) {
+			@Override
+			protected void onRemove(String key, String cachedObject) {
+				mutableInteger.value++;
+			}
+		};
+		cache.put("1", "1");
+		cache.put("2", "2");
+		cache.put("3", "3");
+
+		Iterator<String> iterator = cache.iterator();
+		int count = 0;
+		while (iterator.hasNext()) {
+			String value = iterator.next();
+			if (value.equals("2")) {
+				iterator.remove();
+			}
+			count++;
+		}
+		assertEquals(3, count);
+		assertEquals(2, cache.size());
+		assertEquals(1, mutableInteger.value);
+
+		// replacing the value is not a removal
+		cache.put("1", "one");
+		assertEquals("one", cache.get("1"));
+		assertEquals(1, mutableInteger.value);
+	}
+
+	@Test
+	public void testFrequencySketch() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		assertEquals(0, sketch.frequency("a"));
+
+		for (int i = 0; i < 5; i++) {
+			sketch.increment("a");
+		}
+		assertTrue(sketch.frequency("a") >= 5);
+
+		for (int i = 0; i < 20; i++) {
+			sketch.increment("a");
+		}
+		assertEquals(15, sketch.frequency("a"));
+
+		// aging
+		for (int i = 0; i < 640; i++) {
+			sketch.increment(Integer.valueOf(i));
+		}
+		assertTrue(sketch.frequency("a") < 15);
+
+		sketch.clear();
+		assertEquals(0, sketch.frequency("a"));
+	}
+}
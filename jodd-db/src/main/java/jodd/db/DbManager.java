@@ -25,6 +25,8 @@
 
 package jodd.db;
 
+import jodd.cache.Cache;
+import jodd.cache.ConcurrentCache;
 import jodd.db.connection.ConnectionProvider;
 import jodd.db.querymap.QueryMap;
 
@@ -94,6 +96,7 @@ public class DbManager {
 	protected int holdability = DbQuery.DEFAULT_HOLDABILITY;
 	protected int fetchSize = 0;
 	protected int maxRows = 0;
+	protected int batchSize = 0;
 
 	public boolean isForcePreparedStatement() {
 		return forcePreparedStatement;
@@ -169,6 +172,21 @@ public class DbManager {
 		this.maxRows = maxRows;
 	}
 
+	/**
+	 * Returns default batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets default batch size.
+	 * @see DbQuery#setBatchSize(int)
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	// ---------------------------------------------------------------- debug
 
 	protected boolean debug = false;
@@ -210,4 +228,60 @@ public class DbManager {
 	public void setQueryMap(QueryMap queryMap) {
 		this.queryMap = queryMap;
 	}
+
+	// ---------------------------------------------------------------- cache
+
+	protected int queryCacheSize = 1000;
+	protected int statementCacheSize = 0;
+
+	Cache<String, DbQueryParser> queryCache = new ConcurrentCache<>(queryCacheSize);
+
+	/**
+	 * Returns size of parsed queries cache.
+	 */
+	public int getQueryCacheSize() {
+		return queryCacheSize;
+	}
+
+	/**
+	 * Sets the size of the cache of parsed SQL queries. Parsed query
+	 * holds the final SQL and positions of named parameters.
+	 * Value <code>0</code> disables the cache.
+	 */
+	public void setQueryCacheSize(int queryCacheSize) {
+		this.queryCacheSize = queryCacheSize;
+		this.queryCache = queryCacheSize > 0 ? new ConcurrentCache<String, DbQueryParser>(queryCacheSize) : null;
+	}
+
+	/**
+	 * Returns default size of per-session prepared statements cache.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Sets default size of prepared statements cache of each new
+	 * {@link DbSession}. By default, statements are not cached.
+	 * @see DbSession#setStatementCacheSize(int)
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Returns parsed query, either from the cache or by parsing it.
+	 */
+	DbQueryParser parseQuery(String sqlString) {
+		Cache<String, DbQueryParser> cache = queryCache;
+		if (cache == null) {
+			return new DbQueryParser(sqlString);
+		}
+		DbQueryParser query = cache.get(sqlString);
+		if (query == null) {
+			query = new DbQueryParser(sqlString);
+			cache.put(sqlString, query);
+		}
+		return query;
+	}
 }
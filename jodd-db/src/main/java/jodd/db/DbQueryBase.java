@@ -58,6 +58,7 @@ abstract class DbQueryBase implements AutoCloseable {
 		this.debug = dbManager.debug;
 		this.fetchSize = dbManager.fetchSize;
 		this.maxRows = dbManager.maxRows;
+		this.batchSize = dbManager.batchSize;
 	}
 
 	// ---------------------------------------------------------------- query states
@@ -148,6 +149,7 @@ abstract class DbQueryBase implements AutoCloseable {
 
 	protected Statement statement;
 	protected PreparedStatement preparedStatement;
+	protected String statementKey;
 	protected Set<ResultSet> resultSets;
 	protected DbQueryParser query;
 
@@ -226,7 +228,7 @@ abstract class DbQueryBase implements AutoCloseable {
 			connection = session.getConnection();
 		}
 
-		this.query = new DbQueryParser(sqlString);
+		this.query = dbManager.parseQuery(sqlString);
 
 		// statement
 		if ((!forcePreparedStatement) && (!query.prepared)) {
@@ -242,6 +244,16 @@ abstract class DbQueryBase implements AutoCloseable {
 			return;
 		}
 
+		// cached prepared statement
+		if (session != null && !debug && session.isStatementCacheEnabled()) {
+			statementKey = createStatementKey();
+			preparedStatement = session.lookupStatement(statementKey);
+			if (preparedStatement != null) {
+				statement = preparedStatement;
+				return;
+			}
+		}
+
 		// prepared statement
 		try {
 			if (debug) {
@@ -279,6 +291,24 @@ abstract class DbQueryBase implements AutoCloseable {
 		preparedStatement = (PreparedStatement) statement;
 	}
 
+	/**
+	 * Creates the key of prepared statement in the session statements cache.
+	 * Besides the SQL, key contains all settings used for statement creation.
+	 */
+	protected String createStatementKey() {
+		StringBuilder key = new StringBuilder(query.sql.length() + 32);
+		key.append(type).append(':').append(concurrencyType).append(':').append(holdability).append(':');
+		if (generatedColumns != null) {
+			key.append('[');
+			for (String generatedColumn : generatedColumns) {
+				key.append(generatedColumn).append(',');
+			}
+			key.append(']');
+		}
+		key.append(':').append(query.sql);
+		return key.toString();
+	}
+
 	/**
 	 * Prepares the query just after the initialization.
 	 * Query is fully set and ready.
@@ -346,9 +376,25 @@ abstract class DbQueryBase implements AutoCloseable {
 
 	/**
 	 * Closes all assigned result sets and then closes the query. Query becomes closed.
+	 * Batch statements that are added but not executed are discarded and reported.
 	 */
 	protected SQLException closeQuery() {
 		SQLException sqlException = closeQueryResultSets();
+		if (batchCount != 0) {
+			SQLException sex = new SQLException("Query closed with " + batchCount + " not executed batch statements");
+			if (sqlException == null) {
+				sqlException = sex;
+			} else {
+				sqlException.setNextException(sex);
+			}
+		}
+		if (statementKey != null) {
+			if (releaseStatement()) {
+				statement = null;
+				preparedStatement = null;
+			}
+			statementKey = null;
+		}
 		if (statement != null) {
 			try {
 				statement.close();
@@ -361,11 +407,38 @@ abstract class DbQueryBase implements AutoCloseable {
 			}
 			statement = null;
 		}
+		batchCount = 0;
 		query = null;
 		queryState = QUERY_CLOSED;
 		return sqlException;
 	}
 
+	/**
+	 * Returns prepared statement to the session statements cache.
+	 * Returns <code>false</code> if statement was not cached.
+	 */
+	protected boolean releaseStatement() {
+		if (session == null || preparedStatement == null) {
+			return false;
+		}
+		try {
+			if (batchCount != 0) {
+				preparedStatement.clearBatch();
+				batchCount = 0;
+			}
+			preparedStatement.clearParameters();
+			if (fetchSize != 0) {
+				preparedStatement.setFetchSize(0);
+			}
+			if (maxRows != 0) {
+				preparedStatement.setMaxRows(0);
+			}
+		} catch (SQLException ignore) {
+			return false;
+		}
+		return session.cacheStatement(statementKey, preparedStatement);
+	}
+
 	/**
 	 * Closes the query and all created results sets and detaches itself from the session.
 	 */
@@ -613,6 +686,26 @@ abstract class DbQueryBase implements AutoCloseable {
 		}
 	}
 
+	protected int batchSize;
+
+	/**
+	 * Returns batch size.
+	 * @see #setBatchSize(int)
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of statements after which {@link #addBatch() batch}
+	 * is automatically sent to the database. Zero means that batch is
+	 * sent only on {@link #executeBatch()}.
+	 */
+	public void setBatchSize(int batchSize) {
+		checkNotClosed();
+		this.batchSize = batchSize;
+	}
+
 	// ---------------------------------------------------------------- execute
 	protected long start;
 	protected long elapsed = -1;
@@ -757,6 +850,171 @@ abstract class DbQueryBase implements AutoCloseable {
 		}
 	}
 
+	// ---------------------------------------------------------------- batch
+
+	protected int batchCount;
+	protected int[] batchResults;
+	protected int batchResultsCount;
+	protected long[] batchKeys;
+	protected int batchKeysCount;
+
+	/**
+	 * Adds current set of parameters to the batch. When number of added
+	 * statements reaches the {@link #setBatchSize(int) batch size}, batch
+	 * is sent to the database. Non-prepared queries add the query itself.
+	 * @see PreparedStatement#addBatch()
+	 */
+	public void addBatch() {
+		init();
+		try {
+			if (preparedStatement == null) {
+				statement.addBatch(query.sql);
+			} else {
+				preparedStatement.addBatch();
+			}
+		} catch (SQLException sex) {
+			throw new DbSqlException(this, "Unable to add batch", sex);
+		}
+		batchCount++;
+
+		if (batchSize > 0 && batchCount >= batchSize) {
+			flushBatch();
+		}
+	}
+
+	/**
+	 * Returns number of statements added to the batch and not yet sent.
+	 */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Executes the batch and returns update counts of all statements
+	 * added since the last invocation, including the ones already
+	 * sent by auto-flush. Query is not closed afterwards unless
+	 * {@link #autoClose() auto close mode} is set.
+	 * @see Statement#executeBatch()
+	 */
+	public int[] executeBatch() {
+		return executeBatch(autoClose);
+	}
+
+	/**
+	 * Executes the batch and optionally closes the query.
+	 */
+	protected int[] executeBatch(boolean closeQuery) {
+		init();
+		flushBatch();
+
+		int[] result = new int[batchResultsCount];
+		if (batchResultsCount > 0) {
+			System.arraycopy(batchResults, 0, result, 0, batchResultsCount);
+		}
+		batchResultsCount = 0;
+
+		if (closeQuery) {
+			close();
+		}
+		return result;
+	}
+
+	/**
+	 * Sends all added statements to the database. When generated columns
+	 * are specified, generated keys are collected right away, since
+	 * the next batch overwrites them.
+	 */
+	protected void flushBatch() {
+		if (batchCount == 0) {
+			return;
+		}
+		start = System.currentTimeMillis();
+
+		if (log.isDebugEnabled()) {
+			log.debug("Executing batch of " + batchCount + ": " + getQueryString());
+		}
+		int[] result;
+		try {
+			result = statement.executeBatch();
+		} catch (SQLException sex) {
+			throw new DbSqlException(this, "Batch execution failed", sex);
+		} finally {
+			batchCount = 0;
+		}
+
+		batchResults = append(batchResults, batchResultsCount, result);
+		batchResultsCount += result.length;
+
+		if (generatedColumns != null) {
+			collectBatchKeys();
+		}
+
+		elapsed = System.currentTimeMillis() - start;
+		if (log.isDebugEnabled()) {
+			log.debug("execution time: " + elapsed + "ms");
+		}
+	}
+
+	/**
+	 * Reads generated keys after batch execution. Drivers that do not
+	 * return keys for batches are silently ignored.
+	 */
+	protected void collectBatchKeys() {
+		ResultSet rs = null;
+		try {
+			rs = statement.getGeneratedKeys();
+			if (rs == null) {
+				return;
+			}
+			while (rs.next()) {
+				if (batchKeys == null) {
+					batchKeys = new long[16];
+				} else if (batchKeysCount == batchKeys.length) {
+					long[] newKeys = new long[batchKeys.length << 1];
+					System.arraycopy(batchKeys, 0, newKeys, 0, batchKeysCount);
+					batchKeys = newKeys;
+				}
+				batchKeys[batchKeysCount++] = rs.getLong(1);
+			}
+		} catch (SQLException sex) {
+			if (log.isDebugEnabled()) {
+				log.debug("Generated keys not available for batch: " + sex.getMessage());
+			}
+		} finally {
+			DbUtil.close(rs);
+		}
+	}
+
+	/**
+	 * Returns generated keys of all batched statements, in the order
+	 * they were added. Returns empty array if driver does not support
+	 * returning generated keys for batches.
+	 */
+	public long[] getGeneratedBatchKeys() {
+		checkInitialized();
+		if (generatedColumns == null) {
+			throw new DbSqlException(this, "No column is specified as auto-generated");
+		}
+		long[] keys = new long[batchKeysCount];
+		if (batchKeysCount > 0) {
+			System.arraycopy(batchKeys, 0, keys, 0, batchKeysCount);
+		}
+		batchKeysCount = 0;
+		return keys;
+	}
+
+	private static int[] append(int[] target, int targetSize, int[] values) {
+		if (target == null || target.length - targetSize < values.length) {
+			int[] newTarget = new int[Math.max((targetSize + values.length), targetSize << 1)];
+			if (target != null) {
+				System.arraycopy(target, 0, newTarget, 0, targetSize);
+			}
+			target = newTarget;
+		}
+		System.arraycopy(values, 0, target, targetSize, values.length);
+		return target;
+	}
+
 	// ---------------------------------------------------------------- result set mapper
 
 	/**
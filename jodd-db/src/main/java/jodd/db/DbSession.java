@@ -30,7 +30,11 @@ import jodd.log.Logger;
 import jodd.log.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -77,6 +81,7 @@ public class DbSession implements AutoCloseable {
 		txActive = false;
 		txMode = dbManager.transactionMode;
 		queries = new HashSet<>();
+		statementCacheSize = dbManager.statementCacheSize;
 	}
 
 
@@ -103,6 +108,14 @@ public class DbSession implements AutoCloseable {
 				}
 			}
 		}
+		SQLException sex = closeStatementCache();
+		if (sex != null) {
+			if (sqlException == null) {
+				sqlException = sex;
+			} else {
+				sqlException.setNextException(sex);
+			}
+		}
 		if (connection != null) {
 			if (txActive) {
 				throw new DbSqlException("TX was not closed before closing the session");
@@ -195,6 +208,106 @@ public class DbSession implements AutoCloseable {
 		}
 	}
 
+	// ---------------------------------------------------------------- statement cache
+
+	protected int statementCacheSize;
+	protected Map<String, PreparedStatement> statementCache;
+
+	/**
+	 * Returns size of prepared statements cache.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Sets the size of prepared statements cache. Closed queries return their
+	 * prepared statements to the cache, so the next query with the same SQL
+	 * in this session skips statement preparation. Value <code>0</code>
+	 * disables the cache and closes all cached statements.
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+		if (statementCacheSize <= 0) {
+			SQLException sex = closeStatementCache();
+			if (sex != null) {
+				throw new DbSqlException("Closing cached statements failed", sex);
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if statements are cached.
+	 */
+	protected boolean isStatementCacheEnabled() {
+		return statementCacheSize > 0 && queries != null;
+	}
+
+	/**
+	 * Takes cached prepared statement out of the cache. Returns <code>null</code>
+	 * if statement is not cached.
+	 */
+	protected PreparedStatement lookupStatement(String key) {
+		if (statementCache == null) {
+			return null;
+		}
+		return statementCache.remove(key);
+	}
+
+	/**
+	 * Puts prepared statement into the cache. Returns <code>false</code> if
+	 * statement is not cached and therefore has to be closed by the caller.
+	 * The least recently cached statement is closed when cache is full.
+	 */
+	protected boolean cacheStatement(String key, PreparedStatement preparedStatement) {
+		if (!isStatementCacheEnabled()) {
+			return false;
+		}
+		if (statementCache == null) {
+			statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+					if (size() <= statementCacheSize) {
+						return false;
+					}
+					DbUtil.close(eldest.getValue());
+					return true;
+				}
+			};
+		}
+		if (statementCache.containsKey(key)) {
+			return false;
+		}
+		statementCache.put(key, preparedStatement);
+		return true;
+	}
+
+	/**
+	 * Closes all cached statements.
+	 */
+	protected SQLException closeStatementCache() {
+		if (statementCache == null) {
+			return null;
+		}
+		SQLException sqlException = null;
+		Iterator<PreparedStatement> iterator = statementCache.values().iterator();
+		while (iterator.hasNext()) {
+			PreparedStatement preparedStatement = iterator.next();
+			iterator.remove();
+			try {
+				preparedStatement.close();
+			} catch (SQLException sex) {
+				if (sqlException == null) {
+					sqlException = sex;
+				} else {
+					sqlException.setNextException(sex);
+				}
+			}
+		}
+		statementCache = null;
+		return sqlException;
+	}
+
 	// ---------------------------------------------------------------- transaction
 
 	protected boolean txActive;
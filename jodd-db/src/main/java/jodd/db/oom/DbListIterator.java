@@ -67,6 +67,7 @@ class DbListIterator<T> implements Iterator<T> {
 	protected int count;
 	protected boolean last;
 	protected Boolean hasNext;
+	protected boolean closed;
 
 	public void remove() {
 		throw new UnsupportedOperationException();
@@ -116,13 +117,7 @@ class DbListIterator<T> implements Iterator<T> {
 	private boolean moveToNext() {
 		if (last) {
 			// last has been set to true, so no more rows to iterate - close everything
-
-			if (closeOnEnd) {
-				query.close();
-			} else {
-				query.closeResultSet(resultSetMapper.getResultSet());
-			}
-
+			closeOnEnd();
 			return false;
 		}
 
@@ -131,7 +126,11 @@ class DbListIterator<T> implements Iterator<T> {
 			if (!resultSetMapper.next()) {
 				// no more rows, no more parsing, previousElement is the last one to iterate
 				last = true;
-				return entityAwareMode;
+				if (entityAwareMode && (count != 0 || previousElement != null)) {
+					return true;
+				}
+				closeOnEnd();
+				return false;
 			}
 
 			// parse row
@@ -171,4 +170,19 @@ class DbListIterator<T> implements Iterator<T> {
 		return true;
 	}
 
+	/**
+	 * Closes the query or just the result set when iteration is over.
+	 */
+	private void closeOnEnd() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (closeOnEnd) {
+			query.close();
+		} else {
+			query.closeResultSet(resultSetMapper.getResultSet());
+		}
+	}
+
 }
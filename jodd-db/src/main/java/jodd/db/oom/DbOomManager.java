@@ -25,6 +25,9 @@
 
 package jodd.db.oom;
 
+import jodd.cache.Cache;
+import jodd.cache.ConcurrentCache;
+import jodd.db.oom.mapper.MappingPlan;
 import jodd.db.oom.naming.ColumnNamingStrategy;
 import jodd.db.oom.naming.TableNamingStrategy;
 import jodd.util.StringUtil;
@@ -289,6 +292,7 @@ public class DbOomManager {
 		descriptorsMap.clear();
 		entityNamesMap.clear();
 		tableNamesMap.clear();
+		mappingPlans.clear();
 	}
 
 
@@ -362,6 +366,62 @@ public class DbOomManager {
 		this.cacheEntitiesInResultSet = cacheEntitiesInResultSet;
 	}
 
+	protected int entitiesCacheSize;
+
+	public int getEntitiesCacheSize() {
+		return entitiesCacheSize;
+	}
+
+	/**
+	 * Defines the maximal number of entities cached in result set. When set,
+	 * only the most recently used entities are kept. Value <code>0</code>
+	 * means that the cache is not bounded.
+	 */
+	public void setEntitiesCacheSize(int entitiesCacheSize) {
+		this.entitiesCacheSize = entitiesCacheSize;
+	}
+
+	protected boolean compiledResultSetMappers;
+	protected final Cache<String, MappingPlan> mappingPlans = new ConcurrentCache<>(256);
+
+	public boolean isCompiledResultSetMappers() {
+		return compiledResultSetMappers;
+	}
+
+	/**
+	 * Defines if {@link jodd.db.oom.mapper.CompiledResultSetMapper compiled result set mappers}
+	 * should be used. Compiled mapper resolves column mapping only once per query shape
+	 * and then maps rows without name lookups and reflection.
+	 */
+	public void setCompiledResultSetMappers(boolean compiledResultSetMappers) {
+		this.compiledResultSetMappers = compiledResultSetMappers;
+	}
+
+	/**
+	 * Returns cache of compiled {@link MappingPlan mapping plans}.
+	 */
+	public Cache<String, MappingPlan> getMappingPlansCache() {
+		return mappingPlans;
+	}
+
+	protected int templateCacheSize = 1000;
+
+	/**
+	 * Returns size of tokenized templates cache.
+	 */
+	public int getTemplateCacheSize() {
+		return templateCacheSize;
+	}
+
+	/**
+	 * Sets the size of the cache of tokenized {@link jodd.db.oom.sqlgen.DbSqlBuilder}
+	 * templates, so the same template is scanned only once.
+	 * Value <code>0</code> disables the cache.
+	 */
+	public void setTemplateCacheSize(int templateCacheSize) {
+		this.templateCacheSize = templateCacheSize;
+	}
+
 	// ---------------------------------------------------------------- db list
 
 	protected boolean entityAwareMode;
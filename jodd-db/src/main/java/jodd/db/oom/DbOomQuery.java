@@ -27,7 +27,9 @@ package jodd.db.oom;
 
 import jodd.db.DbQuery;
 import jodd.db.DbSession;
+import jodd.db.DbSqlException;
 import jodd.db.DbUtil;
+import jodd.db.oom.mapper.CompiledResultSetMapper;
 import jodd.db.oom.mapper.DefaultResultSetMapper;
 import jodd.db.oom.mapper.ResultSetMapper;
 import jodd.db.oom.sqlgen.ParameterValue;
@@ -146,7 +148,13 @@ public class DbOomQuery extends DbQuery {
 			}
 		}
 		// insert parameters
-		Map<String, ParameterValue> parameters = sqlgen.getQueryParameters();
+		setQueryParameters(sqlgen.getQueryParameters());
+	}
+
+	/**
+	 * Sets generated query parameters.
+	 */
+	protected void setQueryParameters(Map<String, ParameterValue> parameters) {
 		if (parameters == null) {
 			return;
 		}
@@ -163,6 +171,23 @@ public class DbOomQuery extends DbQuery {
 		}
 	}
 
+	/**
+	 * Adds parameters of given sql generator to the batch. Generator has to produce
+	 * the same query as the one used by this query, e.g. an insert of an entity of the
+	 * same type with the same set of non-null properties. Returns <code>false</code>
+	 * if generated query is different; then nothing is added.
+	 */
+	public boolean addBatch(DbSqlGenerator sqlgen) {
+		String generatedQuery = sqlgen.generateQuery();
+		if (!generatedQuery.equals(sqlString)) {
+			return false;
+		}
+		init();
+		setQueryParameters(sqlgen.getQueryParameters());
+		addBatch();
+		return true;
+	}
+
 	/**
 	 * Resolves column db sql type and populates it in column descriptor if missing.
 	 */
@@ -239,6 +264,24 @@ public class DbOomQuery extends DbQuery {
 		return this;
 	}
 
+	protected int entitiesCacheSize = dbOomManager.getEntitiesCacheSize();
+
+	/**
+	 * Returns maximal number of cached entities.
+	 */
+	public int getEntitiesCacheSize() {
+		return entitiesCacheSize;
+	}
+
+	/**
+	 * Defines maximal number of entities cached in {@link ResultSetMapper}.
+	 * Overrides default value in {@link DbOomManager}.
+	 */
+	public DbOomQuery entitiesCacheSize(int entitiesCacheSize) {
+		this.entitiesCacheSize = entitiesCacheSize;
+		return this;
+	}
+
 	/**
 	 * Executes the query and returns {@link #createResultSetMapper(java.sql.ResultSet) builded ResultSet mapper}.
 	 */
@@ -254,6 +297,9 @@ public class DbOomQuery extends DbQuery {
 	protected ResultSetMapper createResultSetMapper(ResultSet resultSet) {
 		Map<String, ColumnData> columnAliases = sqlgen != null ? sqlgen.getColumnData() : null;
 
+		if (dbOomManager.isCompiledResultSetMappers()) {
+			return new CompiledResultSetMapper(resultSet, columnAliases, cacheEntities, this);
+		}
 		return new DefaultResultSetMapper(resultSet, columnAliases, cacheEntities, this);
 	}
 
@@ -285,6 +331,78 @@ public class DbOomQuery extends DbQuery {
 		return new DbListIterator<>(this, types, close);
 	}
 
+	// ---------------------------------------------------------------- stream
+
+	public static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+	public static final int DEFAULT_STREAM_ENTITIES_CACHE_SIZE = 1000;
+
+	/**
+	 * Streams the results. Unlike {@link #iterate(Class[])}, query is set up for
+	 * large results: cursor is forward-only and read-only, fetch size is set
+	 * (if not already specified) and entities cache, if used, is bounded.
+	 * Therefore, memory does not depend on the number of rows, as long as rows
+	 * are not collected by the caller. Note that some drivers (e.g. MySQL)
+	 * require specific fetch size to really stream the results.
+	 * Query that is already initialized can be streamed only if its
+	 * cursor is forward-only and read-only, otherwise an exception is thrown.
+	 */
+	public <T> Iterator<T> stream(Class... types) {
+		return stream(types, autoClose);
+	}
+	public <T> Iterator<T> stream() {
+		return stream(null, autoClose);
+	}
+	protected <T> Iterator<T> stream(Class[] types, boolean close) {
+		prepareStream();
+		return new DbListIterator<>(this, types, close);
+	}
+
+	/**
+	 * Streams the results to the callback, row by row, until callback
+	 * returns <code>false</code> or there are no more rows.
+	 * Returns number of processed rows.
+	 * @see #stream(Class[])
+	 */
+	public <T> long stream(DbRowCallback<T> callback, Class... types) {
+		Iterator<T> iterator = stream(types, false);
+		long count = 0;
+		try {
+			while (iterator.hasNext()) {
+				count++;
+				if (!callback.onRow(iterator.next())) {
+					break;
+				}
+			}
+		} finally {
+			if (autoClose) {
+				close();
+			} else if (!isClosed()) {
+				closeAllResultSets();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Prepares query for streaming.
+	 */
+	protected void prepareStream() {
+		if (queryState == QUERY_CREATED) {
+			typeForwardOnly();
+			concurReadOnly();
+		} else if (queryState == QUERY_INITIALIZED &&
+				(type != TYPE_FORWARD_ONLY || concurrencyType != CONCUR_READ_ONLY)) {
+			throw new DbSqlException(this, "Query is already initialized with scrollable or updatable cursor. " +
+					"Streaming requires forward-only and read-only cursor.");
+		}
+		if (fetchSize == 0) {
+			setFetchSize(DEFAULT_STREAM_FETCH_SIZE);
+		}
+		if (cacheEntities && entitiesCacheSize <= 0) {
+			entitiesCacheSize = DEFAULT_STREAM_ENTITIES_CACHE_SIZE;
+		}
+	}
+
 	// ---------------------------------------------------------------- list
 
 	public <T> List<T> list(Class... types) {
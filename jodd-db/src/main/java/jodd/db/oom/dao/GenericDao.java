@@ -30,7 +30,9 @@ import jodd.db.DbQuery;
 import jodd.db.oom.DbEntityDescriptor;
 import jodd.db.oom.DbOomException;
 import jodd.db.oom.DbOomManager;
+import jodd.db.oom.DbOomQuery;
 import jodd.db.oom.sqlgen.DbEntitySql;
+import jodd.db.oom.sqlgen.DbSqlBuilder;
 
 import java.util.Collection;
 import java.util.List;
@@ -63,6 +65,24 @@ public class GenericDao {
 		this.keysGeneratedByDatabase = keysGeneratedByDatabase;
 	}
 
+	protected int batchSize = 100;
+
+	/**
+	 * Returns batch size used for bulk operations.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Specifies batch size used for bulk operations, like
+	 * {@link #saveAll(Collection)}. If set to <code>0</code>,
+	 * all entities are sent to the database in a single batch.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	// ---------------------------------------------------------------- store
 
 	/**
@@ -144,8 +164,16 @@ public class GenericDao {
 	 * @see #save(Object)
 	 */
 	public void saveAll(Collection entities) {
-		for (Object entity: entities) {
-			save(entity);
+		DbOomQuery q = null;
+		try {
+			for (Object entity : entities) {
+				q = addBatch(q, insert(entity));
+			}
+			if (q != null) {
+				q.executeBatch();
+			}
+		} finally {
+			closeBatch(q);
 		}
 	}
 
@@ -163,8 +191,50 @@ public class GenericDao {
 	 * @see #update(Object)
 	 */
 	public void updateAll(Collection entities) {
-		for (Object entity : entities) {
-			update(entity);
+		DbOomQuery q = null;
+		try {
+			for (Object entity : entities) {
+				q = addBatch(q, DbEntitySql.updateAll(entity));
+			}
+			if (q != null) {
+				q.executeBatch();
+			}
+		} finally {
+			closeBatch(q);
+		}
+	}
+
+	// ---------------------------------------------------------------- batch
+
+	/**
+	 * Adds generated query to the batch of current query. When generated
+	 * query differs, i.e. entity type or set of non-null properties changes,
+	 * current batch is executed and the new query is started.
+	 * Returns query that holds the batch.
+	 */
+	protected DbOomQuery addBatch(DbOomQuery q, DbSqlBuilder sqlgen) {
+		if (q != null) {
+			if (q.addBatch(sqlgen)) {
+				return q;
+			}
+			try {
+				q.executeBatch();
+			} finally {
+				q.close();
+			}
+		}
+		q = query(sqlgen);
+		q.setBatchSize(batchSize);
+		q.addBatch();
+		return q;
+	}
+
+	/**
+	 * Closes the batch query, if any.
+	 */
+	protected void closeBatch(DbOomQuery q) {
+		if (q != null && !q.isClosed()) {
+			q.close();
 		}
 	}
 
@@ -0,0 +1,208 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.oom.mapper;
+
+import jodd.bean.BeanUtil;
+import jodd.cache.Cache;
+import jodd.db.oom.ColumnData;
+import jodd.db.oom.DbEntityColumnDescriptor;
+import jodd.db.oom.DbEntityDescriptor;
+import jodd.db.oom.DbOomQuery;
+import jodd.db.oom.mapper.MappingPlan.ColumnMapping;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result set mapper that maps rows using compiled {@link MappingPlan}.
+ * Columns are matched to results and properties in the same way as in
+ * {@link DefaultResultSetMapper}, but only once per result set shape and
+ * types. Plans are cached in {@link jodd.db.oom.DbOomManager}, so the
+ * same query does not resolve the mapping again.
+ */
+public class CompiledResultSetMapper extends DefaultResultSetMapper {
+
+	public CompiledResultSetMapper(ResultSet resultSet, Map<String, ColumnData> columnAliases, boolean cacheEntities, DbOomQuery dbOomQuery) {
+		super(resultSet, columnAliases, cacheEntities, dbOomQuery);
+	}
+
+	protected Class[] planTypes;
+	protected MappingPlan plan;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] parseObjects(Class... types) {
+		if (types != planTypes) {
+			plan = resolveMappingPlan(types);
+			planTypes = types;
+		}
+
+		Object[] result = plan.map(resultSet, dbOomManager);
+
+		if (cacheEntities) {
+			resolveDbEntityDescriptors(types);
+			cacheResultSetEntities(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns mapping plan for given types, either from the cache or
+	 * by {@link #createMappingPlan(Class[]) creating} a new one.
+	 */
+	protected MappingPlan resolveMappingPlan(Class[] types) {
+		Cache<String, MappingPlan> cache = dbOomManager.getMappingPlansCache();
+		if (cache == null) {
+			return createMappingPlan(types);
+		}
+
+		String key = createMappingPlanKey(types);
+		MappingPlan mappingPlan = cache.get(key);
+		if (mappingPlan == null) {
+			mappingPlan = createMappingPlan(types);
+			cache.put(key, mappingPlan);
+		}
+		return mappingPlan;
+	}
+
+	/**
+	 * Creates the key of mapping plan from result set columns and types.
+	 */
+	protected String createMappingPlanKey(Class[] types) {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < totalColumns; i++) {
+			key.append(tableNames[i]).append('.').append(columnNames[i]).append(':').append(columnDbSqlTypes[i]).append(',');
+		}
+		key.append('|');
+		for (Class type : types) {
+			key.append(type == null ? "-" : type.getName()).append(',');
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Creates mapping plan by matching columns to types, following the
+	 * rules of {@link DefaultResultSetMapper#parseObjects(Class[])}.
+	 */
+	protected MappingPlan createMappingPlan(Class[] types) {
+		int totalTypes = types.length;
+		DbEntityDescriptor[] dbEntityDescriptors = resolveDbEntityDescriptors(types);
+		String[] typesTableNames = resolveTypesTableNames(types);
+		String[][] mappedNames = resolveMappedTypesTableNames(types);
+
+		List<ColumnMapping> mappings = new ArrayList<>(totalColumns);
+		Set<String> resultColumns = new HashSet<>();
+		Object[] instances = new Object[totalTypes];
+
+		int currentResult = 0;
+		int colNdx = 0;
+		while (colNdx < totalColumns) {
+
+			// no more types for mapping?
+			if (currentResult >= totalTypes) {
+				break;
+			}
+
+			// skip columns that doesn't map
+			Class currentType = types[currentResult];
+			if (currentType == null) {
+				colNdx++;
+				currentResult++;
+				resultColumns.clear();
+				continue;
+			}
+
+			String columnName = columnNames[colNdx];
+			int columnDbSqlType = columnDbSqlTypes[colNdx];
+			String tableName = tableNames[colNdx];
+			String resultTableName = typesTableNames[currentResult];
+
+			if (resultTableName == null) {
+				// match: simple type
+				mappings.add(new ColumnMapping(colNdx + 1, currentResult,
+						MappingPlan.createColumnReader(currentType, null, columnDbSqlType), null));
+				colNdx++;
+				currentResult++;
+				resultColumns.clear();
+				continue;
+			}
+
+			// match table
+			boolean tableMatched = false;
+
+			if (tableName == null) {
+				tableMatched = true;
+			} else if (resultTableName.equals(tableName)) {
+				tableMatched = true;
+			} else {
+				String[] mapped = mappedNames[currentResult];
+				if (mapped != null) {
+					for (String m : mapped) {
+						if (m.equals(tableName)) {
+							tableMatched = true;
+							break;
+						}
+					}
+				}
+			}
+
+			if (tableMatched && !resultColumns.contains(columnName)) {
+				DbEntityDescriptor ded = dbEntityDescriptors[currentResult];
+
+				DbEntityColumnDescriptor dec = ded.findByColumnName(columnName);
+				String propertyName = (dec == null ? null : dec.getPropertyName());
+
+				if (propertyName != null) {
+					if (instances[currentResult] == null) {
+						instances[currentResult] = dbOomManager.createEntityInstance(currentType);
+					}
+					Class type = BeanUtil.declared.getPropertyType(instances[currentResult], propertyName);
+					if (type != null) {
+						// match: entity
+						dec.updateDbSqlType(columnDbSqlType);
+						mappings.add(new ColumnMapping(colNdx + 1, currentResult,
+								MappingPlan.createColumnReader(type, dec.getSqlTypeClass(), columnDbSqlType),
+								MappingPlan.createPropertyWriter(currentType, propertyName, type)));
+						colNdx++;
+						resultColumns.add(columnName);
+						continue;
+					}
+				}
+			}
+			// go to next type, i.e. result
+			currentResult++;
+			resultColumns.clear();
+		}
+
+		return new MappingPlan(types.clone(), mappings.toArray(new ColumnMapping[mappings.size()]));
+	}
+}
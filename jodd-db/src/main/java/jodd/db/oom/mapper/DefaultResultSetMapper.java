@@ -41,6 +41,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
@@ -468,14 +469,32 @@ public class DefaultResultSetMapper extends BaseResultSetMapper {
 
 	// ---------------------------------------------------------------- cache
 
-	protected HashMap<Object, Object> entitiesCache;
+	protected Map<Object, Object> entitiesCache;
+
+	/**
+	 * Creates entities cache. When {@link DbOomQuery#getEntitiesCacheSize() cache size}
+	 * is set, cache holds only the most recently used entities, so the memory
+	 * does not grow with the number of rows.
+	 */
+	protected Map<Object, Object> createEntitiesCache() {
+		final int maxSize = dbOomQuery.getEntitiesCacheSize();
+		if (maxSize <= 0) {
+			return new HashMap<>();
+		}
+		return new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
 
 	/**
 	 * Caches returned entities. Replaces new instances with existing ones.
 	 */
 	protected void cacheResultSetEntities(Object[] result) {
 		if (entitiesCache == null) {
-			entitiesCache = new HashMap<>();
+			entitiesCache = createEntitiesCache();
 		}
 
 		for (int i = 0; i < result.length; i++) {
@@ -0,0 +1,324 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.oom.mapper;
+
+import jodd.bean.BeanUtil;
+import jodd.db.oom.DbOomException;
+import jodd.db.oom.DbOomManager;
+import jodd.db.type.BooleanSqlType;
+import jodd.db.type.DoubleSqlType;
+import jodd.db.type.IntegerSqlType;
+import jodd.db.type.LongSqlType;
+import jodd.db.type.SqlType;
+import jodd.db.type.SqlTypeManager;
+import jodd.db.type.StringSqlType;
+import jodd.introspector.ClassDescriptor;
+import jodd.introspector.ClassIntrospector;
+import jodd.introspector.FieldDescriptor;
+import jodd.introspector.MethodDescriptor;
+import jodd.introspector.PropertyDescriptor;
+import jodd.introspector.Setter;
+import jodd.typeconverter.TypeConverterManager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Compiled mapping of result set columns to results. Plan is created
+ * once for the result set shape and types, so mapping of each row
+ * does not lookup column names, sql types or properties. Columns are
+ * read with typed <code>ResultSet</code> getters and properties are
+ * written using method handles.
+ * @see CompiledResultSetMapper
+ */
+public class MappingPlan {
+
+	protected final Class[] types;
+	protected final ColumnMapping[] mappings;
+
+	public MappingPlan(Class[] types, ColumnMapping[] mappings) {
+		this.types = types;
+		this.mappings = mappings;
+	}
+
+	/**
+	 * Returns all column mappings.
+	 */
+	public ColumnMapping[] getMappings() {
+		return mappings;
+	}
+
+	/**
+	 * Maps current result set row. Results that are not used are <code>null</code>.
+	 */
+	public Object[] map(ResultSet resultSet, DbOomManager dbOomManager) {
+		Object[] result = new Object[types.length];
+		boolean[] resultUsage = new boolean[types.length];
+
+		for (ColumnMapping mapping : mappings) {
+			int resultNdx = mapping.resultIndex;
+			Object value;
+			try {
+				value = mapping.reader.read(resultSet, mapping.columnIndex);
+			} catch (SQLException sex) {
+				throw new DbOomException("Invalid value for column #" + mapping.columnIndex, sex);
+			}
+
+			if (mapping.writer == null) {
+				result[resultNdx] = value;
+				resultUsage[resultNdx] = true;
+				continue;
+			}
+
+			if (result[resultNdx] == null) {
+				result[resultNdx] = dbOomManager.createEntityInstance(types[resultNdx]);
+			}
+			if (value != null) {
+				mapping.writer.write(result[resultNdx], value);
+				resultUsage[resultNdx] = true;
+			}
+		}
+
+		for (int i = 0; i < resultUsage.length; i++) {
+			if (!resultUsage[i]) {
+				result[i] = null;
+			}
+		}
+		return result;
+	}
+
+	// ---------------------------------------------------------------- mapping
+
+	/**
+	 * Mapping of a single column to the result or its property.
+	 */
+	public static class ColumnMapping {
+		protected final int columnIndex;
+		protected final int resultIndex;
+		protected final ColumnReader reader;
+		protected final PropertyWriter writer;
+
+		/**
+		 * Creates new column mapping. Column index is 1-based. If writer
+		 * is <code>null</code>, column value is the result itself.
+		 */
+		public ColumnMapping(int columnIndex, int resultIndex, ColumnReader reader, PropertyWriter writer) {
+			this.columnIndex = columnIndex;
+			this.resultIndex = resultIndex;
+			this.reader = reader;
+			this.writer = writer;
+		}
+	}
+
+	// ---------------------------------------------------------------- readers
+
+	/**
+	 * Reads column value of the destination type.
+	 */
+	public abstract static class ColumnReader {
+		public abstract Object read(ResultSet rs, int index) throws SQLException;
+	}
+
+	/**
+	 * Creates column reader for given destination type. Built-in sql types
+	 * of common types are replaced with direct typed getters.
+	 */
+	public static ColumnReader createColumnReader(Class destinationType, Class<? extends SqlType> sqlTypeClass, int dbSqlType) {
+		SqlType sqlType;
+		if (sqlTypeClass != null) {
+			sqlType = SqlTypeManager.lookupSqlType(sqlTypeClass);
+		} else {
+			sqlType = SqlTypeManager.lookup(destinationType);
+		}
+		if (sqlType == null) {
+			return new ObjectReader(destinationType);
+		}
+
+		Class sqlTypeType = sqlType.getClass();
+
+		if (sqlTypeType == IntegerSqlType.class && (destinationType == Integer.class || destinationType == int.class)) {
+			return new IntegerReader();
+		}
+		if (sqlTypeType == LongSqlType.class && (destinationType == Long.class || destinationType == long.class)) {
+			return new LongReader();
+		}
+		if (sqlTypeType == DoubleSqlType.class && (destinationType == Double.class || destinationType == double.class)) {
+			return new DoubleReader();
+		}
+		if (sqlTypeType == BooleanSqlType.class && (destinationType == Boolean.class || destinationType == boolean.class)) {
+			return new BooleanReader();
+		}
+		if (sqlTypeType == StringSqlType.class && destinationType == String.class) {
+			return new StringReader();
+		}
+		return new SqlTypeReader(sqlType, destinationType, dbSqlType);
+	}
+
+	static class IntegerReader extends ColumnReader {
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			int value = rs.getInt(index);
+			return rs.wasNull() ? null : Integer.valueOf(value);
+		}
+	}
+
+	static class LongReader extends ColumnReader {
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			long value = rs.getLong(index);
+			return rs.wasNull() ? null : Long.valueOf(value);
+		}
+	}
+
+	static class DoubleReader extends ColumnReader {
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			double value = rs.getDouble(index);
+			return rs.wasNull() ? null : Double.valueOf(value);
+		}
+	}
+
+	static class BooleanReader extends ColumnReader {
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			boolean value = rs.getBoolean(index);
+			return rs.wasNull() ? null : Boolean.valueOf(value);
+		}
+	}
+
+	static class StringReader extends ColumnReader {
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getString(index);
+		}
+	}
+
+	static class SqlTypeReader extends ColumnReader {
+		private final SqlType sqlType;
+		private final Class destinationType;
+		private final int dbSqlType;
+
+		SqlTypeReader(SqlType sqlType, Class destinationType, int dbSqlType) {
+			this.sqlType = sqlType;
+			this.destinationType = destinationType;
+			this.dbSqlType = dbSqlType;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return sqlType.readValue(rs, index, destinationType, dbSqlType);
+		}
+	}
+
+	static class ObjectReader extends ColumnReader {
+		private final Class destinationType;
+
+		ObjectReader(Class destinationType) {
+			this.destinationType = destinationType;
+		}
+
+		@Override
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return TypeConverterManager.convertType(rs.getObject(index), destinationType);
+		}
+	}
+
+	// ---------------------------------------------------------------- writers
+
+	/**
+	 * Writes value into the entity property.
+	 */
+	public abstract static class PropertyWriter {
+		public abstract void write(Object target, Object value);
+	}
+
+	/**
+	 * Creates property writer. Simple properties with setter or field of
+	 * the same type are written with method handles, others using {@link BeanUtil}.
+	 */
+	public static PropertyWriter createPropertyWriter(Class type, String propertyName, Class propertyType) {
+		ClassDescriptor cd = ClassIntrospector.lookup(type);
+		PropertyDescriptor pd = cd.getPropertyDescriptor(propertyName, true);
+
+		if (pd != null) {
+			Setter setter = pd.getSetter(true);
+
+			if (setter != null && setter.getSetterRawType() == propertyType) {
+				MethodHandle methodHandle;
+				try {
+					if (setter instanceof MethodDescriptor) {
+						methodHandle = MethodHandles.lookup().unreflect(((MethodDescriptor) setter).getMethod());
+					} else {
+						methodHandle = MethodHandles.lookup().unreflectSetter(((FieldDescriptor) setter).getField());
+					}
+				} catch (IllegalAccessException iaex) {
+					methodHandle = null;
+				}
+				if (methodHandle != null) {
+					methodHandle = methodHandle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+					return new MethodHandleWriter(methodHandle, propertyName);
+				}
+			}
+		}
+		return new BeanPropertyWriter(propertyName);
+	}
+
+	static class MethodHandleWriter extends PropertyWriter {
+		private final MethodHandle methodHandle;
+		private final String propertyName;
+
+		MethodHandleWriter(MethodHandle methodHandle, String propertyName) {
+			this.methodHandle = methodHandle;
+			this.propertyName = propertyName;
+		}
+
+		@Override
+		public void write(Object target, Object value) {
+			try {
+				methodHandle.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new DbOomException("Unable to set property: " + propertyName, throwable);
+			}
+		}
+	}
+
+	static class BeanPropertyWriter extends PropertyWriter {
+		private final String propertyName;
+
+		BeanPropertyWriter(String propertyName) {
+			this.propertyName = propertyName;
+		}
+
+		@Override
+		public void write(Object target, Object value) {
+			BeanUtil.declared.setProperty(target, propertyName, value);
+		}
+	}
+}
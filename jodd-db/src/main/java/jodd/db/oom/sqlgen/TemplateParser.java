@@ -25,8 +25,13 @@
 
 package jodd.db.oom.sqlgen;
 
+import jodd.cache.Cache;
+import jodd.cache.ConcurrentCache;
 import jodd.util.StringUtil;
 import jodd.util.StringPool;
+
+import java.util.ArrayList;
+import java.util.List;
 import static jodd.util.CharUtil.*;
 
 /**
@@ -42,17 +47,85 @@ class TemplateParser {
 	protected static final String MACRO_MATCH = "$M{";
 	protected static final String MACRO_VALUE = "$V{";
 
+	protected static final int RAW = 0;
+	protected static final int TABLE = 1;
+	protected static final int COLUMN = 2;
+	protected static final int MATCH = 3;
+	protected static final int VALUE = 4;
+	protected static final int REFERENCE = 5;
+
+	/**
+	 * Parsed template macro or raw text.
+	 */
+	protected static class Token {
+		protected final int type;
+		protected final String value;
+
+		protected Token(int type, String value) {
+			this.type = type;
+			this.value = value;
+		}
+	}
+
+	protected volatile Cache<String, Token[]> templateCache;
+	protected volatile int templateCacheSize = -1;
+
+	/**
+	 * Returns templates cache of given size, or <code>null</code> if cache is
+	 * disabled. Cache is created again when its size is changed.
+	 */
+	protected Cache<String, Token[]> templateCache(int cacheSize) {
+		if (templateCacheSize != cacheSize) {
+			synchronized (this) {
+				if (templateCacheSize != cacheSize) {
+					templateCache = cacheSize > 0 ? new ConcurrentCache<String, Token[]>(cacheSize) : null;
+					templateCacheSize = cacheSize;
+				}
+			}
+		}
+		return templateCache;
+	}
+
 	/**
-	 * Parses template and returns generated sql builder.
+	 * Parses template and returns generated sql builder. Tokenized templates
+	 * are cached, so the same template is scanned only once. Cache size is
+	 * set by {@link jodd.db.oom.DbOomManager#setTemplateCacheSize(int)}.
 	 */
 	public void parse(DbSqlBuilder sqlBuilder, String template) {
+		Cache<String, Token[]> cache = templateCache(sqlBuilder.getDbOomManager().getTemplateCacheSize());
+
+		Token[] tokens = cache != null ? cache.get(template) : null;
+		if (tokens == null) {
+			tokens = tokenize(template);
+			if (cache != null) {
+				cache.put(template, tokens);
+			}
+		}
+
+		for (Token token : tokens) {
+			switch (token.type) {
+				case RAW: sqlBuilder.appendRaw(token.value); break;
+				case TABLE: onTable(sqlBuilder, token.value); break;
+				case COLUMN: onColumn(sqlBuilder, token.value); break;
+				case MATCH: onMatch(sqlBuilder, token.value); break;
+				case VALUE: onValue(sqlBuilder, token.value); break;
+				case REFERENCE: onReference(sqlBuilder, token.value); break;
+			}
+		}
+	}
+
+	/**
+	 * Splits template into raw text and macros.
+	 */
+	protected Token[] tokenize(String template) {
+		List<Token> tokens = new ArrayList<>();
 		int length = template.length();
 		int last = 0;
 		while (true) {
 			int mark = template.indexOf('$', last);
 			if (mark == -1) {
 				if (last < length) {
-					sqlBuilder.appendRaw(template.substring(last));
+					tokens.add(new Token(RAW, template.substring(last)));
 				}
 				break;
 			}
@@ -61,13 +134,13 @@ class TemplateParser {
 			if (escapesCount > 0) {
 				boolean isEscaped = escapesCount % 2 != 0;
 				int escapesToAdd = escapesCount >> 1;
-				sqlBuilder.appendRaw(template.substring(last, mark - escapesCount + escapesToAdd) + '$');
+				tokens.add(new Token(RAW, template.substring(last, mark - escapesCount + escapesToAdd) + '$'));
 				if (isEscaped) {
 					last = mark + 1;
 					continue;
 				}
 			} else {
-				sqlBuilder.appendRaw(template.substring(last, mark));
+				tokens.add(new Token(RAW, template.substring(last, mark)));
 			}
 
 			int end;
@@ -75,19 +148,19 @@ class TemplateParser {
 			if (template.startsWith(MACRO_TABLE, mark)) {
 				mark += MACRO_TABLE.length();
 				end = findMacroEnd(template, mark);
-				onTable(sqlBuilder, template.substring(mark, end));
+				tokens.add(new Token(TABLE, template.substring(mark, end)));
 			} else if (template.startsWith(MACRO_COLUMN, mark)) {
 				mark += MACRO_COLUMN.length();
 				end = findMacroEnd(template, mark);
-				onColumn(sqlBuilder, template.substring(mark, end));
+				tokens.add(new Token(COLUMN, template.substring(mark, end)));
 			} else if (template.startsWith(MACRO_MATCH, mark)) {
 				mark += MACRO_MATCH.length();
 				end = findMacroEnd(template, mark);
-				onMatch(sqlBuilder, template.substring(mark, end));
+				tokens.add(new Token(MATCH, template.substring(mark, end)));
 			} else if (template.startsWith(MACRO_VALUE, mark)) {
 				mark += MACRO_VALUE.length();
 				end = findMacroEnd(template, mark);
-				onValue(sqlBuilder, template.substring(mark, end));
+				tokens.add(new Token(VALUE, template.substring(mark, end)));
 			} else {
 				mark++;           // reference found
 				end = mark;       // find macro end
@@ -97,12 +170,13 @@ class TemplateParser {
 					}
 					end++;
 				}
-				onReference(sqlBuilder, template.substring(mark, end));
+				tokens.add(new Token(REFERENCE, template.substring(mark, end)));
 				end--;
 			}
 			end++;
 			last = end;
 		}
+		return tokens.toArray(new Token[tokens.size()]);
 	}
 
 	protected static boolean isReferenceChar(String template, int index) {
@@ -0,0 +1,898 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.pool;
+
+import jodd.db.DbSqlException;
+import jodd.db.connection.ConnectionProvider;
+import jodd.log.Logger;
+import jodd.log.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection pool that does not lock on connection acquire and release.
+ * <p>
+ * Pooled connections are kept in a shared list and each one is claimed
+ * by a compare-and-set of its state. A thread first tries the connection it
+ * used last time, then scans the shared list. When no connection is free,
+ * the thread waits, up to the {@link #setConnectionTimeout(long) connection timeout},
+ * until a connection is released by other thread or created in the background.
+ * <p>
+ * A single housekeeping thread creates new connections, keeps the pool filled
+ * to the {@link #setMinConnections(int) minimal size} and closes connections that
+ * were idle or opened for too long.
+ */
+public class ConcurrentConnectionPool implements ConnectionProvider {
+
+	private static final Logger log = LoggerFactory.getLogger(ConcurrentConnectionPool.class);
+
+	private static final int STATE_NOT_IN_USE = 0;
+	private static final int STATE_IN_USE = 1;
+	private static final int STATE_REMOVED = -1;
+
+	// ---------------------------------------------------------------- properties
+
+	private static final String DEFAULT_VALIDATION_QUERY = "select 1";
+
+	private String driver;
+	private String url;
+	private String user;
+	private String password;
+	private int maxConnections = 10;
+	private int minConnections = 5;
+	private long connectionTimeout = 30000L;			// 30 seconds
+	private long idleTimeout = 600000L;					// 10 minutes
+	private long maxLifetime = 1800000L;				// 30 minutes
+	private long housekeepingPeriod = 30000L;			// 30 seconds
+	private boolean validateConnection = true;
+	private long validationTimeout = 18000000L;			// 5 hours
+	private String validationQuery;
+
+	public String getDriver() {
+		return driver;
+	}
+
+	/**
+	 * Specifies driver class name.
+	 */
+	public void setDriver(String driver) {
+		this.driver = driver;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Specifies JDBC url.
+	 */
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	/**
+	 * Specifies db username.
+	 */
+	public void setUser(String user) {
+		this.user = user;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	/**
+	 * Specifies db password.
+	 */
+	public void setPassword(String password) {
+		this.password = password;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Sets max number of connections.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public int getMinConnections() {
+		return minConnections;
+	}
+
+	/**
+	 * Sets minimum number of open connections.
+	 */
+	public void setMinConnections(int minConnections) {
+		this.minConnections = minConnections;
+	}
+
+	public long getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	/**
+	 * Sets max number of milliseconds to wait for a connection
+	 * when none is available. After that, exception is thrown.
+	 */
+	public void setConnectionTimeout(long connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Sets number of milliseconds after which an unused connection
+	 * is closed, while there are more than minimal number of connections.
+	 * Zero value disables idle eviction.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+
+	/**
+	 * Sets max number of milliseconds from connection creation after which
+	 * connection is closed, once it is not in use. Zero value disables the limit.
+	 */
+	public void setMaxLifetime(long maxLifetime) {
+		this.maxLifetime = maxLifetime;
+	}
+
+	public long getHousekeepingPeriod() {
+		return housekeepingPeriod;
+	}
+
+	/**
+	 * Sets period in milliseconds of housekeeping runs.
+	 */
+	public void setHousekeepingPeriod(long housekeepingPeriod) {
+		this.housekeepingPeriod = housekeepingPeriod;
+	}
+
+	public long getValidationTimeout() {
+		return validationTimeout;
+	}
+
+	/**
+	 * Specifies number of milliseconds from connection last usage
+	 * when connection is considered as opened and valid.
+	 */
+	public void setValidationTimeout(long validationTimeout) {
+		this.validationTimeout = validationTimeout;
+	}
+
+	public String getValidationQuery() {
+		return validationQuery;
+	}
+
+	/**
+	 * Specifies query to be used for validating connections.
+	 * If set to <code>null</code> validation will be performed
+	 * by invoking <code>Connection#isClosed</code> method.
+	 */
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * Sets default validation query (select 1);
+	 */
+	public void setDefaultValidationQuery() {
+		this.validationQuery = DEFAULT_VALIDATION_QUERY;
+	}
+
+	public boolean isValidateConnection() {
+		return validateConnection;
+	}
+
+	/**
+	 * Specifies if connections should be validated before returned.
+	 */
+	public void setValidateConnection(boolean validateConnection) {
+		this.validateConnection = validateConnection;
+	}
+
+	// ---------------------------------------------------------------- init
+
+	private final CopyOnWriteArrayList<PooledConnection> connections = new CopyOnWriteArrayList<>();
+	private final ConcurrentHashMap<Connection, PooledConnection> connectionsMap = new ConcurrentHashMap<>();
+	private final ReentrantLock waitLock = new ReentrantLock();
+	private final Condition connectionAvailable = waitLock.newCondition();
+	private final ThreadLocal<WeakReference<PooledConnection>> lastConnection = new ThreadLocal<>();
+
+	private final AtomicInteger totalConnections = new AtomicInteger();		// including pending ones
+	private final AtomicInteger pendingConnections = new AtomicInteger();
+	private final AtomicInteger waitingThreads = new AtomicInteger();
+
+	private ScheduledExecutorService housekeeper;
+	private volatile boolean closed;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized void init() {
+		if (log.isInfoEnabled()) {
+			log.info("Concurrent connection pool initialization");
+		}
+		try {
+			Class.forName(driver);
+		} catch (ClassNotFoundException cnfex) {
+			throw new DbSqlException("Database driver not found: " + driver, cnfex);
+		}
+		if (minConnections > maxConnections) {
+			minConnections = maxConnections;
+		}
+		closed = false;
+
+		// the first connection is created in the foreground, to fail fast on misconfiguration
+
+		if (minConnections > 0) {
+			totalConnections.incrementAndGet();
+			try {
+				addConnection(openConnection());
+			} catch (SQLException sex) {
+				totalConnections.decrementAndGet();
+				throw new DbSqlException("No database connection", sex);
+			}
+		}
+
+		housekeeper = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "jodd-db-pool-housekeeper");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		housekeeper.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				housekeeping();
+			}
+		}, housekeepingPeriod, housekeepingPeriod, TimeUnit.MILLISECONDS);
+
+		fillPool();
+	}
+
+	// ---------------------------------------------------------------- get/close
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Connection getConnection() {
+		if (housekeeper == null) {
+			throw new DbSqlException("Connection pool is not initialized");
+		}
+
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(connectionTimeout);
+
+		while (true) {
+			PooledConnection pooledConnection = borrow(deadline);
+
+			if (pooledConnection == null) {
+				throw new DbSqlException("Connection timeout, waited " + connectionTimeout + "ms; " + getStats());
+			}
+
+			long now = System.currentTimeMillis();
+
+			if (!isConnectionValid(pooledConnection, now)) {
+				if (log.isDebugEnabled()) {
+					log.debug("Pooled connection not valid, resetting");
+				}
+				removeConnection(pooledConnection);
+				fillPool();
+				continue;
+			}
+
+			pooledConnection.lastUsed = now;
+
+			long waitTime = System.nanoTime() - start;
+			acquiredCount.incrementAndGet();
+			totalWaitTime.addAndGet(waitTime);
+			updateMax(maxWaitTime, waitTime);
+
+			return pooledConnection.connection;
+		}
+	}
+
+	/**
+	 * Claims a free connection: first the one last used by the current thread,
+	 * then any free one. If there is none, waits until the deadline
+	 * to be signaled that a connection is available.
+	 */
+	private PooledConnection borrow(long deadline) {
+		WeakReference<PooledConnection> lastRef = lastConnection.get();
+		if (lastRef != null) {
+			PooledConnection last = lastRef.get();
+			if (last != null && last.claim()) {
+				return last;
+			}
+		}
+
+		PooledConnection pooledConnection = claimFreeConnection();
+		if (pooledConnection != null) {
+			return pooledConnection;
+		}
+
+		waitLock.lock();
+		waitingThreads.incrementAndGet();
+		try {
+			addConnectionInBackground();
+
+			while (true) {
+				// connection might be released before this thread started to wait
+				pooledConnection = claimFreeConnection();
+				if (pooledConnection != null) {
+					return pooledConnection;
+				}
+				if (closed) {
+					throw new DbSqlException("Connection pool is closed");
+				}
+
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+
+				try {
+					connectionAvailable.awaitNanos(remaining);
+				} catch (InterruptedException iex) {
+					// pass the signal to other waiting thread
+					connectionAvailable.signal();
+					Thread.currentThread().interrupt();
+					throw new DbSqlException("Interrupted while waiting for connection", iex);
+				}
+
+				// pending connection might be taken by other thread
+				addConnectionInBackground();
+			}
+		}
+		finally {
+			waitingThreads.decrementAndGet();
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * Claims the first free connection from the pool.
+	 */
+	private PooledConnection claimFreeConnection() {
+		for (PooledConnection pooledConnection : connections) {
+			if (pooledConnection.claim()) {
+				return pooledConnection;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Wakes up one of the threads waiting for a connection, if any.
+	 * Connection state is always changed before, so either the waiting
+	 * thread is signaled or it finds the connection on its own.
+	 */
+	private void signalWaitingThread() {
+		if (waitingThreads.get() == 0) {
+			return;
+		}
+		waitLock.lock();
+		try {
+			connectionAvailable.signal();
+		}
+		finally {
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Closing the connection that is already returned to the pool does nothing.
+	 */
+	public void closeConnection(Connection connection) {
+		PooledConnection pooledConnection = connectionsMap.get(connection);
+
+		if (pooledConnection == null) {
+			// not from this pool or already removed
+			closeQuietly(connection);
+			return;
+		}
+
+		if (pooledConnection.state.get() != STATE_IN_USE) {
+			// already returned
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+
+		if (closed || isExpired(pooledConnection, now)) {
+			removeConnection(pooledConnection);
+			if (!closed) {
+				fillPool();
+			}
+			return;
+		}
+
+		pooledConnection.lastUsed = now;
+
+		if (!pooledConnection.release()) {
+			// already returned
+			return;
+		}
+
+		lastConnection.set(new WeakReference<>(pooledConnection));
+
+		signalWaitingThread();
+	}
+
+	// ---------------------------------------------------------------- connections
+
+	/**
+	 * Opens new physical connection and measures the creation time.
+	 */
+	private PooledConnection openConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = DriverManager.getConnection(url, user, password);
+		long creationTime = System.nanoTime() - start;
+
+		createdCount.incrementAndGet();
+		totalCreationTime.addAndGet(creationTime);
+		updateMax(maxCreationTime, creationTime);
+
+		return new PooledConnection(connection);
+	}
+
+	/**
+	 * Adds a new connection to the pool and offers it to waiting threads.
+	 */
+	private void addConnection(PooledConnection pooledConnection) {
+		connectionsMap.put(pooledConnection.connection, pooledConnection);
+		connections.add(pooledConnection);
+
+		signalWaitingThread();
+	}
+
+	/**
+	 * Reserves a slot and submits connection creation to housekeeping thread,
+	 * if pool is not at its max size and there is no other pending connection
+	 * for waiting threads.
+	 */
+	private void addConnectionInBackground() {
+		if (pendingConnections.get() >= waitingThreads.get()) {
+			return;
+		}
+		if (!reserveSlot(maxConnections)) {
+			return;
+		}
+		submitConnection();
+	}
+
+	/**
+	 * Asynchronously adds connections until the pool reaches the minimal size.
+	 */
+	private void fillPool() {
+		while (reserveSlot(minConnections)) {
+			submitConnection();
+		}
+	}
+
+	private boolean reserveSlot(int limit) {
+		while (true) {
+			int total = totalConnections.get();
+			if (total >= limit) {
+				return false;
+			}
+			if (totalConnections.compareAndSet(total, total + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void submitConnection() {
+		pendingConnections.incrementAndGet();
+		try {
+			housekeeper.execute(new Runnable() {
+				public void run() {
+					try {
+						if (closed) {
+							pendingConnections.decrementAndGet();
+							totalConnections.decrementAndGet();
+							return;
+						}
+						PooledConnection pooledConnection = openConnection();
+						pendingConnections.decrementAndGet();
+						addConnection(pooledConnection);
+					} catch (Exception ex) {
+						pendingConnections.decrementAndGet();
+						totalConnections.decrementAndGet();
+						if (log.isWarnEnabled()) {
+							log.warn("Can not open connection", ex);
+						}
+					}
+				}
+			});
+		} catch (RuntimeException rex) {
+			// executor is shut down
+			pendingConnections.decrementAndGet();
+			totalConnections.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes connection from the pool and closes it.
+	 */
+	private void removeConnection(PooledConnection pooledConnection) {
+		if (pooledConnection.state.getAndSet(STATE_REMOVED) == STATE_REMOVED) {
+			return;
+		}
+		connections.remove(pooledConnection);
+		connectionsMap.remove(pooledConnection.connection);
+		totalConnections.decrementAndGet();
+		closeQuietly(pooledConnection.connection);
+
+		// the slot is free, waiting thread may open new connection
+		signalWaitingThread();
+	}
+
+	private void closeQuietly(Connection connection) {
+		try {
+			if (!connection.isClosed()) {
+				connection.close();
+			}
+		} catch (SQLException sex) {
+			// Ignore errors; garbage collect anyhow
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if connection lived longer then max lifetime.
+	 */
+	private boolean isExpired(PooledConnection pooledConnection, long now) {
+		return (maxLifetime > 0) && (now - pooledConnection.created > maxLifetime);
+	}
+
+	/**
+	 * Checks if existing connection is valid and available. It may happens
+	 * that if connection is not used for a while it becomes inactive,
+	 * although not technically closed.
+	 */
+	private boolean isConnectionValid(PooledConnection pooledConnection, long now) {
+		if (!validateConnection) {
+			return true;
+		}
+
+		if (now < pooledConnection.lastUsed + validationTimeout) {
+			return true;
+		}
+
+		Connection conn = pooledConnection.connection;
+
+		if (validationQuery == null) {
+			try {
+				return !conn.isClosed();
+			} catch (SQLException sex) {
+				return false;
+			}
+		}
+
+		boolean valid = true;
+		Statement st = null;
+		try {
+			st = conn.createStatement();
+			st.execute(validationQuery);
+		} catch (SQLException sex) {
+			valid = false;
+		} finally {
+			if (st != null) {
+				try {
+					st.close();
+				} catch (SQLException ignore) {
+				}
+			}
+		}
+		return valid;
+	}
+
+	// ---------------------------------------------------------------- housekeeping
+
+	/**
+	 * Closes free connections that are idle for too long, while there are
+	 * more then minimal number of connections, and connections that exceeded
+	 * their lifetime. Then fills the pool to its minimal size.
+	 */
+	protected void housekeeping() {
+		long now = System.currentTimeMillis();
+
+		for (PooledConnection pooledConnection : connections) {
+			boolean expired = isExpired(pooledConnection, now);
+			boolean idle = (idleTimeout > 0)
+					&& (now - pooledConnection.lastUsed > idleTimeout)
+					&& (totalConnections.get() > minConnections);
+
+			if (!expired && !idle) {
+				continue;
+			}
+			if (pooledConnection.claim()) {
+				if (log.isDebugEnabled()) {
+					log.debug(expired ? "Closing expired connection" : "Closing idle connection");
+				}
+				removeConnection(pooledConnection);
+			}
+		}
+
+		fillPool();
+	}
+
+	// ---------------------------------------------------------------- close
+
+	/**
+	 * Closes all the connections and stops the housekeeping thread.
+	 * Connections that are in use are closed when they are released.
+	 */
+	public synchronized void close() {
+		if (log.isInfoEnabled()) {
+			log.info("Concurrent connection pool shutdown");
+		}
+		closed = true;
+
+		if (housekeeper != null) {
+			housekeeper.shutdownNow();
+		}
+
+		waitLock.lock();
+		try {
+			connectionAvailable.signalAll();
+		}
+		finally {
+			waitLock.unlock();
+		}
+
+		for (PooledConnection pooledConnection : connections) {
+			if (pooledConnection.claim()) {
+				removeConnection(pooledConnection);
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- conn data
+
+	/**
+	 * Pooled connection with its state and timestamps.
+	 */
+	static class PooledConnection {
+		final Connection connection;
+		final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+		final long created;
+		volatile long lastUsed;
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.created = System.currentTimeMillis();
+			this.lastUsed = created;
+		}
+
+		/**
+		 * Marks connection as used, if it is free.
+		 */
+		boolean claim() {
+			return state.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE);
+		}
+
+		/**
+		 * Marks connection as free, if it is used.
+		 */
+		boolean release() {
+			return state.compareAndSet(STATE_IN_USE, STATE_NOT_IN_USE);
+		}
+	}
+
+	// ---------------------------------------------------------------- stats
+
+	private final AtomicLong acquiredCount = new AtomicLong();
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private final AtomicLong maxWaitTime = new AtomicLong();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong totalCreationTime = new AtomicLong();
+	private final AtomicLong maxCreationTime = new AtomicLong();
+
+	private static void updateMax(AtomicLong max, long value) {
+		while (true) {
+			long current = max.get();
+			if (value <= current || max.compareAndSet(current, value)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns pool statistics.
+	 */
+	public Stats getStats() {
+		int active = 0;
+		int idle = 0;
+		for (PooledConnection pooledConnection : connections) {
+			int state = pooledConnection.state.get();
+			if (state == STATE_IN_USE) {
+				active++;
+			} else if (state == STATE_NOT_IN_USE) {
+				idle++;
+			}
+		}
+		return new Stats(
+				active, idle, pendingConnections.get(), waitingThreads.get(),
+				acquiredCount.get(), totalWaitTime.get(), maxWaitTime.get(),
+				createdCount.get(), totalCreationTime.get(), maxCreationTime.get());
+	}
+
+	/**
+	 * Snapshot of pool statistics. All times are in nanoseconds.
+	 */
+	public static class Stats {
+		final int activeCount;
+		final int idleCount;
+		final int pendingCount;
+		final int waitingThreadsCount;
+		final long acquiredCount;
+		final long totalWaitTime;
+		final long maxWaitTime;
+		final long createdCount;
+		final long totalCreationTime;
+		final long maxCreationTime;
+
+		Stats(int activeCount, int idleCount, int pendingCount, int waitingThreadsCount,
+				long acquiredCount, long totalWaitTime, long maxWaitTime,
+				long createdCount, long totalCreationTime, long maxCreationTime) {
+			this.activeCount = activeCount;
+			this.idleCount = idleCount;
+			this.pendingCount = pendingCount;
+			this.waitingThreadsCount = waitingThreadsCount;
+			this.acquiredCount = acquiredCount;
+			this.totalWaitTime = totalWaitTime;
+			this.maxWaitTime = maxWaitTime;
+			this.createdCount = createdCount;
+			this.totalCreationTime = totalCreationTime;
+			this.maxCreationTime = maxCreationTime;
+		}
+
+		/**
+		 * Returns number of connections in use.
+		 */
+		public int getActiveCount() {
+			return activeCount;
+		}
+
+		/**
+		 * Returns number of free connections.
+		 */
+		public int getIdleCount() {
+			return idleCount;
+		}
+
+		/**
+		 * Returns total number of open connections.
+		 */
+		public int getTotalCount() {
+			return activeCount + idleCount;
+		}
+
+		/**
+		 * Returns number of connections being created.
+		 */
+		public int getPendingCount() {
+			return pendingCount;
+		}
+
+		/**
+		 * Returns number of threads waiting for a connection.
+		 */
+		public int getWaitingThreadsCount() {
+			return waitingThreadsCount;
+		}
+
+		/**
+		 * Returns number of acquired connections.
+		 */
+		public long getAcquiredCount() {
+			return acquiredCount;
+		}
+
+		/**
+		 * Returns total time spent in waiting for connections.
+		 */
+		public long getTotalWaitTime() {
+			return totalWaitTime;
+		}
+
+		/**
+		 * Returns average time of acquiring a connection.
+		 */
+		public long getAverageWaitTime() {
+			return acquiredCount == 0 ? 0 : totalWaitTime / acquiredCount;
+		}
+
+		/**
+		 * Returns the longest time of acquiring a connection.
+		 */
+		public long getMaxWaitTime() {
+			return maxWaitTime;
+		}
+
+		/**
+		 * Returns number of opened physical connections.
+		 */
+		public long getCreatedCount() {
+			return createdCount;
+		}
+
+		/**
+		 * Returns average time of opening a physical connection.
+		 */
+		public long getAverageCreationTime() {
+			return createdCount == 0 ? 0 : totalCreationTime / createdCount;
+		}
+
+		/**
+		 * Returns the longest time of opening a physical connection.
+		 */
+		public long getMaxCreationTime() {
+			return maxCreationTime;
+		}
+
+		@Override
+		public String toString() {
+			return "Connections count: {active=" + activeCount +
+					", idle=" + idleCount +
+					", pending=" + pendingCount +
+					", waiting=" + waitingThreadsCount + '}';
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db;
+
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DbBatchTest extends DbHsqldbTestCase {
+
+	@Test
+	public void testBatch() {
+		DbSession session = new DbSession(cp);
+
+		DbQuery query = new DbQuery(session, "insert into GIRL values(:id, :name, null)");
+		for (int i = 1; i <= 10; i++) {
+			query.setInteger("id", i);
+			query.setString("name", "girl" + i);
+			query.addBatch();
+		}
+		assertEquals(10, query.getBatchCount());
+		assertEquals(0, executeCount(session, "select count(*) from GIRL"));
+
+		int[] result = query.executeBatch();
+		assertEquals(10, result.length);
+		assertEquals(0, query.getBatchCount());
+		for (int r : result) {
+			assertTrue(r == 1 || r == java.sql.Statement.SUCCESS_NO_INFO);
+		}
+		assertEquals(10, executeCount(session, "select count(*) from GIRL"));
+
+		// query is reusable
+		query.setInteger("id", 11);
+		query.setString("name", "girl11");
+		query.addBatch();
+		assertEquals(1, query.executeBatch().length);
+		assertEquals(0, query.executeBatch().length);
+		query.close();
+
+		assertEquals(11, executeCount(session, "select count(*) from GIRL"));
+		session.closeSession();
+	}
+
+	@Test
+	public void testBatchAutoFlush() {
+		DbSession session = new DbSession(cp);
+
+		DbQuery query = new DbQuery(session, "insert into GIRL values(?, ?, null)");
+		query.setBatchSize(3);
+		for (int i = 1; i <= 8; i++) {
+			query.setInteger(1, i);
+			query.setString(2, "girl" + i);
+			query.addBatch();
+		}
+		assertEquals(2, query.getBatchCount());
+		assertEquals(6, executeCount(session, "select count(*) from GIRL"));
+
+		int[] result = query.autoClose().executeBatch();
+		assertEquals(8, result.length);
+		assertTrue(query.isClosed());
+
+		assertEquals(8, executeCount(session, "select count(*) from GIRL"));
+		session.closeSession();
+	}
+
+	@Test
+	public void testCloseWithPendingBatch() {
+		DbSession session = new DbSession(cp);
+		session.setStatementCacheSize(2);
+
+		DbQuery query = new DbQuery(session, "insert into GIRL values(?, ?, null)");
+		query.setInteger(1, 1);
+		query.setString(2, "girl1");
+		query.addBatch();
+		PreparedStatement ps = query.preparedStatement;
+
+		try {
+			query.close();
+			fail();
+		} catch (DbSqlException ignore) {
+		}
+		assertTrue(query.isClosed());
+		assertEquals(0, executeCount(session, "select count(*) from GIRL"));
+
+		// cached statement does not keep the batch
+		query = new DbQuery(session, "insert into GIRL values(?, ?, null)");
+		query.setInteger(1, 2);
+		query.setString(2, "girl2");
+		query.addBatch();
+		assertSame(ps, query.preparedStatement);
+		assertArrayEquals(new int[] {1}, query.autoClose().executeBatch());
+
+		assertEquals(1, executeCount(session, "select count(*) from GIRL"));
+		session.closeSession();
+	}
+
+	@Test
+	public void testBatchStatement() {
+		DbSession session = new DbSession(cp);
+
+		DbQuery query = new DbQuery(session, "insert into GIRL values(1, 'Anna', null)");
+		query.addBatch();
+		assertArrayEquals(new int[] {1}, query.autoClose().executeBatch());
+
+		assertEquals(1, executeCount(session, "select count(*) from GIRL"));
+		session.closeSession();
+	}
+
+	@Test
+	public void testBatchGeneratedKeys() {
+		DbSession session = new DbSession(cp);
+		executeUpdate(session, "drop table ITEM if exists");
+		executeUpdate(session, "create table ITEM (ID integer generated by default as identity primary key, NAME varchar(20))");
+
+		DbQuery query = new DbQuery(session, "insert into ITEM (NAME) values(:name)");
+		query.setGeneratedKey();
+		query.setBatchSize(2);
+		for (int i = 0; i < 5; i++) {
+			query.setString("name", "item" + i);
+			query.addBatch();
+		}
+		assertEquals(5, query.executeBatch().length);
+
+		long[] keys = query.getGeneratedBatchKeys();
+		query.close();
+
+		assertEquals(5, keys.length);
+		for (int i = 1; i < keys.length; i++) {
+			assertEquals(keys[i - 1] + 1, keys[i]);
+		}
+
+		assertEquals(5, executeCount(session, "select count(*) from ITEM"));
+		executeUpdate(session, "drop table ITEM");
+		session.closeSession();
+	}
+}
@@ -0,0 +1,133 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DbStatementCacheTest extends DbHsqldbTestCase {
+
+	@After
+	public void tearDown() throws Exception {
+		DbManager.resetAll();
+		super.tearDown();
+	}
+
+	@Test
+	public void testQueryCache() {
+		DbManager dbManager = DbManager.getInstance();
+
+		DbQueryParser query1 = dbManager.parseQuery("select * from GIRL where ID = :id");
+		DbQueryParser query2 = dbManager.parseQuery("select * from GIRL where ID = :id");
+		assertSame(query1, query2);
+		assertEquals("select * from GIRL where ID = ?", query1.sql);
+
+		dbManager.setQueryCacheSize(0);
+		query1 = dbManager.parseQuery("select * from GIRL where ID = :id");
+		query2 = dbManager.parseQuery("select * from GIRL where ID = :id");
+		assertNotSame(query1, query2);
+	}
+
+	@Test
+	public void testStatementCache() throws SQLException {
+		DbSession session = new DbSession(cp);
+		session.setStatementCacheSize(2);
+
+		executeUpdate(session, "insert into GIRL values(1, 'Anna', 'seduction')");
+		executeUpdate(session, "insert into GIRL values(2, 'Sandra', 'spying')");
+
+		DbQuery query = new DbQuery(session, "select NAME from GIRL where ID = :id");
+		query.setInteger("id", 1);
+		assertEquals("Anna", query.find(new StringMapper()));
+		PreparedStatement ps = query.preparedStatement;
+		query.close();
+		assertFalse(ps.isClosed());
+
+		query = new DbQuery(session, "select NAME from GIRL where ID = :id");
+		query.setInteger("id", 2);
+		assertEquals("Sandra", query.find(new StringMapper()));
+		assertSame(ps, query.preparedStatement);
+
+		// statement in use is not shared
+		DbQuery query2 = new DbQuery(session, "select NAME from GIRL where ID = :id");
+		query2.setInteger("id", 1);
+		assertEquals("Anna", query2.find(new StringMapper()));
+		assertNotSame(ps, query2.preparedStatement);
+		query2.close();
+		query.close();
+
+		// different settings, different statement
+		query = new DbQuery(session, "select NAME from GIRL where ID = :id");
+		query.setGeneratedKey();
+		query.setInteger("id", 1);
+		assertEquals("Anna", query.find(new StringMapper()));
+		assertNotSame(ps, query.preparedStatement);
+		PreparedStatement ps2 = query.preparedStatement;
+		query.close();
+
+		session.closeSession();
+		assertTrue(ps.isClosed());
+		assertTrue(ps2.isClosed());
+	}
+
+	@Test
+	public void testStatementCacheEviction() throws SQLException {
+		DbSession session = new DbSession(cp);
+		session.setStatementCacheSize(1);
+
+		DbQuery query = new DbQuery(session, "select count(*) from GIRL where ID = :id");
+		query.setInteger("id", 1);
+		query.executeCount();
+		PreparedStatement ps = query.preparedStatement;
+		query.close();
+		assertFalse(ps.isClosed());
+
+		query = new DbQuery(session, "select count(*) from BOY where ID = :id");
+		query.setInteger("id", 1);
+		query.executeCount();
+		query.close();
+		assertTrue(ps.isClosed());
+
+		session.setStatementCacheSize(0);
+		session.closeSession();
+	}
+
+	static class StringMapper implements QueryMapper<String> {
+		public String process(ResultSet resultSet) throws SQLException {
+			return resultSet.getString(1);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.oom;
+
+import jodd.db.DbHsqldbTestCase;
+import jodd.db.DbQuery;
+import jodd.db.DbSession;
+import jodd.db.DbSqlException;
+import jodd.db.DbThreadSession;
+import jodd.db.oom.tst.Boy;
+import jodd.db.oom.tst.Girl2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static jodd.db.oom.sqlgen.DbSqlBuilder.sql;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DbOomStreamTest extends DbHsqldbTestCase {
+
+	public static final String TSQL =
+			"select $C{g.id, g.name, g.speciality}, $C{b.*} from " +
+			"$T{Girl2 g} join $T{Boy b} on $g.id = $b.girlId " +
+			"order by $g.id, $b.id";
+
+	private static final int GIRLS = 200;
+	private static final int BOYS_PER_GIRL = 3;
+
+	DbSession dbSession;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+
+		DbOomManager.resetAll();
+		DbOomManager dbOom = DbOomManager.getInstance();
+		dbOom.registerEntity(Girl2.class);
+		dbOom.registerEntity(Boy.class);
+
+		dbSession = new DbThreadSession(cp);
+
+		DbQuery girls = new DbQuery("insert into GIRL values(:id, :name, 'x')");
+		DbQuery boys = new DbQuery("insert into BOY values(:id, :girlId, :name)");
+		int boyId = 0;
+		for (int i = 1; i <= GIRLS; i++) {
+			girls.setInteger("id", i);
+			girls.setString("name", "girl" + i);
+			girls.addBatch();
+			for (int j = 0; j < BOYS_PER_GIRL; j++) {
+				boyId++;
+				boys.setInteger("id", boyId);
+				boys.setInteger("girlId", i);
+				boys.setString("name", "boy" + boyId);
+				boys.addBatch();
+			}
+		}
+		girls.autoClose().executeBatch();
+		boys.autoClose().executeBatch();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dbSession.closeSession();
+		super.tearDown();
+	}
+
+	@Test
+	public void testStream() {
+		DbOomQuery q = new DbOomQuery(sql(TSQL));
+
+		Iterator<Object[]> iterator = q.autoClose().stream(Girl2.class, Boy.class);
+
+		assertEquals(DbOomQuery.DEFAULT_STREAM_FETCH_SIZE, q.getFetchSize());
+		assertEquals(DbOomQuery.TYPE_FORWARD_ONLY, q.getType());
+		assertEquals(DbOomQuery.CONCUR_READ_ONLY, q.getConcurrencyType());
+
+		int count = 0;
+		while (iterator.hasNext()) {
+			Object[] row = iterator.next();
+			assertTrue(row[0] instanceof Girl2);
+			assertTrue(row[1] instanceof Boy);
+			count++;
+		}
+		assertEquals(GIRLS * BOYS_PER_GIRL, count);
+		assertTrue(q.isClosed());
+	}
+
+	@Test
+	public void testStreamEntityAwareWithBoundedCache() {
+		DbOomQuery q = new DbOomQuery(sql(TSQL));
+		q.withHints("g", "g.boys").entityAwareMode(true).entitiesCacheSize(4);
+
+		Iterator<Girl2> iterator = q.autoClose().stream(Girl2.class, Boy.class);
+
+		int count = 0;
+		Girl2 previous = null;
+		while (iterator.hasNext()) {
+			Girl2 girl = iterator.next();
+			count++;
+			assertEquals(count, girl.id.intValue());
+			assertEquals(BOYS_PER_GIRL, girl.getBoys().size());
+			if (previous != null) {
+				assertFalse(previous == girl);
+			}
+			previous = girl;
+		}
+		assertEquals(GIRLS, count);
+		assertEquals(4, q.getEntitiesCacheSize());
+	}
+
+	@Test
+	public void testStreamDefaultEntitiesCacheSize() {
+		DbOomQuery q = new DbOomQuery(sql(TSQL));
+		q.cacheEntities(true);
+
+		Iterator<Object[]> iterator = q.autoClose().stream(Girl2.class, Boy.class);
+
+		Object[] first = iterator.next();
+		Object[] second = iterator.next();
+		assertSame(first[0], second[0]);
+
+		while (iterator.hasNext()) {
+			iterator.next();
+		}
+		assertEquals(DbOomQuery.DEFAULT_STREAM_ENTITIES_CACHE_SIZE, q.getEntitiesCacheSize());
+	}
+
+	@Test
+	public void testStreamCallback() {
+		DbOomQuery q = new DbOomQuery(sql(TSQL));
+
+		final int[] girlIds = new int[1];
+		long count = q.autoClose().stream(new DbRowCallback<Object[]>() {
+			public boolean onRow(Object[] row) {
+				girlIds[0] = ((Girl2) row[0]).id.intValue();
+				return girlIds[0] < 10;
+			}
+		}, Girl2.class, Boy.class);
+
+		assertEquals(9 * BOYS_PER_GIRL + 1, count);
+		assertEquals(10, girlIds[0]);
+		assertTrue(q.isClosed());
+
+		q = new DbOomQuery(sql(TSQL));
+		count = q.stream(new DbRowCallback<Object[]>() {
+			public boolean onRow(Object[] row) {
+				return true;
+			}
+		}, Girl2.class, Boy.class);
+
+		assertEquals(GIRLS * BOYS_PER_GIRL, count);
+		assertFalse(q.isClosed());
+		q.close();
+	}
+
+	@Test
+	public void testStreamInitializedQuery() {
+		DbOomQuery q = new DbOomQuery(sql(TSQL));
+		q.typeScrollSensitive();
+		q.init();
+
+		try {
+			q.stream(Girl2.class, Boy.class);
+			fail();
+		} catch (DbSqlException ignore) {
+		}
+		q.close();
+
+		// initialized with forward-only and read-only cursor
+		q = new DbOomQuery(sql(TSQL));
+		q.typeForwardOnly();
+		q.concurReadOnly();
+		q.init();
+
+		Iterator<Object[]> iterator = q.autoClose().stream(Girl2.class, Boy.class);
+
+		int count = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		assertEquals(GIRLS * BOYS_PER_GIRL, count);
+	}
+}
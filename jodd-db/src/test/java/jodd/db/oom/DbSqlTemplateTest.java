@@ -106,6 +106,23 @@ public class DbSqlTemplateTest {
 	}
 
 
+	@Test
+	public void testTemplateCacheSize() {
+		DbOomManager dbOom = DbOomManager.getInstance();
+		assertEquals(1000, dbOom.getTemplateCacheSize());
+
+		dbOom.setTemplateCacheSize(0);
+		assertEquals("BOY b b.ID", sql("$T{Boy b} $b.id").generateQuery());
+		assertEquals("BOY b b.ID", sql("$T{Boy b} $b.id").generateQuery());
+
+		dbOom.setTemplateCacheSize(1);
+		assertEquals("BOY b b.ID", sql("$T{Boy b} $b.id").generateQuery());
+		assertEquals("GIRL g g.ID", sql("$T{Girl g} $g.id").generateQuery());
+		assertEquals("BOY b b.ID", sql("$T{Boy b} $b.id").generateQuery());
+
+		dbOom.setTemplateCacheSize(1000);
+	}
+
 	@Test
 	public void testManyTables() {
 		DbSqlBuilder st = sql("$T{Boy, Girl girl}");
@@ -191,4 +191,41 @@ public class GenericDaoTest extends DbHsqldbTestCase {
 		session.closeSession();
 		ThreadDbSessionHolder.remove();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testSaveAllAndUpdateAll() {
+		DbSession session = new DbSession(cp);
+		ThreadDbSessionHolder.set(session);
+
+		GenericDao dao = new GenericDao();
+		dao.setBatchSize(3);
+
+		List<Girl> girls = new ArrayList<Girl>();
+		for (int i = 1; i <= 10; i++) {
+			Girl girl = new Girl();
+			girl.setId(Long.valueOf(i));
+			girl.setName("girl" + i);
+			if (i > 5) {
+				girl.setSpeciality("spec" + i);
+			}
+			girls.add(girl);
+		}
+
+		dao.saveAll(girls);
+		assertEquals(10, dao.count(Girl.class));
+		assertNull(dao.findById(Girl.class, 5).getSpeciality());
+		assertEquals("spec6", dao.findById(Girl.class, 6).getSpeciality());
+
+		for (Girl girl : girls) {
+			girl.setSpeciality("new" + girl.getId());
+		}
+		dao.updateAll(girls);
+
+		for (Girl girl : dao.listAll(Girl.class)) {
+			assertEquals("new" + girl.getId(), girl.getSpeciality());
+		}
+
+		session.closeSession();
+		ThreadDbSessionHolder.remove();
+	}
+}
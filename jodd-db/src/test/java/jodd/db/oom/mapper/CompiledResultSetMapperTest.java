@@ -0,0 +1,157 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.oom.mapper;
+
+import jodd.db.DbHsqldbTestCase;
+import jodd.db.DbSession;
+import jodd.db.oom.DbOomManager;
+import jodd.db.oom.DbOomQuery;
+import jodd.db.oom.dao.Boy;
+import jodd.db.oom.dao.Girl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static jodd.db.oom.sqlgen.DbSqlBuilder.sql;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledResultSetMapperTest extends DbHsqldbTestCase {
+
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+
+		DbOomManager.resetAll();
+		DbOomManager dbOom = DbOomManager.getInstance();
+		dbOom.registerEntity(Girl.class);
+		dbOom.registerEntity(Boy.class);
+		dbOom.setCompiledResultSetMappers(true);
+
+		DbSession session = new DbSession(cp);
+		executeUpdate(session, "insert into GIRL values(1, 'Anna', 'seduction')");
+		executeUpdate(session, "insert into GIRL values(2, 'Sandra', null)");
+		executeUpdate(session, "insert into BOY values(1, 1, 'Johny')");
+		executeUpdate(session, "insert into BOY values(2, 1, null)");
+		executeUpdate(session, "insert into BOY values(3, 2, 'David')");
+		session.closeSession();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		DbOomManager.resetAll();
+		super.tearDown();
+	}
+
+	@Test
+	public void testMapping() {
+		DbSession session = new DbSession(cp);
+
+		DbOomQuery q = DbOomQuery.query(session, "select * from GIRL order by ID");
+		List<Girl> girls = q.autoClose().list(Girl.class);
+
+		assertEquals(2, girls.size());
+		assertEquals(1, girls.get(0).getId().longValue());
+		assertEquals("Anna", girls.get(0).getName());
+		assertEquals("seduction", girls.get(0).getSpeciality());
+		assertEquals("Sandra", girls.get(1).getName());
+		assertNull(girls.get(1).getSpeciality());
+
+		q = DbOomQuery.query(session, sql("select $C{g.*}, $C{b.*} from $T{Girl g} join $T{Boy b} on g.ID = b.GIRL_ID order by b.ID"));
+		List<Object[]> list = q.autoClose().list(Girl.class, Boy.class);
+
+		assertEquals(3, list.size());
+		Girl girl = (Girl) list.get(0)[0];
+		Boy boy = (Boy) list.get(0)[1];
+		assertEquals("Anna", girl.getName());
+		assertEquals(1, boy.getId());
+		assertEquals(1, boy.getGirlId());
+		assertEquals("Johny", boy.getName());
+
+		boy = (Boy) list.get(1)[1];
+		assertEquals(2, boy.getId());
+		assertNull(boy.getName());
+
+		boy = (Boy) list.get(2)[1];
+		assertEquals("David", boy.getName());
+		assertEquals("Sandra", ((Girl) list.get(2)[0]).getName());
+
+		// simple types
+
+		q = DbOomQuery.query(session, "select count(*), max(NAME) from BOY");
+		Object[] result = q.autoClose().find(Long.class, String.class);
+		assertEquals(Long.valueOf(3), result[0]);
+		assertEquals("Johny", result[1]);
+
+		session.closeSession();
+	}
+
+	@Test
+	public void testPlanCache() {
+		DbSession session = new DbSession(cp);
+
+		assertTrue(DbOomManager.getInstance().getMappingPlansCache().isEmpty());
+
+		DbOomQuery q = DbOomQuery.query(session, "select * from BOY order by ID");
+		q.autoClose().list(Boy.class);
+		assertEquals(1, DbOomManager.getInstance().getMappingPlansCache().size());
+
+		q = DbOomQuery.query(session, "select * from BOY where ID > 1");
+		q.autoClose().list(Boy.class);
+		assertEquals(1, DbOomManager.getInstance().getMappingPlansCache().size());
+
+		q = DbOomQuery.query(session, "select * from GIRL");
+		q.autoClose().list(Girl.class);
+		assertEquals(2, DbOomManager.getInstance().getMappingPlansCache().size());
+
+		// writers
+
+		MappingPlan plan = DbOomManager.getInstance().getMappingPlansCache().iterator().next();
+		for (MappingPlan.ColumnMapping columnMapping : plan.getMappings()) {
+			assertSame(MappingPlan.MethodHandleWriter.class, columnMapping.writer.getClass());
+		}
+
+		session.closeSession();
+	}
+
+	@Test
+	public void testEntityCache() {
+		DbSession session = new DbSession(cp);
+
+		DbOomQuery q = DbOomQuery.query(session, sql("select $C{g.*}, $C{b.*} from $T{Girl g} join $T{Boy b} on g.ID = b.GIRL_ID order by b.ID"));
+		q.entityAwareMode(true);
+		List<Object[]> list = q.autoClose().list(Girl.class, Boy.class);
+
+		assertEquals(3, list.size());
+		assertSame(list.get(0)[0], list.get(1)[0]);
+
+		session.closeSession();
+	}
+}
@@ -0,0 +1,225 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.db.pool;
+
+import jodd.db.DbQuery;
+import jodd.db.DbSession;
+import jodd.db.DbSqlException;
+import jodd.util.ThreadUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentConnectionPoolTest {
+
+	protected ConcurrentConnectionPool cp;
+
+	@Before
+	public void setUp() throws Exception {
+		cp = new ConcurrentConnectionPool();
+		cp.setDriver("org.hsqldb.jdbcDriver");
+		cp.setUrl("jdbc:hsqldb:mem:pool");
+		cp.setUser("sa");
+		cp.setPassword("");
+		cp.setMinConnections(2);
+		cp.setMaxConnections(4);
+		cp.setConnectionTimeout(1000);
+		cp.init();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cp.close();
+	}
+
+	@Test
+	public void testPrefill() {
+		for (int i = 0; i < 50; i++) {
+			if (cp.getStats().getIdleCount() == 2) {
+				break;
+			}
+			ThreadUtil.sleep(10);
+		}
+		ConcurrentConnectionPool.Stats stats = cp.getStats();
+		assertEquals(2, stats.getIdleCount());
+		assertEquals(0, stats.getActiveCount());
+		assertEquals(2, stats.getCreatedCount());
+		assertTrue(stats.getAverageCreationTime() > 0);
+	}
+
+	@Test
+	public void testAffinity() {
+		Connection connection1 = cp.getConnection();
+		cp.closeConnection(connection1);
+
+		Connection connection2 = cp.getConnection();
+		assertSame(connection1, connection2);
+		assertEquals(1, cp.getStats().getActiveCount());
+		cp.closeConnection(connection2);
+		assertEquals(0, cp.getStats().getActiveCount());
+	}
+
+	@Test
+	public void testTimeout() {
+		Connection[] connections = new Connection[4];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = cp.getConnection();
+		}
+		assertEquals(4, cp.getStats().getActiveCount());
+
+		try {
+			cp.getConnection();
+			fail();
+		} catch (DbSqlException ignore) {
+		}
+
+		for (Connection connection : connections) {
+			cp.closeConnection(connection);
+		}
+		assertEquals(4, cp.getStats().getIdleCount());
+	}
+
+	@Test
+	public void testHandOff() throws InterruptedException {
+		final Connection[] connections = new Connection[4];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = cp.getConnection();
+		}
+
+		final AtomicReference<Connection> received = new AtomicReference<>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				received.set(cp.getConnection());
+			}
+		};
+		thread.start();
+
+		ThreadUtil.sleep(50);
+		cp.closeConnection(connections[0]);
+		thread.join();
+
+		assertSame(connections[0], received.get());
+		assertTrue(cp.getStats().getMaxWaitTime() > 0);
+	}
+
+	@Test
+	public void testDoubleClose() {
+		Connection connection1 = cp.getConnection();
+		cp.closeConnection(connection1);
+		cp.closeConnection(connection1);
+
+		assertEquals(0, cp.getStats().getActiveCount());
+
+		// connection is returned only once
+		Connection connection2 = cp.getConnection();
+		Connection connection3 = cp.getConnection();
+		assertSame(connection1, connection2);
+		assertNotSame(connection2, connection3);
+		assertEquals(2, cp.getStats().getActiveCount());
+
+		cp.closeConnection(connection2);
+		cp.closeConnection(connection3);
+		assertEquals(0, cp.getStats().getActiveCount());
+	}
+
+	@Test
+	public void testIdleAndLifetime() throws SQLException {
+		cp.setIdleTimeout(1);
+		cp.setMaxLifetime(0);
+
+		Connection[] connections = new Connection[4];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = cp.getConnection();
+		}
+		for (Connection connection : connections) {
+			cp.closeConnection(connection);
+		}
+		ThreadUtil.sleep(10);
+
+		cp.housekeeping();
+		assertEquals(2, cp.getStats().getTotalCount());
+
+		cp.setIdleTimeout(0);
+		cp.setMaxLifetime(1);
+
+		Connection connection = cp.getConnection();
+		ThreadUtil.sleep(10);
+		cp.closeConnection(connection);
+		assertTrue(connection.isClosed());
+	}
+
+	@Test
+	public void testConcurrentSessions() throws InterruptedException {
+		DbSession session = new DbSession(cp);
+		new DbQuery(session, "create table POOLTEST (ID integer not null)").autoClose().executeUpdate();
+		session.closeSession();
+
+		final int threads = 20;
+		final CountDownLatch latch = new CountDownLatch(threads);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 20; i++) {
+							DbSession session = new DbSession(cp);
+							new DbQuery(session, "insert into POOLTEST values(" + (id * 100 + i) + ")").autoClose().executeUpdate();
+							session.closeSession();
+						}
+					} catch (Throwable throwable) {
+						error.set(throwable);
+					} finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+		latch.await();
+
+		assertNull(error.get());
+
+		session = new DbSession(cp);
+		assertEquals(400, new DbQuery(session, "select count(*) from POOLTEST").autoClose().executeCount());
+		new DbQuery(session, "drop table POOLTEST").autoClose().executeUpdate();
+		session.closeSession();
+
+		ConcurrentConnectionPool.Stats stats = cp.getStats();
+		assertTrue(stats.getTotalCount() <= 4);
+		assertEquals(0, stats.getActiveCount());
+		assertEquals(0, stats.getWaitingThreadsCount());
+	}
+}
@@ -25,7 +25,10 @@
 
 package jodd.http;
 
+import jodd.core.JoddCore;
+import jodd.http.up.InputStreamUploadable;
 import jodd.http.up.Uploadable;
+import jodd.io.FastByteArrayOutputStream;
 import jodd.io.StreamUtil;
 import jodd.util.StringPool;
 import jodd.util.buffer.FastByteBuffer;
@@ -40,10 +43,14 @@ import java.util.LinkedList;
 /**
  * Holds request/response content until it is actually send.
  * File content (i.e. {@link jodd.http.up.Uploadable}) is
- * <b>not</b> read until it is really used.
+ * <b>not</b> read until it is really used. Uploadables of
+ * unknown (negative) size are written using the chunked
+ * transfer encoding; then the buffer size is unknown, too.
  */
 public class Buffer {
 
+	protected static final String STREAM_PLACEHOLDER = "[input stream]";
+
 	protected LinkedList<Object> list = new LinkedList<>();
 	protected FastByteBuffer last;
 	protected int size;
@@ -52,15 +59,24 @@ public class Buffer {
 	 * Appends string content to buffer.
 	 */
 	public Buffer append(String string) {
-		ensureLast();
-
 		try {
-			byte[] bytes = string.getBytes(StringPool.ISO_8859_1);
+			append(string.getBytes(StringPool.ISO_8859_1));
+		} catch (UnsupportedEncodingException ignore) {
+		}
 
-			last.append(bytes);
+		return this;
+	}
+
+	/**
+	 * Appends already encoded bytes to buffer.
+	 */
+	public Buffer append(byte[] bytes) {
+		ensureLast();
 
+		last.append(bytes);
+
+		if (size >= 0) {
 			size += bytes.length;
-		} catch (UnsupportedEncodingException ignore) {
 		}
 
 		return this;
@@ -87,7 +103,15 @@ public class Buffer {
 	 */
 	public Buffer append(Uploadable uploadable) {
 		list.add(uploadable);
-		size += uploadable.getSize();
+
+		int uploadableSize = uploadable.getSize();
+
+		if (uploadableSize < 0) {
+			size = -1;
+		} else if (size >= 0) {
+			size += uploadableSize;
+		}
+
 		last = null;
 		return this;
 	}
@@ -102,12 +126,17 @@ public class Buffer {
 		}
 		list.addAll(buffer.list);
 		last = buffer.last;
-		size += buffer.size;
+
+		if (buffer.size < 0) {
+			size = -1;
+		} else if (size >= 0) {
+			size += buffer.size;
+		}
 		return this;
 	}
 
 	/**
-	 * Returns buffer size.
+	 * Returns buffer size, or <code>-1</code> if size is not known.
 	 */
 	public int size() {
 		return size;
@@ -126,7 +155,8 @@ public class Buffer {
 	// ---------------------------------------------------------------- write
 
 	/**
-	 * Writes content to the writer.
+	 * Writes content to the writer. Input streams that are not read yet
+	 * are written as a placeholder, as they may be read only once.
 	 */
 	public void writeTo(Writer writer) throws IOException {
 		for (Object o : list) {
@@ -140,10 +170,23 @@ public class Buffer {
 			else if (o instanceof Uploadable) {
 				Uploadable uploadable = (Uploadable) o;
 
+				if (uploadable instanceof InputStreamUploadable && !((InputStreamUploadable) uploadable).isLoaded()) {
+					writer.write(STREAM_PLACEHOLDER);
+					continue;
+				}
+
 				InputStream inputStream = uploadable.openInputStream();
 
 				try {
-					StreamUtil.copy(inputStream, writer, StringPool.ISO_8859_1);
+					if (uploadable.getSize() < 0) {
+						FastByteArrayOutputStream out = new FastByteArrayOutputStream();
+
+						writeChunked(inputStream, out, null);
+
+						writer.write(new String(out.toByteArray(), StringPool.ISO_8859_1));
+					} else {
+						StreamUtil.copy(inputStream, writer, StringPool.ISO_8859_1);
+					}
 				}
 				finally {
 					StreamUtil.close(inputStream);
@@ -156,70 +199,45 @@ public class Buffer {
 	 * Writes content to the output stream.
 	 */
 	public void writeTo(OutputStream out) throws IOException {
-		for (Object o : list) {
-			if (o instanceof FastByteBuffer) {
-				FastByteBuffer fastByteBuffer = (FastByteBuffer) o;
-
-				out.write(fastByteBuffer.toArray());
-			}
-			else if (o instanceof Uploadable) {
-				Uploadable uploadable = (Uploadable) o;
-
-				InputStream inputStream = uploadable.openInputStream();
-
-				try {
-					StreamUtil.copy(inputStream, out);
-				}
-				finally {
-					StreamUtil.close(inputStream);
-				}
-			}
-		}
+		writeTo(out, (Progress) null);
 	}
 
 	/**
 	 * Writes content to the output stream, using progress listener to track the sending progress.
 	 */
 	public void writeTo(OutputStream out, HttpProgressListener progressListener) throws IOException {
+		Progress progress = new Progress(progressListener, size());
 
-		// start
-
-		final int size = size();
-		final int callbackSize = progressListener.callbackSize(size);
-		int count = 0;		// total count
-		int step = 0;		// step is offset in current chunk
+		writeTo(out, progress);
 
-		progressListener.transferred(count);
-
-		// loop
+		progress.end();
+	}
 
+	private void writeTo(OutputStream out, Progress progress) throws IOException {
 		for (Object o : list) {
 			if (o instanceof FastByteBuffer) {
 				FastByteBuffer fastByteBuffer = (FastByteBuffer) o;
-				byte[] bytes = fastByteBuffer.toArray();
 
-				int offset = 0;
+				int index = fastByteBuffer.index();
 
-				while (offset < bytes.length) {
-					// calc the remaining sending chunk size
-					int chunk = callbackSize - step;
+				for (int i = 0; i <= index; i++) {
+					byte[] bytes = fastByteBuffer.array(i);
+					int length = i == index ? fastByteBuffer.offset() : bytes.length;
 
-					// check if this chunk size fits the bytes array
-					if (offset + chunk > bytes.length) {
-						chunk = bytes.length - offset;
+					if (progress == null) {
+						out.write(bytes, 0, length);
+						continue;
 					}
 
-					// writes the chunk
-					out.write(bytes, offset, chunk);
+					int offset = 0;
+
+					while (offset < length) {
+						int chunk = Math.min(progress.remaining(), length - offset);
 
-					offset += chunk;
-					step += chunk;
-					count += chunk;
+						out.write(bytes, offset, chunk);
 
-					// listener
-					if (step >= callbackSize) {
-						progressListener.transferred(count);
-						step -= callbackSize;
+						offset += chunk;
+						progress.transferred(chunk);
 					}
 				}
 			}
@@ -228,29 +246,23 @@ public class Buffer {
 
 				InputStream inputStream = uploadable.openInputStream();
 
-				int remaining = uploadable.getSize();
-
 				try {
-					while (remaining > 0) {
-						// calc the remaining sending chunk size
-						int chunk = callbackSize - step;
-
-						// check if this chunk size fits the remaining size
-						if (chunk > remaining) {
-							chunk = remaining;
-						}
+					int remaining = uploadable.getSize();
 
-						// writes remaining chunk
-						StreamUtil.copy(inputStream, out, chunk);
+					if (remaining < 0) {
+						writeChunked(inputStream, out, progress);
+					}
+					else if (progress == null) {
+						StreamUtil.copy(inputStream, out);
+					}
+					else {
+						while (remaining > 0) {
+							int chunk = Math.min(progress.remaining(), remaining);
 
-						remaining -= chunk;
-						step += chunk;
-						count += chunk;
+							StreamUtil.copy(inputStream, out, chunk);
 
-						// listener
-						if (step >= callbackSize) {
-							progressListener.transferred(count);
-							step -= callbackSize;
+							remaining -= chunk;
+							progress.transferred(chunk);
 						}
 					}
 				}
@@ -259,12 +271,94 @@ public class Buffer {
 				}
 			}
 		}
+	}
+
+	/**
+	 * Tracks the sending progress and notifies the listener
+	 * for every sent {@link HttpProgressListener#callbackSize(int) chunk}.
+	 */
+	private static class Progress {
+		private final HttpProgressListener progressListener;
+		private final int callbackSize;
+		private int count;		// total count
+		private int step;		// step is offset in current chunk
+
+		private Progress(HttpProgressListener progressListener, int size) {
+			this.progressListener = progressListener;
+			this.callbackSize = progressListener.callbackSize(size);
+
+			progressListener.transferred(0);
+		}
+
+		/**
+		 * Returns the number of bytes till the next callback.
+		 */
+		private int remaining() {
+			return callbackSize - step;
+		}
+
+		private void transferred(int len) {
+			step += len;
+			count += len;
+
+			while (step >= callbackSize) {
+				progressListener.transferred(count);
+				step -= callbackSize;
+			}
+		}
 
-		// end
+		private void end() {
+			if (step != 0) {
+				progressListener.transferred(count);
+			}
+		}
+	}
 
-		if (step != 0) {
-			progressListener.transferred(count);
+	// ---------------------------------------------------------------- chunked
+
+	private static final byte[] LAST_CHUNK = new byte[] {'0', '\r', '\n', '\r', '\n'};
+
+	/**
+	 * Writes stream content using chunked transfer encoding.
+	 */
+	private static void writeChunked(InputStream input, OutputStream out, Progress progress) throws IOException {
+		byte[] buffer = new byte[JoddCore.ioBufferSize];
+		int read;
+
+		while ((read = input.read(buffer)) != -1) {
+			if (read == 0) {
+				continue;
+			}
+			out.write(chunkHeader(read));
+			out.write(buffer, 0, read);
+			out.write('\r');
+			out.write('\n');
+
+			if (progress != null) {
+				progress.transferred(read);
+			}
 		}
+		out.write(LAST_CHUNK);
+	}
+
+	/**
+	 * Returns encoded chunk header for given chunk size.
+	 */
+	static byte[] chunkHeader(int chunkSize) {
+		String header = Integer.toHexString(chunkSize) + "\r\n";
+
+		byte[] bytes = new byte[header.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) header.charAt(i);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the last chunk of chunked transfer encoding.
+	 */
+	static byte[] lastChunk() {
+		return LAST_CHUNK.clone();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.core.JoddCore;
+import jodd.http.up.ByteArrayUploadable;
+import jodd.http.up.ByteBufferUploadable;
+import jodd.http.up.FileUploadable;
+import jodd.http.up.Uploadable;
+import jodd.io.StreamUtil;
+import jodd.util.buffer.FastByteBuffer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Reads the {@link Buffer} content for non-blocking writing. Bytes
+ * are not copied: buffer chunks, byte arrays and byte buffers are
+ * written as they are, while files are transferred directly
+ * to the channel using <code>FileChannel.transferTo</code>, when allowed,
+ * or read in chunks. Cursor is used by the I/O thread, so streams, which
+ * may block, must be {@link #readStreams(Buffer) read} before.
+ */
+class BufferCursor {
+
+	private static final byte[] CRLF = new byte[] {'\r', '\n'};
+
+	private final Buffer buffer;
+	private final boolean fileTransfer;
+	private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+
+	private Iterator<Object> iterator;
+	private ByteBuffer current;
+	private FileInputStream fileInput;
+	private long filePosition;
+	private long fileRemaining;
+	private byte[] chunk;
+	private boolean started;
+	private long written;
+
+	/**
+	 * Creates cursor over the buffer. When file transfer is enabled,
+	 * files are sent using {@link #write(WritableByteChannel)}.
+	 */
+	BufferCursor(Buffer buffer, boolean fileTransfer) {
+		this.buffer = buffer;
+		this.fileTransfer = fileTransfer;
+		this.iterator = buffer.list.iterator();
+	}
+
+	/**
+	 * Returns <code>true</code> if any element of the buffer is read.
+	 */
+	boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Returns the number of written bytes.
+	 */
+	long written() {
+		return written;
+	}
+
+	/**
+	 * Returns the next bytes to write, or <code>null</code> when all bytes
+	 * are written. Returned bytes has to be consumed before the next call.
+	 * Files are not transferred directly when this method is used.
+	 */
+	ByteBuffer next() throws IOException {
+		if (!advance(false)) {
+			return null;
+		}
+		return current;
+	}
+
+	/**
+	 * Marks consumed bytes of the {@link #next() current bytes} as written.
+	 */
+	void consumed(int count) {
+		written += count;
+	}
+
+	/**
+	 * Writes bytes to the channel without blocking. Returns
+	 * the number of written bytes or <code>-1</code> when all bytes
+	 * are already written.
+	 */
+	long write(WritableByteChannel channel) throws IOException {
+		if (!advance(fileTransfer)) {
+			return -1;
+		}
+
+		long count;
+
+		if (fileRemaining > 0 && fileTransfer) {
+			count = fileInput.getChannel().transferTo(filePosition, fileRemaining, channel);
+
+			filePosition += count;
+			fileRemaining -= count;
+		} else {
+			count = channel.write(current);
+		}
+
+		written += count;
+		return count;
+	}
+
+	/**
+	 * Moves to the available bytes. Returns <code>false</code> when done.
+	 */
+	private boolean advance(boolean transfer) throws IOException {
+		while (true) {
+			if (current != null && current.hasRemaining()) {
+				return true;
+			}
+			if (fileRemaining > 0) {
+				if (transfer) {
+					return true;
+				}
+				readFile();
+				continue;
+			}
+			current = queue.poll();
+			if (current != null) {
+				continue;
+			}
+
+			closeFile();
+
+			if (!iterator.hasNext()) {
+				return false;
+			}
+			started = true;
+			open(iterator.next());
+		}
+	}
+
+	private void open(Object o) throws IOException {
+		if (o instanceof FastByteBuffer) {
+			FastByteBuffer fastByteBuffer = (FastByteBuffer) o;
+
+			int index = fastByteBuffer.index();
+
+			for (int i = 0; i <= index; i++) {
+				byte[] bytes = fastByteBuffer.array(i);
+				queue.add(ByteBuffer.wrap(bytes, 0, i == index ? fastByteBuffer.offset() : bytes.length));
+			}
+		}
+		else if (o instanceof ByteArrayUploadable) {
+			queue.add(ByteBuffer.wrap(((ByteArrayUploadable) o).getBytes()));
+		}
+		else if (o instanceof ByteBufferUploadable) {
+			queue.add(((ByteBufferUploadable) o).getContent());
+		}
+		else if (o instanceof FileUploadable) {
+			File file = ((FileUploadable) o).getContent();
+
+			fileInput = new FileInputStream(file);
+			filePosition = 0;
+			fileRemaining = file.length();
+		}
+		else {
+			throw new IOException("Content not read: " + o);
+		}
+	}
+
+	private byte[] chunk() {
+		if (chunk == null) {
+			chunk = new byte[JoddCore.ioBufferSize];
+		}
+		return chunk;
+	}
+
+	/**
+	 * Reads next part of the file.
+	 */
+	private void readFile() throws IOException {
+		byte[] bytes = chunk();
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, (int) Math.min(bytes.length, fileRemaining));
+
+		int count = fileInput.getChannel().read(byteBuffer, filePosition);
+
+		if (count <= 0) {
+			throw new IOException("File size changed");
+		}
+		filePosition += count;
+		fileRemaining -= count;
+
+		byteBuffer.flip();
+		current = byteBuffer;
+	}
+
+	private void closeFile() {
+		if (fileInput != null) {
+			StreamUtil.close(fileInput);
+			fileInput = null;
+			fileRemaining = 0;
+		}
+	}
+
+	/**
+	 * Closes opened file.
+	 */
+	void close() {
+		closeFile();
+		queue.clear();
+		current = null;
+	}
+
+	// ---------------------------------------------------------------- streams
+
+	/**
+	 * Returns buffer with the content of streams and other uploadables,
+	 * except files, already read. Streams of unknown size are encoded
+	 * using the chunked transfer encoding. Invoked in the calling
+	 * thread, so blocking streams do not stall the I/O thread.
+	 */
+	static Buffer readStreams(Buffer buffer) throws IOException {
+		Buffer result = new Buffer();
+
+		for (Object o : buffer.list) {
+			if (o instanceof FastByteBuffer) {
+				result.append(((FastByteBuffer) o).toArray());
+			}
+			else if (o instanceof ByteArrayUploadable ||
+				o instanceof ByteBufferUploadable ||
+				o instanceof FileUploadable) {
+				result.append((Uploadable) o);
+			}
+			else {
+				Uploadable uploadable = (Uploadable) o;
+
+				int size = uploadable.getSize();
+				byte[] bytes = uploadable.getBytes();
+
+				if (size < 0) {
+					if (bytes.length > 0) {
+						result.append(Buffer.chunkHeader(bytes.length));
+						result.append(new ByteArrayUploadable(bytes, null));
+						result.append(CRLF);
+					}
+					result.append(Buffer.lastChunk());
+				}
+				else {
+					if (bytes.length < size) {
+						throw new IOException("Premature end of uploaded content");
+					}
+					result.append(new ByteArrayUploadable(bytes.length == size ? bytes : Arrays.copyOf(bytes, size), null));
+				}
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,457 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Non-blocking connection of the {@link HttpAsyncEngine}. Requests are
+ * written in order and responses are matched to them in the same
+ * order, so several requests may be pipelined. Used only from
+ * the I/O thread that owns it.
+ */
+class HttpAsyncConnection {
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	protected final HttpAsyncEngine.Route route;
+	protected final SocketChannel channel;
+	protected final SSLEngine sslEngine;
+	protected SelectionKey key;
+
+	protected final Deque<HttpAsyncEngine.Exchange> exchanges = new ArrayDeque<>();	// sent or being sent, waiting for response
+	protected final Deque<HttpAsyncEngine.Exchange> writeQueue = new ArrayDeque<>();	// not yet fully written
+	protected final HttpResponseFramer framer = new HttpResponseFramer();
+
+	protected ByteBuffer input;			// application bytes
+	protected ByteBuffer netInput;		// TLS records
+	protected ByteBuffer netOutput;		// TLS records, in write mode
+
+	protected boolean connected;
+	protected boolean closing;			// no more requests, connection closes after the last response
+	protected boolean closed;
+	protected int responsesCount;
+	protected long lastActivity = System.currentTimeMillis();
+
+	HttpAsyncConnection(HttpAsyncEngine.Route route, SocketChannel channel, SSLEngine sslEngine) {
+		this.route = route;
+		this.channel = channel;
+		this.sslEngine = sslEngine;
+
+		if (sslEngine != null) {
+			int packetSize = sslEngine.getSession().getPacketBufferSize();
+
+			netInput = ByteBuffer.allocate(packetSize);
+			netOutput = ByteBuffer.allocate(packetSize);
+			input = ByteBuffer.allocate(sslEngine.getSession().getApplicationBufferSize());
+		} else {
+			input = ByteBuffer.allocate(16 * 1024);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if connection may accept the request.
+	 */
+	boolean canAccept(HttpAsyncEngine.Exchange exchange, int maxPipelined) {
+		if (closing || closed) {
+			return false;
+		}
+		if (exchanges.isEmpty()) {
+			return true;
+		}
+		return exchanges.size() < maxPipelined && exchange.idempotent && exchanges.peekLast().idempotent;
+	}
+
+	/**
+	 * Adds request to this connection.
+	 */
+	void enqueue(HttpAsyncEngine.Exchange exchange) {
+		if (exchanges.isEmpty()) {
+			framer.reset(exchange.headRequest);
+			lastActivity = System.currentTimeMillis();
+		}
+		exchanges.add(exchange);
+		writeQueue.add(exchange);
+	}
+
+	/**
+	 * Returns <code>true</code> if there are no requests on this connection.
+	 */
+	boolean isIdle() {
+		return exchanges.isEmpty();
+	}
+
+	/**
+	 * Finishes connecting and starts the TLS handshake.
+	 */
+	void finishConnect() throws IOException {
+		if (!channel.finishConnect()) {
+			return;
+		}
+		connected = true;
+		lastActivity = System.currentTimeMillis();
+
+		if (sslEngine != null) {
+			sslEngine.beginHandshake();
+		}
+	}
+
+	// ---------------------------------------------------------------- process
+
+	/**
+	 * Reads and writes whatever is possible without blocking.
+	 */
+	void process() throws IOException {
+		if (!connected) {
+			finishConnect();
+			if (!connected) {
+				return;
+			}
+		}
+
+		boolean progress = true;
+
+		while (progress && !closed) {
+			progress = runDelegatedTasks();
+			progress |= read();
+			if (closed) {
+				break;
+			}
+			progress |= write();
+		}
+
+		if (!closed) {
+			updateInterest();
+		}
+	}
+
+	private boolean runDelegatedTasks() {
+		if (sslEngine == null || sslEngine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_TASK) {
+			return false;
+		}
+		Runnable task;
+		while ((task = sslEngine.getDelegatedTask()) != null) {
+			task.run();
+		}
+		return true;
+	}
+
+	private void updateInterest() {
+		int ops = SelectionKey.OP_READ;
+
+		if (sslEngine != null) {
+			if (netOutput.position() != 0 ||
+				sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP ||
+				(!writeQueue.isEmpty() && !isHandshaking())) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+		}
+		else if (!writeQueue.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		}
+
+		if (key.interestOps() != ops) {
+			key.interestOps(ops);
+		}
+	}
+
+	private boolean isHandshaking() {
+		SSLEngineResult.HandshakeStatus status = sslEngine.getHandshakeStatus();
+		return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING &&
+			status != SSLEngineResult.HandshakeStatus.FINISHED;
+	}
+
+	// ---------------------------------------------------------------- read
+
+	private boolean read() throws IOException {
+		boolean progress = false;
+
+		int count = channel.read(sslEngine != null ? netInput : input);
+
+		if (count > 0) {
+			progress = true;
+			lastActivity = System.currentTimeMillis();
+		}
+
+		if (sslEngine != null) {
+			progress |= unwrap();
+		}
+
+		if (input.position() != 0) {
+			input.flip();
+			receive(input);
+			input.compact();
+		}
+
+		if (count == -1) {
+			onEof();
+		}
+
+		return progress;
+	}
+
+	private boolean unwrap() throws SSLException {
+		boolean progress = false;
+
+		while (netInput.position() != 0) {
+			netInput.flip();
+			SSLEngineResult result = sslEngine.unwrap(netInput, input);
+			netInput.compact();
+
+			switch (result.getStatus()) {
+				case BUFFER_UNDERFLOW:
+					if (netInput.position() == netInput.capacity()) {
+						netInput = enlarge(netInput, sslEngine.getSession().getPacketBufferSize());
+					}
+					return progress;
+				case BUFFER_OVERFLOW:
+					if (input.position() != 0) {
+						// make room by consuming the application bytes
+						input.flip();
+						receive(input);
+						input.compact();
+					} else {
+						input = enlarge(input, sslEngine.getSession().getApplicationBufferSize());
+					}
+					break;
+				case CLOSED:
+					closing = true;
+					return progress;
+				default:
+					if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+						return progress;
+					}
+			}
+
+			progress = true;
+
+			if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+				runDelegatedTasks();
+			}
+		}
+		return progress;
+	}
+
+	private static ByteBuffer enlarge(ByteBuffer buffer, int size) {
+		ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(size, buffer.capacity()) + buffer.capacity());
+		buffer.flip();
+		newBuffer.put(buffer);
+		return newBuffer;
+	}
+
+	/**
+	 * Feeds framer with the received bytes and completes received responses.
+	 */
+	private void receive(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			HttpAsyncEngine.Exchange exchange = exchanges.peek();
+
+			if (exchange == null) {
+				throw new HttpException("Unexpected response data");
+			}
+
+			int consumed = framer.feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+
+			buffer.position(buffer.position() + consumed);
+
+			if (framer.isDone()) {
+				completeResponse();
+			}
+		}
+	}
+
+	private void completeResponse() {
+		HttpAsyncEngine.Exchange exchange = exchanges.poll();
+
+		byte[] message = framer.toByteArray();
+
+		HttpAsyncEngine.Exchange next = exchanges.peek();
+		framer.reset(next != null && next.headRequest);
+
+		responsesCount++;
+
+		HttpResponse httpResponse;
+		try {
+			httpResponse = HttpResponse.readFrom(new ByteArrayInputStream(message));
+		} catch (RuntimeException rex) {
+			closing = true;
+			exchange.fail(rex);
+			return;
+		}
+
+		httpResponse.assignHttpRequest(exchange.httpRequest);
+
+		if (!httpResponse.isConnectionPersistent()) {
+			closing = true;
+		}
+
+		exchange.complete(httpResponse);
+	}
+
+	private void onEof() {
+		if (framer.isStarted() && framer.close()) {
+			completeResponse();
+		}
+		closing = true;
+		closed = true;
+	}
+
+	// ---------------------------------------------------------------- write
+
+	private boolean write() throws IOException {
+		if (sslEngine == null) {
+			return writePlain();
+		}
+		boolean progress = flush();
+
+		if (sslEngine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+			progress |= wrap(EMPTY);
+		}
+		else if (!isHandshaking()) {
+			HttpAsyncEngine.Exchange exchange;
+
+			while ((exchange = writeQueue.peek()) != null) {
+				ByteBuffer bytes = exchange.cursor.next();
+
+				if (bytes == null) {
+					writeQueue.poll();
+					exchange.sent();
+					continue;
+				}
+
+				int remaining = bytes.remaining();
+
+				if (!wrap(bytes)) {
+					break;
+				}
+				progress = true;
+
+				int consumed = remaining - bytes.remaining();
+
+				exchange.cursor.consumed(consumed);
+				exchange.transferred(consumed);
+			}
+		}
+
+		progress |= flush();
+
+		return progress;
+	}
+
+	private boolean writePlain() throws IOException {
+		boolean progress = false;
+		HttpAsyncEngine.Exchange exchange;
+
+		while ((exchange = writeQueue.peek()) != null) {
+			long count = exchange.cursor.write(channel);
+
+			if (count == -1) {
+				writeQueue.poll();
+				exchange.sent();
+				continue;
+			}
+			if (count == 0) {
+				break;
+			}
+
+			progress = true;
+			lastActivity = System.currentTimeMillis();
+			exchange.transferred(count);
+		}
+		return progress;
+	}
+
+	/**
+	 * Wraps application bytes into TLS records. Returns <code>true</code>
+	 * if anything was consumed or produced.
+	 */
+	private boolean wrap(ByteBuffer source) throws IOException {
+		SSLEngineResult result = sslEngine.wrap(source, netOutput);
+
+		switch (result.getStatus()) {
+			case BUFFER_OVERFLOW:
+				if (netOutput.position() == 0) {
+					netOutput = enlarge(netOutput, sslEngine.getSession().getPacketBufferSize());
+					return true;
+				}
+				return flush();
+			case CLOSED:
+				closing = true;
+				return false;
+			default:
+				if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+					runDelegatedTasks();
+				}
+				return result.bytesConsumed() != 0 || result.bytesProduced() != 0;
+		}
+	}
+
+	/**
+	 * Writes TLS records to the channel.
+	 */
+	private boolean flush() throws IOException {
+		if (netOutput.position() == 0) {
+			return false;
+		}
+		netOutput.flip();
+		int count = channel.write(netOutput);
+		netOutput.compact();
+
+		if (count > 0) {
+			lastActivity = System.currentTimeMillis();
+			return true;
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- close
+
+	/**
+	 * Closes the channel.
+	 */
+	void close() {
+		closed = true;
+		closing = true;
+
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException ignore) {
+		}
+	}
+
+}
@@ -0,0 +1,697 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.util.StringUtil;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking HTTP engine for {@link HttpRequest#sendAsync() asynchronous requests}.
+ * Requests are executed by few I/O threads, each running a selector loop
+ * over its connections, so many concurrent requests do not require
+ * as many threads. Request streams are read before sending; files are
+ * transferred directly to plain connections. Connections are kept alive and reused; idempotent
+ * requests may be pipelined when {@link #setMaxPipelinedRequests(int) enabled}.
+ * Proxies are not supported.
+ * <p>
+ * I/O threads are started on the first request.
+ */
+public class HttpAsyncEngine {
+
+	protected int ioThreads = 2;
+	protected int maxConnectionsPerRoute = 10;
+	protected int maxPipelinedRequests = 1;
+	protected int idleTimeout = 60000;
+	protected boolean keepAlive = true;
+
+	private IoLoop[] loops;
+	private volatile boolean shutdown;
+
+	/**
+	 * Sets the number of I/O threads. Must be set before the first request.
+	 */
+	public HttpAsyncEngine setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of connections to the same host.
+	 * Requests above the limit wait for a free connection.
+	 */
+	public HttpAsyncEngine setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of requests sent on one connection
+	 * before receiving their responses. Only idempotent requests are
+	 * pipelined, and only when all connections to the host are in use.
+	 * Default is 1, i.e. pipelining is disabled.
+	 */
+	public HttpAsyncEngine setMaxPipelinedRequests(int maxPipelinedRequests) {
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		return this;
+	}
+
+	/**
+	 * Sets time in milliseconds after which idle connections are closed.
+	 */
+	public HttpAsyncEngine setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Specifies if requests should be sent with keep-alive connection header,
+	 * as requests are created with closing connections by default.
+	 */
+	public HttpAsyncEngine setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- send
+
+	/**
+	 * Sends the request asynchronously. Request is prepared immediately,
+	 * in the calling thread, including reading of its body streams, so
+	 * slow streams do not block the I/O thread. Files are read only
+	 * when sent. Request {@link HttpRequest#timeout() timeout} limits the connecting and
+	 * the inactivity while waiting for the response. Response body
+	 * is always read in whole.
+	 */
+	public HttpFuture send(HttpRequest httpRequest) {
+		HttpFuture httpFuture = new HttpFuture(httpRequest);
+
+		if (shutdown) {
+			httpFuture.fail(new HttpException("Engine is shut down"));
+			return httpFuture;
+		}
+
+		if (keepAlive) {
+			httpRequest.connectionKeepAlive(true);
+		}
+
+		Exchange exchange;
+		try {
+			exchange = new Exchange(httpRequest, httpFuture);
+		} catch (IOException | RuntimeException ex) {
+			httpFuture.fail(ex instanceof HttpException ? ex : new HttpException(ex));
+			return httpFuture;
+		}
+
+		IoLoop[] loops = loops();
+
+		loops[(exchange.routeName.hashCode() & Integer.MAX_VALUE) % loops.length].submit(exchange);
+
+		return httpFuture;
+	}
+
+	private synchronized IoLoop[] loops() {
+		if (loops == null) {
+			IoLoop[] newLoops = new IoLoop[Math.max(1, ioThreads)];
+
+			for (int i = 0; i < newLoops.length; i++) {
+				try {
+					newLoops[i] = new IoLoop();
+				} catch (IOException ioex) {
+					throw new HttpException(ioex);
+				}
+
+				Thread thread = new Thread(newLoops[i], "jodd-http-io-" + (i + 1));
+				thread.setDaemon(true);
+				thread.start();
+			}
+			loops = newLoops;
+		}
+		return loops;
+	}
+
+	/**
+	 * Stops I/O threads and closes all connections. Pending requests fail.
+	 */
+	public synchronized void shutdown() {
+		shutdown = true;
+
+		if (loops != null) {
+			for (IoLoop loop : loops) {
+				loop.selector.wakeup();
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- ssl
+
+	/**
+	 * Creates client SSL engine. Enables default secure enabled protocols if specified.
+	 */
+	protected SSLEngine createSSLEngine(String host, int port) throws Exception {
+		SSLEngine sslEngine = getSSLContext().createSSLEngine(host, port);
+
+		sslEngine.setUseClientMode(true);
+
+		String enabledProtocols = JoddHttp.defaultSecureEnabledProtocols;
+
+		if (enabledProtocols != null) {
+			String[] values = StringUtil.splitc(enabledProtocols, ',');
+
+			StringUtil.trimAll(values);
+
+			sslEngine.setEnabledProtocols(values);
+		}
+
+		return sslEngine;
+	}
+
+	/**
+	 * Returns SSL context. May be overwritten to provide custom
+	 * SSL context. By default returns default SSL context.
+	 */
+	protected SSLContext getSSLContext() throws Exception {
+		return SSLContext.getDefault();
+	}
+
+	// ---------------------------------------------------------------- exchange
+
+	/**
+	 * Request waiting for the response.
+	 */
+	static class Exchange {
+
+		final HttpRequest httpRequest;
+		final HttpFuture httpFuture;
+		final String routeName;
+		final Buffer buffer;
+		final boolean fileTransfer;
+		BufferCursor cursor;
+		final boolean idempotent;
+		final boolean headRequest;
+		final int timeout;
+		final HttpProgressListener progressListener;
+		final int callbackSize;
+		final InetSocketAddress address;
+		long queued;
+		int transferred;
+		int reported;
+		int retries;
+
+		Exchange(HttpRequest httpRequest, HttpFuture httpFuture) throws IOException {
+			this.httpRequest = httpRequest;
+			this.httpFuture = httpFuture;
+
+			if (httpRequest.httpConnection != null) {
+				throw new HttpException("Connection already opened");
+			}
+
+			Buffer requestBuffer = httpRequest.buffer(true);
+
+			// streams are read here, as reading may block the I/O thread
+			this.buffer = BufferCursor.readStreams(requestBuffer);
+
+			// files are transferred directly only to plain connections
+			this.fileTransfer = !httpRequest.protocol().equalsIgnoreCase("https");
+			this.cursor = new BufferCursor(buffer, fileTransfer);
+
+			String method = httpRequest.method().toUpperCase();
+
+			this.headRequest = method.equals("HEAD");
+			this.idempotent = headRequest || method.equals("GET") || method.equals("OPTIONS") ||
+				method.equals("TRACE") || method.equals("PUT") || method.equals("DELETE");
+			this.timeout = httpRequest.timeout();
+			this.routeName = httpRequest.protocol().toLowerCase() + "://" + httpRequest.host() + ':' + httpRequest.port();
+
+			// host name is resolved here, not in the I/O thread
+			this.address = new InetSocketAddress(httpRequest.host(), httpRequest.port());
+
+			if (address.isUnresolved()) {
+				throw new UnknownHostException(httpRequest.host());
+			}
+
+			this.progressListener = httpRequest.httpProgressListener;
+			this.callbackSize = progressListener != null ? progressListener.callbackSize(requestBuffer.size()) : 0;
+		}
+
+		/**
+		 * Notifies progress listener about sent bytes.
+		 */
+		void transferred(long count) {
+			if (progressListener == null || count == 0) {
+				return;
+			}
+			if (transferred == 0) {
+				progressListener.transferred(0);
+			}
+			transferred += count;
+
+			if (transferred - reported >= callbackSize) {
+				reported = transferred;
+				progressListener.transferred(transferred);
+			}
+		}
+
+		/**
+		 * Invoked when the whole request is sent.
+		 */
+		void sent() {
+			cursor.close();
+
+			if (progressListener != null && transferred != reported) {
+				reported = transferred;
+				progressListener.transferred(transferred);
+			}
+		}
+
+		/**
+		 * Returns <code>true</code> if request may be sent again.
+		 */
+		boolean isRetryable() {
+			return retries == 0 && (!cursor.isStarted() || idempotent);
+		}
+
+		/**
+		 * Prepares request for sending again.
+		 */
+		void rewind() {
+			retries++;
+			cursor.close();
+			cursor = new BufferCursor(buffer, fileTransfer);
+			transferred = 0;
+			reported = 0;
+		}
+
+		void complete(HttpResponse httpResponse) {
+			cursor.close();
+			try {
+				httpFuture.complete(httpResponse);
+			} catch (RuntimeException ignore) {
+				// exception of the callback
+			}
+		}
+
+		void fail(Throwable throwable) {
+			cursor.close();
+			if (!(throwable instanceof HttpException)) {
+				throwable = new HttpException(throwable);
+			}
+			try {
+				httpFuture.fail(throwable);
+			} catch (RuntimeException ignore) {
+				// exception of the callback
+			}
+		}
+	}
+
+	/**
+	 * Connections and requests waiting for connection of a single host.
+	 */
+	static class Route {
+
+		final String host;
+		final int port;
+		final boolean secure;
+		final List<HttpAsyncConnection> connections = new ArrayList<>();
+		final Deque<Exchange> pending = new ArrayDeque<>();
+
+		Route(HttpRequest httpRequest) {
+			this.host = httpRequest.host();
+			this.port = httpRequest.port();
+			this.secure = httpRequest.protocol().equalsIgnoreCase("https");
+		}
+	}
+
+	// ---------------------------------------------------------------- loop
+
+	/**
+	 * Selector loop of a single I/O thread. Routes are assigned
+	 * to loops, so all connections of a route are used by one thread.
+	 */
+	class IoLoop implements Runnable {
+
+		final Selector selector;
+		final Queue<Exchange> submitted = new ConcurrentLinkedQueue<>();
+		final Map<String, Route> routes = new HashMap<>();
+		long nextCheck;
+
+		IoLoop() throws IOException {
+			selector = Selector.open();
+		}
+
+		void submit(Exchange exchange) {
+			exchange.queued = System.currentTimeMillis();
+			submitted.add(exchange);
+			selector.wakeup();
+
+			if (shutdown) {
+				// loop may be already finished
+				failSubmitted();
+			}
+		}
+
+		public void run() {
+			while (!shutdown) {
+				long now = System.currentTimeMillis();
+
+				try {
+					selector.select(Math.max(1, nextCheck - now));
+				} catch (IOException ioex) {
+					break;
+				}
+
+				// new requests
+
+				Exchange exchange;
+				while ((exchange = submitted.poll()) != null) {
+					Route route = routes.get(exchange.routeName);
+
+					if (route == null) {
+						route = new Route(exchange.httpRequest);
+						routes.put(exchange.routeName, route);
+					}
+					route.pending.add(exchange);
+
+					if (exchange.timeout > 0) {
+						nextCheck = Math.min(nextCheck, exchange.queued + exchange.timeout);
+					}
+
+					dispatch(route);
+				}
+
+				// ready connections
+
+				Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+				while (iterator.hasNext()) {
+					SelectionKey key = iterator.next();
+					iterator.remove();
+
+					process((HttpAsyncConnection) key.attachment());
+				}
+
+				now = System.currentTimeMillis();
+
+				if (now >= nextCheck) {
+					checkTimeouts(now);
+				}
+			}
+
+			closeAll();
+		}
+
+		/**
+		 * Assigns pending requests of the route to connections.
+		 */
+		void dispatch(Route route) {
+			while (!route.pending.isEmpty()) {
+				Exchange exchange = route.pending.peek();
+
+				if (exchange.httpFuture.isDone()) {
+					// cancelled
+					route.pending.poll();
+					continue;
+				}
+
+				HttpAsyncConnection connection = null;
+				HttpAsyncConnection pipelined = null;
+
+				for (HttpAsyncConnection c : route.connections) {
+					if (!c.canAccept(exchange, maxPipelinedRequests)) {
+						continue;
+					}
+					if (c.isIdle()) {
+						connection = c;
+						break;
+					}
+					if (pipelined == null || c.exchanges.size() < pipelined.exchanges.size()) {
+						pipelined = c;
+					}
+				}
+
+				if (connection == null && route.connections.size() < maxConnectionsPerRoute) {
+					try {
+						connection = connect(route, exchange);
+					} catch (Exception ex) {
+						route.pending.poll();
+						exchange.fail(ex);
+						continue;
+					}
+				}
+
+				if (connection == null) {
+					connection = pipelined;
+				}
+
+				if (connection == null) {
+					// all connections are busy
+					return;
+				}
+
+				route.pending.poll();
+				connection.enqueue(exchange);
+
+				if (connection.connected) {
+					connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+
+				if (exchange.timeout > 0) {
+					nextCheck = Math.min(nextCheck, System.currentTimeMillis() + exchange.timeout);
+				}
+			}
+		}
+
+		/**
+		 * Opens new connection to the address resolved by the exchange.
+		 */
+		HttpAsyncConnection connect(Route route, Exchange exchange) throws Exception {
+			SSLEngine sslEngine = route.secure ? createSSLEngine(route.host, route.port) : null;
+
+			SocketChannel channel = SocketChannel.open();
+
+			HttpAsyncConnection connection;
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+
+				boolean connected = channel.connect(exchange.address);
+
+				connection = new HttpAsyncConnection(route, channel, sslEngine);
+				connection.key = channel.register(selector,
+					connected ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT,
+					connection);
+			} catch (IOException | RuntimeException ex) {
+				channel.close();
+				throw ex;
+			}
+
+			route.connections.add(connection);
+
+			return connection;
+		}
+
+		/**
+		 * Processes ready connection.
+		 */
+		void process(HttpAsyncConnection connection) {
+			Exception failure = null;
+
+			try {
+				connection.process();
+			} catch (Exception ex) {
+				failure = ex;
+			}
+
+			if (failure != null || connection.closed ||
+				(connection.closing && !connection.framer.isStarted())) {
+
+				connection.close();
+				onClose(connection, failure);
+			}
+
+			dispatch(connection.route);
+		}
+
+		/**
+		 * Removes closed connection. Requests without the response are
+		 * retried once if they are not sent or if they are idempotent
+		 * and repeatable, otherwise they fail.
+		 */
+		void onClose(HttpAsyncConnection connection, Exception failure) {
+			Route route = connection.route;
+
+			route.connections.remove(connection);
+
+			boolean started = connection.framer.isStarted();
+			List<Exchange> retries = new ArrayList<>();
+
+			for (Exchange exchange : connection.exchanges) {
+				if (connection.connected && !started && exchange.isRetryable()) {
+					exchange.rewind();
+					retries.add(exchange);
+				} else {
+					exchange.fail(failure != null ? failure : new HttpException("Connection closed"));
+				}
+				started = false;
+			}
+
+			connection.exchanges.clear();
+			connection.writeQueue.clear();
+
+			long now = System.currentTimeMillis();
+
+			for (int i = retries.size() - 1; i >= 0; i--) {
+				Exchange exchange = retries.get(i);
+
+				exchange.queued = now;
+				route.pending.addFirst(exchange);
+			}
+		}
+
+		/**
+		 * Fails timed out requests and closes idle connections.
+		 */
+		void checkTimeouts(long now) {
+			nextCheck = now + 1000;
+
+			Iterator<Route> routeIterator = routes.values().iterator();
+
+			while (routeIterator.hasNext()) {
+				Route route = routeIterator.next();
+
+				for (HttpAsyncConnection connection : new ArrayList<>(route.connections)) {
+					Exchange exchange = connection.exchanges.peek();
+
+					long timeout = exchange != null ? exchange.timeout : idleTimeout;
+
+					if (timeout <= 0) {
+						continue;
+					}
+
+					long deadline = connection.lastActivity + timeout;
+
+					if (now < deadline) {
+						nextCheck = Math.min(nextCheck, deadline);
+						continue;
+					}
+
+					if (exchange != null) {
+						connection.exchanges.poll();
+						connection.writeQueue.remove(exchange);
+						connection.framer.reset(false);
+
+						exchange.fail(new HttpException(connection.connected ? "Read timeout" : "Connect timeout"));
+					}
+
+					connection.close();
+					onClose(connection, null);
+				}
+
+				checkPending(route, now);
+
+				dispatch(route);
+
+				if (route.connections.isEmpty() && route.pending.isEmpty()) {
+					routeIterator.remove();
+				}
+			}
+		}
+
+		/**
+		 * Fails requests that wait for a connection longer than their timeout.
+		 */
+		void checkPending(Route route, long now) {
+			Iterator<Exchange> iterator = route.pending.iterator();
+
+			while (iterator.hasNext()) {
+				Exchange exchange = iterator.next();
+
+				if (exchange.timeout <= 0) {
+					continue;
+				}
+
+				long deadline = exchange.queued + exchange.timeout;
+
+				if (now < deadline) {
+					nextCheck = Math.min(nextCheck, deadline);
+					continue;
+				}
+
+				iterator.remove();
+				exchange.fail(new HttpException("Connect timeout"));
+			}
+		}
+
+		void closeAll() {
+			HttpException failure = new HttpException("Engine is shut down");
+
+			for (Route route : routes.values()) {
+				for (HttpAsyncConnection connection : route.connections) {
+					connection.close();
+
+					for (Exchange exchange : connection.exchanges) {
+						exchange.fail(failure);
+					}
+				}
+				for (Exchange exchange : route.pending) {
+					exchange.fail(failure);
+				}
+			}
+			routes.clear();
+
+			failSubmitted();
+
+			try {
+				selector.close();
+			} catch (IOException ignore) {
+			}
+		}
+
+		void failSubmitted() {
+			Exchange exchange;
+			while ((exchange = submitted.poll()) != null) {
+				exchange.fail(new HttpException("Engine is shut down"));
+			}
+		}
+	}
+
+}
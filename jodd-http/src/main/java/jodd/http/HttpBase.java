@@ -25,12 +25,16 @@
 
 package jodd.http;
 
+import jodd.core.JoddCore;
 import jodd.datetime.TimeUtil;
 import jodd.http.up.ByteArrayUploadable;
+import jodd.http.up.ByteBufferUploadable;
 import jodd.http.up.FileUploadable;
+import jodd.http.up.InputStreamUploadable;
 import jodd.http.up.Uploadable;
-import jodd.io.FastCharArrayWriter;
+import jodd.io.FastByteArrayOutputStream;
 import jodd.io.FileNameUtil;
+import jodd.io.FileUtil;
 import jodd.io.StreamUtil;
 import jodd.upload.FileUpload;
 import jodd.upload.MultipartStreamParser;
@@ -39,16 +43,22 @@ import jodd.util.RandomString;
 import jodd.util.StringPool;
 import jodd.util.StringUtil;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static jodd.util.StringPool.CRLF;
 
@@ -62,6 +72,7 @@ public abstract class HttpBase<T> {
 	public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
 	public static final String HEADER_CONTENT_TYPE = "Content-Type";
 	public static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	public static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
 	public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
 	public static final String HEADER_HOST = "Host";
 	public static final String HEADER_ETAG = "ETag";
@@ -75,7 +86,11 @@ public abstract class HttpBase<T> {
 	protected HttpMultiMap<String> headers = HttpMultiMap.newCaseInsensitveMap();
 
 	protected HttpMultiMap<?> form;			// holds form data (when used)
-	protected String body;					// holds raw body string (always)
+	protected String body;					// holds raw body string
+	protected byte[] rawBody;				// holds raw body bytes (when read or set as bytes)
+	protected File bodyFile;				// holds raw body in temporary file (when large body is read)
+	protected InputStream bodyInput;		// streamed body, not yet read
+	protected Uploadable bodyUploadable;	// body content to send, read when sent
 
 	// ---------------------------------------------------------------- properties
 
@@ -480,6 +495,7 @@ public abstract class HttpBase<T> {
 	 * Note that all uploadable values are wrapped with {@link jodd.http.up.Uploadable}.
 	 */
 	public HttpMultiMap<?> form() {
+		loadBody();
 		return form;
 	}
 
@@ -503,15 +519,42 @@ public abstract class HttpBase<T> {
 	 * Returns <b>raw</b> body as received or set (always in ISO-8859-1 encoding).
 	 * If body content is a text, use {@link #bodyText()} to get it converted.
 	 * Returns <code>null</code> if body is not specified!
+	 * Received body is converted to string on the first access;
+	 * use {@link #bodyBytes()} or {@link #bodyStream()} for binary content.
 	 */
 	public String body() {
+		loadBody();
+		if (body == null) {
+			byte[] bytes = bodyBytes();
+			if (bytes != null) {
+				try {
+					body = new String(bytes, StringPool.ISO_8859_1);
+				} catch (UnsupportedEncodingException ignore) {
+				}
+			}
+		}
 		return body;
 	}
 
 	/**
 	 * Returns <b>raw</b> body bytes. Returns <code>null</code> if body is not specified.
+	 * Received body bytes are returned without copying.
 	 */
 	public byte[] bodyBytes() {
+		loadBody();
+		if (rawBody != null) {
+			return rawBody;
+		}
+		if (bodyFile != null) {
+			try {
+				return FileUtil.readBytes(bodyFile);
+			} catch (IOException ioex) {
+				throw new HttpException(ioex);
+			}
+		}
+		if (bodyUploadable != null) {
+			return bodyUploadable.getBytes();
+		}
 		if (body == null) {
 			return null;
 		}
@@ -522,19 +565,56 @@ public abstract class HttpBase<T> {
 		}
 	}
 
+	/**
+	 * Returns body content as a stream. Content encoded with gzip or deflate
+	 * {@link #contentEncoding() content encoding} is decoded while it is read.
+	 * When the body is {@link HttpRequest#streamResponseBody(boolean) streamed},
+	 * returned stream reads directly from the connection: it can be
+	 * consumed only once and the body is not available afterwards.
+	 * Returns an empty stream if body is not specified.
+	 */
+	public InputStream bodyStream() {
+		try {
+			InputStream in;
+
+			if (bodyInput != null) {
+				in = bodyInput;
+				bodyInput = null;
+			} else {
+				in = rawBodyStream();
+
+				if (in == null) {
+					return new ByteArrayInputStream(new byte[0]);
+				}
+			}
+
+			return decodeContent(in);
+		} catch (IOException ioex) {
+			throw new HttpException(ioex);
+		}
+	}
+
 	/**
 	 * Returns {@link #body() body content} as text. If {@link #charset() charset parameter}
-	 * of "Content-Type" header is defined, body string charset is converted, otherwise
+	 * of "Content-Type" header is defined, body bytes are decoded using it, otherwise
 	 * the same raw body content is returned. Never returns <code>null</code>.
 	 */
 	public String bodyText() {
-		if (body == null) {
+		if (charset == null) {
+			String body = body();
+			return body == null ? StringPool.EMPTY : body;
+		}
+
+		byte[] bytes = bodyBytes();
+
+		if (bytes == null) {
 			return StringPool.EMPTY;
 		}
-		if (charset != null) {
-			return StringUtil.convertCharset(body, StringPool.ISO_8859_1, charset);
+		try {
+			return new String(bytes, charset);
+		} catch (UnsupportedEncodingException unex) {
+			throw new IllegalArgumentException(unex);
 		}
-		return body();
 	}
 
 	/**
@@ -544,8 +624,11 @@ public abstract class HttpBase<T> {
 	 * and it is expected from user to set this one.
 	 */
 	public T body(String body) {
+		discardBodyInput();
+		discardRawBody();
 		this.body = body;
 		this.form = null;
+		removeHeader(HEADER_TRANSFER_ENCODING);
 		contentLength(body.length());
 		return (T) this;
 	}
@@ -584,13 +667,63 @@ public abstract class HttpBase<T> {
 	 * @see #body(String)
 	 */
 	public T body(byte[] content, String contentType) {
-		String body = null;
-		try {
-			body = new String(content, StringPool.ISO_8859_1);
-		} catch (UnsupportedEncodingException ignore) {
-		}
+		discardBodyInput();
+		discardRawBody();
+		this.rawBody = content;
+		this.form = null;
+		contentType(contentType);
+		removeHeader(HEADER_TRANSFER_ENCODING);
+		contentLength(content.length);
+		return (T) this;
+	}
+
+	/**
+	 * Sets the body content that is read only when message is sent, e.g.
+	 * from a {@link FileUploadable file} or a {@link InputStreamUploadable stream}.
+	 * When content size is unknown, body is sent using
+	 * the chunked transfer encoding.
+	 */
+	public T body(Uploadable uploadable, String contentType) {
+		discardBodyInput();
+		discardRawBody();
+		this.bodyUploadable = uploadable;
+		this.form = null;
 		contentType(contentType);
-		return body(body);
+
+		int size = uploadable.getSize();
+
+		if (size < 0) {
+			removeHeader(HEADER_CONTENT_LENGTH);
+			header(HEADER_TRANSFER_ENCODING, "chunked", true);
+		} else {
+			removeHeader(HEADER_TRANSFER_ENCODING);
+			contentLength(size);
+		}
+		return (T) this;
+	}
+
+	/**
+	 * Sets file content as body. File is read only when message is sent.
+	 */
+	public T body(File file, String contentType) {
+		return body(new FileUploadable(file, null, null), contentType);
+	}
+
+	/**
+	 * Sets the stream content of unknown length as body.
+	 * Stream is read and closed when message is sent.
+	 *
+	 * @see #body(Uploadable, String)
+	 */
+	public T body(InputStream inputStream, String contentType) {
+		return body(new InputStreamUploadable(inputStream, -1), contentType);
+	}
+
+	/**
+	 * Sets remaining bytes of the byte buffer as body.
+	 */
+	public T body(ByteBuffer byteBuffer, String contentType) {
+		return body(new ByteBufferUploadable(byteBuffer), contentType);
 	}
 
 	// ---------------------------------------------------------------- body form
@@ -638,68 +771,71 @@ public abstract class HttpBase<T> {
 		}
 
 		String boundary = StringUtil.repeat('-', 10) + RandomString.getInstance().randomAlphaNumeric(10);
+		String formEncoding = resolveFormEncoding();
+
+		// part headers are collected and encoded at once
+		StringBuilder part = new StringBuilder();
 
 		for (Map.Entry<String, ?> entry : form) {
 
-			buffer.append("--");
-			buffer.append(boundary);
-			buffer.append(CRLF);
+			part.append("--").append(boundary).append(CRLF);
 
 			String name = entry.getKey();
 			Object value = entry.getValue();
 
 			if (value instanceof String) {
 				String string = (String) value;
-				buffer.append("Content-Disposition: form-data; name=\"").append(name).append('"').append(CRLF);
-				buffer.append(CRLF);
-
-				String formEncoding = resolveFormEncoding();
+				part.append("Content-Disposition: form-data; name=\"").append(name).append('"').append(CRLF);
+				part.append(CRLF);
 
-				String utf8String = StringUtil.convertCharset(
-					string, formEncoding, StringPool.ISO_8859_1);
+				buffer.append(part.toString());
 
-				buffer.append(utf8String);
+				try {
+					buffer.append(string.getBytes(formEncoding));
+				} catch (UnsupportedEncodingException ueex) {
+					throw new HttpException(ueex);
+				}
 			}
 			else if (value instanceof Uploadable) {
 				Uploadable uploadable = (Uploadable) value;
 
+				if (uploadable.getSize() < 0) {
+					throw new HttpException("Unknown size of uploaded content: " + name);
+				}
+
 				String fileName = uploadable.getFileName();
 				if (fileName == null) {
 					fileName = name;
 				} else {
-					String formEncoding = resolveFormEncoding();
-
 					fileName = StringUtil.convertCharset(
 						fileName, formEncoding, StringPool.ISO_8859_1);
 				}
 
-				buffer.append("Content-Disposition: form-data; name=\"").append(name);
-				buffer.append("\"; filename=\"").append(fileName).append('"').append(CRLF);
+				part.append("Content-Disposition: form-data; name=\"").append(name);
+				part.append("\"; filename=\"").append(fileName).append('"').append(CRLF);
 
 				String mimeType = uploadable.getMimeType();
 				if (mimeType == null) {
 					mimeType = MimeTypes.getMimeType(FileNameUtil.getExtension(fileName));
 				}
-				buffer.append(HEADER_CONTENT_TYPE).append(": ").append(mimeType).append(CRLF);
+				part.append(HEADER_CONTENT_TYPE).append(": ").append(mimeType).append(CRLF);
 
-				buffer.append("Content-Transfer-Encoding: binary").append(CRLF);
-				buffer.append(CRLF);
+				part.append("Content-Transfer-Encoding: binary").append(CRLF);
+				part.append(CRLF);
 
+				buffer.append(part.toString());
 				buffer.append(uploadable);
-
-				//byte[] bytes = uploadable.getBytes();
-				//for (byte b : bytes) {
-					//buffer.append(CharUtil.toChar(b));
-				//}
 			} else {
 				// should never happened!
 				throw new HttpException("Unsupported type");
 			}
-			buffer.append(CRLF);
+
+			part.setLength(0);
+			part.append(CRLF);
 		}
 
-		buffer.append("--").append(boundary).append("--");
-		buffer.append(CRLF);
+		part.append("--").append(boundary).append("--").append(CRLF);
+		buffer.append(part.toString());
 
 		// the end
 		contentType("multipart/form-data; boundary=" + boundary);
@@ -755,7 +891,9 @@ public abstract class HttpBase<T> {
 	public byte[] toByteArray() {
 		Buffer buffer = buffer(true);
 
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(buffer.size());
+		int size = buffer.size();
+
+		ByteArrayOutputStream baos = size >= 0 ? new ByteArrayOutputStream(size) : new ByteArrayOutputStream();
 
 		try {
 			buffer.writeTo(baos);
@@ -790,8 +928,16 @@ public abstract class HttpBase<T> {
 		if (fullRequest) {
 			target.append(CRLF);
 
+			loadBody();
+
 			if (form != null) {
 				target.append(formBuffer);
+			} else if (rawBody != null) {
+				target.append(new ByteArrayUploadable(rawBody, null));
+			} else if (bodyFile != null) {
+				target.append(new FileUploadable(bodyFile, null, null));
+			} else if (bodyUploadable != null) {
+				target.append(bodyUploadable);
 			} else if (body != null) {
 				target.append(body);
 			}
@@ -821,14 +967,40 @@ public abstract class HttpBase<T> {
 
 	// ---------------------------------------------------------------- parsing
 
+	/**
+	 * Reads a line in ISO-8859-1 encoding. Returns <code>null</code>
+	 * when the end of the stream is reached.
+	 */
+	protected static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				break;
+			}
+			line.append((char) c);
+		}
+
+		if (c == -1 && line.length() == 0) {
+			return null;
+		}
+
+		int len = line.length();
+		if (len > 0 && line.charAt(len - 1) == '\r') {
+			line.setLength(len - 1);
+		}
+		return line.toString();
+	}
+
 	/**
 	 * Parses headers.
 	 */
-	protected void readHeaders(BufferedReader reader) {
+	protected void readHeaders(InputStream in) {
 		while (true) {
 			String line;
 			try {
-				line = reader.readLine();
+				line = readLine(in);
 			} catch (IOException ioex) {
 				throw new HttpException(ioex);
 			}
@@ -847,84 +1019,188 @@ public abstract class HttpBase<T> {
 	}
 
 	/**
-	 * Parses body.
+	 * Parses body. Body is read as raw bytes. When body is streamed,
+	 * it is not read until accessed, or it may be consumed
+	 * using the {@link #bodyStream() body stream}.
 	 */
-	protected void readBody(BufferedReader reader) {
-		String bodyString = null;
-
+	protected void readBody(InputStream in, boolean streamBody) {
 		// first determine if chunked encoding is specified
 		boolean isChunked = false;
 
-		String transferEncoding = header("Transfer-Encoding");
+		String transferEncoding = header(HEADER_TRANSFER_ENCODING);
 		if (transferEncoding != null && transferEncoding.equalsIgnoreCase("chunked")) {
 			isChunked = true;
 		}
 
-
 		// content length
 		String contentLen = contentLength();
-		int contentLenValue = -1;
+		long contentLenValue = -1;
 
 		if (contentLen != null && !isChunked) {
-			contentLenValue = Integer.parseInt(contentLen);
+			contentLenValue = Long.parseLong(contentLen);
 
-			if (contentLenValue > 0) {
-				FastCharArrayWriter fastCharArrayWriter = new FastCharArrayWriter(contentLenValue);
+			if (contentLenValue == 0) {
+				// no body
+				parseBody();
+				return;
+			}
+		}
 
-				try {
-					StreamUtil.copy(reader, fastCharArrayWriter, contentLenValue);
-				} catch (IOException ioex) {
-					throw new HttpException(ioex);
-				}
+		bodyInput = new BodyInputStream(in, isChunked, contentLenValue);
 
-				bodyString = fastCharArrayWriter.toString();
-			}
+		if (!streamBody) {
+			loadBody();
+		}
+	}
+
+	/**
+	 * Reads the not yet read, streamed body.
+	 */
+	protected void loadBody() {
+		if (bodyInput == null) {
+			return;
 		}
 
-		// chunked encoding
-		if (isChunked) {
+		InputStream input = bodyInput;
+		bodyInput = null;
 
-			FastCharArrayWriter fastCharArrayWriter = new FastCharArrayWriter();
-			try {
-				while (true) {
-					String line = reader.readLine();
-
-					int len = Integer.parseInt(line, 16);
-
-					if (len > 0) {
-						StreamUtil.copy(reader, fastCharArrayWriter, len);
-						reader.readLine();
-					} else {
-						// end reached, read trailing headers, if there is any
-						readHeaders(reader);
-						break;
+		try {
+			readRawBody(input);
+		} catch (IOException ioex) {
+			throw new HttpException(ioex);
+		} finally {
+			StreamUtil.close(input);
+		}
+
+		parseBody();
+	}
+
+	/**
+	 * Reads raw body bytes into the memory and closes the input. When the size
+	 * exceeds the {@link JoddHttp#defaultBodyFileThreshold threshold},
+	 * body is stored in a temporary file.
+	 */
+	protected void readRawBody(InputStream input) throws IOException {
+		int threshold = JoddHttp.defaultBodyFileThreshold;
+
+		FastByteArrayOutputStream bytes = new FastByteArrayOutputStream();
+		OutputStream fileOutput = null;
+		File file = null;
+
+		byte[] buffer = new byte[JoddCore.ioBufferSize];
+
+		try {
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				if (fileOutput == null && threshold >= 0 && bytes.size() + read > threshold) {
+					file = File.createTempFile("jodd-http-", ".body");
+
+					fileOutput = new BufferedOutputStream(new FileOutputStream(file));
+
+					if (bytes.size() > 0) {
+						bytes.writeTo(fileOutput);
 					}
+					bytes = null;
 				}
-			} catch (IOException ioex) {
-				throw new HttpException(ioex);
+
+				if (fileOutput != null) {
+					fileOutput.write(buffer, 0, read);
+				} else {
+					bytes.write(buffer, 0, read);
+				}
+			}
+		}
+		catch (IOException ioex) {
+			if (file != null) {
+				StreamUtil.close(fileOutput);
+				file.delete();
 			}
+			throw ioex;
+		}
+		finally {
+			StreamUtil.close(fileOutput);
+			StreamUtil.close(input);
+		}
 
-			bodyString = fastCharArrayWriter.toString();
+		discardRawBody();
+
+		if (file != null) {
+			bodyFile = file;
+		} else {
+			rawBody = bytes.toByteArray();
 		}
+	}
 
-		// no body yet - special case
-		if (bodyString == null && contentLenValue != 0) {
-			// body ends when stream closes
-			FastCharArrayWriter fastCharArrayWriter = new FastCharArrayWriter();
-			try {
-				StreamUtil.copy(reader, fastCharArrayWriter);
-			} catch (IOException ioex) {
-				throw new HttpException(ioex);
-			}
-			bodyString = fastCharArrayWriter.toString();
+	/**
+	 * Closes not yet read body stream.
+	 */
+	protected void discardBodyInput() {
+		if (bodyInput != null) {
+			StreamUtil.close(bodyInput);
+			bodyInput = null;
 		}
+	}
+
+	/**
+	 * Discards raw body content and deletes body file, if any.
+	 */
+	protected void discardRawBody() {
+		if (bodyFile != null) {
+			bodyFile.delete();
+		}
+		body = null;
+		rawBody = null;
+		bodyFile = null;
+		bodyUploadable = null;
+	}
+
+	/**
+	 * Opens stream of raw body content or returns <code>null</code>
+	 * if body is not specified.
+	 */
+	protected InputStream rawBodyStream() throws IOException {
+		if (rawBody != null) {
+			return new ByteArrayInputStream(rawBody);
+		}
+		if (bodyFile != null) {
+			return new FileInputStream(bodyFile);
+		}
+		if (bodyUploadable != null) {
+			return bodyUploadable.openInputStream();
+		}
+		if (body != null) {
+			return new ByteArrayInputStream(body.getBytes(StringPool.ISO_8859_1));
+		}
+		return null;
+	}
+
+	/**
+	 * Wraps the stream with the decoder of the gzip and
+	 * deflate content encodings.
+	 */
+	protected InputStream decodeContent(InputStream in) throws IOException {
+		String contentEncoding = contentEncoding();
 
-		// BODY READY - PARSE BODY
+		if (contentEncoding == null) {
+			return in;
+		}
+		if (contentEncoding.equalsIgnoreCase("gzip")) {
+			return new GZIPInputStream(in);
+		}
+		if (contentEncoding.equalsIgnoreCase("deflate")) {
+			return new InflaterInputStream(in);
+		}
+		return in;
+	}
+
+	/**
+	 * Parses read body into the form parameters, when content type is a form.
+	 */
+	protected void parseBody() {
 		String charset = this.charset;
 		if (charset == null) {
 			charset = StringPool.ISO_8859_1;
 		}
-		body = bodyString;
 
 		String mediaType = mediaType();
 
@@ -935,7 +1211,9 @@ public abstract class HttpBase<T> {
 		}
 
 		if (mediaType.equals("application/x-www-form-urlencoded")) {
-			form = HttpUtil.parseQueryParameter(bodyString, true);
+			String bodyString = body();
+
+			form = bodyString == null ? null : HttpUtil.parseQueryParameter(bodyString, true);
 			return;
 		}
 
@@ -944,12 +1222,16 @@ public abstract class HttpBase<T> {
 
 			MultipartStreamParser multipartParser = new MultipartStreamParser();
 
+			InputStream in = null;
 			try {
-				byte[] bodyBytes = bodyString.getBytes(StringPool.ISO_8859_1);
-				ByteArrayInputStream bin = new ByteArrayInputStream(bodyBytes);
-				multipartParser.parseRequestStream(bin, charset);
+				in = rawBodyStream();
+				if (in != null) {
+					multipartParser.parseRequestStream(in, charset);
+				}
 			} catch (IOException ioex) {
 				throw new HttpException(ioex);
+			} finally {
+				StreamUtil.close(in);
 			}
 
 			// string parameters
@@ -978,4 +1260,147 @@ public abstract class HttpBase<T> {
 		form = null;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Invoked when the streamed body is read to its end or when
+	 * the body stream is closed before.
+	 */
+	protected void onBodyEnd(boolean bodyConsumed) {
+	}
+
+	/**
+	 * Invoked when the body ends before its declared length or before
+	 * the last chunk. Truncated body is accepted by default.
+	 */
+	protected void onBodyTruncated() throws IOException {
+	}
+
+	/**
+	 * Body input stream, bounded by the content length, chunks
+	 * or by the end of the stream.
+	 */
+	protected class BodyInputStream extends InputStream {
+
+		protected final InputStream in;
+		protected final boolean chunked;
+		protected long remaining;		// remaining bytes of the body or of the current chunk
+		protected boolean firstChunk = true;
+		protected boolean eof;
+
+		protected BodyInputStream(InputStream in, boolean chunked, long contentLength) {
+			this.in = in;
+			this.chunked = chunked;
+			this.remaining = chunked ? 0 : contentLength;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int read = read(b, 0, 1);
+			return read == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (eof) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+			try {
+				return readBody(b, off, len);
+			} catch (IOException | RuntimeException ex) {
+				if (!eof) {
+					end(false);
+				}
+				throw ex;
+			}
+		}
+
+		/**
+		 * Reads the body till its declared length, chunks or the end of the stream.
+		 */
+		protected int readBody(byte[] b, int off, int len) throws IOException {
+			if (chunked && remaining == 0) {
+				if (!firstChunk) {
+					readLine(in);		// chunk ends with new line
+				}
+				firstChunk = false;
+
+				String line = readLine(in);
+				if (line == null) {
+					return truncated();
+				}
+
+				int ndx = line.indexOf(';');
+				if (ndx != -1) {
+					line = line.substring(0, ndx);		// chunk extension
+				}
+
+				try {
+					remaining = Long.parseLong(line.trim(), 16);
+				} catch (NumberFormatException nfex) {
+					throw new IOException("Invalid chunk size: " + line);
+				}
+
+				if (remaining == 0) {
+					// end reached, read trailing headers, if there is any
+					readHeaders(in);
+					end(true);
+					return -1;
+				}
+			}
+
+			if (remaining == 0) {
+				end(true);
+				return -1;
+			}
+
+			if (remaining > 0 && len > remaining) {
+				len = (int) remaining;
+			}
+
+			int read = in.read(b, off, len);
+
+			if (read == -1) {
+				if (remaining > 0) {
+					return truncated();
+				}
+				// body ends when stream closes, as its size is not known
+				end(true);
+				return -1;
+			}
+
+			if (remaining > 0) {
+				remaining -= read;
+			}
+			return read;
+		}
+
+		/**
+		 * Closes the body stream. If body is not read till the end,
+		 * connection is going to be closed.
+		 */
+		@Override
+		public void close() {
+			if (!eof) {
+				end(false);
+			}
+		}
+
+		/**
+		 * Ends the body that is shorter than declared.
+		 */
+		protected int truncated() throws IOException {
+			end(false);
+			onBodyTruncated();
+			return -1;
+		}
+
+		protected void end(boolean bodyConsumed) {
+			eof = true;
+			onBodyEnd(bodyConsumed);
+		}
+	}
+
+}
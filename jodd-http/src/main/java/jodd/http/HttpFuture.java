@@ -0,0 +1,202 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pending result of the {@link HttpRequest#sendAsync() asynchronous request}.
+ * Besides blocking {@link #get()}, the result may be consumed
+ * by registering a {@link HttpResponseCallback callback}.
+ */
+public class HttpFuture implements Future<HttpResponse> {
+
+	private static final int PENDING = 0;
+	private static final int COMPLETED = 1;
+	private static final int FAILED = 2;
+	private static final int CANCELLED = 3;
+
+	protected final HttpRequest httpRequest;
+	private int state = PENDING;
+	private HttpResponse httpResponse;
+	private Throwable failure;
+	private List<HttpResponseCallback> callbacks;
+
+	public HttpFuture(HttpRequest httpRequest) {
+		this.httpRequest = httpRequest;
+	}
+
+	/**
+	 * Returns the request.
+	 */
+	public HttpRequest getHttpRequest() {
+		return httpRequest;
+	}
+
+	/**
+	 * Registers callback that is invoked when the response is received
+	 * or when request fails. If the future is already done, callback
+	 * is invoked immediately, in the calling thread.
+	 */
+	public HttpFuture callback(HttpResponseCallback callback) {
+		synchronized (this) {
+			if (state == PENDING) {
+				if (callbacks == null) {
+					callbacks = new ArrayList<>(1);
+				}
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		notifyCallback(callback);
+		return this;
+	}
+
+	// ---------------------------------------------------------------- complete
+
+	/**
+	 * Completes the future with the received response.
+	 * Returns <code>false</code> if future was already done.
+	 */
+	public boolean complete(HttpResponse httpResponse) {
+		return done(COMPLETED, httpResponse, null);
+	}
+
+	/**
+	 * Completes the future with the failure.
+	 * Returns <code>false</code> if future was already done.
+	 */
+	public boolean fail(Throwable throwable) {
+		return done(FAILED, null, throwable);
+	}
+
+	/**
+	 * Cancels the request. Already sent request is not interrupted,
+	 * but its response is going to be ignored.
+	 */
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return done(CANCELLED, null, new CancellationException());
+	}
+
+	private boolean done(int newState, HttpResponse httpResponse, Throwable throwable) {
+		List<HttpResponseCallback> callbacks;
+
+		synchronized (this) {
+			if (state != PENDING) {
+				return false;
+			}
+			this.state = newState;
+			this.httpResponse = httpResponse;
+			this.failure = throwable;
+
+			callbacks = this.callbacks;
+			this.callbacks = null;
+
+			notifyAll();
+		}
+
+		if (callbacks != null) {
+			for (HttpResponseCallback callback : callbacks) {
+				notifyCallback(callback);
+			}
+		}
+		return true;
+	}
+
+	private void notifyCallback(HttpResponseCallback callback) {
+		if (state == COMPLETED) {
+			callback.onResponse(httpResponse);
+		} else {
+			callback.onFailure(failure);
+		}
+	}
+
+	// ---------------------------------------------------------------- future
+
+	public synchronized boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	public synchronized boolean isDone() {
+		return state != PENDING;
+	}
+
+	public synchronized HttpResponse get() throws InterruptedException, ExecutionException {
+		while (state == PENDING) {
+			wait();
+		}
+		return result();
+	}
+
+	public synchronized HttpResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (state == PENDING) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return result();
+	}
+
+	/**
+	 * Waits for the response and returns it. Failures are
+	 * thrown as {@link HttpException}.
+	 */
+	public HttpResponse join() {
+		try {
+			return get();
+		} catch (InterruptedException iex) {
+			Thread.currentThread().interrupt();
+			throw new HttpException(iex);
+		} catch (ExecutionException eex) {
+			Throwable cause = eex.getCause();
+			if (cause instanceof HttpException) {
+				throw (HttpException) cause;
+			}
+			throw new HttpException(cause);
+		}
+	}
+
+	private HttpResponse result() throws ExecutionException {
+		switch (state) {
+			case COMPLETED:
+				return httpResponse;
+			case CANCELLED:
+				throw (CancellationException) failure;
+			default:
+				throw new ExecutionException(failure);
+		}
+	}
+}
@@ -25,17 +25,16 @@
 
 package jodd.http;
 
+import jodd.http.net.PooledHttpConnection;
 import jodd.util.Base64;
 import jodd.util.StringBand;
 import jodd.util.StringPool;
 import jodd.util.StringUtil;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
 import static jodd.util.StringPool.CRLF;
@@ -702,6 +701,19 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 		return this;
 	}
 
+	protected boolean streamResponseBody;
+
+	/**
+	 * Defines if the response body should be streamed. Streamed body is not
+	 * read by {@link #send()}, so the large content may be consumed using the
+	 * {@link HttpResponse#bodyStream() body stream}. Connection is released
+	 * when the body is read to its end or when the body stream is closed.
+	 */
+	public HttpRequest streamResponseBody(boolean streamResponseBody) {
+		this.streamResponseBody = streamResponseBody;
+		return this;
+	}
+
 	/**
 	 * {@link #open() Opens connection} if not already open, sends request,
 	 * reads response and closes the request. If keep-alive mode is enabled
@@ -711,6 +723,22 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 		return _send();
 	}
 
+	/**
+	 * Sends request asynchronously using {@link JoddHttp#httpAsyncEngine default engine}
+	 * and returns immediately. Response is available from the returned
+	 * {@link HttpFuture future}.
+	 */
+	public HttpFuture sendAsync() {
+		return sendAsync(JoddHttp.httpAsyncEngine);
+	}
+
+	/**
+	 * Sends request asynchronously using given {@link HttpAsyncEngine engine}.
+	 */
+	public HttpFuture sendAsync(HttpAsyncEngine httpAsyncEngine) {
+		return httpAsyncEngine.send(this);
+	}
+
 	private HttpResponse _send() {
 		if (httpConnection == null) {
 			open();
@@ -725,22 +753,71 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 
 			InputStream inputStream = httpConnection.getInputStream();
 
-			httpResponse = HttpResponse.readFrom(inputStream);
+			httpResponse = HttpResponse.readFrom(inputStream, streamResponseBody, method);
 
 			httpResponse.assignHttpRequest(this);
 		} catch (IOException ioex) {
+			discardConnection();
+
 			throw new HttpException(ioex);
+		} catch (RuntimeException rex) {
+			// malformed response, connection can not be reused
+			discardConnection();
+
+			throw rex;
 		}
 
-		boolean keepAlive = httpResponse.isConnectionPersistent();
+		if (httpResponse.bodyInput == null) {
+			// body is already read
+			if (!httpResponse.bodyConsumed) {
+				discardConnection();
+
+				throw new HttpException("Premature end of body");
+			}
+			releaseConnection(httpResponse, true);
+		}
+
+		return httpResponse;
+	}
+
+	/**
+	 * Releases the connection once the response body is read. Pooled connection
+	 * goes back to the pool, other connections are closed unless kept alive.
+	 * Connection is always closed if the body is not read till the end.
+	 */
+	void releaseConnection(HttpResponse httpResponse, boolean bodyConsumed) {
+		if (httpConnection == null) {
+			return;
+		}
+
+		if (httpConnection instanceof PooledHttpConnection) {
+			if (bodyConsumed) {
+				((PooledHttpConnection) httpConnection).release(httpResponse);
+			} else {
+				httpConnection.close();
+			}
+			httpConnection = null;
+			return;
+		}
+
+		boolean keepAlive = bodyConsumed && httpResponse.isConnectionPersistent();
 
 		if (!keepAlive) {
 			// closes connection if keep alive is false, or if counter reached 0
 			httpConnection.close();
 			httpConnection = null;
 		}
+	}
 
-		return httpResponse;
+	/**
+	 * Closes the connection after a failure, so pooled
+	 * connection is removed from the pool.
+	 */
+	private void discardConnection() {
+		if (httpConnection != null) {
+			httpConnection.close();
+			httpConnection = null;
+		}
 	}
 
 	// ---------------------------------------------------------------- buffer
@@ -774,7 +851,7 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 
 		// POST method requires Content-Type to be set
 
-		if (method.equals("POST") && (contentLength() == null)) {
+		if (method.equals("POST") && (contentLength() == null) && (header(HEADER_TRANSFER_ENCODING) == null)) {
 			contentLength(0);
 		}
 
@@ -807,18 +884,15 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 	 * Parses input stream and creates new <code>HttpRequest</code> object.
 	 */
 	public static HttpRequest readFrom(InputStream in) {
-		BufferedReader reader;
-		try {
-			reader = new BufferedReader(new InputStreamReader(in, StringPool.ISO_8859_1));
-		} catch (UnsupportedEncodingException uneex) {
-			return null;
+		if (!(in instanceof BufferedInputStream)) {
+			in = new BufferedInputStream(in);
 		}
 
 		HttpRequest httpRequest = new HttpRequest();
 
 		String line;
 		try {
-			line = reader.readLine();
+			line = readLine(in);
 		} catch (IOException ioex) {
 			throw new HttpException(ioex);
 		}
@@ -830,8 +904,8 @@ public class HttpRequest extends HttpBase<HttpRequest> {
 			httpRequest.path(s[1]);
 			httpRequest.httpVersion(s[2]);
 
-			httpRequest.readHeaders(reader);
-			httpRequest.readBody(reader);
+			httpRequest.readHeaders(in);
+			httpRequest.readBody(in, false);
 		}
 
 		return httpRequest;
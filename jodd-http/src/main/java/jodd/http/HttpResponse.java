@@ -25,18 +25,11 @@
 
 package jodd.http;
 
-import jodd.io.StreamUtil;
-import jodd.util.StringPool;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import static jodd.util.StringPool.CRLF;
 import static jodd.util.StringPool.SPACE;
@@ -108,27 +101,33 @@ public class HttpResponse extends HttpBase<HttpResponse> {
 	// ---------------------------------------------------------------- body
 
 	/**
-	 * Unzips GZip-ed body content, removes the content-encoding header
-	 * and sets the new content-length value.
+	 * Unzips GZip-ed or deflated body content, removes the content-encoding header
+	 * and sets the new content-length value. Body bytes are decoded
+	 * while they are read, without converting them to string.
 	 */
 	public HttpResponse unzip() {
 		String contentEncoding = contentEncoding();
 
-		if (contentEncoding != null && contentEncoding().equals("gzip")) {
-			if (body != null) {
-				removeHeader(HEADER_CONTENT_ENCODING);
-				try {
-					ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StringPool.ISO_8859_1));
-					GZIPInputStream gzipInputStream = new GZIPInputStream(in);
+		if (contentEncoding != null &&
+				(contentEncoding.equalsIgnoreCase("gzip") || contentEncoding.equalsIgnoreCase("deflate"))) {
 
-					ByteArrayOutputStream out = new ByteArrayOutputStream();
+			loadBody();
 
-					StreamUtil.copy(gzipInputStream, out);
+			if (rawBody != null || bodyFile != null || body != null) {
+				InputStream in = bodyStream();
 
-					body(out.toString(StringPool.ISO_8859_1));
+				removeHeader(HEADER_CONTENT_ENCODING);
+				try {
+					readRawBody(in);
 				} catch (IOException ioex) {
 					throw new HttpException(ioex);
 				}
+
+				form = null;
+
+				long length = rawBody != null ? rawBody.length : bodyFile.length();
+
+				header(HEADER_CONTENT_LENGTH, String.valueOf(length), true);
 			}
 		}
 		return this;
@@ -169,20 +168,62 @@ public class HttpResponse extends HttpBase<HttpResponse> {
 	 * Supports both streamed and chunked response.
 	 */
 	public static HttpResponse readFrom(InputStream in) {
-		InputStreamReader inputStreamReader;
-		try {
-			inputStreamReader = new InputStreamReader(in, StringPool.ISO_8859_1);
-		} catch (UnsupportedEncodingException ignore) {
-			return null;
+		return readFrom(in, false);
+	}
+
+	/**
+	 * Reads response input stream and returns {@link HttpResponse response}.
+	 * When body is streamed, only the status line and the headers are read, and
+	 * the body is read later, either on access or using the {@link #bodyStream() body stream}.
+	 */
+	public static HttpResponse readFrom(InputStream in, boolean streamBody) {
+		return readFrom(in, streamBody, null);
+	}
+
+	/**
+	 * Reads response of the request with given method. Interim (1xx)
+	 * responses are skipped, except <code>101 Switching Protocols</code>.
+	 * Responses of HEAD requests, 1xx, 204 and 304 responses have no body,
+	 * so the input is not read after the headers.
+	 */
+	public static HttpResponse readFrom(InputStream in, boolean streamBody, String requestMethod) {
+		if (!(in instanceof BufferedInputStream)) {
+			in = new BufferedInputStream(in);
+		}
+
+		HttpResponse httpResponse = readHead(in);
+
+		while (requestMethod != null && httpResponse.isInterim()) {
+			httpResponse = readHead(in);
 		}
-		BufferedReader reader = new BufferedReader(inputStreamReader);
 
+		int statusCode = httpResponse.statusCode;
+
+		if ((requestMethod != null && requestMethod.equalsIgnoreCase("HEAD")) ||
+			(statusCode >= 100 && statusCode < 200) || statusCode == 204 || statusCode == 304) {
+			httpResponse.bodyless = true;
+			httpResponse.parseBody();
+		} else {
+			httpResponse.readBody(in, streamBody);
+		}
+
+		return httpResponse;
+	}
+
+	private boolean isInterim() {
+		return statusCode >= 100 && statusCode < 200 && statusCode != 101;
+	}
+
+	/**
+	 * Reads the status line and the headers.
+	 */
+	private static HttpResponse readHead(InputStream in) {
 		HttpResponse httpResponse = new HttpResponse();
 
 		// the first line
 		String line;
 		try {
-			line = reader.readLine();
+			line = readLine(in);
 		} catch (IOException ioex) {
 			throw new HttpException(ioex);
 		}
@@ -203,8 +244,7 @@ public class HttpResponse extends HttpBase<HttpResponse> {
 			httpResponse.statusPhrase(line.substring(ndx2).trim());
 		}
 
-		httpResponse.readHeaders(reader);
-		httpResponse.readBody(reader);
+		httpResponse.readHeaders(in);
 
 		return httpResponse;
 	}
@@ -212,6 +252,16 @@ public class HttpResponse extends HttpBase<HttpResponse> {
 	// ---------------------------------------------------------------- request
 
 	protected HttpRequest httpRequest;
+	protected boolean bodyConsumed = true;
+	protected boolean bodyless;
+
+	/**
+	 * Returns <code>true</code> if response has no body regardless
+	 * of its headers, like responses of HEAD requests and 204 or 304 responses.
+	 */
+	public boolean isBodyless() {
+		return bodyless;
+	}
 
 	/**
 	 * Binds {@link jodd.http.HttpRequest} to this response.
@@ -228,15 +278,50 @@ public class HttpResponse extends HttpBase<HttpResponse> {
 	}
 
 	/**
-	 * Closes requests connection if it was open.
-	 * Should be called when using keep-alive connections.
+	 * Releases the connection of the request, once the streamed body is read.
+	 * Body that is read before the request is assigned is released by the request.
+	 */
+	@Override
+	protected void onBodyEnd(boolean bodyConsumed) {
+		this.bodyConsumed = bodyConsumed;
+
+		if (httpRequest != null) {
+			httpRequest.releaseConnection(this, bodyConsumed);
+		}
+	}
+
+	/**
+	 * Fails on truncated body once the response is bound to the request,
+	 * i.e. when streamed body is read from the connection.
+	 */
+	@Override
+	protected void onBodyTruncated() throws IOException {
+		if (httpRequest != null) {
+			throw new IOException("Premature end of body");
+		}
+	}
+
+	/**
+	 * Closes requests connection if it was open, closes not yet read
+	 * body stream and deletes the temporary body file, if any.
+	 * Should be called when using keep-alive connections or when
+	 * the body may be {@link JoddHttp#defaultBodyFileThreshold stored in a file}.
 	 * Otherwise, connection will be already closed.
 	 */
 	public HttpResponse close() {
-		HttpConnection httpConnection = httpRequest.httpConnection;
-		if (httpConnection != null) {
-			httpConnection.close();
-			httpRequest.httpConnection = null;
+		discardBodyInput();
+
+		if (bodyFile != null) {
+			bodyFile.delete();
+			bodyFile = null;
+		}
+
+		if (httpRequest != null) {
+			HttpConnection httpConnection = httpRequest.httpConnection;
+			if (httpConnection != null) {
+				httpConnection.close();
+				httpRequest.httpConnection = null;
+			}
 		}
 		return this;
 	}
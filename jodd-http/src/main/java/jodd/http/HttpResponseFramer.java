@@ -0,0 +1,247 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.io.FastByteArrayOutputStream;
+import jodd.util.StringUtil;
+
+/**
+ * Incremental HTTP response framer. Collects received bytes until the
+ * whole response message is read, so it can be parsed by
+ * {@link HttpResponse#readFrom(java.io.InputStream)}.
+ * Interim (1xx) responses are skipped.
+ */
+class HttpResponseFramer {
+
+	private static final int HEADERS = 0;
+	private static final int BODY = 1;
+	private static final int CHUNK_SIZE = 2;
+	private static final int CHUNK_DATA = 3;
+	private static final int CHUNK_END = 4;
+	private static final int TRAILERS = 5;
+	private static final int BODY_EOF = 6;
+	private static final int DONE = 7;
+
+	private final FastByteArrayOutputStream message = new FastByteArrayOutputStream();
+	private final StringBuilder line = new StringBuilder();
+
+	private int state;
+	private boolean headRequest;
+	private boolean statusLine;
+	private int statusCode;
+	private String contentLength;
+	private boolean chunked;
+	private long remaining;
+
+	/**
+	 * Prepares framer for the next response.
+	 */
+	public void reset(boolean headRequest) {
+		this.headRequest = headRequest;
+		message.reset();
+		startMessage();
+	}
+
+	private void startMessage() {
+		line.setLength(0);
+		state = HEADERS;
+		statusLine = true;
+		statusCode = 0;
+		contentLength = null;
+		chunked = false;
+		remaining = 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if any byte of the response is received.
+	 */
+	public boolean isStarted() {
+		return message.size() != 0;
+	}
+
+	/**
+	 * Returns <code>true</code> when the whole message is received.
+	 */
+	public boolean isDone() {
+		return state == DONE;
+	}
+
+	/**
+	 * Returns <code>true</code> if the body ends when connection is closed.
+	 */
+	public boolean isEofDelimited() {
+		return state == BODY_EOF;
+	}
+
+	/**
+	 * Returns received message bytes.
+	 */
+	public byte[] toByteArray() {
+		return message.toByteArray();
+	}
+
+	/**
+	 * Feeds framer with received bytes. Returns the number of consumed
+	 * bytes; remaining bytes belong to the next response.
+	 */
+	public int feed(byte[] bytes, int offset, int length) {
+		int ndx = offset;
+		int end = offset + length;
+
+		while (ndx < end && state != DONE) {
+			switch (state) {
+				case BODY:
+				case CHUNK_DATA:
+					int count = (int) Math.min(remaining, end - ndx);
+
+					message.write(bytes, ndx, count);
+					ndx += count;
+					remaining -= count;
+
+					if (remaining == 0) {
+						state = state == BODY ? DONE : CHUNK_END;
+					}
+					break;
+
+				case BODY_EOF:
+					message.write(bytes, ndx, end - ndx);
+					ndx = end;
+					break;
+
+				default:
+					int start = ndx;
+					while (ndx < end && bytes[ndx] != '\n') {
+						ndx++;
+					}
+					boolean eol = ndx < end;
+					if (eol) {
+						ndx++;
+					}
+
+					message.write(bytes, start, ndx - start);
+
+					for (int i = start; i < ndx; i++) {
+						line.append((char) (bytes[i] & 0xFF));
+					}
+
+					if (eol) {
+						String value = line.toString().trim();
+						line.setLength(0);
+						onLine(value);
+					}
+			}
+		}
+
+		return ndx - offset;
+	}
+
+	private void onLine(String value) {
+		switch (state) {
+			case HEADERS:
+				if (statusLine) {
+					statusLine = false;
+
+					String[] chunks = StringUtil.splitc(value, ' ');
+					if (chunks.length < 2) {
+						throw new HttpException("Invalid status line: " + value);
+					}
+					statusCode = Integer.parseInt(chunks[1].trim());
+				}
+				else if (value.length() == 0) {
+					onHeadersEnd();
+				}
+				else {
+					int ndx = value.indexOf(':');
+					if (ndx == -1) {
+						throw new HttpException("Invalid header: " + value);
+					}
+					String name = value.substring(0, ndx).trim();
+					String headerValue = value.substring(ndx + 1).trim();
+
+					if (name.equalsIgnoreCase(HttpBase.HEADER_CONTENT_LENGTH)) {
+						contentLength = headerValue;
+					}
+					else if (name.equalsIgnoreCase(HttpBase.HEADER_TRANSFER_ENCODING)) {
+						chunked = headerValue.equalsIgnoreCase("chunked");
+					}
+				}
+				break;
+
+			case CHUNK_SIZE:
+				int ndx = value.indexOf(';');
+				if (ndx != -1) {
+					value = value.substring(0, ndx).trim();
+				}
+				remaining = Long.parseLong(value, 16);
+				state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+				break;
+
+			case CHUNK_END:
+				state = CHUNK_SIZE;
+				break;
+
+			case TRAILERS:
+				if (value.length() == 0) {
+					state = DONE;
+				}
+				break;
+		}
+	}
+
+	private void onHeadersEnd() {
+		if (statusCode >= 100 && statusCode < 200 && statusCode != 101) {
+			// interim response, wait for the final one
+			message.reset();
+			startMessage();
+			return;
+		}
+
+		if (headRequest || statusCode == 204 || statusCode == 304 || statusCode == 101) {
+			state = DONE;
+		}
+		else if (chunked) {
+			state = CHUNK_SIZE;
+		}
+		else if (contentLength != null) {
+			remaining = Long.parseLong(contentLength);
+			state = remaining == 0 ? DONE : BODY;
+		}
+		else {
+			state = BODY_EOF;
+		}
+	}
+
+	/**
+	 * Ends the message when connection is closed. Returns <code>true</code>
+	 * if the message is complete.
+	 */
+	public boolean close() {
+		if (state == BODY_EOF) {
+			state = DONE;
+		}
+		return state == DONE;
+	}
+}
@@ -40,6 +40,12 @@ public class JoddHttp {
 	 */
 	public static HttpConnectionProvider httpConnectionProvider = new SocketHttpConnectionProvider();
 
+	/**
+	 * Default engine for asynchronous requests. Its I/O threads
+	 * are started on the first asynchronous request.
+	 */
+	public static HttpAsyncEngine httpAsyncEngine = new HttpAsyncEngine();
+
 	/**
 	 * Default HTTP query parameters encoding (UTF-8).
 	 */
@@ -60,6 +66,14 @@ public class JoddHttp {
 	 */
 	public static String defaultBodyEncoding = StringPool.UTF_8;
 
+	/**
+	 * Size in bytes above which the received body is stored in a
+	 * temporary file instead of the memory. Negative value (default)
+	 * keeps all bodies in the memory. Temporary file is deleted when
+	 * the {@link HttpResponse#close() response is closed}.
+	 */
+	public static int defaultBodyFileThreshold = -1;
+
 	/**
 	 * CSV of default enabled secured protocols. By default the value is
 	 * read from system property <code>https.protocols</code>.
@@ -0,0 +1,185 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http.net;
+
+import jodd.http.HttpConnection;
+import jodd.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * {@link HttpConnection} leased from the {@link PooledHttpConnectionProvider}.
+ * Once the response is read, connection is {@link #release(HttpResponse) released}
+ * back to the pool. Closing the connection removes it from the pool.
+ */
+public class PooledHttpConnection implements HttpConnection {
+
+	protected final PooledHttpConnectionProvider pool;
+	protected final String route;
+	protected final SocketHttpConnection connection;
+	protected long lastUsed;
+	protected boolean leased = true;
+
+	public PooledHttpConnection(PooledHttpConnectionProvider pool, String route, SocketHttpConnection connection) {
+		this.pool = pool;
+		this.route = route;
+		this.connection = connection;
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	@Override
+	public void init() throws IOException {
+		connection.init();
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		return connection.getOutputStream();
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return connection.getInputStream();
+	}
+
+	/**
+	 * Closes the connection and removes it from the pool.
+	 * Does nothing if connection is already returned to the pool.
+	 */
+	@Override
+	public void close() {
+		if (leased) {
+			pool.discard(this);
+		}
+	}
+
+	@Override
+	public void setTimeout(int milliseconds) {
+		connection.setTimeout(milliseconds);
+	}
+
+	/**
+	 * Returns route key of this connection.
+	 */
+	public String getRoute() {
+		return route;
+	}
+
+	/**
+	 * Returns <code>Socket</code> used by this connection.
+	 */
+	public Socket getSocket() {
+		return connection.getSocket();
+	}
+
+	// ---------------------------------------------------------------- pool
+
+	/**
+	 * Returns connection to the pool when the response is fully read and
+	 * connection may be reused. Otherwise, connection is closed.
+	 */
+	public void release(HttpResponse httpResponse) {
+		if (!leased) {
+			return;
+		}
+		if (isReusable(httpResponse)) {
+			pool.release(this);
+		} else {
+			pool.discard(this);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if connection may be used after the response.
+	 * Persistent response body must be delimited by its length or by chunks,
+	 * otherwise the body ends when the server closes the connection.
+	 */
+	protected boolean isReusable(HttpResponse httpResponse) {
+		if (!httpResponse.isConnectionPersistent()) {
+			return false;
+		}
+		if (httpResponse.isBodyless() || httpResponse.contentLength() != null) {
+			return true;
+		}
+		String transferEncoding = httpResponse.header("Transfer-Encoding");
+
+		return transferEncoding != null && transferEncoding.equalsIgnoreCase("chunked");
+	}
+
+	/**
+	 * Prepares idle connection for the next request.
+	 */
+	protected void reuse(int timeout) throws IOException {
+		connection.setTimeout(timeout);
+
+		getSocket().setSoTimeout(timeout >= 0 ? timeout : 0);
+	}
+
+	/**
+	 * Returns <code>true</code> if idle connection is closed by the server.
+	 * Reads from the socket with minimal timeout: there should be no data
+	 * on idle connection, so both received data and end of stream
+	 * mean that the connection can not be used.
+	 */
+	protected boolean isStale() {
+		Socket socket = getSocket();
+
+		if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+			return true;
+		}
+
+		try {
+			int soTimeout = socket.getSoTimeout();
+			try {
+				socket.setSoTimeout(1);
+
+				socket.getInputStream().read();
+
+				return true;
+			}
+			catch (SocketTimeoutException ignore) {
+				return false;
+			}
+			finally {
+				socket.setSoTimeout(soTimeout);
+			}
+		}
+		catch (IOException ignore) {
+			return true;
+		}
+	}
+
+	/**
+	 * Closes the underlying socket.
+	 */
+	protected void closeSocket() {
+		connection.close();
+	}
+}
@@ -0,0 +1,414 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http.net;
+
+import jodd.http.HttpConnection;
+import jodd.http.HttpException;
+import jodd.http.HttpRequest;
+import jodd.http.ProxyInfo;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Connection provider that keeps persistent connections in a pool.
+ * Connections are pooled per route: protocol, host, port and the proxy.
+ * Number of connections is limited both per route and in total.
+ * When limit is reached, request waits for the free connection for
+ * the {@link #setConnectionRequestTimeout(long) request timeout}.
+ * <p>
+ * {@link HttpRequest#send()} returns the connection to the pool as soon
+ * as the response is read. Idle connections are closed after the
+ * {@link #setIdleTimeout(long) idle timeout}; connections that were idle
+ * for some time are checked if closed by the server before they are reused.
+ * <p>
+ * All SSL connections are created by the same socket factory, so TLS
+ * sessions are resumed when new connection for the same route is opened.
+ */
+public class PooledHttpConnectionProvider extends SocketHttpConnectionProvider {
+
+	protected int maxTotal = 20;
+	protected int maxPerRoute = 5;
+	protected long idleTimeout = 60000;
+	protected long validateAfterInactivity = 2000;
+	protected long connectionRequestTimeout = 30000;
+	protected boolean keepAlive = true;
+
+	protected final Map<String, Route> routes = new HashMap<>();
+	protected int totalCount;
+	protected SocketFactory sslSocketFactory;
+
+	/**
+	 * Connections of a single route.
+	 */
+	protected static class Route {
+		protected final ArrayDeque<PooledHttpConnection> idle = new ArrayDeque<>();
+		protected int leased;
+	}
+
+	// ---------------------------------------------------------------- config
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	/**
+	 * Sets maximal number of all connections.
+	 */
+	public PooledHttpConnectionProvider setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+		return this;
+	}
+
+	public int getMaxPerRoute() {
+		return maxPerRoute;
+	}
+
+	/**
+	 * Sets maximal number of connections of a single route.
+	 */
+	public PooledHttpConnectionProvider setMaxPerRoute(int maxPerRoute) {
+		this.maxPerRoute = maxPerRoute;
+		return this;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Sets time in milliseconds after which idle connection is closed.
+	 */
+	public PooledHttpConnectionProvider setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	public long getValidateAfterInactivity() {
+		return validateAfterInactivity;
+	}
+
+	/**
+	 * Sets time in milliseconds of inactivity after which idle
+	 * connection is checked if stale before it is reused.
+	 * Use <code>0</code> to check connections every time.
+	 */
+	public PooledHttpConnectionProvider setValidateAfterInactivity(long validateAfterInactivity) {
+		this.validateAfterInactivity = validateAfterInactivity;
+		return this;
+	}
+
+	public long getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * Sets time in milliseconds to wait for a connection from the pool.
+	 */
+	public PooledHttpConnectionProvider setConnectionRequestTimeout(long connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+		return this;
+	}
+
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Specifies if requests should be sent with keep-alive connection header,
+	 * as requests are created with closing connections by default.
+	 */
+	public PooledHttpConnectionProvider setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- provider
+
+	/**
+	 * Returns connection from the pool or creates the new one.
+	 */
+	@Override
+	public HttpConnection createHttpConnection(HttpRequest httpRequest) throws IOException {
+		if (keepAlive) {
+			httpRequest.connectionKeepAlive(true);
+		}
+
+		String route = resolveRoute(httpRequest);
+
+		while (true) {
+			PooledHttpConnection pooledConnection = lease(route);
+
+			if (pooledConnection == null) {
+				break;
+			}
+
+			if (System.currentTimeMillis() - pooledConnection.lastUsed >= validateAfterInactivity) {
+				if (pooledConnection.isStale()) {
+					discard(pooledConnection);
+					continue;
+				}
+			}
+
+			try {
+				pooledConnection.reuse(httpRequest.timeout());
+			}
+			catch (IOException ignore) {
+				discard(pooledConnection);
+				continue;
+			}
+
+			return pooledConnection;
+		}
+
+		// new connection, the place in the pool is already reserved
+
+		boolean created = false;
+		try {
+			SocketHttpConnection connection = (SocketHttpConnection) super.createHttpConnection(httpRequest);
+
+			created = true;
+
+			return new PooledHttpConnection(this, route, connection);
+		}
+		finally {
+			if (!created) {
+				synchronized (this) {
+					routes.get(route).leased--;
+					totalCount--;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves the route key of the request.
+	 */
+	protected String resolveRoute(HttpRequest httpRequest) {
+		StringBuilder route = new StringBuilder();
+
+		route.append(httpRequest.protocol().toLowerCase())
+			.append("://")
+			.append(httpRequest.host().toLowerCase())
+			.append(':')
+			.append(httpRequest.port());
+
+		if (proxy.getProxyType() != ProxyInfo.ProxyType.NONE) {
+			route.append('@')
+				.append(proxy.getProxyType())
+				.append(':')
+				.append(proxy.getProxyAddress())
+				.append(':')
+				.append(proxy.getProxyPort())
+				.append(':')
+				.append(proxy.getProxyUsername());
+		}
+		return route.toString();
+	}
+
+	/**
+	 * Returns the same SSL socket factory for all the connections,
+	 * so the TLS sessions may be reused.
+	 */
+	@Override
+	protected synchronized SocketFactory getSSLSocketFactory() throws Exception {
+		if (sslSocketFactory == null) {
+			sslSocketFactory = super.getSSLSocketFactory();
+		}
+		return sslSocketFactory;
+	}
+
+	// ---------------------------------------------------------------- pool
+
+	/**
+	 * Leases idle connection of the route. Returns <code>null</code> when there is
+	 * no idle connection and the new one may be created. In that case the place
+	 * for the new connection is reserved. Waits if connection limit is reached.
+	 */
+	protected synchronized PooledHttpConnection lease(String routeKey) {
+		Route route = routes.get(routeKey);
+		if (route == null) {
+			route = new Route();
+			routes.put(routeKey, route);
+		}
+
+		long deadline = System.currentTimeMillis() + connectionRequestTimeout;
+
+		while (true) {
+			long now = System.currentTimeMillis();
+
+			PooledHttpConnection pooledConnection;
+
+			while ((pooledConnection = route.idle.pollFirst()) != null) {
+				if (now - pooledConnection.lastUsed >= idleTimeout) {
+					pooledConnection.closeSocket();
+					totalCount--;
+					continue;
+				}
+				pooledConnection.leased = true;
+				route.leased++;
+				return pooledConnection;
+			}
+
+			if (route.leased < maxPerRoute) {
+				if (totalCount >= maxTotal) {
+					closeOldestIdleConnection();
+				}
+				if (totalCount < maxTotal) {
+					route.leased++;
+					totalCount++;
+					return null;
+				}
+			}
+
+			long wait = deadline - now;
+
+			if (wait <= 0) {
+				throw new HttpException("Timeout waiting for connection: " + routeKey);
+			}
+
+			try {
+				wait(wait);
+			}
+			catch (InterruptedException iex) {
+				Thread.currentThread().interrupt();
+				throw new HttpException(iex);
+			}
+		}
+	}
+
+	/**
+	 * Returns connection to the pool.
+	 */
+	protected synchronized void release(PooledHttpConnection pooledConnection) {
+		Route route = routes.get(pooledConnection.route);
+
+		pooledConnection.leased = false;
+		pooledConnection.lastUsed = System.currentTimeMillis();
+
+		route.leased--;
+		route.idle.addFirst(pooledConnection);
+
+		notifyAll();
+	}
+
+	/**
+	 * Closes leased connection and removes it from the pool.
+	 */
+	protected synchronized void discard(PooledHttpConnection pooledConnection) {
+		Route route = routes.get(pooledConnection.route);
+
+		pooledConnection.leased = false;
+		pooledConnection.closeSocket();
+
+		route.leased--;
+		totalCount--;
+
+		notifyAll();
+	}
+
+	/**
+	 * Closes least recently used idle connection of any route.
+	 */
+	protected void closeOldestIdleConnection() {
+		Route oldestRoute = null;
+		long oldestLastUsed = Long.MAX_VALUE;
+
+		for (Route route : routes.values()) {
+			PooledHttpConnection pooledConnection = route.idle.peekLast();
+
+			if (pooledConnection != null && pooledConnection.lastUsed < oldestLastUsed) {
+				oldestRoute = route;
+				oldestLastUsed = pooledConnection.lastUsed;
+			}
+		}
+
+		if (oldestRoute != null) {
+			oldestRoute.idle.pollLast().closeSocket();
+			totalCount--;
+		}
+	}
+
+	/**
+	 * Closes idle connections which idle timeout expired.
+	 */
+	public synchronized void closeIdleConnections() {
+		long now = System.currentTimeMillis();
+
+		for (Route route : routes.values()) {
+			Iterator<PooledHttpConnection> iterator = route.idle.iterator();
+
+			while (iterator.hasNext()) {
+				PooledHttpConnection pooledConnection = iterator.next();
+
+				if (now - pooledConnection.lastUsed >= idleTimeout) {
+					iterator.remove();
+					pooledConnection.closeSocket();
+					totalCount--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes all idle connections. Leased connections are not affected.
+	 */
+	public synchronized void shutdown() {
+		for (Route route : routes.values()) {
+			PooledHttpConnection pooledConnection;
+
+			while ((pooledConnection = route.idle.pollFirst()) != null) {
+				pooledConnection.closeSocket();
+				totalCount--;
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- stats
+
+	/**
+	 * Returns number of all open connections.
+	 */
+	public synchronized int getConnectionsCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns number of idle connections.
+	 */
+	public synchronized int getIdleConnectionsCount() {
+		int count = 0;
+		for (Route route : routes.values()) {
+			count += route.idle.size();
+		}
+		return count;
+	}
+}
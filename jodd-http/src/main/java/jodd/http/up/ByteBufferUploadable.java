@@ -0,0 +1,85 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http.up;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Uploadable wrapper of <code>ByteBuffer</code>. Uploads remaining
+ * bytes of the buffer; buffer position is not changed.
+ */
+public class ByteBufferUploadable implements Uploadable<ByteBuffer> {
+
+	protected final ByteBuffer byteBuffer;
+	protected final String fileName;
+	protected final String mimeType;
+
+	public ByteBufferUploadable(ByteBuffer byteBuffer) {
+		this(byteBuffer, null, null);
+	}
+
+	public ByteBufferUploadable(ByteBuffer byteBuffer, String fileName, String mimeType) {
+		this.byteBuffer = byteBuffer;
+		this.fileName = fileName;
+		this.mimeType = mimeType;
+	}
+
+	/**
+	 * Returns a view of the buffer content.
+	 */
+	public ByteBuffer getContent() {
+		return byteBuffer.duplicate();
+	}
+
+	public byte[] getBytes() {
+		byte[] bytes = new byte[byteBuffer.remaining()];
+		byteBuffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public int getSize() {
+		return byteBuffer.remaining();
+	}
+
+	public InputStream openInputStream() throws IOException {
+		if (byteBuffer.hasArray()) {
+			return new ByteArrayInputStream(
+				byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+		}
+		return new ByteArrayInputStream(getBytes());
+	}
+}
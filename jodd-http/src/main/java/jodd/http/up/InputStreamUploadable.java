@@ -0,0 +1,121 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http.up;
+
+import jodd.http.HttpException;
+import jodd.io.StreamUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Uploadable wrapper of <code>InputStream</code>. The stream is read
+ * only once, when content is sent, and it is closed afterwards.
+ * When size is unknown (negative), content is sent using
+ * the chunked transfer encoding. Once the {@link #getBytes() bytes}
+ * are read, they are used instead of the stream.
+ */
+public class InputStreamUploadable implements Uploadable<InputStream> {
+
+	protected final InputStream inputStream;
+	protected final int size;
+	protected final String fileName;
+	protected final String mimeType;
+	protected byte[] bytes;
+	protected boolean opened;
+
+	public InputStreamUploadable(InputStream inputStream, int size) {
+		this(inputStream, size, null, null);
+	}
+
+	public InputStreamUploadable(InputStream inputStream, int size, String fileName, String mimeType) {
+		this.inputStream = inputStream;
+		this.size = size;
+		this.fileName = fileName;
+		this.mimeType = mimeType;
+	}
+
+	public InputStream getContent() {
+		return inputStream;
+	}
+
+	public byte[] getBytes() {
+		if (bytes == null) {
+			InputStream in = null;
+			try {
+				in = openInputStream();
+				bytes = size < 0 ? StreamUtil.readBytes(in) : StreamUtil.readBytes(in, size);
+			} catch (IOException ioex) {
+				throw new HttpException(ioex);
+			} finally {
+				StreamUtil.close(in);
+			}
+		}
+		return bytes;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * Returns the declared size, or <code>-1</code> if size is unknown.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if the {@link #getBytes() bytes} are
+	 * already read, so the stream is not used anymore.
+	 */
+	public boolean isLoaded() {
+		return bytes != null;
+	}
+
+	/**
+	 * Returns <code>true</code> if content may be opened again.
+	 */
+	public boolean isRepeatable() {
+		return bytes != null || !opened;
+	}
+
+	public InputStream openInputStream() throws IOException {
+		if (bytes != null) {
+			return new ByteArrayInputStream(bytes);
+		}
+		if (opened) {
+			throw new IOException("Input stream already consumed");
+		}
+		opened = true;
+		return inputStream;
+	}
+}
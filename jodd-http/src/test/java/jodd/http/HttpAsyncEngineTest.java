@@ -0,0 +1,289 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.io.StreamUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpAsyncEngineTest {
+
+	PooledHttpConnectionProviderTest.KeepAliveServer server;
+	HttpAsyncEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new PooledHttpConnectionProviderTest.KeepAliveServer();
+		server.start();
+		engine = new HttpAsyncEngine().setIoThreads(1);
+	}
+
+	@After
+	public void tearDown() {
+		engine.shutdown();
+		server.shutdown();
+	}
+
+	private HttpFuture sendAsync(String path) {
+		return HttpRequest.get("http://localhost:" + server.port() + path).sendAsync(engine);
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		for (int i = 1; i <= 3; i++) {
+			HttpResponse response = sendAsync("/").get(5, TimeUnit.SECONDS);
+
+			assertEquals(200, response.statusCode());
+			assertEquals("1:" + i, response.bodyText());
+			assertNotNull(response.getHttpRequest());
+		}
+		assertEquals(1, server.connections.get());
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		engine.setMaxConnectionsPerRoute(4);
+
+		List<HttpFuture> futures = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			futures.add(sendAsync("/"));
+		}
+
+		for (HttpFuture future : futures) {
+			assertEquals(200, future.get(10, TimeUnit.SECONDS).statusCode());
+		}
+
+		assertTrue(server.connections.get() <= 4);
+	}
+
+	@Test
+	public void testPipelining() throws Exception {
+		engine.setMaxConnectionsPerRoute(1).setMaxPipelinedRequests(5);
+
+		List<HttpFuture> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(sendAsync("/"));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("1:" + (i + 1), futures.get(i).get(5, TimeUnit.SECONDS).bodyText());
+		}
+		assertEquals(1, server.connections.get());
+	}
+
+	@Test
+	public void testConnectionClose() throws Exception {
+		assertEquals("1:1", sendAsync("/close").get(5, TimeUnit.SECONDS).bodyText());
+		assertEquals("2:1", sendAsync("/").get(5, TimeUnit.SECONDS).bodyText());
+		assertEquals("2:2", sendAsync("/").get(5, TimeUnit.SECONDS).bodyText());
+	}
+
+	@Test
+	public void testPipeliningWithConnectionClose() throws Exception {
+		engine.setMaxConnectionsPerRoute(1).setMaxPipelinedRequests(3);
+
+		HttpFuture first = sendAsync("/close");
+		HttpFuture second = sendAsync("/");
+		HttpFuture third = sendAsync("/");
+
+		assertEquals("1:1", first.get(5, TimeUnit.SECONDS).bodyText());
+
+		// not answered requests are sent again
+		assertEquals("2:1", second.get(5, TimeUnit.SECONDS).bodyText());
+		assertEquals("2:2", third.get(5, TimeUnit.SECONDS).bodyText());
+	}
+
+	@Test
+	public void testCallback() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger status = new AtomicInteger();
+
+		sendAsync("/").callback(new HttpResponseCallback() {
+			public void onResponse(HttpResponse httpResponse) {
+				status.set(httpResponse.statusCode());
+				latch.countDown();
+			}
+
+			public void onFailure(Throwable throwable) {
+				latch.countDown();
+			}
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(200, status.get());
+	}
+
+	@Test
+	public void testProgressListener() throws Exception {
+		final List<Integer> transferred = new ArrayList<>();
+
+		HttpRequest httpRequest = HttpRequest.get("http://localhost:" + server.port())
+			.monitor(new HttpProgressListener() {
+				@Override
+				public void transferred(int len) {
+					transferred.add(len);
+				}
+			});
+
+		httpRequest.sendAsync(engine).get(5, TimeUnit.SECONDS);
+
+		assertEquals(Integer.valueOf(0), transferred.get(0));
+		assertTrue(transferred.get(transferred.size() - 1) > 0);
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		final ServerSocket silentServer = new ServerSocket(0);
+		final List<Socket> sockets = new ArrayList<>();
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					sockets.add(silentServer.accept());
+				} catch (IOException ignore) {
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+
+		try {
+			HttpFuture future = HttpRequest.get("http://localhost:" + silentServer.getLocalPort())
+				.timeout(200)
+				.sendAsync(engine);
+
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (ExecutionException eex) {
+				assertTrue(eex.getCause() instanceof HttpException);
+			}
+		} finally {
+			for (Socket socket : sockets) {
+				StreamUtil.close(socket);
+			}
+			StreamUtil.close(silentServer);
+		}
+	}
+
+	@Test
+	public void testPendingTimeout() throws Exception {
+		final ServerSocket silentServer = new ServerSocket(0);
+		final List<Socket> sockets = new ArrayList<>();
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					sockets.add(silentServer.accept());
+				} catch (IOException ignore) {
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+
+		engine.setMaxConnectionsPerRoute(1);
+
+		try {
+			HttpFuture first = HttpRequest.get("http://localhost:" + silentServer.getLocalPort())
+				.sendAsync(engine);
+
+			// waits for the connection used by the first request
+			HttpFuture second = HttpRequest.get("http://localhost:" + silentServer.getLocalPort())
+				.timeout(200)
+				.sendAsync(engine);
+
+			try {
+				second.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (ExecutionException eex) {
+				assertTrue(eex.getCause() instanceof HttpException);
+			}
+			assertFalse(first.isDone());
+		} finally {
+			for (Socket socket : sockets) {
+				StreamUtil.close(socket);
+			}
+			StreamUtil.close(silentServer);
+		}
+	}
+
+	@Test
+	public void testUnknownHost() {
+		HttpFuture future = HttpRequest.get("http://unknown-host.invalid").sendAsync(engine);
+
+		assertTrue(future.isDone());
+
+		try {
+			future.join();
+			fail();
+		} catch (HttpException ignore) {
+		}
+	}
+
+	@Test
+	public void testConnectionRefused() throws Exception {
+		ServerSocket serverSocket = new ServerSocket(0);
+		int port = serverSocket.getLocalPort();
+		serverSocket.close();
+
+		try {
+			HttpRequest.get("http://localhost:" + port).sendAsync(engine).join();
+			fail();
+		} catch (HttpException ignore) {
+		}
+	}
+
+	@Test
+	public void testShutdown() {
+		engine.shutdown();
+
+		try {
+			sendAsync("/").join();
+			fail();
+		} catch (HttpException ignore) {
+		}
+	}
+}
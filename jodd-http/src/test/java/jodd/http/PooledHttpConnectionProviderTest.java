@@ -0,0 +1,402 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.http.net.PooledHttpConnectionProvider;
+import jodd.io.StreamUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PooledHttpConnectionProviderTest {
+
+	/**
+	 * Minimal keep-alive HTTP server. Responds with the number of
+	 * the connection and the number of the request on that connection.
+	 * Path <code>/close</code> closes the connection with the header,
+	 * path <code>/drop</code> closes the connection silently,
+	 * path <code>/malformed</code> responds with the invalid chunk size and
+	 * path <code>/truncated</code> closes the connection in the middle of the body.
+	 */
+	static class KeepAliveServer extends Thread {
+		final ServerSocket serverSocket;
+		final AtomicInteger connections = new AtomicInteger();
+
+		KeepAliveServer() throws IOException {
+			serverSocket = new ServerSocket(0);
+			setDaemon(true);
+		}
+
+		int port() {
+			return serverSocket.getLocalPort();
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException ignore) {
+					return;
+				}
+				final int connection = connections.incrementAndGet();
+
+				Thread handler = new Thread() {
+					@Override
+					public void run() {
+						try {
+							serve(socket, connection);
+						} catch (IOException ignore) {
+						} finally {
+							StreamUtil.close(socket);
+						}
+					}
+				};
+				handler.setDaemon(true);
+				handler.start();
+			}
+		}
+
+		void serve(Socket socket, int connection) throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+			OutputStream out = socket.getOutputStream();
+
+			for (int request = 1; ; request++) {
+				String requestLine = reader.readLine();
+				if (requestLine == null) {
+					return;
+				}
+				String line;
+				while ((line = reader.readLine()) != null && line.length() != 0) {
+					// skip headers
+				}
+
+				String path = requestLine.split(" ")[1];
+				String body = connection + ":" + request;
+				boolean close = path.equals("/close");
+
+				String response = "HTTP/1.1 200 OK\r\n" +
+						"Content-Length: " + body.length() + "\r\n" +
+						(close ? "Connection: close\r\n" : "") +
+						"\r\n" + body;
+
+				if (path.equals("/malformed")) {
+					response = "HTTP/1.1 200 OK\r\n" +
+							"Transfer-Encoding: chunked\r\n" +
+							"\r\n" + "ZZ\r\n" + body + "\r\n0\r\n\r\n";
+				}
+
+				if (path.equals("/no-content")) {
+					response = "HTTP/1.1 204 No Content\r\n\r\n";
+				}
+
+				if (path.equals("/not-modified")) {
+					response = "HTTP/1.1 304 Not Modified\r\n" +
+							"ETag: \"1\"\r\n" +
+							"\r\n";
+				}
+
+				if (path.equals("/continue")) {
+					response = "HTTP/1.1 100 Continue\r\n\r\n" + response;
+				}
+
+				if (requestLine.startsWith("HEAD ")) {
+					response = "HTTP/1.1 200 OK\r\n" +
+							"Content-Length: 10\r\n" +
+							"\r\n";
+				}
+
+				if (path.equals("/truncated")) {
+					response = "HTTP/1.1 200 OK\r\n" +
+							"Content-Length: 100\r\n" +
+							"\r\n" + body;
+				}
+
+				out.write(response.getBytes("ISO-8859-1"));
+				out.flush();
+
+				if (close || path.equals("/drop") || path.equals("/truncated")) {
+					return;
+				}
+			}
+		}
+
+		void shutdown() {
+			StreamUtil.close(serverSocket);
+		}
+	}
+
+	KeepAliveServer server;
+	PooledHttpConnectionProvider pool;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new KeepAliveServer();
+		server.start();
+		pool = new PooledHttpConnectionProvider();
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+		server.shutdown();
+	}
+
+	private HttpResponse send(String path) {
+		return HttpRequest.get("http://localhost:" + server.port() + path).open(pool).send();
+	}
+
+	@Test
+	public void testReuse() {
+		for (int i = 1; i <= 5; i++) {
+			HttpResponse response = send("/");
+
+			assertEquals("1:" + i, response.bodyText());
+			assertNull(response.getHttpRequest().httpConnection());
+		}
+
+		assertEquals(1, server.connections.get());
+		assertEquals(1, pool.getConnectionsCount());
+		assertEquals(1, pool.getIdleConnectionsCount());
+	}
+
+	@Test
+	public void testConnectionClose() {
+		assertEquals("1:1", send("/close").bodyText());
+		assertEquals(0, pool.getConnectionsCount());
+
+		assertEquals("2:1", send("/").bodyText());
+		assertEquals("2:2", send("/").bodyText());
+		assertEquals(1, pool.getConnectionsCount());
+	}
+
+	@Test
+	public void testStaleConnection() throws InterruptedException {
+		pool.setValidateAfterInactivity(0);
+
+		assertEquals("1:1", send("/drop").bodyText());
+		assertEquals(1, pool.getIdleConnectionsCount());
+
+		Thread.sleep(100);
+
+		assertEquals("2:1", send("/").bodyText());
+		assertEquals(1, pool.getConnectionsCount());
+	}
+
+	@Test
+	public void testIdleTimeout() throws InterruptedException {
+		pool.setIdleTimeout(50);
+
+		assertEquals("1:1", send("/").bodyText());
+
+		Thread.sleep(100);
+		pool.closeIdleConnections();
+
+		assertEquals(0, pool.getConnectionsCount());
+		assertEquals("2:1", send("/").bodyText());
+	}
+
+	@Test
+	public void testStreamedBody() throws IOException {
+		HttpResponse response = HttpRequest
+				.get("http://localhost:" + server.port())
+				.streamResponseBody(true)
+				.open(pool)
+				.send();
+
+		// connection is in use until the body is read
+		assertEquals(0, pool.getIdleConnectionsCount());
+
+		assertEquals("1:1", new String(StreamUtil.readBytes(response.bodyStream()), "ISO-8859-1"));
+		assertEquals(1, pool.getIdleConnectionsCount());
+
+		// closing unread body discards the connection
+		response = HttpRequest
+				.get("http://localhost:" + server.port())
+				.streamResponseBody(true)
+				.open(pool)
+				.send();
+
+		response.bodyStream().close();
+		assertEquals(0, pool.getConnectionsCount());
+
+		assertEquals("2:1", send("/").bodyText());
+	}
+
+	@Test
+	public void testMaxPerRoute() {
+		pool.setMaxPerRoute(1).setConnectionRequestTimeout(100);
+
+		HttpRequest first = HttpRequest.get("http://localhost:" + server.port()).open(pool);
+
+		try {
+			HttpRequest.get("http://localhost:" + server.port()).open(pool);
+			fail();
+		} catch (HttpException ignore) {
+		}
+
+		assertEquals("1:1", first.send().bodyText());
+
+		HttpRequest second = HttpRequest.get("http://localhost:" + server.port()).open(pool);
+		assertEquals("1:2", second.send().bodyText());
+	}
+
+	@Test
+	public void testMalformedResponse() {
+		pool.setMaxPerRoute(1).setConnectionRequestTimeout(100);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				send("/malformed");
+				fail();
+			} catch (RuntimeException ignore) {
+			}
+
+			// connection is discarded, not leased forever
+			assertEquals(0, pool.getConnectionsCount());
+		}
+
+		assertEquals("4:1", send("/").bodyText());
+	}
+
+	@Test
+	public void testTruncatedBody() {
+		try {
+			send("/truncated");
+			fail();
+		} catch (HttpException ignore) {
+		}
+
+		assertEquals(0, pool.getConnectionsCount());
+
+		HttpResponse response = HttpRequest
+				.get("http://localhost:" + server.port() + "/truncated")
+				.streamResponseBody(true)
+				.open(pool)
+				.send();
+		try {
+			response.bodyBytes();
+			fail();
+		} catch (HttpException ignore) {
+		}
+
+		assertEquals(0, pool.getConnectionsCount());
+		assertEquals("3:1", send("/").bodyText());
+		assertEquals(1, pool.getIdleConnectionsCount());
+	}
+
+	@Test
+	public void testNoBody() {
+		HttpResponse response = HttpRequest.delete("http://localhost:" + server.port() + "/no-content")
+				.timeout(2000).open(pool).send();
+
+		assertEquals(204, response.statusCode());
+		assertEquals("1:2", send("/").bodyText());
+
+		response = HttpRequest.head("http://localhost:" + server.port())
+				.timeout(2000).open(pool).send();
+
+		assertEquals(200, response.statusCode());
+		assertEquals("10", response.contentLength());
+		assertEquals("1:4", send("/").bodyText());
+
+		response = HttpRequest.get("http://localhost:" + server.port() + "/not-modified")
+				.timeout(2000).open(pool).send();
+
+		assertEquals(304, response.statusCode());
+		assertEquals("1:6", send("/").bodyText());
+
+		assertEquals(1, server.connections.get());
+	}
+
+	@Test
+	public void testInterimResponse() {
+		HttpResponse response = HttpRequest.get("http://localhost:" + server.port() + "/continue")
+				.timeout(2000).open(pool).send();
+
+		assertEquals(200, response.statusCode());
+		assertEquals("1:1", response.bodyText());
+		assertEquals("1:2", send("/").bodyText());
+	}
+
+	@Test
+	public void testMaxTotal() {
+		pool.setMaxTotal(1);
+
+		assertEquals("1:1", send("/").bodyText());
+
+		// other route takes the place of the idle connection
+		HttpResponse response = HttpRequest.get("http://127.0.0.1:" + server.port()).open(pool).send();
+		assertEquals("2:1", response.bodyText());
+
+		assertEquals(1, pool.getConnectionsCount());
+	}
+
+	@Test
+	public void testParallel() throws InterruptedException {
+		pool.setMaxPerRoute(3);
+
+		Thread[] threads = new Thread[6];
+		final AtomicInteger errors = new AtomicInteger();
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 20; j++) {
+						try {
+							send("/");
+						} catch (Exception ex) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(0, errors.get());
+		assertTrue(server.connections.get() <= 3);
+		assertEquals(server.connections.get(), pool.getConnectionsCount());
+	}
+}
@@ -0,0 +1,245 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.io.StreamUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResponseBodyTest {
+
+	@After
+	public void tearDown() {
+		JoddHttp.defaultBodyFileThreshold = -1;
+	}
+
+	@Test
+	public void testBinaryBody() throws IOException {
+		byte[] content = new byte[256];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(response(null, content)));
+
+		assertEquals(200, response.statusCode());
+		assertArrayEquals(content, response.bodyBytes());
+		assertArrayEquals(content, StreamUtil.readBytes(response.bodyStream()));
+		assertEquals(256, response.body().length());
+	}
+
+	@Test
+	public void testChunkedBody() throws IOException {
+		String raw =
+			"HTTP/1.1 200 OK\r\n" +
+			"Transfer-Encoding: chunked\r\n" +
+			"\r\n" +
+			"5;ext=1\r\nHello\r\n" +
+			"7\r\n, Jodd!\r\n" +
+			"0\r\n" +
+			"X-Trailer: yes\r\n" +
+			"\r\n";
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(raw.getBytes("ISO-8859-1")));
+
+		assertEquals("Hello, Jodd!", response.body());
+		assertEquals("yes", response.header("X-Trailer"));
+	}
+
+	@Test
+	public void testGzipBody() throws IOException {
+		byte[] content = "Hello, compressed Jodd!".getBytes("ISO-8859-1");
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(response("gzip", gzip(content))));
+
+		assertArrayEquals(content, StreamUtil.readBytes(response.bodyStream()));
+
+		response.unzip();
+
+		assertNull(response.contentEncoding());
+		assertEquals(String.valueOf(content.length), response.header("Content-Length"));
+		assertEquals("Hello, compressed Jodd!", response.body());
+
+		response = HttpResponse.readFrom(new ByteArrayInputStream(response("GZIP", gzip(content))));
+		response.unzip();
+
+		assertNull(response.contentEncoding());
+		assertEquals("Hello, compressed Jodd!", response.body());
+	}
+
+	@Test
+	public void testBodyFile() throws IOException {
+		JoddHttp.defaultBodyFileThreshold = 10;
+
+		byte[] content = "0123456789012345678901234567890123456789".getBytes("ISO-8859-1");
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(response(null, content)));
+
+		assertNull(response.rawBody);
+		assertNotNull(response.bodyFile);
+		assertTrue(response.bodyFile.exists());
+
+		assertArrayEquals(content, StreamUtil.readBytes(response.bodyStream()));
+		assertArrayEquals(content, response.bodyBytes());
+
+		response.body("new");
+
+		assertNull(response.bodyFile);
+		assertEquals("new", response.body());
+
+		// closing the response deletes the file
+		response = HttpResponse.readFrom(new ByteArrayInputStream(response(null, content)));
+
+		File file = response.bodyFile;
+		assertTrue(file.exists());
+
+		response.close();
+
+		assertFalse(file.exists());
+		assertNull(response.bodyFile);
+	}
+
+	@Test
+	public void testTruncatedBody() throws IOException {
+		String raw =
+			"HTTP/1.1 200 OK\r\n" +
+			"Content-Length: 100\r\n" +
+			"\r\n" +
+			"abc";
+
+		// parsed response keeps the truncated body
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(raw.getBytes("ISO-8859-1")));
+		assertEquals("abc", response.body());
+		assertFalse(response.bodyConsumed);
+
+		raw =
+			"HTTP/1.1 200 OK\r\n" +
+			"Transfer-Encoding: chunked\r\n" +
+			"\r\n" +
+			"5\r\nHello\r\n";
+
+		response = HttpResponse.readFrom(new ByteArrayInputStream(raw.getBytes("ISO-8859-1")));
+		assertEquals("Hello", response.body());
+		assertFalse(response.bodyConsumed);
+
+		raw =
+			"HTTP/1.1 200 OK\r\n" +
+			"Transfer-Encoding: chunked\r\n" +
+			"\r\n" +
+			"ZZ\r\nHello\r\n";
+
+		try {
+			HttpResponse.readFrom(new ByteArrayInputStream(raw.getBytes("ISO-8859-1")));
+			fail();
+		} catch (HttpException ignore) {
+		}
+
+		// body without the length ends with the stream
+		raw =
+			"HTTP/1.1 200 OK\r\n" +
+			"\r\n" +
+			"abc";
+
+		response = HttpResponse.readFrom(new ByteArrayInputStream(raw.getBytes("ISO-8859-1")));
+		assertEquals("abc", response.body());
+		assertTrue(response.bodyConsumed);
+	}
+
+	@Test
+	public void testStreamedBody() throws IOException {
+		byte[] content = "Streamed body".getBytes("ISO-8859-1");
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(response(null, content)), true);
+
+		assertNotNull(response.bodyInput);
+		assertArrayEquals(content, StreamUtil.readBytes(response.bodyStream()));
+		assertNull(response.bodyInput);
+
+		response = HttpResponse.readFrom(new ByteArrayInputStream(response(null, content)), true);
+
+		assertEquals("Streamed body", response.body());
+		assertNull(response.bodyInput);
+	}
+
+	@Test
+	public void testStreamedChunkedGzipBody() throws IOException {
+		byte[] content = "Streamed and compressed".getBytes("ISO-8859-1");
+		byte[] gzipped = gzip(content);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write((
+			"HTTP/1.1 200 OK\r\n" +
+			"Content-Encoding: gzip\r\n" +
+			"Transfer-Encoding: chunked\r\n" +
+			"\r\n" +
+			Integer.toHexString(gzipped.length) + "\r\n").getBytes("ISO-8859-1"));
+		out.write(gzipped);
+		out.write("\r\n0\r\n\r\n".getBytes("ISO-8859-1"));
+
+		HttpResponse response = HttpResponse.readFrom(new ByteArrayInputStream(out.toByteArray()), true);
+
+		InputStream in = response.bodyStream();
+		assertArrayEquals(content, StreamUtil.readBytes(in));
+		in.close();
+	}
+
+	// ---------------------------------------------------------------- util
+
+	private static byte[] response(String contentEncoding, byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		String head = "HTTP/1.1 200 OK\r\n" +
+			"Content-Type: application/octet-stream\r\n" +
+			(contentEncoding != null ? "Content-Encoding: " + contentEncoding + "\r\n" : "") +
+			"Content-Length: " + content.length + "\r\n" +
+			"\r\n";
+		out.write(head.getBytes("ISO-8859-1"));
+		out.write(content);
+		return out.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(content);
+		gzip.close();
+		return out.toByteArray();
+	}
+}
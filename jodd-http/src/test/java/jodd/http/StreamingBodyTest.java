@@ -0,0 +1,345 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.http;
+
+import jodd.http.up.ByteArrayUploadable;
+import jodd.http.up.InputStreamUploadable;
+import jodd.io.FileUtil;
+import jodd.io.StreamUtil;
+import jodd.upload.FileUpload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingBodyTest {
+
+	/**
+	 * Keep-alive server that responds with the received body.
+	 */
+	static class EchoServer extends Thread {
+		final ServerSocket serverSocket;
+
+		EchoServer() throws IOException {
+			serverSocket = new ServerSocket(0);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException ignore) {
+					return;
+				}
+				Thread handler = new Thread() {
+					@Override
+					public void run() {
+						try {
+							InputStream in = new BufferedInputStream(socket.getInputStream());
+							OutputStream out = socket.getOutputStream();
+
+							while (true) {
+								HttpRequest request = HttpRequest.readFrom(in);
+								if (request == null) {
+									return;
+								}
+								byte[] body = request.bodyBytes();
+								if (body == null) {
+									body = new byte[0];
+								}
+								String head = "HTTP/1.1 200 OK\r\n" +
+									"X-Request-Encoding: " + request.header("Transfer-Encoding") + "\r\n" +
+									"Content-Length: " + body.length + "\r\n\r\n";
+								out.write(head.getBytes("ISO-8859-1"));
+								out.write(body);
+								out.flush();
+							}
+						} catch (Exception ignore) {
+						} finally {
+							StreamUtil.close(socket);
+						}
+					}
+				};
+				handler.setDaemon(true);
+				handler.start();
+			}
+		}
+	}
+
+	EchoServer server;
+	File file;
+	byte[] content;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new EchoServer();
+		server.start();
+
+		content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		file = FileUtil.createTempFile("jodd-http", ".bin", null);
+		FileUtil.writeBytes(file, content);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		StreamUtil.close(server.serverSocket);
+		FileUtil.deleteFile(file);
+	}
+
+	private String url() {
+		return "http://localhost:" + server.serverSocket.getLocalPort() + "/echo";
+	}
+
+	@Test
+	public void testChunkedInputStreamBody() throws IOException {
+		HttpRequest request = HttpRequest.post(url())
+			.body(new ByteArrayInputStream(content), "application/octet-stream");
+
+		assertEquals("chunked", request.header("Transfer-Encoding"));
+		assertNull(request.contentLength());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		request.sendTo(out);
+
+		HttpRequest parsed = HttpRequest.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+		assertNull(parsed.contentLength());
+		assertArrayEquals(content, parsed.bodyBytes());
+	}
+
+	@Test
+	public void testFileBody() {
+		HttpResponse response = HttpRequest.post(url())
+			.body(file, "application/octet-stream")
+			.send();
+
+		assertEquals(String.valueOf(content.length), response.getHttpRequest().contentLength());
+		assertArrayEquals(content, response.bodyBytes());
+	}
+
+	@Test
+	public void testByteBufferBody() {
+		ByteBuffer byteBuffer = ByteBuffer.wrap(content, 10, 100);
+
+		HttpResponse response = HttpRequest.post(url())
+			.body(byteBuffer, "application/octet-stream")
+			.send();
+
+		assertEquals(100, response.bodyBytes().length);
+		assertEquals(content[10], response.bodyBytes()[0]);
+		assertEquals(10, byteBuffer.position());
+	}
+
+	@Test
+	public void testInputStreamBodyWithProgress() {
+		final int[] transferred = new int[1];
+
+		HttpResponse response = HttpRequest.post(url())
+			.body(new InputStreamUploadable(new ByteArrayInputStream(content), content.length), "application/octet-stream")
+			.monitor(new HttpProgressListener() {
+				@Override
+				public void transferred(int len) {
+					transferred[0] = len;
+				}
+			})
+			.send();
+
+		assertEquals("null", response.header("X-Request-Encoding"));
+		assertArrayEquals(content, response.bodyBytes());
+		assertTrue(transferred[0] > content.length);
+	}
+
+	@Test
+	public void testInputStreamToString() {
+		HttpRequest request = HttpRequest.post(url())
+			.body(new ByteArrayInputStream(content), "application/octet-stream");
+
+		String string = request.toString();
+
+		assertTrue(string.endsWith("\r\n\r\n" + Buffer.STREAM_PLACEHOLDER));
+		assertEquals(string, request.toString());
+
+		HttpResponse response = request.send();
+
+		assertEquals("chunked", response.header("X-Request-Encoding"));
+		assertArrayEquals(content, response.bodyBytes());
+	}
+
+	@Test
+	public void testInputStreamToByteArray() throws IOException {
+		InputStreamUploadable uploadable = new InputStreamUploadable(new ByteArrayInputStream(content, 0, 10), -1);
+
+		HttpRequest request = HttpRequest.post(url()).body(uploadable, "application/octet-stream");
+
+		byte[] bytes = request.toByteArray();
+
+		String expected = "\r\n\r\na\r\n" + new String(content, 0, 10, "ISO-8859-1") + "\r\n0\r\n\r\n";
+
+		assertTrue(new String(bytes, "ISO-8859-1").endsWith(expected));
+
+		// read bytes are written with the same framing
+		uploadable = new InputStreamUploadable(new ByteArrayInputStream(content, 0, 10), -1);
+		uploadable.getBytes();
+
+		request = HttpRequest.post(url()).body(uploadable, "application/octet-stream");
+
+		assertTrue(request.toString().endsWith(expected));
+		assertTrue(new String(request.toByteArray(), "ISO-8859-1").endsWith(expected));
+	}
+
+	@Test
+	public void testInputStreamConsumedOnce() throws IOException {
+		InputStreamUploadable uploadable = new InputStreamUploadable(new ByteArrayInputStream(content), -1);
+
+		StreamUtil.close(uploadable.openInputStream());
+
+		try {
+			uploadable.openInputStream();
+			fail();
+		} catch (IOException ignore) {
+		}
+	}
+
+	@Test
+	public void testMultipart() throws IOException {
+		HttpRequest request = HttpRequest.post(url())
+			.form("name", "Jodd \u0161")
+			.form("data", new ByteArrayUploadable(content, "data.bin"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		request.sendTo(out);
+
+		HttpRequest parsed = HttpRequest.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals(request.contentLength(), parsed.contentLength());
+		assertEquals(String.valueOf(out.size() - out.toString("ISO-8859-1").indexOf("\r\n\r\n") - 4), parsed.contentLength());
+
+		// form is parsed in default encoding
+		assertEquals(new String("Jodd \u0161".getBytes("UTF-8"), "ISO-8859-1"), parsed.form().get("name"));
+
+		FileUpload fileUpload = (FileUpload) parsed.form().get("data");
+		assertEquals("data.bin", fileUpload.getHeader().getFileName());
+		assertArrayEquals(content, fileUpload.getFileContent());
+	}
+
+	@Test
+	public void testMultipartUnknownSize() {
+		HttpRequest request = HttpRequest.post(url())
+			.form("data", new InputStreamUploadable(new ByteArrayInputStream(content), -1, "data.bin", null));
+
+		try {
+			request.toString();
+			fail();
+		} catch (HttpException ignore) {
+		}
+	}
+
+	@Test
+	public void testAsyncStreamingBodies() throws Exception {
+		HttpAsyncEngine engine = new HttpAsyncEngine().setIoThreads(1);
+
+		try {
+			HttpResponse response = HttpRequest.post(url())
+				.body(file, "application/octet-stream")
+				.sendAsync(engine)
+				.get(10, TimeUnit.SECONDS);
+
+			assertArrayEquals(content, response.bodyBytes());
+
+			response = HttpRequest.post(url())
+				.body(new ByteArrayInputStream(content), "application/octet-stream")
+				.sendAsync(engine)
+				.get(10, TimeUnit.SECONDS);
+
+			assertEquals("chunked", response.header("X-Request-Encoding"));
+			assertArrayEquals(content, response.bodyBytes());
+
+			response = HttpRequest.post(url())
+				.body(ByteBuffer.wrap(content), "application/octet-stream")
+				.sendAsync(engine)
+				.get(10, TimeUnit.SECONDS);
+
+			assertArrayEquals(content, response.bodyBytes());
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	@Test
+	public void testAsyncStreamReadInCallingThread() throws Exception {
+		HttpAsyncEngine engine = new HttpAsyncEngine().setIoThreads(1);
+
+		final Thread[] readers = new Thread[1];
+
+		InputStream input = new ByteArrayInputStream(content) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				readers[0] = Thread.currentThread();
+				return super.read(b, off, len);
+			}
+		};
+
+		try {
+			HttpFuture httpFuture = HttpRequest.post(url())
+				.body(input, "application/octet-stream")
+				.sendAsync(engine);
+
+			assertSame(Thread.currentThread(), readers[0]);
+
+			HttpResponse response = httpFuture.get(10, TimeUnit.SECONDS);
+
+			assertEquals("chunked", response.header("X-Request-Encoding"));
+			assertArrayEquals(content, response.bodyBytes());
+			assertSame(Thread.currentThread(), readers[0]);
+		} finally {
+			engine.shutdown();
+		}
+	}
+}
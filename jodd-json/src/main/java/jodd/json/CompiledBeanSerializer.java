@@ -0,0 +1,334 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.introspector.ClassDescriptor;
+import jodd.introspector.ClassIntrospector;
+import jodd.introspector.FieldDescriptor;
+import jodd.introspector.Getter;
+import jodd.introspector.MethodDescriptor;
+import jodd.introspector.PropertyDescriptor;
+import jodd.json.meta.JsonAnnotationManager;
+import jodd.util.buffer.FastCharBuffer;
+import jodd.util.collection.ClassMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bean serializer compiled once per bean type. Alternative to {@link BeanSerializer}
+ * that does not introspect the type and does not resolve annotation rules on
+ * each serialization. Property names are pre-encoded, values are read using
+ * method handles and serializers of final property types are resolved in advance.
+ * When no path rules are set, {@link Path} is not maintained.
+ * Enabled with {@link JsonSerializer#compiled(boolean)}.
+ */
+public class CompiledBeanSerializer {
+
+	private static final ClassMap<CompiledBeanSerializer> cache = new ClassMap<>();
+
+	/**
+	 * Returns compiled serializer for given type.
+	 */
+	public static CompiledBeanSerializer lookup(Class type) {
+		CompiledBeanSerializer compiledBeanSerializer = cache.unsafeGet(type);
+
+		if (compiledBeanSerializer != null) {
+			return compiledBeanSerializer;
+		}
+
+		synchronized (cache) {
+			compiledBeanSerializer = cache.unsafeGet(type);
+
+			if (compiledBeanSerializer == null) {
+				compiledBeanSerializer = new CompiledBeanSerializer(type);
+				cache.put(type, compiledBeanSerializer);
+			}
+		}
+
+		return compiledBeanSerializer;
+	}
+
+	/**
+	 * Clears all compiled serializers. Should be called when
+	 * default serializers or annotation data are changed.
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	// ---------------------------------------------------------------- ctor
+
+	protected final Class type;
+	protected final JsonAnnotationManager.TypeData typeData;
+	protected final PropertySerializer[] properties;
+
+	public CompiledBeanSerializer(Class type) {
+		this.type = type;
+		this.typeData = JoddJson.annotationManager.lookupTypeData(type);
+
+		ClassDescriptor classDescriptor = ClassIntrospector.lookup(type);
+
+		List<PropertySerializer> list = new ArrayList<>();
+
+		for (PropertyDescriptor propertyDescriptor : classDescriptor.getAllPropertyDescriptors()) {
+			Getter getter = propertyDescriptor.getGetter(false);
+
+			if (getter == null) {
+				continue;
+			}
+
+			boolean isTransient = false;
+
+			FieldDescriptor fieldDescriptor = propertyDescriptor.getFieldDescriptor();
+
+			if (fieldDescriptor != null) {
+				isTransient = Modifier.isTransient(fieldDescriptor.getField().getModifiers());
+			}
+
+			list.add(new PropertySerializer(propertyDescriptor, getter, isTransient));
+		}
+
+		this.properties = list.toArray(new PropertySerializer[list.size()]);
+	}
+
+	/**
+	 * Compiled property.
+	 */
+	protected class PropertySerializer {
+		protected final String name;
+		protected final String jsonName;
+		protected final JsonFragment encodedName;
+		protected final Class propertyType;
+		protected final boolean container;
+		protected final boolean candidate;
+		protected final boolean includeIfAccepted;
+		protected final boolean includeIfRejected;
+		protected final TypeJsonSerializer typeJsonSerializer;
+		protected final Getter getter;
+		protected final MethodHandle methodHandle;
+
+		protected PropertySerializer(PropertyDescriptor propertyDescriptor, Getter getter, boolean isTransient) {
+			this.name = propertyDescriptor.getName();
+			this.jsonName = typeData.resolveJsonName(name);
+			this.encodedName = encodeName(jsonName);
+			this.propertyType = propertyDescriptor.getType();
+
+			ClassDescriptor propertyTypeClassDescriptor = ClassIntrospector.lookup(propertyType);
+
+			this.container =
+					propertyTypeClassDescriptor.isArray() ||
+					propertyTypeClassDescriptor.isCollection() ||
+					propertyTypeClassDescriptor.isMap();
+
+			// annotation rules do not change, so resolve both outcomes in advance
+
+			this.candidate = !typeData.strict && !isTransient;
+			this.includeIfAccepted = typeData.rules.apply(jsonName, true, true);
+			this.includeIfRejected = typeData.rules.apply(jsonName, true, false);
+
+			this.typeJsonSerializer = resolveTypeJsonSerializer(propertyType);
+			this.getter = getter;
+			this.methodHandle = resolveMethodHandle(getter);
+		}
+
+		/**
+		 * Reads property value.
+		 */
+		protected Object read(Object bean) {
+			try {
+				if (methodHandle != null) {
+					return methodHandle.invokeExact(bean);
+				}
+				return getter.invokeGetter(bean);
+			}
+			catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+	}
+
+	/**
+	 * Encodes property name as JSON string followed by a colon.
+	 */
+	protected JsonFragment encodeName(String name) {
+		FastCharBuffer fastCharBuffer = new FastCharBuffer();
+
+		new JsonWriter(fastCharBuffer).writeName(name);
+
+		return new JsonFragment(fastCharBuffer.toString());
+	}
+
+	/**
+	 * Resolves default serializer for final types, as the value type is known
+	 * in advance. Returns <code>null</code> for all other types.
+	 */
+	protected TypeJsonSerializer resolveTypeJsonSerializer(Class propertyType) {
+		if (propertyType.isPrimitive()) {
+			propertyType = wrapperType(propertyType);
+		}
+		else if (!Modifier.isFinal(propertyType.getModifiers()) || propertyType.isArray()) {
+			return null;
+		}
+		return JoddJson.defaultSerializers.lookup(propertyType);
+	}
+
+	private static Class wrapperType(Class primitiveType) {
+		if (primitiveType == int.class) return Integer.class;
+		if (primitiveType == long.class) return Long.class;
+		if (primitiveType == boolean.class) return Boolean.class;
+		if (primitiveType == double.class) return Double.class;
+		if (primitiveType == float.class) return Float.class;
+		if (primitiveType == char.class) return Character.class;
+		if (primitiveType == short.class) return Short.class;
+		if (primitiveType == byte.class) return Byte.class;
+		return Void.class;
+	}
+
+	/**
+	 * Creates method handle for the getter. Returns <code>null</code>
+	 * if getter is not accessible.
+	 */
+	protected MethodHandle resolveMethodHandle(Getter getter) {
+		MethodHandle methodHandle;
+
+		try {
+			if (getter instanceof MethodDescriptor) {
+				methodHandle = MethodHandles.lookup().unreflect(((MethodDescriptor) getter).getMethod());
+			} else if (getter instanceof FieldDescriptor) {
+				methodHandle = MethodHandles.lookup().unreflectGetter(((FieldDescriptor) getter).getField());
+			} else {
+				return null;
+			}
+		} catch (IllegalAccessException iaex) {
+			return null;
+		}
+
+		return methodHandle.asType(MethodType.methodType(Object.class, Object.class));
+	}
+
+	// ---------------------------------------------------------------- serialize
+
+	/**
+	 * Serializes properties of a bean, following the same rules as {@link BeanSerializer}.
+	 */
+	public void serialize(JsonContext jsonContext, Object bean) {
+		JsonSerializer jsonSerializer = jsonContext.jsonSerializer;
+
+		boolean pathRules = jsonSerializer.rules.hasRules() || jsonSerializer.pathSerializersMap != null;
+		boolean resolvedSerializers = jsonSerializer.typeSerializersMap == null && !pathRules;
+		boolean excludedTypes =
+				JoddJson.excludedTypes != null || JoddJson.excludedTypeNames != null ||
+				jsonSerializer.excludedTypes != null || jsonSerializer.excludedTypeNames != null;
+		boolean deep = jsonSerializer.deep;
+		boolean excludeNulls = jsonContext.excludeNulls;
+
+		Path path = jsonContext.path;
+		int count = 0;
+
+		if (jsonSerializer.classMetadataName != null) {
+			count = serializeClassMetadata(jsonContext, bean, jsonSerializer.classMetadataName);
+		}
+
+		for (PropertySerializer property : properties) {
+			boolean include = property.candidate;
+
+			if (include) {
+				if (excludedTypes) {
+					include = jsonContext.matchIgnoredPropertyTypes(property.propertyType, true, true);
+				}
+				else if (!deep && property.container) {
+					include = false;
+				}
+			}
+
+			include = include ? property.includeIfAccepted : property.includeIfRejected;
+
+			if (pathRules) {
+				path.push(property.name);
+
+				include = jsonContext.matchPathToQueries(include);
+			}
+
+			if (include) {
+				Object value = property.read(bean);
+
+				if (value != null || !excludeNulls) {
+					jsonContext.pushName(property.jsonName, property.encodedName, count > 0);
+
+					if (value != null && resolvedSerializers && property.typeJsonSerializer != null) {
+						property.typeJsonSerializer.serialize(jsonContext, value);
+					} else {
+						jsonContext.serialize(value);
+					}
+
+					if (jsonContext.isNamePopped()) {
+						count++;
+					}
+				}
+			}
+
+			if (pathRules) {
+				path.pop();
+			}
+		}
+	}
+
+	/**
+	 * Serializes class meta-data property.
+	 */
+	protected int serializeClassMetadata(JsonContext jsonContext, Object bean, String classMetadataName) {
+		Path path = jsonContext.path;
+
+		path.push(classMetadataName);
+
+		boolean include = typeData.rules.apply(classMetadataName, true, !typeData.strict);
+
+		include = jsonContext.matchPathToQueries(include);
+
+		int count = 0;
+
+		if (include) {
+			jsonContext.pushName(classMetadataName, false);
+
+			jsonContext.serialize(bean.getClass().getName());
+
+			if (jsonContext.isNamePopped()) {
+				count++;
+			}
+		}
+
+		path.pop();
+
+		return count;
+	}
+}
@@ -62,6 +62,27 @@ public class JoddJson {
 	 */
 	public static boolean deepSerialization = false;
 
+	/**
+	 * Defines default behavior of a {@link jodd.json.JsonSerializer}.
+	 * If set to <code>true</code>, beans will be serialized using
+	 * {@link jodd.json.CompiledBeanSerializer compiled serializers}.
+	 */
+	public static boolean compiledSerialization = false;
+
+	/**
+	 * Defines default behavior of a {@link jodd.json.JsonSerializer}.
+	 * If set to <code>true</code>, json contexts are reused
+	 * by the threads.
+	 */
+	public static boolean reuseJsonContexts = false;
+
+	/**
+	 * Defines default behavior of a {@link jodd.json.JsonParser}.
+	 * If set to <code>true</code>, beans will be parsed using
+	 * {@link jodd.json.JsonBindingPlan binding plans}.
+	 */
+	public static boolean compiledParsing = false;
+
 	/**
 	 * Defines if parser will use extended paths information
 	 * and path matching.
@@ -0,0 +1,339 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.introspector.ClassDescriptor;
+import jodd.introspector.ClassIntrospector;
+import jodd.introspector.FieldDescriptor;
+import jodd.introspector.MethodDescriptor;
+import jodd.introspector.PropertyDescriptor;
+import jodd.introspector.Setter;
+import jodd.json.meta.JsonAnnotationManager;
+import jodd.util.collection.ClassMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * Binding plan of a bean type used by {@link JsonParser} when parsing
+ * into a bean. All JSON keys that map to properties are resolved in advance
+ * and stored in a trie, so keys are matched directly against the input
+ * characters. Simple properties are written using method handles.
+ * @see JsonParser#compiled(boolean)
+ */
+public class JsonBindingPlan {
+
+	private static final ClassMap<JsonBindingPlan> cache = new ClassMap<>();
+
+	/**
+	 * Returns binding plan for given type. Returns <code>null</code> for maps.
+	 */
+	public static JsonBindingPlan lookup(Class type) {
+		JsonBindingPlan plan = cache.unsafeGet(type);
+
+		if (plan != null) {
+			return plan;
+		}
+
+		if (ClassIntrospector.lookup(type).isMap()) {
+			return null;
+		}
+
+		synchronized (cache) {
+			plan = cache.unsafeGet(type);
+
+			if (plan == null) {
+				plan = new JsonBindingPlan(type);
+				cache.put(type, plan);
+			}
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Clears all binding plans. Should be called when annotation data are changed.
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	// ---------------------------------------------------------------- ctor
+
+	public static final int KIND_OBJECT = 0;
+	public static final int KIND_INT = 1;
+	public static final int KIND_LONG = 2;
+	public static final int KIND_DOUBLE = 3;
+	public static final int KIND_BOOLEAN = 4;
+	public static final int KIND_STRING = 5;
+
+	protected final Class type;
+	protected final Node root = new Node();
+
+	public JsonBindingPlan(Class type) {
+		this.type = type;
+
+		JsonAnnotationManager.TypeData typeData = JoddJson.annotationManager.lookupTypeData(type);
+		ClassDescriptor cd = ClassIntrospector.lookup(type);
+
+		for (PropertyDescriptor propertyDescriptor : cd.getAllPropertyDescriptors()) {
+			String name = propertyDescriptor.getName();
+
+			// both JSON name and real name are accepted, if real name is not used by other property
+
+			addKey(cd, typeData, typeData.resolveJsonName(name));
+			addKey(cd, typeData, name);
+		}
+	}
+
+	private void addKey(ClassDescriptor cd, JsonAnnotationManager.TypeData typeData, String key) {
+		if (find(key) != null) {
+			return;
+		}
+
+		PropertyDescriptor pd = cd.getPropertyDescriptor(typeData.resolveRealName(key), true);
+
+		if (pd == null) {
+			return;
+		}
+
+		Node node = root;
+
+		for (int i = 0; i < key.length(); i++) {
+			node = node.child(key.charAt(i), true);
+		}
+
+		node.property = new Property(pd, typeData.rules.match(key, !typeData.strict));
+	}
+
+	/**
+	 * Returns target type.
+	 */
+	public Class getType() {
+		return type;
+	}
+
+	// ---------------------------------------------------------------- trie
+
+	/**
+	 * Trie node. Child characters are sorted.
+	 */
+	protected static class Node {
+		protected char[] chars = new char[0];
+		protected Node[] children = new Node[0];
+		protected Property property;
+
+		protected Node child(char c, boolean create) {
+			int index = Arrays.binarySearch(chars, c);
+
+			if (index >= 0) {
+				return children[index];
+			}
+			if (!create) {
+				return null;
+			}
+
+			index = -index - 1;
+
+			char[] newChars = new char[chars.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+
+			System.arraycopy(chars, 0, newChars, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+			System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+			Node node = new Node();
+
+			newChars[index] = c;
+			newChildren[index] = node;
+
+			chars = newChars;
+			children = newChildren;
+
+			return node;
+		}
+	}
+
+	/**
+	 * Finds property for the key stored in the input chars.
+	 * Returns <code>null</code> if key does not match any property.
+	 */
+	public Property find(char[] input, int from, int to) {
+		Node node = root;
+
+		for (int i = from; i < to; i++) {
+			node = node.child(input[i], false);
+
+			if (node == null) {
+				return null;
+			}
+		}
+
+		return node.property;
+	}
+
+	/**
+	 * Finds property for the key.
+	 */
+	public Property find(String key) {
+		Node node = root;
+
+		for (int i = 0; i < key.length(); i++) {
+			node = node.child(key.charAt(i), false);
+
+			if (node == null) {
+				return null;
+			}
+		}
+
+		return node.property;
+	}
+
+	// ---------------------------------------------------------------- property
+
+	/**
+	 * Resolved bean property.
+	 */
+	public static class Property {
+		protected final PropertyDescriptor propertyDescriptor;
+		protected final boolean include;
+		protected final Class type;
+		protected final Class keyType;
+		protected final Class componentType;
+		protected final int kind;
+		protected final MethodHandle setter;
+
+		protected Property(PropertyDescriptor propertyDescriptor, boolean include) {
+			this.propertyDescriptor = propertyDescriptor;
+			this.include = include;
+			this.type = propertyDescriptor.getType();
+			this.keyType = propertyDescriptor.resolveKeyType(true);
+			this.componentType = propertyDescriptor.resolveComponentType(true);
+
+			MethodHandle methodHandle = resolveSetter(propertyDescriptor.getSetter(true));
+
+			int kind = KIND_OBJECT;
+
+			if (methodHandle != null) {
+				if (type == int.class) {
+					kind = KIND_INT;
+				}
+				else if (type == long.class) {
+					kind = KIND_LONG;
+				}
+				else if (type == double.class) {
+					kind = KIND_DOUBLE;
+				}
+				else if (type == boolean.class) {
+					kind = KIND_BOOLEAN;
+				}
+				else if (type == String.class) {
+					kind = KIND_STRING;
+				}
+			}
+
+			this.kind = kind;
+			this.setter = kind == KIND_OBJECT ? null :
+				methodHandle.asType(MethodType.methodType(void.class, Object.class, kind == KIND_STRING ? Object.class : type));
+		}
+
+		private MethodHandle resolveSetter(Setter setter) {
+			if (setter == null || setter.getSetterRawType() != type) {
+				return null;
+			}
+			try {
+				if (setter instanceof MethodDescriptor) {
+					return MethodHandles.lookup().unreflect(((MethodDescriptor) setter).getMethod());
+				}
+				if (setter instanceof FieldDescriptor) {
+					return MethodHandles.lookup().unreflectSetter(((FieldDescriptor) setter).getField());
+				}
+			} catch (IllegalAccessException ignore) {
+			}
+			return null;
+		}
+
+		/**
+		 * Returns <code>true</code> if property value should be injected.
+		 */
+		public boolean isIncluded() {
+			return include;
+		}
+
+		/**
+		 * Returns property kind, one of <code>KIND_*</code> constants.
+		 */
+		public int getKind() {
+			return kind;
+		}
+
+		public void setInt(Object target, int value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+
+		public void setLong(Object target, long value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+
+		public void setDouble(Object target, double value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+
+		public void setBoolean(Object target, boolean value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+
+		public void setObject(Object target, Object value) {
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable throwable) {
+				throw new JsonException(throwable);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,323 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * UTF-8 output of JSON writers. Characters are encoded directly into a byte
+ * buffer that is written to the <code>OutputStream</code> or
+ * <code>WritableByteChannel</code> when full, so no intermediate string is created.
+ * Strings are escaped in bulk runs using a lookup table for ASCII chars.
+ * Buffer is reused between flushes.
+ * @see JsonSerializer#serialize(Object, OutputStream)
+ */
+public class JsonByteOutput implements Appendable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * Escape table for ASCII chars: <code>0</code> if char is not escaped,
+	 * <code>'u'</code> for unicode escape, otherwise the escape char.
+	 */
+	private static final byte[] ESCAPES = new byte[128];
+
+	static {
+		for (int i = 0; i < 32; i++) {
+			ESCAPES[i] = 'u';
+		}
+		ESCAPES[127] = 'u';
+		ESCAPES['"'] = '"';
+		ESCAPES['\\'] = '\\';
+		ESCAPES['/'] = '/';
+		ESCAPES['\b'] = 'b';
+		ESCAPES['\f'] = 'f';
+		ESCAPES['\n'] = 'n';
+		ESCAPES['\r'] = 'r';
+		ESCAPES['\t'] = 't';
+	}
+
+	private static final byte[] HEX = {
+		'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+	};
+
+	protected final OutputStream outputStream;
+	protected final WritableByteChannel channel;
+	protected final byte[] buffer;
+	protected final ByteBuffer byteBuffer;
+	protected int pos;
+	protected char highSurrogate;
+
+	public JsonByteOutput(OutputStream outputStream) {
+		this(outputStream, DEFAULT_BUFFER_SIZE);
+	}
+
+	public JsonByteOutput(OutputStream outputStream, int bufferSize) {
+		this.outputStream = outputStream;
+		this.channel = null;
+		this.buffer = new byte[Math.max(bufferSize, 16)];
+		this.byteBuffer = null;
+	}
+
+	public JsonByteOutput(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	public JsonByteOutput(WritableByteChannel channel, int bufferSize) {
+		this.outputStream = null;
+		this.channel = channel;
+		this.buffer = new byte[Math.max(bufferSize, 16)];
+		this.byteBuffer = ByteBuffer.wrap(buffer);
+	}
+
+	// ---------------------------------------------------------------- appendable
+
+	@Override
+	public JsonByteOutput append(CharSequence charSequence) {
+		return append(charSequence, 0, charSequence.length());
+	}
+
+	@Override
+	public JsonByteOutput append(CharSequence charSequence, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = charSequence.charAt(i);
+
+			if (c < 0x80 && highSurrogate == 0) {
+				if (pos == buffer.length) {
+					flush();
+				}
+				buffer[pos++] = (byte) c;
+			}
+			else {
+				append(c);
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public JsonByteOutput append(char c) {
+		if (highSurrogate != 0) {
+			char high = highSurrogate;
+			highSurrogate = 0;
+
+			if (Character.isLowSurrogate(c)) {
+				writeCodePoint(Character.toCodePoint(high, c));
+				return this;
+			}
+			writeByte('?');
+		}
+
+		if (Character.isHighSurrogate(c)) {
+			highSurrogate = c;
+			return this;
+		}
+
+		writeChar(c);
+		return this;
+	}
+
+	// ---------------------------------------------------------------- write
+
+	/**
+	 * Writes pre-encoded UTF-8 bytes.
+	 */
+	public void write(byte[] bytes) {
+		write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes pre-encoded UTF-8 bytes.
+	 */
+	public void write(byte[] bytes, int offset, int length) {
+		if (length > buffer.length - pos) {
+			flush();
+
+			if (length > buffer.length) {
+				writeOut(bytes, offset, length);
+				return;
+			}
+		}
+		System.arraycopy(bytes, offset, buffer, pos, length);
+		pos += length;
+	}
+
+	/**
+	 * Writes quoted and escaped string. Escaping rules are the same
+	 * as in {@link JsonWriter#writeString(String)}.
+	 */
+	public void writeString(CharSequence value) {
+		writeByte('"');
+
+		int len = value.length();
+		int i = 0;
+
+		while (i < len) {
+
+			// bulk run of plain ASCII chars
+
+			int end = Math.min(len, i + (buffer.length - pos));
+
+			while (i < end) {
+				char c = value.charAt(i);
+				if (c >= 0x80 || ESCAPES[c] != 0) {
+					break;
+				}
+				buffer[pos++] = (byte) c;
+				i++;
+			}
+
+			if (i == len) {
+				break;
+			}
+			if (i == end) {
+				flush();
+				continue;
+			}
+
+			// char that has to be escaped or encoded
+
+			char c = value.charAt(i++);
+
+			if (c < 0x80) {
+				byte escape = ESCAPES[c];
+
+				if (escape == 'u') {
+					writeUnicodeEscape(c);
+				} else {
+					ensureCapacity(2);
+					buffer[pos++] = '\\';
+					buffer[pos++] = escape;
+				}
+			}
+			else if (Character.isISOControl(c)) {
+				writeUnicodeEscape(c);
+			}
+			else if (Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(value.charAt(i))) {
+				writeCodePoint(Character.toCodePoint(c, value.charAt(i++)));
+			}
+			else {
+				writeChar(c);
+			}
+		}
+
+		writeByte('"');
+	}
+
+	private void writeUnicodeEscape(char c) {
+		ensureCapacity(6);
+		buffer[pos++] = '\\';
+		buffer[pos++] = 'u';
+		buffer[pos++] = HEX[(c >> 12) & 0xF];
+		buffer[pos++] = HEX[(c >> 8) & 0xF];
+		buffer[pos++] = HEX[(c >> 4) & 0xF];
+		buffer[pos++] = HEX[c & 0xF];
+	}
+
+	private void writeByte(int b) {
+		if (pos == buffer.length) {
+			flush();
+		}
+		buffer[pos++] = (byte) b;
+	}
+
+	/**
+	 * Writes UTF-8 bytes of a BMP char. Unpaired surrogates are written as <code>'?'</code>.
+	 */
+	private void writeChar(char c) {
+		ensureCapacity(3);
+
+		if (c < 0x80) {
+			buffer[pos++] = (byte) c;
+		}
+		else if (c < 0x800) {
+			buffer[pos++] = (byte) (0xC0 | (c >> 6));
+			buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+		}
+		else if (Character.isSurrogate(c)) {
+			buffer[pos++] = '?';
+		}
+		else {
+			buffer[pos++] = (byte) (0xE0 | (c >> 12));
+			buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	private void writeCodePoint(int codePoint) {
+		ensureCapacity(4);
+		buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+		buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+		buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+	}
+
+	private void ensureCapacity(int count) {
+		if (pos + count > buffer.length) {
+			flush();
+		}
+	}
+
+	// ---------------------------------------------------------------- flush
+
+	/**
+	 * Writes buffered bytes to the target stream or channel.
+	 * Target itself is not flushed.
+	 */
+	public void flush() {
+		if (pos == 0) {
+			return;
+		}
+		writeOut(buffer, 0, pos);
+		pos = 0;
+	}
+
+	/**
+	 * Writes bytes to the target.
+	 */
+	protected void writeOut(byte[] bytes, int offset, int length) {
+		try {
+			if (outputStream != null) {
+				outputStream.write(bytes, offset, length);
+				return;
+			}
+
+			ByteBuffer bb = bytes == buffer ? byteBuffer : ByteBuffer.wrap(bytes);
+			bb.limit(offset + length);
+			bb.position(offset);
+
+			while (bb.hasRemaining()) {
+				channel.write(bb);
+			}
+		} catch (IOException ioex) {
+			throw new JsonException(ioex);
+		}
+	}
+
+}
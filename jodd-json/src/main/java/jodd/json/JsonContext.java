@@ -31,6 +31,7 @@ import jodd.util.ReflectUtil;
 import jodd.util.Wildcard;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import static jodd.util.StringPool.NULL;
@@ -42,11 +43,11 @@ public class JsonContext extends JsonWriter {
 
 	// ---------------------------------------------------------------- ctor
 
-	protected final JsonSerializer jsonSerializer;
+	protected JsonSerializer jsonSerializer;
 	protected final List<JsonValueContext> bag;
 	protected int bagSize = 0;
 	protected final Path path;
-	protected final boolean excludeNulls;
+	protected boolean excludeNulls;
 
 	public JsonContext(JsonSerializer jsonSerializer, Appendable appendable, boolean excludeNulls) {
 		super(appendable);
@@ -70,19 +71,77 @@ public class JsonContext extends JsonWriter {
 		return excludeNulls;
 	}
 
+	/**
+	 * Returns <code>true</code> if beans are serialized using
+	 * {@link jodd.json.CompiledBeanSerializer compiled serializers}.
+	 */
+	public boolean isCompiled() {
+		return jsonSerializer.compiled;
+	}
+
+	/**
+	 * Resets the context for new serialization, so it can be reused.
+	 */
+	protected void reset(JsonSerializer jsonSerializer, Appendable appendable, boolean excludeNulls) {
+		reset(appendable);
+		this.jsonSerializer = jsonSerializer;
+		this.excludeNulls = excludeNulls;
+		this.bagSize = 0;
+		this.lastValueContext = null;
+		this.visited = null;
+	}
+
+	/**
+	 * Releases all references to serialized values and the output.
+	 */
+	protected void release() {
+		for (JsonValueContext valueContext : bag) {
+			valueContext.reuse(null);
+		}
+		reset(null, null, false);
+	}
+
 	// ---------------------------------------------------------------- path and value context
 
+	/**
+	 * Number of values in the path up to which circular dependencies
+	 * are detected by scanning the path. For longer paths an identity
+	 * set of values is used.
+	 */
+	protected static final int MAX_SCANNED_VALUES = 16;
+
 	protected JsonValueContext lastValueContext = null;
+	protected IdentityHashMap<Object, Object> visited;
 
 	/**
 	 * Returns <code>true</code> if object has been already processed during the serialization.
 	 * Used to prevent circular dependencies. Objects are matched by identity.
+	 * Values of {@link JsonSerializer#acyclicTypes(Class[]) acyclic types} are not checked.
 	 */
 	public boolean pushValue(Object value) {
-		for (int i = 0; i < bagSize; i++) {
-			JsonValueContext valueContext = bag.get(i);
-			if (valueContext.getValue() == value) {
-				return true;
+		boolean acyclic = jsonSerializer.acyclicTypes != null && jsonSerializer.acyclicTypes.contains(value.getClass());
+
+		if (!acyclic) {
+			if (visited == null && bagSize >= MAX_SCANNED_VALUES) {
+				visited = new IdentityHashMap<>();
+
+				for (int i = 0; i < bagSize; i++) {
+					visited.put(bag.get(i).getValue(), value);
+				}
+			}
+
+			if (visited != null) {
+				if (visited.put(value, value) != null) {
+					return true;
+				}
+			}
+			else {
+				for (int i = 0; i < bagSize; i++) {
+					JsonValueContext valueContext = bag.get(i);
+					if (valueContext.getValue() == value) {
+						return true;
+					}
+				}
 			}
 		}
 
@@ -105,6 +164,9 @@ public class JsonContext extends JsonWriter {
 	 */
 	public void popValue() {
 		bagSize--;
+		if (visited != null) {
+			visited.remove(bag.get(bagSize).getValue());
+		}
 		if (bagSize == 0) {
 			lastValueContext = null;
 		} else {
@@ -0,0 +1,69 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.util.StringPool;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Pre-encoded constant JSON fragment, like a property name or a constant value.
+ * Fragment is written as it is, without any escaping. UTF-8 bytes are
+ * encoded once, so {@link JsonByteOutput} just copies them.
+ */
+public final class JsonFragment {
+
+	private final String text;
+	private final byte[] bytes;
+
+	public JsonFragment(String text) {
+		this.text = text;
+		try {
+			this.bytes = text.getBytes(StringPool.UTF_8);
+		} catch (UnsupportedEncodingException ueex) {
+			throw new JsonException(ueex);
+		}
+	}
+
+	/**
+	 * Returns fragment text.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns UTF-8 bytes of the fragment. Returned array must not be modified.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
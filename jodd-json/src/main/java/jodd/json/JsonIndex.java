@@ -0,0 +1,816 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.util.CharUtil;
+import jodd.util.StringPool;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Index of JSON values, used for lazy parsing. JSON is only scanned and
+ * validated (including escapes and numbers), and offsets of all values
+ * are stored in a compact index (a tape).
+ * Objects and arrays are returned as read-only <code>Map</code> and <code>List</code>
+ * views, while strings and numbers are decoded only when accessed. Values
+ * can be queried directly by paths like: <code>a.b[3].c</code>.
+ * When object has duplicate keys, the first one is used.
+ * @see JsonParser#lazy(boolean)
+ */
+public class JsonIndex {
+
+	protected static final int OBJECT = 1;
+	protected static final int ARRAY = 2;
+	protected static final int STRING = 3;
+	protected static final int STRING_ESCAPED = 4;
+	protected static final int NUMBER = 5;
+	protected static final int TRUE = 6;
+	protected static final int FALSE = 7;
+	protected static final int NULL = 8;
+
+	// entry slots
+	private static final int KIND = 0;
+	private static final int START = 1;
+	private static final int END = 2;
+	private static final int NEXT = 3;
+	private static final int SIZE = 4;
+	private static final int STRIDE = 5;
+
+	protected final char[] input;
+	protected int[] tape;
+	protected int count;
+
+	private int ndx;
+
+	public JsonIndex(char[] input) {
+		this.input = input;
+		this.tape = new int[Math.max(STRIDE * 16, input.length >> 2)];
+
+		skipWhiteSpaces();
+
+		if (ndx == input.length) {
+			syntaxError("End of JSON");
+		}
+
+		scanValue();
+
+		skipWhiteSpaces();
+
+		if (ndx != input.length) {
+			syntaxError("Trailing chars");
+		}
+	}
+
+	/**
+	 * Returns root value.
+	 */
+	public Object getRoot() {
+		return value(0);
+	}
+
+	/**
+	 * Returns value on given path, or <code>null</code> if value does not exist.
+	 * Path consists of property names separated by dots and array indexes
+	 * in brackets, e.g.: <code>a.b[3].c</code>.
+	 */
+	public Object getValue(String path) {
+		int entry = find(0, path);
+
+		if (entry == -1) {
+			return null;
+		}
+
+		return value(entry);
+	}
+
+	/**
+	 * Returns number of indexed values, including the object keys.
+	 */
+	public int size() {
+		return count;
+	}
+
+	// ---------------------------------------------------------------- scan
+
+	private int newEntry(int kind) {
+		int offset = count * STRIDE;
+
+		if (offset + STRIDE > tape.length) {
+			int[] newTape = new int[tape.length << 1];
+			System.arraycopy(tape, 0, newTape, 0, offset);
+			tape = newTape;
+		}
+
+		tape[offset + KIND] = kind;
+		tape[offset + START] = ndx;
+
+		return count++;
+	}
+
+	private void endEntry(int entry) {
+		int offset = entry * STRIDE;
+
+		tape[offset + END] = ndx;
+		tape[offset + NEXT] = count;
+	}
+
+	private void scanValue() {
+		if (ndx == input.length) {
+			syntaxError("End of JSON");
+		}
+
+		char c = input[ndx];
+
+		switch (c) {
+			case '{':
+				scanObject();
+				return;
+
+			case '[':
+				scanArray();
+				return;
+
+			case '"':
+				scanString();
+				return;
+
+			case '0':
+			case '1':
+			case '2':
+			case '3':
+			case '4':
+			case '5':
+			case '6':
+			case '7':
+			case '8':
+			case '9':
+			case '-':
+				scanNumber();
+				return;
+
+			case 't':
+				scanLiteral(TRUE, "true");
+				return;
+
+			case 'f':
+				scanLiteral(FALSE, "false");
+				return;
+
+			case 'n':
+				scanLiteral(NULL, "null");
+				return;
+		}
+
+		syntaxError("Invalid char: " + c);
+	}
+
+	private void scanObject() {
+		int entry = newEntry(OBJECT);
+		int size = 0;
+
+		ndx++;
+		skipWhiteSpaces();
+
+		if (charAt() == '}') {
+			ndx++;
+		}
+		else {
+			while (true) {
+				skipWhiteSpaces();
+
+				if (charAt() != '"') {
+					syntaxError("Invalid char: expected \"");
+				}
+
+				scanString();
+				skipWhiteSpaces();
+
+				if (charAt() != ':') {
+					syntaxError("Invalid char: expected :");
+				}
+				ndx++;
+
+				skipWhiteSpaces();
+				scanValue();
+				skipWhiteSpaces();
+
+				size++;
+
+				char c = charAt();
+
+				if (c == '}') {
+					ndx++;
+					break;
+				}
+				if (c != ',') {
+					syntaxError("Invalid char: expected } or ,");
+				}
+				ndx++;
+			}
+		}
+
+		endEntry(entry);
+		tape[entry * STRIDE + SIZE] = size;
+	}
+
+	private void scanArray() {
+		int entry = newEntry(ARRAY);
+		int size = 0;
+
+		ndx++;
+		skipWhiteSpaces();
+
+		if (charAt() == ']') {
+			ndx++;
+		}
+		else {
+			while (true) {
+				skipWhiteSpaces();
+				scanValue();
+				skipWhiteSpaces();
+
+				size++;
+
+				char c = charAt();
+
+				if (c == ']') {
+					ndx++;
+					break;
+				}
+				if (c != ',') {
+					syntaxError("Invalid char: expected ] or ,");
+				}
+				ndx++;
+			}
+		}
+
+		endEntry(entry);
+		tape[entry * STRIDE + SIZE] = size;
+	}
+
+	private void scanString() {
+		int entry = newEntry(STRING);
+
+		ndx++;
+
+		while (true) {
+			char c = charAt();
+
+			if (c == '"') {
+				break;
+			}
+
+			if (c == '\\') {
+				tape[entry * STRIDE + KIND] = STRING_ESCAPED;
+				ndx++;
+
+				switch (charAt()) {
+					case '"':
+					case '\\':
+					case '/':
+					case 'b':
+					case 'f':
+					case 'n':
+					case 'r':
+					case 't':
+						break;
+					case 'u':
+						for (int i = 0; i < 4; i++) {
+							ndx++;
+							if (!CharUtil.isHexDigit(charAt())) {
+								syntaxError("Invalid unicode escape: " + input[ndx]);
+							}
+						}
+						break;
+					default:
+						syntaxError("Invalid escape char: " + input[ndx]);
+				}
+			}
+			ndx++;
+		}
+
+		ndx++;
+		endEntry(entry);
+	}
+
+	/**
+	 * Scans the number: optional minus, digits with optional fraction
+	 * and optional exponent. Number must be followed by a delimiter.
+	 */
+	private void scanNumber() {
+		int entry = newEntry(NUMBER);
+
+		if (input[ndx] == '-') {
+			ndx++;
+		}
+
+		int digits = skipDigits();
+
+		if (ndx < input.length && input[ndx] == '.') {
+			ndx++;
+			digits += skipDigits();
+		}
+		if (digits == 0) {
+			syntaxError("Invalid number");
+		}
+
+		if (ndx < input.length && (input[ndx] == 'e' || input[ndx] == 'E')) {
+			ndx++;
+			if (ndx < input.length && (input[ndx] == '+' || input[ndx] == '-')) {
+				ndx++;
+			}
+			if (skipDigits() == 0) {
+				syntaxError("Invalid number");
+			}
+		}
+
+		if (ndx < input.length) {
+			char c = input[ndx];
+
+			if (!(c <= 32 || c == ',' || c == '}' || c == ']')) {
+				syntaxError("Invalid number");
+			}
+		}
+
+		endEntry(entry);
+	}
+
+	private int skipDigits() {
+		int start = ndx;
+
+		while (ndx < input.length && input[ndx] >= '0' && input[ndx] <= '9') {
+			ndx++;
+		}
+		return ndx - start;
+	}
+
+	private void scanLiteral(int kind, String literal) {
+		int entry = newEntry(kind);
+
+		for (int i = 0; i < literal.length(); i++) {
+			if (charAt() != literal.charAt(i)) {
+				syntaxError("Invalid char: " + input[ndx]);
+			}
+			ndx++;
+		}
+
+		endEntry(entry);
+	}
+
+	private char charAt() {
+		if (ndx >= input.length) {
+			syntaxError("End of JSON");
+		}
+		return input[ndx];
+	}
+
+	private void skipWhiteSpaces() {
+		while (ndx < input.length && input[ndx] <= 32) {
+			ndx++;
+		}
+	}
+
+	private void syntaxError(String message) {
+		int from = Math.max(0, ndx - 10);
+		int to = Math.min(input.length, ndx + 10);
+
+		throw new JsonException(
+				"Syntax error! " + message + "\n" +
+				"offset: " + ndx + " near: \"" + String.valueOf(input, from, to - from) + "\"");
+	}
+
+	// ---------------------------------------------------------------- decode
+
+	/**
+	 * Decodes the value of an entry.
+	 */
+	protected Object value(int entry) {
+		int offset = entry * STRIDE;
+		int start = tape[offset + START];
+		int end = tape[offset + END];
+
+		switch (tape[offset + KIND]) {
+			case OBJECT:
+				return new LazyMap(entry);
+			case ARRAY:
+				return new LazyList(entry);
+			case STRING:
+				return new String(input, start + 1, end - start - 2);
+			case STRING_ESCAPED:
+				return unescape(start + 1, end - 1);
+			case NUMBER:
+				return number(start, end);
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			default:
+				return null;
+		}
+	}
+
+	private Number number(int start, int end) {
+		boolean isDouble = false;
+		boolean isExp = false;
+
+		for (int i = start; i < end; i++) {
+			char c = input[i];
+
+			if (c == '.') {
+				isDouble = true;
+			}
+			else if (c == 'e' || c == 'E') {
+				isExp = true;
+			}
+		}
+
+		try {
+			return JsonParser.toNumber(new String(input, start, end - start), isDouble, isExp);
+		}
+		catch (NumberFormatException nfex) {
+			throw new JsonException("Invalid number", nfex);
+		}
+	}
+
+	private String unescape(int start, int end) {
+		StringBuilder sb = new StringBuilder(end - start);
+
+		for (int i = start; i < end; i++) {
+			char c = input[i];
+
+			if (c == '\\') {
+				c = input[++i];
+
+				switch (c) {
+					case 'b': c = '\b'; break;
+					case 'f': c = '\f'; break;
+					case 'n': c = '\n'; break;
+					case 'r': c = '\r'; break;
+					case 't': c = '\t'; break;
+					case 'u':
+						c = (char) (
+							(CharUtil.hex2int(input[i + 1]) << 12) +
+							(CharUtil.hex2int(input[i + 2]) << 8) +
+							(CharUtil.hex2int(input[i + 3]) << 4) +
+							CharUtil.hex2int(input[i + 4]));
+						i += 4;
+						break;
+				}
+			}
+			sb.append(c);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns <code>true</code> if key entry matches the key.
+	 */
+	private boolean matchKey(int entry, String key) {
+		int offset = entry * STRIDE;
+
+		if (tape[offset + KIND] == STRING_ESCAPED) {
+			return value(entry).equals(key);
+		}
+
+		int start = tape[offset + START] + 1;
+		int len = tape[offset + END] - start - 1;
+
+		if (len != key.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < len; i++) {
+			if (input[start + i] != key.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// ---------------------------------------------------------------- query
+
+	/**
+	 * Returns value entry of an object property, or <code>-1</code> if not found.
+	 */
+	protected int findProperty(int objectEntry, String key) {
+		int offset = objectEntry * STRIDE;
+
+		if (tape[offset + KIND] != OBJECT) {
+			return -1;
+		}
+
+		int size = tape[offset + SIZE];
+		int entry = objectEntry + 1;
+
+		for (int i = 0; i < size; i++) {
+			if (matchKey(entry, key)) {
+				return entry + 1;
+			}
+			entry = tape[(entry + 1) * STRIDE + NEXT];
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns entry of an array element, or <code>-1</code> if not found.
+	 */
+	protected int findElement(int arrayEntry, int index) {
+		int offset = arrayEntry * STRIDE;
+
+		if (tape[offset + KIND] != ARRAY || index < 0 || index >= tape[offset + SIZE]) {
+			return -1;
+		}
+
+		int entry = arrayEntry + 1;
+
+		for (int i = 0; i < index; i++) {
+			entry = tape[entry * STRIDE + NEXT];
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Finds entry on given path relative to the entry.
+	 */
+	protected int find(int entry, String path) {
+		int len = path.length();
+		int i = 0;
+
+		while (i < len && entry != -1) {
+			char c = path.charAt(i);
+
+			if (c == '.') {
+				i++;
+				continue;
+			}
+
+			if (c == '[') {
+				int close = path.indexOf(']', i);
+
+				if (close == -1) {
+					throw new JsonException("Invalid path: " + path);
+				}
+
+				int index;
+				try {
+					index = Integer.parseInt(path.substring(i + 1, close));
+				}
+				catch (NumberFormatException nfex) {
+					throw new JsonException("Invalid path: " + path, nfex);
+				}
+
+				entry = findElement(entry, index);
+				i = close + 1;
+				continue;
+			}
+
+			int nameEnd = i;
+
+			while (nameEnd < len) {
+				char n = path.charAt(nameEnd);
+
+				if (n == '.' || n == '[') {
+					break;
+				}
+				nameEnd++;
+			}
+
+			entry = findProperty(entry, path.substring(i, nameEnd));
+			i = nameEnd;
+		}
+
+		return entry;
+	}
+
+	// ---------------------------------------------------------------- views
+
+	/**
+	 * Read-only lazy map view of a JSON object.
+	 */
+	public class LazyMap extends AbstractMap<String, Object> {
+
+		protected final int entry;
+		protected final int size;
+		protected Set<Map.Entry<String, Object>> entrySet;
+
+		protected LazyMap(int entry) {
+			this.entry = entry;
+			this.size = tape[entry * STRIDE + SIZE];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && findProperty(entry, (String) key) != -1;
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (!(key instanceof String)) {
+				return null;
+			}
+
+			int valueEntry = findProperty(entry, (String) key);
+
+			if (valueEntry == -1) {
+				return null;
+			}
+
+			return value(valueEntry);
+		}
+
+		/**
+		 * Returns value on given path relative to this object.
+		 */
+		public Object getValue(String path) {
+			int valueEntry = find(entry, path);
+
+			if (valueEntry == -1) {
+				return null;
+			}
+
+			return value(valueEntry);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			if (entrySet == null) {
+				entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+					@Override
+					public Iterator<Map.Entry<String, Object>> iterator() {
+						return new EntryIterator();
+					}
+
+					@Override
+					public int size() {
+						return size;
+					}
+				};
+			}
+			return entrySet;
+		}
+
+		private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+			private int keyEntry = entry + 1;
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public Map.Entry<String, Object> next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+
+				final int currentKeyEntry = keyEntry;
+
+				keyEntry = tape[(keyEntry + 1) * STRIDE + NEXT];
+				index++;
+
+				return new Map.Entry<String, Object>() {
+					private String key;
+
+					@Override
+					public String getKey() {
+						if (key == null) {
+							key = (String) value(currentKeyEntry);
+						}
+						return key;
+					}
+
+					@Override
+					public Object getValue() {
+						return value(currentKeyEntry + 1);
+					}
+
+					@Override
+					public Object setValue(Object value) {
+						throw new UnsupportedOperationException();
+					}
+
+					@Override
+					public boolean equals(Object o) {
+						if (!(o instanceof Map.Entry)) {
+							return false;
+						}
+						Map.Entry e = (Map.Entry) o;
+						Object value = getValue();
+						return getKey().equals(e.getKey()) &&
+							(value == null ? e.getValue() == null : value.equals(e.getValue()));
+					}
+
+					@Override
+					public int hashCode() {
+						Object value = getValue();
+						return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+					}
+
+					@Override
+					public String toString() {
+						return getKey() + StringPool.EQUALS + getValue();
+					}
+				};
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+
+	/**
+	 * Read-only lazy list view of a JSON array.
+	 */
+	public class LazyList extends AbstractList<Object> {
+
+		protected final int entry;
+		protected final int size;
+		protected int[] elements;
+
+		protected LazyList(int entry) {
+			this.entry = entry;
+			this.size = tape[entry * STRIDE + SIZE];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Object get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+			}
+
+			if (elements == null) {
+				int[] elements = new int[size];
+				int element = entry + 1;
+
+				for (int i = 0; i < size; i++) {
+					elements[i] = element;
+					element = tape[element * STRIDE + NEXT];
+				}
+
+				this.elements = elements;
+			}
+
+			return value(elements[index]);
+		}
+
+		/**
+		 * Returns value on given path relative to this array.
+		 */
+		public Object getValue(String path) {
+			int valueEntry = find(entry, path);
+
+			if (valueEntry == -1) {
+				return null;
+			}
+
+			return value(valueEntry);
+		}
+	}
+
+}
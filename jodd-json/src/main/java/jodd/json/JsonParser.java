@@ -76,6 +76,9 @@ public class JsonParser extends JsonParserBase {
 	protected Class rootType;
 	protected MapToBean mapToBean;
 	protected boolean looseMode;
+	protected boolean compiled = JoddJson.compiledParsing;
+	protected boolean useBindingPlans;
+	protected boolean lazy;
 
 	public JsonParser() {
 		text = new char[512];
@@ -95,6 +98,10 @@ public class JsonParser extends JsonParserBase {
 		if (classMetadataName != null) {
 			mapToBean = createMapToBean(classMetadataName);
 		}
+
+		// binding plans are used only when there are no path rules
+		this.useBindingPlans =
+			compiled && mappings == null && convs == null && !useAltPaths && classMetadataName == null;
 	}
 
 	/**
@@ -119,6 +126,41 @@ public class JsonParser extends JsonParserBase {
 		return this;
 	}
 
+	/**
+	 * Enables usage of {@link JsonBindingPlan binding plans} when parsing into beans.
+	 * Binding plans are not used when there are path mappings or converters,
+	 * or when class meta-data name is used.
+	 */
+	public JsonParser compiled(boolean compiled) {
+		this.compiled = compiled;
+		return this;
+	}
+
+	/**
+	 * Enables lazy parsing. When enabled, JSON is only indexed and objects
+	 * and arrays are returned as lazy, read-only views provided by {@link JsonIndex}.
+	 * Lazy parsing is not used when target type, path mappings or converters
+	 * are set, in loose mode or when class meta-data name is used.
+	 */
+	public JsonParser lazy(boolean lazy) {
+		this.lazy = lazy;
+		return this;
+	}
+
+	/**
+	 * Indexes the input JSON for lazy reading of values.
+	 */
+	public JsonIndex index(String input) {
+		return new JsonIndex(UnsafeUtil.getChars(input));
+	}
+
+	/**
+	 * Indexes the input JSON for lazy reading of values.
+	 */
+	public JsonIndex index(char[] input) {
+		return new JsonIndex(input);
+	}
+
 	// ---------------------------------------------------------------- mappings
 
 	protected Map<Path, Class> mappings;
@@ -258,6 +300,10 @@ public class JsonParser extends JsonParserBase {
 
 
 	private <T> T _parse(char[] input) {
+		if (lazy && rootType == null && mappings == null && convs == null && !looseMode && classMetadataName == null) {
+			return (T) new JsonIndex(input).getRoot();
+		}
+
 		this.input = input;
 		this.total = input.length;
 
@@ -642,6 +688,15 @@ public class JsonParser extends JsonParserBase {
 
 		String value = String.valueOf(input, startIndex, ndx - startIndex);
 
+		return toNumber(value, isDouble, isExp);
+	}
+
+	/**
+	 * Converts number string to the number. Integer numbers are returned
+	 * as <code>Integer</code>, <code>Long</code> or <code>BigInteger</code>,
+	 * depending on the value.
+	 */
+	static Number toNumber(String value, boolean isDouble, boolean isExp) {
 		if (isDouble) {
 			return Double.valueOf(value);
 		}
@@ -770,6 +825,14 @@ public class JsonParser extends JsonParserBase {
 
 		targetType = replaceWithMappedTypeForPath(targetType);
 
+		if (useBindingPlans && targetType != null) {
+			JsonBindingPlan plan = JsonBindingPlan.lookup(targetType);
+
+			if (plan != null) {
+				return parseObjectContent(plan);
+			}
+		}
+
 		Object target;
 		boolean isTargetTypeMap = true;
 		boolean isTargetRealTypeMap = true;
@@ -920,6 +983,185 @@ public class JsonParser extends JsonParserBase {
 		return target;
 	}
 
+	/**
+	 * Parses object into a bean using the {@link JsonBindingPlan binding plan},
+	 * once when open bracket has been consumed. Keys are matched without
+	 * creating strings, simple values are parsed directly into the properties
+	 * and the path is not maintained.
+	 */
+	protected Object parseObjectContent(JsonBindingPlan plan) {
+		Object target = newObjectInstance(plan.type);
+
+		boolean koma = false;
+
+		mainloop:
+		while (true) {
+			skipWhiteSpaces();
+
+			char c = input[ndx];
+
+			if (c == '}') {
+				if (koma) {
+					syntaxError("Trailing comma");
+				}
+
+				ndx++;
+				break;
+			}
+
+			koma = false;
+
+			JsonBindingPlan.Property property = parseKey(plan);
+
+			skipWhiteSpaces();
+
+			consume(':');
+
+			skipWhiteSpaces();
+
+			if (property == null) {
+				parseValue(null, null, null);
+			}
+			else if (!property.include || !parsePropertyValue(target, property)) {
+				Object value = parseValue(property.type, property.keyType, property.componentType);
+
+				if (property.include) {
+					injectValueIntoObject(target, property.propertyDescriptor, value);
+				}
+			}
+
+			skipWhiteSpaces();
+
+			c = input[ndx];
+
+			switch (c) {
+				case '}': ndx++; break mainloop;
+				case ',': ndx++; koma = true; break;
+				default: syntaxError("Invalid char: expected } or ,");
+			}
+		}
+
+		return target;
+	}
+
+	/**
+	 * Parses a key and matches it to the property of a binding plan.
+	 * Keys without escapes are matched directly in the input.
+	 */
+	protected JsonBindingPlan.Property parseKey(JsonBindingPlan plan) {
+		if (input[ndx] == '\"') {
+			int startNdx = ndx + 1;
+
+			for (int i = startNdx; i < total; i++) {
+				char c = input[i];
+
+				if (c == '\"') {
+					ndx = i + 1;
+					return plan.find(input, startNdx, i);
+				}
+				if (c == '\\') {
+					break;
+				}
+			}
+		}
+
+		return plan.find(parseString());
+	}
+
+	/**
+	 * Parses simple value directly into the property. Returns <code>false</code>
+	 * if value can not be parsed this way, so it has to be parsed as usual.
+	 */
+	protected boolean parsePropertyValue(Object target, JsonBindingPlan.Property property) {
+		char c = input[ndx];
+
+		switch (property.kind) {
+			case JsonBindingPlan.KIND_INT:
+			case JsonBindingPlan.KIND_LONG:
+			case JsonBindingPlan.KIND_DOUBLE:
+				if ((c >= '0' && c <= '9') || c == '-') {
+					int startNdx = ndx;
+
+					boolean negative = c == '-';
+					if (negative) {
+						ndx++;
+					}
+
+					long number = 0;
+					int digits = 0;
+
+					while (ndx < total) {
+						c = input[ndx];
+						if (c < '0' || c > '9') {
+							break;
+						}
+						number = number * 10 + (c - '0');
+						digits++;
+						ndx++;
+					}
+
+					if (digits == 0 || digits > 18 || (ndx < total && !isNumberEnd(input[ndx]))) {
+						// not a simple integer number
+						ndx = startNdx;
+						return false;
+					}
+
+					if (negative) {
+						number = -number;
+					}
+
+					if (property.kind == JsonBindingPlan.KIND_INT) {
+						if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+							ndx = startNdx;
+							return false;
+						}
+						property.setInt(target, (int) number);
+					}
+					else if (property.kind == JsonBindingPlan.KIND_LONG) {
+						property.setLong(target, number);
+					}
+					else {
+						property.setDouble(target, number);
+					}
+					return true;
+				}
+				return false;
+
+			case JsonBindingPlan.KIND_BOOLEAN:
+				if (c == 't') {
+					ndx++;
+					if (match(T_RUE)) {
+						property.setBoolean(target, true);
+						return true;
+					}
+					syntaxError("Invalid char: " + input[ndx]);
+				}
+				if (c == 'f') {
+					ndx++;
+					if (match(F_ALSE)) {
+						property.setBoolean(target, false);
+						return true;
+					}
+					syntaxError("Invalid char: " + input[ndx]);
+				}
+				return false;
+
+			case JsonBindingPlan.KIND_STRING:
+				if (c == '\"') {
+					ndx++;
+					property.setObject(target, parseStringContent(c));
+					return true;
+				}
+				return false;
+		}
+
+		return false;
+	}
+
+	private static boolean isNumberEnd(char c) {
+		return c <= 32 || c == ',' || c == '}' || c == ']';
+	}
+
 	// ---------------------------------------------------------------- scanning tools
 
 	/**
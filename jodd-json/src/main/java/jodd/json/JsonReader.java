@@ -0,0 +1,643 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.util.CharUtil;
+import jodd.util.StringPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming, pull JSON reader. Reads JSON from a <code>Reader</code> through
+ * a small refillable buffer, so the input does not have to be in the memory.
+ * JSON is consumed token by token using {@link #peek()} and {@link #next()}.
+ * Any value, like an element of a huge array, can be read as a whole and
+ * mapped to a type using regular {@link JsonParser}, see
+ * {@link #readValue(JsonParser, Class)}. Note that parser paths
+ * are then relative to the value being read.
+ */
+public class JsonReader implements Closeable {
+
+	/**
+	 * JSON tokens.
+	 */
+	public enum Token {
+		START_OBJECT,
+		END_OBJECT,
+		START_ARRAY,
+		END_ARRAY,
+		NAME,
+		STRING,
+		NUMBER,
+		BOOLEAN,
+		NULL,
+		END
+	}
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_ARRAY = 2;
+	private static final int NONEMPTY_ARRAY = 3;
+	private static final int EMPTY_OBJECT = 4;
+	private static final int NONEMPTY_OBJECT = 5;
+	private static final int DANGLING_NAME = 6;
+
+	protected final Reader reader;
+	protected final char[] buffer;
+	protected int pos;
+	protected int limit;
+	protected long offset;
+
+	protected int[] scopes = new int[32];
+	protected int depth;
+
+	protected Token peeked;
+
+	protected char[] text = new char[64];
+	protected int textLen;
+	protected Token current;
+	protected boolean booleanValue;
+
+	public JsonReader(Reader reader) {
+		this(reader, 8192);
+	}
+
+	public JsonReader(Reader reader, int bufferSize) {
+		this.reader = reader;
+		this.buffer = new char[bufferSize];
+		this.scopes[depth++] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Creates reader for UTF-8 encoded input stream.
+	 */
+	public JsonReader(InputStream inputStream) {
+		this(createReader(inputStream, StringPool.UTF_8));
+	}
+
+	private static Reader createReader(InputStream inputStream, String encoding) {
+		try {
+			return new InputStreamReader(inputStream, encoding);
+		} catch (UnsupportedEncodingException ueex) {
+			throw new JsonException(ueex);
+		}
+	}
+
+	// ---------------------------------------------------------------- tokens
+
+	/**
+	 * Returns the type of the next token without consuming it.
+	 */
+	public Token peek() {
+		if (peeked != null) {
+			return peeked;
+		}
+
+		int scope = scopes[depth - 1];
+		int c;
+
+		switch (scope) {
+			case EMPTY_ARRAY:
+				scopes[depth - 1] = NONEMPTY_ARRAY;
+				c = nextNonWhitespace();
+				if (c == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+				break;
+
+			case NONEMPTY_ARRAY:
+				c = nextNonWhitespace();
+				if (c == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+				if (c != ',') {
+					syntaxError("Invalid char: expected ] or ,");
+				}
+				pos++;
+				c = nextNonWhitespace();
+				break;
+
+			case EMPTY_OBJECT:
+			case NONEMPTY_OBJECT:
+				c = nextNonWhitespace();
+				if (c == '}') {
+					return peeked = Token.END_OBJECT;
+				}
+				if (scope == NONEMPTY_OBJECT) {
+					if (c != ',') {
+						syntaxError("Invalid char: expected } or ,");
+					}
+					pos++;
+					c = nextNonWhitespace();
+					if (c == '}') {
+						syntaxError("Trailing comma");
+					}
+				}
+				if (c != '"') {
+					syntaxError("Invalid char: expected \"");
+				}
+				scopes[depth - 1] = NONEMPTY_OBJECT;
+				return peeked = Token.NAME;
+
+			case DANGLING_NAME:
+				c = nextNonWhitespace();
+				if (c != ':') {
+					syntaxError("Invalid char: expected :");
+				}
+				pos++;
+				scopes[depth - 1] = NONEMPTY_OBJECT;
+				c = nextNonWhitespace();
+				break;
+
+			case EMPTY_DOCUMENT:
+				scopes[depth - 1] = NONEMPTY_DOCUMENT;
+				c = nextNonWhitespace();
+				break;
+
+			default:
+				c = nextNonWhitespace();
+				if (c == -1) {
+					return peeked = Token.END;
+				}
+				syntaxError("Trailing chars");
+				return null;
+		}
+
+		return peeked = valueToken(c);
+	}
+
+	/**
+	 * Resolves value token from its first char.
+	 */
+	private Token valueToken(int c) {
+		switch (c) {
+			case '{': return Token.START_OBJECT;
+			case '[': return Token.START_ARRAY;
+			case '"': return Token.STRING;
+			case 't':
+			case 'f': return Token.BOOLEAN;
+			case 'n': return Token.NULL;
+			case '-':
+			case '0': case '1': case '2': case '3': case '4':
+			case '5': case '6': case '7': case '8': case '9':
+				return Token.NUMBER;
+			case -1:
+				syntaxError("End of JSON");
+				break;
+			default:
+				syntaxError("Invalid char: " + (char) c);
+		}
+		return null;
+	}
+
+	/**
+	 * Consumes the next token and returns its type. Values of names, strings,
+	 * numbers and booleans are then available using the getters.
+	 */
+	public Token next() {
+		Token token = peek();
+		peeked = null;
+		current = token;
+
+		switch (token) {
+			case START_OBJECT:
+				pos++;
+				push(EMPTY_OBJECT);
+				break;
+			case START_ARRAY:
+				pos++;
+				push(EMPTY_ARRAY);
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				pos++;
+				depth--;
+				break;
+			case NAME:
+				pos++;
+				readString();
+				scopes[depth - 1] = DANGLING_NAME;
+				break;
+			case STRING:
+				pos++;
+				readString();
+				break;
+			case NUMBER:
+				readNumber();
+				break;
+			case BOOLEAN:
+				booleanValue = buffer[pos] == 't';
+				matchLiteral(booleanValue ? "true" : "false");
+				break;
+			case NULL:
+				matchLiteral("null");
+				break;
+		}
+		return token;
+	}
+
+	/**
+	 * Returns <code>true</code> if there are more elements in current
+	 * array or object.
+	 */
+	public boolean hasNext() {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END;
+	}
+
+	/**
+	 * Returns current nesting depth. Depth of the root value content is <code>1</code>.
+	 */
+	public int getDepth() {
+		return depth - 1;
+	}
+
+	// ---------------------------------------------------------------- values
+
+	/**
+	 * Returns the name or string value of the last token.
+	 */
+	public String getString() {
+		if (current != Token.NAME && current != Token.STRING && current != Token.NUMBER) {
+			throw new JsonException("Not a string: " + current);
+		}
+		return new String(text, 0, textLen);
+	}
+
+	/**
+	 * Returns the number value of the last token.
+	 */
+	public Number getNumber() {
+		if (current != Token.NUMBER) {
+			throw new JsonException("Not a number: " + current);
+		}
+		boolean isDouble = false;
+		boolean isExp = false;
+		for (int i = 0; i < textLen; i++) {
+			char c = text[i];
+			if (c == '.') {
+				isDouble = true;
+			} else if (c == 'e' || c == 'E') {
+				isExp = true;
+			}
+		}
+		return JsonParser.toNumber(new String(text, 0, textLen), isDouble, isExp);
+	}
+
+	/**
+	 * Returns the boolean value of the last token.
+	 */
+	public boolean getBoolean() {
+		if (current != Token.BOOLEAN) {
+			throw new JsonException("Not a boolean: " + current);
+		}
+		return booleanValue;
+	}
+
+	/**
+	 * Reads next value as a whole and maps it to given type using provided parser.
+	 * Only the value is held in the memory.
+	 */
+	public <T> T readValue(JsonParser jsonParser, Class<T> type) {
+		char[] value = captureValue();
+		if (type == null) {
+			return jsonParser.parse(value);
+		}
+		return jsonParser.parse(value, type);
+	}
+
+	/**
+	 * Reads next value as a whole into the maps and lists.
+	 */
+	public <T> T readValue() {
+		return readValue(new JsonParser(), null);
+	}
+
+	/**
+	 * Skips the next value.
+	 */
+	public void skipValue() {
+		scanValue(false);
+	}
+
+	/**
+	 * Returns iterator over the elements of the next array. Elements are read
+	 * one by one as given type using provided parser.
+	 */
+	public <T> Iterator<T> iterateArray(final JsonParser jsonParser, final Class<T> type) {
+		if (next() != Token.START_ARRAY) {
+			throw new JsonException("Not an array: " + current);
+		}
+		return new Iterator<T>() {
+			public boolean hasNext() {
+				if (JsonReader.this.hasNext()) {
+					return true;
+				}
+				if (peek() == Token.END_ARRAY) {
+					JsonReader.this.next();
+				}
+				return false;
+			}
+
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return readValue(jsonParser, type);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	// ---------------------------------------------------------------- capture
+
+	protected char[] capture = new char[256];
+	protected int captureLen;
+
+	/**
+	 * Captures characters of the next value.
+	 */
+	protected char[] captureValue() {
+		captureLen = 0;
+		scanValue(true);
+		char[] value = new char[captureLen];
+		System.arraycopy(capture, 0, value, 0, captureLen);
+		return value;
+	}
+
+	/**
+	 * Scans the whole next value, optionally capturing its characters.
+	 */
+	protected void scanValue(boolean store) {
+		Token token = peek();
+		if (token == Token.END_OBJECT || token == Token.END_ARRAY || token == Token.END || token == Token.NAME) {
+			throw new JsonException("Not a value: " + token);
+		}
+		peeked = null;
+		current = null;
+
+		int level = 0;
+		boolean inString = false;
+
+		while (true) {
+			if (pos == limit && !fill()) {
+				if (level == 0 && !inString) {
+					return;
+				}
+				syntaxError("End of JSON");
+			}
+			char c = buffer[pos];
+
+			if (inString) {
+				pos++;
+				if (store) {
+					appendCapture(c);
+				}
+				if (c == '\\') {
+					if (pos == limit && !fill()) {
+						syntaxError("End of JSON");
+					}
+					c = buffer[pos++];
+					if (store) {
+						appendCapture(c);
+					}
+				} else if (c == '"') {
+					inString = false;
+					if (level == 0) {
+						return;
+					}
+				}
+				continue;
+			}
+
+			switch (c) {
+				case '"':
+					inString = true;
+					break;
+				case '{':
+				case '[':
+					level++;
+					break;
+				case '}':
+				case ']':
+					if (level == 0) {
+						return;
+					}
+					level--;
+					break;
+				case ',':
+					if (level == 0) {
+						return;
+					}
+					break;
+				default:
+					if (c <= 32 && level == 0) {
+						return;
+					}
+			}
+			pos++;
+			if (store) {
+				appendCapture(c);
+			}
+			if (level == 0 && (c == '}' || c == ']')) {
+				return;
+			}
+		}
+	}
+
+	private void appendCapture(char c) {
+		if (captureLen == capture.length) {
+			char[] newCapture = new char[capture.length << 1];
+			System.arraycopy(capture, 0, newCapture, 0, captureLen);
+			capture = newCapture;
+		}
+		capture[captureLen++] = c;
+	}
+
+	// ---------------------------------------------------------------- scanning
+
+	private void push(int scope) {
+		if (depth == scopes.length) {
+			int[] newScopes = new int[depth << 1];
+			System.arraycopy(scopes, 0, newScopes, 0, depth);
+			scopes = newScopes;
+		}
+		scopes[depth++] = scope;
+	}
+
+	/**
+	 * Refills the buffer. Returns <code>false</code> on the end of input.
+	 */
+	protected boolean fill() {
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		try {
+			int count;
+			do {
+				count = reader.read(buffer, 0, buffer.length);
+			} while (count == 0);
+
+			if (count == -1) {
+				return false;
+			}
+			limit = count;
+			return true;
+		} catch (IOException ioex) {
+			throw new JsonException(ioex);
+		}
+	}
+
+	/**
+	 * Skips whitespaces and returns next char without consuming it.
+	 * Returns <code>-1</code> on the end of input.
+	 */
+	private int nextNonWhitespace() {
+		while (true) {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			char c = buffer[pos];
+			if (c > 32) {
+				return c;
+			}
+			pos++;
+		}
+	}
+
+	private char nextChar() {
+		if (pos == limit && !fill()) {
+			syntaxError("End of JSON");
+		}
+		return buffer[pos++];
+	}
+
+	private void matchLiteral(String literal) {
+		for (int i = 0; i < literal.length(); i++) {
+			if (nextChar() != literal.charAt(i)) {
+				syntaxError("Invalid literal, expected: " + literal);
+			}
+		}
+	}
+
+	private void appendText(char c) {
+		if (textLen == text.length) {
+			char[] newText = new char[text.length << 1];
+			System.arraycopy(text, 0, newText, 0, textLen);
+			text = newText;
+		}
+		text[textLen++] = c;
+	}
+
+	/**
+	 * Reads string content, once when starting quote has been consumed.
+	 */
+	private void readString() {
+		textLen = 0;
+		while (true) {
+			char c = nextChar();
+
+			if (c == '"') {
+				return;
+			}
+
+			if (c == '\\') {
+				c = nextChar();
+				switch (c) {
+					case '\"' : break;
+					case '\\' : break;
+					case '/' : break;
+					case 'b' : c = '\b'; break;
+					case 'f' : c = '\f'; break;
+					case 'n' : c = '\n'; break;
+					case 'r' : c = '\r'; break;
+					case 't' : c = '\t'; break;
+					case 'u' :
+						int i0 = CharUtil.hex2int(nextChar());
+						int i1 = CharUtil.hex2int(nextChar());
+						int i2 = CharUtil.hex2int(nextChar());
+						int i3 = CharUtil.hex2int(nextChar());
+						c = (char) ((i0 << 12) + (i1 << 8) + (i2 << 4) + i3);
+						break;
+					default:
+						syntaxError("Invalid escape char: " + c);
+				}
+			}
+			appendText(c);
+		}
+	}
+
+	/**
+	 * Reads number characters.
+	 */
+	private void readNumber() {
+		textLen = 0;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return;
+			}
+			char c = buffer[pos];
+			if (c <= 32 || c == ',' || c == '}' || c == ']') {
+				return;
+			}
+			appendText(c);
+			pos++;
+		}
+	}
+
+	// ---------------------------------------------------------------- close
+
+	/**
+	 * Closes the underlying reader.
+	 */
+	public void close() throws IOException {
+		peeked = Token.END;
+		reader.close();
+	}
+
+	// ---------------------------------------------------------------- error
+
+	/**
+	 * Throws {@link jodd.json.JsonException} indicating a syntax error.
+	 */
+	protected void syntaxError(String message) {
+		String near = pos < limit ? String.valueOf(buffer, pos, Math.min(10, limit - pos)) : StringPool.EMPTY;
+
+		throw new JsonException(
+				"Syntax error! " + message + "\n" +
+				"offset: " + (offset + pos) + " near: \"" + near + "...\"");
+	}
+}
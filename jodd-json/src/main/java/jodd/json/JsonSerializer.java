@@ -30,8 +30,13 @@ import jodd.util.InExRules;
 import jodd.util.UnsafeUtil;
 import jodd.util.buffer.FastCharBuffer;
 
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * JSON serializer.
@@ -62,6 +67,9 @@ public class JsonSerializer {
 	protected Class[] excludedTypes = null;
 	protected String[] excludedTypeNames = null;
 	protected boolean excludeNulls = false;
+	protected boolean compiled = JoddJson.compiledSerialization;
+	protected boolean reuseContexts = JoddJson.reuseJsonContexts;
+	protected Set<Class> acyclicTypes = null;
 
 	/**
 	 * Defines custom {@link jodd.json.TypeJsonSerializer} for given path.
@@ -203,15 +211,77 @@ public class JsonSerializer {
 		return this;
 	}
 
+	/**
+	 * Defines if beans are serialized using {@link CompiledBeanSerializer compiled serializers}.
+	 */
+	public JsonSerializer compiled(boolean compiled) {
+		this.compiled = compiled;
+		return this;
+	}
+
+	/**
+	 * Defines if {@link JsonContext json contexts} are reused. When enabled,
+	 * each thread keeps a context that is reused for the next serialization.
+	 */
+	public JsonSerializer reuseContexts(boolean reuseContexts) {
+		this.reuseContexts = reuseContexts;
+		return this;
+	}
+
+	/**
+	 * Defines types that are trusted not to have circular dependencies.
+	 * Values of these types are not checked for circular dependencies,
+	 * what makes serialization faster.
+	 */
+	public JsonSerializer acyclicTypes(Class... types) {
+		if (acyclicTypes == null) {
+			acyclicTypes = new HashSet<>();
+		}
+		Collections.addAll(acyclicTypes, types);
+		return this;
+	}
+
 	// ---------------------------------------------------------------- serialize
 
 	/**
 	 * Serializes object into provided appendable.
 	 */
 	public void serialize(Object source, Appendable target) {
-		JsonContext jsonContext = new JsonContext(this, target, excludeNulls);
+		if (!reuseContexts) {
+			JsonContext jsonContext = new JsonContext(this, target, excludeNulls);
+
+			jsonContext.serialize(source);
+			return;
+		}
+
+		JsonContext jsonContext = acquireJsonContext(target);
 
 		jsonContext.serialize(source);
+
+		releaseJsonContext(jsonContext);
+	}
+
+	/**
+	 * Serializes object into the output stream as UTF-8 bytes.
+	 * Output stream is not flushed nor closed.
+	 */
+	public void serialize(Object source, OutputStream outputStream) {
+		JsonByteOutput jsonByteOutput = new JsonByteOutput(outputStream);
+
+		serialize(source, jsonByteOutput);
+
+		jsonByteOutput.flush();
+	}
+
+	/**
+	 * Serializes object into the channel as UTF-8 bytes.
+	 */
+	public void serialize(Object source, WritableByteChannel channel) {
+		JsonByteOutput jsonByteOutput = new JsonByteOutput(channel);
+
+		serialize(source, jsonByteOutput);
+
+		jsonByteOutput.flush();
 	}
 
 	/**
@@ -227,6 +297,35 @@ public class JsonSerializer {
 
 	// ---------------------------------------------------------------- json context
 
+	private static final ThreadLocal<JsonContext> JSON_CONTEXTS = new ThreadLocal<>();
+
+	/**
+	 * Returns thread's json context, if available. Otherwise, when context is in use
+	 * (i.e. in nested serialization), creates a new one.
+	 */
+	protected JsonContext acquireJsonContext(Appendable appendable) {
+		JsonContext jsonContext = JSON_CONTEXTS.get();
+
+		if (jsonContext == null) {
+			return new JsonContext(this, appendable, excludeNulls);
+		}
+
+		JSON_CONTEXTS.set(null);
+
+		jsonContext.reset(this, appendable, excludeNulls);
+
+		return jsonContext;
+	}
+
+	/**
+	 * Releases json context so it can be reused by the thread.
+	 */
+	protected void releaseJsonContext(JsonContext jsonContext) {
+		jsonContext.release();
+
+		JSON_CONTEXTS.set(jsonContext);
+	}
+
 	/**
 	 * Creates new JSON context.
 	 */
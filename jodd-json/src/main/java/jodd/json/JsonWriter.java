@@ -37,15 +37,30 @@ import static jodd.util.StringPool.NULL;
  */
 public class JsonWriter {
 
-	protected final Appendable out;
+	protected Appendable out;
+	protected JsonByteOutput byteOutput;
 
 	public JsonWriter(Appendable out) {
 		this.out = out;
+		this.byteOutput = out instanceof JsonByteOutput ? (JsonByteOutput) out : null;
+	}
+
+	/**
+	 * Resets the writer to the new output, so the writer can be reused.
+	 */
+	protected void reset(Appendable out) {
+		this.out = out;
+		this.byteOutput = out instanceof JsonByteOutput ? (JsonByteOutput) out : null;
+		this.pushedName = null;
+		this.pushedEncodedName = null;
+		this.pushedComma = false;
+		this.isPushed = false;
 	}
 
 	// ---------------------------------------------------------------- push
 
 	protected String pushedName;
+	protected JsonFragment pushedEncodedName;
 	protected boolean pushedComma;
 	protected boolean isPushed;
 
@@ -56,10 +71,21 @@ public class JsonWriter {
 	 */
 	public void pushName(String name, boolean withComma) {
 		pushedName = name;
+		pushedEncodedName = null;
 		pushedComma = withComma;
 		isPushed = true;
 	}
 
+	/**
+	 * Stores name together with its already encoded form, i.e. quoted
+	 * and escaped name followed by a colon. Encoded name is written
+	 * as it is, without escaping.
+	 */
+	public void pushName(String name, JsonFragment encodedName, boolean withComma) {
+		pushName(name, withComma);
+		pushedEncodedName = encodedName;
+	}
+
 	/**
 	 * Writes stored name to JSON string. Cleans storage.
 	 */
@@ -69,9 +95,15 @@ public class JsonWriter {
 				writeComma();
 			}
 			String name = pushedName;
+			JsonFragment encodedName = pushedEncodedName;
 			pushedName = null;
+			pushedEncodedName = null;
 			isPushed = false;
-			writeName(name);
+			if (encodedName != null) {
+				writeFragment(encodedName);
+			} else {
+				writeName(name);
+			}
 		}
 	}
 
@@ -137,6 +169,11 @@ public class JsonWriter {
 	public void writeString(String value) {
 		popName();
 
+		if (byteOutput != null) {
+			byteOutput.writeString(value);
+			return;
+		}
+
 		write(StringPool.QUOTE);
 
 		int len = value.length();
@@ -205,6 +242,23 @@ public class JsonWriter {
 		write(',');
 	}
 
+	/**
+	 * Writes pre-encoded JSON fragment as it is.
+	 */
+	public void writeFragment(JsonFragment fragment) {
+		popName();
+
+		if (byteOutput != null) {
+			byteOutput.write(fragment.getBytes());
+			return;
+		}
+		try {
+			out.append(fragment.getText());
+		} catch (IOException ioex) {
+			throw new JsonException(ioex);
+		}
+	}
+
 	/**
 	 * Appends char sequence to the buffer. Used for numbers, nulls, booleans, etc.
 	 */
@@ -183,6 +183,7 @@ public class TypeJsonSerializerMap {
 	public void register(Class type, TypeJsonSerializer typeJsonSerializer) {
 		map.put(type, typeJsonSerializer);
 		cache.clear();
+		CompiledBeanSerializer.clearCache();
 	}
 
 	/**
@@ -26,6 +26,7 @@
 package jodd.json.impl;
 
 import jodd.json.BeanSerializer;
+import jodd.json.CompiledBeanSerializer;
 import jodd.json.JsonContext;
 
 /**
@@ -38,8 +39,13 @@ public class ObjectJsonSerializer extends ValueJsonSerializer<Object> {
 	public void serializeValue(final JsonContext jsonContext, Object value) {
 		jsonContext.writeOpenObject();
 
-		BeanSerializer beanVisitor = new BeanSerializer(jsonContext, value);
-		beanVisitor.serialize();
+		if (jsonContext.isCompiled()) {
+			CompiledBeanSerializer.lookup(value.getClass()).serialize(jsonContext, value);
+		}
+		else {
+			BeanSerializer beanVisitor = new BeanSerializer(jsonContext, value);
+			beanVisitor.serialize();
+		}
 
 		jsonContext.writeCloseObject();
 	}
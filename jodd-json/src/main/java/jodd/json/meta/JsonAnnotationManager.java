@@ -25,7 +25,9 @@
 
 package jodd.json.meta;
 
+import jodd.json.CompiledBeanSerializer;
 import jodd.json.JoddJson;
+import jodd.json.JsonBindingPlan;
 import jodd.introspector.ClassDescriptor;
 import jodd.introspector.ClassIntrospector;
 import jodd.introspector.FieldDescriptor;
@@ -113,6 +115,8 @@ public class JsonAnnotationManager {
 	 */
 	public void reset() {
 		typeDataMap.clear();
+		CompiledBeanSerializer.clearCache();
+		JsonBindingPlan.clearCache();
 	}
 
 	/**
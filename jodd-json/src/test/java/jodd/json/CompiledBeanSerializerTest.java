@@ -0,0 +1,133 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.json.meta.JSON;
+import jodd.json.mock.Location;
+import jodd.json.mock.Person;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompiledBeanSerializerTest {
+
+	public static class Item {
+		private final String name;
+		private final int count;
+		private final double price;
+		private final boolean active;
+		private final transient String secret = "secret";
+		private final Item parent;
+		private final int[] codes = {1, 2};
+
+		public Item(String name, int count, double price, boolean active, Item parent) {
+			this.name = name;
+			this.count = count;
+			this.price = price;
+			this.active = active;
+			this.parent = parent;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public String getSecret() {
+			return secret;
+		}
+
+		public Item getParent() {
+			return parent;
+		}
+
+		@JSON(name = "ids")
+		public int[] getCodes() {
+			return codes;
+		}
+	}
+
+	@Test
+	public void testSameOutput() {
+		Item item = new Item("a\"b", 3, 1.5, true, new Item("root", 1, 0, false, null));
+
+		assertSameOutput(item, JsonSerializer.create());
+		assertSameOutput(item, JsonSerializer.create().deep(true));
+		assertSameOutput(item, JsonSerializer.create().excludeNulls(true));
+		assertSameOutput(item, JsonSerializer.create().exclude("parent.name").include("codes"));
+		assertSameOutput(item, JsonSerializer.create().excludeTypes(String.class));
+		assertSameOutput(item, JsonSerializer.create().setClassMetadataName("__class"));
+
+		Location location = new Location();
+		location.setLatitude(10);
+		location.setLongitude(-20);
+
+		assertSameOutput(location, JsonSerializer.create());
+
+		Person person = new DataCreator().createJodder();
+
+		assertSameOutput(person, JsonSerializer.create());
+		assertSameOutput(person, JsonSerializer.create().deep(true));
+		assertSameOutput(person, JsonSerializer.create().include("phones").exclude("home"));
+	}
+
+	@Test
+	public void testCompiled() {
+		Item item = new Item("name", 3, 1.5, true, null);
+
+		String json = JsonSerializer.create().compiled(true).serialize(item);
+
+		assertEquals("{\"active\":true,\"ids\":[1,2],\"count\":3,\"name\":\"name\",\"parent\":null,\"price\":1.5}", json);
+	}
+
+	@Test
+	public void testCircularDependency() {
+		JsonSerializerTest.White white = new JsonSerializerTest.White();
+		JsonSerializerTest.Black black = new JsonSerializerTest.Black();
+		white.setBlack(black);
+		black.setWhite(white);
+
+		assertSameOutput(white, JsonSerializer.create());
+	}
+
+	private void assertSameOutput(Object value, JsonSerializer jsonSerializer) {
+		String expected = jsonSerializer.compiled(false).serialize(value);
+		String json = jsonSerializer.compiled(true).serialize(value);
+
+		assertEquals(expected, json);
+	}
+}
@@ -0,0 +1,216 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.json.meta.JSON;
+import jodd.json.mock.Location;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonBindingPlanTest {
+
+	public static class Data {
+		private int count;
+		private long total;
+		private double ratio;
+		private boolean active;
+		private String name;
+		private Integer boxed;
+		@JSON(name = "secret_code", include = false)
+		private String code;
+		private List<Location> locations;
+		private Map<String, Integer> scores;
+		private Data child;
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public void setTotal(long total) {
+			this.total = total;
+		}
+
+		public double getRatio() {
+			return ratio;
+		}
+
+		public void setRatio(double ratio) {
+			this.ratio = ratio;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Integer getBoxed() {
+			return boxed;
+		}
+
+		public void setBoxed(Integer boxed) {
+			this.boxed = boxed;
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		public void setCode(String code) {
+			this.code = code;
+		}
+
+		public List<Location> getLocations() {
+			return locations;
+		}
+
+		public void setLocations(List<Location> locations) {
+			this.locations = locations;
+		}
+
+		public Map<String, Integer> getScores() {
+			return scores;
+		}
+
+		public void setScores(Map<String, Integer> scores) {
+			this.scores = scores;
+		}
+
+		public Data getChild() {
+			return child;
+		}
+
+		public void setChild(Data child) {
+			this.child = child;
+		}
+	}
+
+	private static final String JSON =
+		"{\"count\" : -12, \"total\":12345678901234, \"ratio\":2.5, \"active\":true, \"name\":\"n\\\"ame\"," +
+		"\"boxed\":7, \"secret_code\":\"x\", \"unknown\":{\"a\":[1,2]}, \"locations\":[{\"lat\":1,\"lng\":2}]," +
+		"\"scores\":{\"a\":1}, \"na\\u006De2\":\"escaped\", \"child\":{\"count\":\"3\", \"ratio\":1e2, \"total\":5}}";
+
+	@Test
+	public void testParse() {
+		Data data = new JsonParser().compiled(true).parse(JSON, Data.class);
+
+		assertEquals(-12, data.getCount());
+		assertEquals(12345678901234L, data.getTotal());
+		assertEquals(2.5, data.getRatio(), 0.0001);
+		assertTrue(data.isActive());
+		assertEquals("n\"ame", data.getName());
+		assertEquals(Integer.valueOf(7), data.getBoxed());
+		assertNull(data.getCode());
+		assertEquals(1, data.getLocations().size());
+		assertEquals(1, data.getLocations().get(0).getLatitude());
+		assertEquals(2, data.getLocations().get(0).getLongitude());
+		assertEquals(Integer.valueOf(1), data.getScores().get("a"));
+
+		assertNotNull(data.getChild());
+		assertEquals(3, data.getChild().getCount());
+		assertEquals(100.0, data.getChild().getRatio(), 0.0001);
+	}
+
+	@Test
+	public void testSameAsRegularParsing() {
+		assertEquals(parseCount("{\"count\":2147483648}", false), parseCount("{\"count\":2147483648}", true));
+		assertEquals(parseCount("{\"count\":12345678901234567890}", false), parseCount("{\"count\":12345678901234567890}", true));
+		assertEquals(parseCount("{\"count\":-0}", false), parseCount("{\"count\":-0}", true));
+
+		Data data1 = new JsonParser().parse(JSON, Data.class);
+		Data data2 = new JsonParser().compiled(true).parse(JSON, Data.class);
+
+		JsonSerializer jsonSerializer = JsonSerializer.create().deep(true);
+
+		assertEquals(jsonSerializer.serialize(data1), jsonSerializer.serialize(data2));
+	}
+
+	private String parseCount(String json, boolean compiled) {
+		try {
+			return String.valueOf(new JsonParser().compiled(compiled).parse(json, Data.class).getCount());
+		} catch (JsonException ex) {
+			return "error";
+		}
+	}
+
+	@Test
+	public void testPlan() {
+		JsonBindingPlan plan = JsonBindingPlan.lookup(Location.class);
+
+		assertNotNull(plan.find("lat"));
+		assertNotNull(plan.find("latitude"));
+		assertNotNull(plan.find("lng"));
+		assertNull(plan.find("la"));
+		assertNull(plan.find("unknown"));
+		assertEquals(JsonBindingPlan.KIND_INT, plan.find("lng").getKind());
+
+		char[] input = "xxlatxx".toCharArray();
+		assertNotNull(plan.find(input, 2, 5));
+
+		assertNull(JsonBindingPlan.lookup(Map.class));
+	}
+
+	@Test
+	public void testPathRulesDisablePlans() {
+		Data data = new JsonParser()
+			.compiled(true)
+			.map("child", Data.class)
+			.use("name", new ValueConverter<String, String>() {
+				@Override
+				public String convert(String value) {
+					return value.toUpperCase();
+				}
+			})
+			.parse(JSON, Data.class);
+
+		assertEquals("N\"AME", data.getName());
+	}
+}
@@ -0,0 +1,113 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.json.mock.Person;
+import jodd.util.StringUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonByteOutputTest {
+
+	@Test
+	public void testWriteString() throws Exception {
+		assertString("");
+		assertString("hello");
+		assertString("\"quoted\" \\ / \b\f\n\r\t \u0001 \u007f");
+		assertString("čćžšđ € \u0085 中文");
+		assertString("emoji 😀!");
+		assertString("lonely \ud83d high and \ude00 low");
+		assertString(StringUtil.repeat("longé\"", 1000));
+	}
+
+	private void assertString(String value) throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		JsonByteOutput jsonByteOutput = new JsonByteOutput(baos, 16);
+
+		new JsonWriter(jsonByteOutput).writeString(value);
+		jsonByteOutput.flush();
+
+		StringBuilder sb = new StringBuilder();
+		new JsonWriter(sb).writeString(value);
+
+		assertEquals(new String(sb.toString().getBytes("UTF-8"), "UTF-8"), baos.toString("UTF-8"));
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		JsonByteOutput jsonByteOutput = new JsonByteOutput(baos, 16);
+
+		jsonByteOutput.append("abc é €").append('\ud83d').append('\ude00').append("x", 0, 1);
+		jsonByteOutput.flush();
+
+		assertEquals("abc é €😀x", baos.toString("UTF-8"));
+	}
+
+	@Test
+	public void testFragment() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		JsonByteOutput jsonByteOutput = new JsonByteOutput(baos, 16);
+		JsonWriter jsonWriter = new JsonWriter(jsonByteOutput);
+
+		JsonFragment name = new JsonFragment("\"näme\":");
+		JsonFragment value = new JsonFragment(StringUtil.repeat("1", 40));
+
+		jsonWriter.writeOpenObject();
+		jsonWriter.pushName("name", name, false);
+		jsonWriter.writeFragment(value);
+		jsonWriter.writeCloseObject();
+		jsonByteOutput.flush();
+
+		assertEquals("{\"näme\":" + value.getText() + "}", baos.toString("UTF-8"));
+	}
+
+	@Test
+	public void testSerialize() throws Exception {
+		Person person = new DataCreator().createJodder();
+
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("person", person);
+		map.put("text", "život 😀");
+
+		JsonSerializer jsonSerializer = JsonSerializer.create().deep(true);
+		String expected = jsonSerializer.serialize(map);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		jsonSerializer.serialize(map, baos);
+		assertEquals(expected, baos.toString("UTF-8"));
+
+		baos = new ByteArrayOutputStream();
+		jsonSerializer.compiled(true).serialize(map, Channels.newChannel(baos));
+		assertEquals(expected, baos.toString("UTF-8"));
+	}
+}
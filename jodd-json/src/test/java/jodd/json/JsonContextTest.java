@@ -0,0 +1,161 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class JsonContextTest {
+
+	public static class Node {
+		private final int id;
+		private Node next;
+		private final List<Node> children = new ArrayList<>();
+
+		public Node(int id) {
+			this.id = id;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public Node getNext() {
+			return next;
+		}
+
+		public List<Node> getChildren() {
+			return children;
+		}
+	}
+
+	private Node createChain(int depth, boolean circular) {
+		Node head = new Node(0);
+		Node node = head;
+		for (int i = 1; i < depth; i++) {
+			node.next = new Node(i);
+			node = node.next;
+		}
+		if (circular) {
+			node.next = head;
+		}
+		return head;
+	}
+
+	private String expectedChain(int depth) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			sb.append("{\"id\":").append(i).append(",\"next\":");
+		}
+		sb.append("null");
+		for (int i = 0; i < depth; i++) {
+			sb.append('}');
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testDeepCircularDependency() {
+		JsonSerializer jsonSerializer = JsonSerializer.create();
+
+		assertEquals(expectedChain(3), jsonSerializer.serialize(createChain(3, false)));
+		assertEquals(expectedChain(100), jsonSerializer.serialize(createChain(100, false)));
+
+		// circular reference to the head is skipped
+
+		String json = jsonSerializer.serialize(createChain(100, true));
+		assertEquals(expectedChain(100).replace(",\"next\":null", ""), json);
+	}
+
+	@Test
+	public void testSharedValuesAreNotCircular() {
+		Node shared = createChain(20, false);
+		Node root = new Node(-1);
+		for (int i = 0; i < 3; i++) {
+			Node child = new Node(i);
+			child.next = shared;
+			root.children.add(child);
+		}
+
+		String json = JsonSerializer.create().deep(true).serialize(root);
+
+		assertEquals(3, json.split("\"id\":19,").length - 1);
+	}
+
+	@Test
+	public void testAcyclicTypes() {
+		Node node = createChain(50, false);
+
+		String expected = JsonSerializer.create().serialize(node);
+		String json = JsonSerializer.create().acyclicTypes(Node.class).serialize(node);
+
+		assertEquals(expected, json);
+	}
+
+	@Test
+	public void testReuseContexts() {
+		final JsonSerializer jsonSerializer = JsonSerializer.create().reuseContexts(true);
+
+		Node node = createChain(30, true);
+
+		String json1 = jsonSerializer.serialize(node);
+		JsonContext jsonContext1 = jsonSerializer.acquireJsonContext(null);
+		jsonSerializer.releaseJsonContext(jsonContext1);
+
+		String json2 = jsonSerializer.serialize(node);
+		JsonContext jsonContext2 = jsonSerializer.acquireJsonContext(null);
+
+		assertEquals(json1, json2);
+		assertEquals(JsonSerializer.create().serialize(node), json2);
+		assertSame(jsonContext1, jsonContext2);
+
+		// context in use is not shared
+
+		assertNotSame(jsonContext2, jsonSerializer.acquireJsonContext(null));
+		jsonSerializer.releaseJsonContext(jsonContext2);
+
+		// nested serialization
+
+		JsonSerializer nestedSerializer = JsonSerializer.create()
+			.reuseContexts(true)
+			.use(Node.class, new TypeJsonSerializer<Node>() {
+				@Override
+				public boolean serialize(JsonContext jsonContext, Node value) {
+					jsonContext.writeString(jsonSerializer.serialize(value.getId()));
+					return true;
+				}
+			});
+
+		assertEquals("\"7\"", nestedSerializer.serialize(new Node(7)));
+		assertEquals("\"8\"", nestedSerializer.serialize(new Node(8)));
+	}
+}
@@ -0,0 +1,138 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonIndexTest {
+
+	private static final String JSON =
+		"{\"a\" : {\"b\": [0, 1.5, -2, {\"c\": \"value\", \"e\\\"sc\": \"x\\ty\\u0041\"}, [], {}]}," +
+		" \"t\": true, \"f\": false, \"n\": null, \"big\": 123456789012345678901234567890," +
+		" \"long\": 12345678901234, \"exp\": 1e3, \"empty\": \"\"}";
+
+	@Test
+	public void testLazyViews() {
+		Map<String, Object> eager = new JsonParser().parse(JSON);
+		Map<String, Object> lazy = new JsonParser().lazy(true).parse(JSON);
+
+		assertTrue(lazy instanceof JsonIndex.LazyMap);
+		assertEquals(eager, lazy);
+		assertEquals(lazy, eager);
+		assertEquals(eager.hashCode(), lazy.hashCode());
+		assertEquals(eager.size(), lazy.size());
+
+		Map a = (Map) lazy.get("a");
+		List b = (List) a.get("b");
+
+		assertEquals(6, b.size());
+		assertEquals(Integer.valueOf(0), b.get(0));
+		assertEquals(Double.valueOf(1.5), b.get(1));
+		assertEquals("x\tyA", ((Map) b.get(3)).get("e\"sc"));
+		assertTrue(lazy.containsKey("n"));
+		assertFalse(lazy.containsKey("x"));
+		assertNull(lazy.get("n"));
+	}
+
+	@Test
+	public void testPathQueries() {
+		JsonIndex jsonIndex = new JsonParser().index(JSON);
+
+		assertEquals("value", jsonIndex.getValue("a.b[3].c"));
+		assertEquals("x\tyA", jsonIndex.getValue("a.b[3].e\"sc"));
+		assertEquals(Integer.valueOf(-2), jsonIndex.getValue("a.b[2]"));
+		assertEquals(Boolean.TRUE, jsonIndex.getValue("t"));
+		assertEquals(Long.valueOf(12345678901234L), jsonIndex.getValue("long"));
+		assertEquals(Integer.valueOf(1000), jsonIndex.getValue("exp"));
+		assertEquals("", jsonIndex.getValue("empty"));
+		assertEquals(0, ((List) jsonIndex.getValue("a.b[4]")).size());
+
+		assertNull(jsonIndex.getValue("a.b[6]"));
+		assertNull(jsonIndex.getValue("a.x.c"));
+		assertNull(jsonIndex.getValue("t.x"));
+
+		JsonIndex.LazyMap a = (JsonIndex.LazyMap) jsonIndex.getValue("a");
+		assertEquals("value", a.getValue("b[3].c"));
+
+		JsonIndex.LazyList list = (JsonIndex.LazyList) new JsonParser().lazy(true).parse("[[1, [2, 3]]]");
+		assertEquals(Integer.valueOf(3), list.getValue("[0][1][1]"));
+	}
+
+	@Test
+	public void testRootValues() {
+		assertEquals("text", new JsonParser().lazy(true).parse("  \"text\" "));
+		assertEquals(Integer.valueOf(7), new JsonParser().lazy(true).parse("7"));
+		assertNull(new JsonParser().lazy(true).parse("null"));
+	}
+
+	@Test
+	public void testNumbersAndEscapes() {
+		String json = "[0, -12, 1.5, -0.25e+2, 2E-2, 3e4, \"\\u017eaba\\u0020\"]";
+
+		List eager = new JsonParser().parse(json);
+		List lazy = new JsonParser().lazy(true).parse(json);
+
+		assertEquals(eager, lazy);
+		assertEquals("\u017eaba ", lazy.get(6));
+	}
+
+	@Test
+	public void testSyntaxErrors() {
+		assertSyntaxError("");
+		assertSyntaxError("{");
+		assertSyntaxError("{\"a\" 1}");
+		assertSyntaxError("{\"a\":1,}");
+		assertSyntaxError("[1 2]");
+		assertSyntaxError("[1,]");
+		assertSyntaxError("[tru]");
+		assertSyntaxError("\"\\x\"");
+		assertSyntaxError("{} 1");
+		assertSyntaxError("\"\\u12\"");
+		assertSyntaxError("\"\\u12g4\"");
+		assertSyntaxError("12abc");
+		assertSyntaxError("[1.2.3]");
+		assertSyntaxError("[-]");
+		assertSyntaxError("[1e]");
+		assertSyntaxError("{\"a\":1-2}");
+	}
+
+	private void assertSyntaxError(String json) {
+		try {
+			new JsonParser().lazy(true).parse(json);
+			fail(json);
+		} catch (JsonException ignore) {
+		}
+	}
+}
@@ -0,0 +1,162 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.json;
+
+import jodd.json.mock.Location;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonReaderTest {
+
+	@Test
+	public void testTokens() {
+		JsonReader jsonReader = new JsonReader(new StringReader(
+				"{\"a\" : [1, -2.5, \"x\\ny\", true, false, null], \"b\":{}, \"c\":[]}"), 4);
+
+		assertEquals(JsonReader.Token.START_OBJECT, jsonReader.next());
+		assertEquals(JsonReader.Token.NAME, jsonReader.next());
+		assertEquals("a", jsonReader.getString());
+		assertEquals(JsonReader.Token.START_ARRAY, jsonReader.next());
+		assertEquals(JsonReader.Token.NUMBER, jsonReader.next());
+		assertEquals(Integer.valueOf(1), jsonReader.getNumber());
+		assertEquals(JsonReader.Token.NUMBER, jsonReader.next());
+		assertEquals(Double.valueOf(-2.5), jsonReader.getNumber());
+		assertEquals(JsonReader.Token.STRING, jsonReader.next());
+		assertEquals("x\ny", jsonReader.getString());
+		assertEquals(JsonReader.Token.BOOLEAN, jsonReader.next());
+		assertTrue(jsonReader.getBoolean());
+		assertEquals(JsonReader.Token.BOOLEAN, jsonReader.next());
+		assertFalse(jsonReader.getBoolean());
+		assertEquals(JsonReader.Token.NULL, jsonReader.next());
+		assertFalse(jsonReader.hasNext());
+		assertEquals(JsonReader.Token.END_ARRAY, jsonReader.next());
+
+		assertEquals(JsonReader.Token.NAME, jsonReader.next());
+		assertEquals("b", jsonReader.getString());
+		assertEquals(JsonReader.Token.START_OBJECT, jsonReader.next());
+		assertEquals(JsonReader.Token.END_OBJECT, jsonReader.next());
+
+		assertEquals(JsonReader.Token.NAME, jsonReader.next());
+		assertEquals("c", jsonReader.getString());
+		assertEquals(JsonReader.Token.START_ARRAY, jsonReader.next());
+		assertEquals(JsonReader.Token.END_ARRAY, jsonReader.next());
+
+		assertEquals(JsonReader.Token.END_OBJECT, jsonReader.next());
+		assertEquals(JsonReader.Token.END, jsonReader.next());
+	}
+
+	@Test
+	public void testSkipAndReadValue() {
+		JsonReader jsonReader = new JsonReader(new StringReader(
+				"{\"skip\":{\"x\":[1,{\"y\":\"]}\"}]}, \"value\" : {\"k\" : [1, 2]}, \"last\": 7}"), 8);
+
+		jsonReader.next();
+		jsonReader.next();
+		assertEquals("skip", jsonReader.getString());
+		jsonReader.skipValue();
+
+		jsonReader.next();
+		assertEquals("value", jsonReader.getString());
+		Map<String, Object> map = jsonReader.readValue();
+		assertEquals(1, map.size());
+		assertEquals(2, ((List) map.get("k")).size());
+
+		jsonReader.next();
+		assertEquals("last", jsonReader.getString());
+		jsonReader.next();
+		assertEquals(Integer.valueOf(7), jsonReader.getNumber());
+
+		assertEquals(JsonReader.Token.END_OBJECT, jsonReader.next());
+		assertEquals(JsonReader.Token.END, jsonReader.peek());
+	}
+
+	@Test
+	public void testIterateArray() throws Exception {
+		StringBuilder json = new StringBuilder("{\"locations\":[");
+		for (int i = 0; i < 1000; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"lat\":").append(i).append(", \"lng\":").append(-i).append('}');
+		}
+		json.append("]}");
+
+		JsonReader jsonReader = new JsonReader(new ByteArrayInputStream(json.toString().getBytes("UTF-8")));
+
+		jsonReader.next();
+		jsonReader.next();
+		assertEquals("locations", jsonReader.getString());
+
+		Iterator<Location> iterator = jsonReader.iterateArray(new JsonParser(), Location.class);
+
+		int count = 0;
+		while (iterator.hasNext()) {
+			Location location = iterator.next();
+			assertEquals(count, location.getLatitude());
+			assertEquals(-count, location.getLongitude());
+			count++;
+		}
+		assertEquals(1000, count);
+		assertEquals(JsonReader.Token.END_OBJECT, jsonReader.next());
+		jsonReader.close();
+	}
+
+	@Test
+	public void testRootValue() {
+		JsonReader jsonReader = new JsonReader(new StringReader(" \"hello\" "));
+		assertEquals("hello", jsonReader.readValue());
+		assertEquals(JsonReader.Token.END, jsonReader.peek());
+	}
+
+	@Test
+	public void testSyntaxErrors() {
+		assertSyntaxError("{\"a\":1,}");
+		assertSyntaxError("[1 2]");
+		assertSyntaxError("{\"a\" 1}");
+		assertSyntaxError("[tru]");
+		assertSyntaxError("[1");
+	}
+
+	private void assertSyntaxError(String json) {
+		JsonReader jsonReader = new JsonReader(new StringReader(json));
+		try {
+			while (jsonReader.next() != JsonReader.Token.END) {
+			}
+			fail();
+		} catch (JsonException ignore) {
+		}
+	}
+}
@@ -25,11 +25,14 @@
 
 package jodd.csselly;
 
+import jodd.cache.Cache;
+import jodd.cache.ConcurrentCache;
 import jodd.util.StringUtil;
 import jodd.util.UnsafeUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -99,6 +102,64 @@ public class CSSelly {
 		return selectors;
 	}
 
+	// ---------------------------------------------------------------- cache
+
+	/**
+	 * Default size of the cache of parsed queries.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private static int cacheSize = DEFAULT_CACHE_SIZE;
+	private static volatile Cache<String, List<List<CssSelector>>> cache = new ConcurrentCache<>(cacheSize);
+
+	/**
+	 * Returns size of the cache of parsed queries.
+	 */
+	public static int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets size of the cache of parsed queries. Cache is disabled
+	 * when size is <code>0</code>.
+	 */
+	public static void setCacheSize(int cacheSize) {
+		CSSelly.cacheSize = cacheSize;
+		CSSelly.cache = cacheSize > 0 ? new ConcurrentCache<String, List<List<CssSelector>>>(cacheSize) : null;
+	}
+
+	/**
+	 * Parses string of selectors, like {@link #parse(String)} does, but
+	 * returns cached results for already parsed queries. Returned selectors
+	 * are shared between threads and must not be modified.
+	 */
+	public static List<List<CssSelector>> parseCached(String query) {
+		Cache<String, List<List<CssSelector>>> queryCache = cache;
+
+		if (queryCache == null) {
+			return parse(query);
+		}
+
+		List<List<CssSelector>> selectors = queryCache.get(query);
+
+		if (selectors == null) {
+			selectors = parse(query);
+
+			for (int i = 0; i < selectors.size(); i++) {
+				List<CssSelector> cssSelectors = selectors.get(i);
+				if (cssSelectors != null) {
+					selectors.set(i, Collections.unmodifiableList(cssSelectors));
+				}
+			}
+
+			selectors = Collections.unmodifiableList(selectors);
+
+			queryCache.put(query, selectors);
+		}
+
+		return selectors;
+	}
+
 	// ---------------------------------------------------------------- toString
 
 	/**
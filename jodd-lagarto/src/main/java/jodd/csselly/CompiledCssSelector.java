@@ -0,0 +1,294 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.csselly;
+
+import jodd.csselly.selector.AttributeSelector;
+import jodd.csselly.selector.Match;
+import jodd.csselly.selector.PseudoClass;
+import jodd.csselly.selector.PseudoClassSelector;
+import jodd.csselly.selector.PseudoFunction;
+import jodd.csselly.selector.PseudoFunctionExpression;
+import jodd.csselly.selector.PseudoFunctionSelector;
+import jodd.lagarto.dom.Node;
+import jodd.lagarto.dom.NodeFilter;
+import jodd.util.StringPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled form of the {@link CssSelector}. Selector is converted
+ * into a flat program of simple checks: element name, id and class
+ * names are compared directly, attributes are looked up without
+ * name conversions and expressions of <code>nth</code> pseudo functions
+ * are evaluated in place. Cheaper checks are performed first.
+ * Compiled selector matches the same nodes as {@link CssSelector#accept(Node)}.
+ */
+public class CompiledCssSelector implements NodeFilter {
+
+	private static final String ID = "id";
+	private static final String CLASS = "class";
+
+	private static final int OP_ELEMENT = 1;
+	private static final int OP_ID = 2;
+	private static final int OP_CLASS = 3;
+	private static final int OP_ATTRIBUTE_EXIST = 4;
+	private static final int OP_ATTRIBUTE = 5;
+	private static final int OP_NTH_CHILD = 6;
+	private static final int OP_NTH_LAST_CHILD = 7;
+	private static final int OP_NTH_OF_TYPE = 8;
+	private static final int OP_NTH_LAST_OF_TYPE = 9;
+	private static final int OP_PSEUDO_CLASS = 10;
+	private static final int OP_PSEUDO_FUNCTION = 11;
+
+	protected final int[] ops;
+	protected final Object[] operands;
+	protected final Object[] values;
+
+	public CompiledCssSelector(CssSelector cssSelector) {
+		List<Instruction> instructions = new ArrayList<>();
+
+		String element = cssSelector.getElement();
+		if (!element.equals(StringPool.STAR)) {
+			instructions.add(new Instruction(OP_ELEMENT, element, null));
+		}
+
+		int totalSelectors = cssSelector.selectorsCount();
+		for (int i = 0; i < totalSelectors; i++) {
+			instructions.add(compile(cssSelector.getSelector(i)));
+		}
+
+		// stable sort by the instruction cost, so cheap checks goes first
+		List<Instruction> sorted = new ArrayList<>(instructions.size());
+		for (int op = OP_ELEMENT; op <= OP_PSEUDO_FUNCTION; op++) {
+			for (Instruction instruction : instructions) {
+				if (instruction.op == op) {
+					sorted.add(instruction);
+				}
+			}
+		}
+
+		int total = sorted.size();
+
+		this.ops = new int[total];
+		this.operands = new Object[total];
+		this.values = new Object[total];
+
+		for (int i = 0; i < total; i++) {
+			Instruction instruction = sorted.get(i);
+			ops[i] = instruction.op;
+			operands[i] = instruction.operand;
+			values[i] = instruction.value;
+		}
+	}
+
+	/**
+	 * Single check of the program.
+	 */
+	private static class Instruction {
+		final int op;
+		final Object operand;
+		final Object value;
+
+		Instruction(int op, Object operand, Object value) {
+			this.op = op;
+			this.operand = operand;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Compiles single selector into an instruction.
+	 */
+	private Instruction compile(Selector selector) {
+		switch (selector.getType()) {
+			case ATTRIBUTE:
+				AttributeSelector attributeSelector = (AttributeSelector) selector;
+
+				String name = attributeSelector.getName();
+				String value = attributeSelector.getValue();
+				Match match = attributeSelector.getMatch();
+
+				if (value == null) {
+					return new Instruction(OP_ATTRIBUTE_EXIST, name, null);
+				}
+				if (match == Match.EQUALS && name.equals(ID)) {
+					return new Instruction(OP_ID, value, null);
+				}
+				if (match == Match.INCLUDES && name.equals(CLASS) && value.length() != 0 && value.indexOf(' ') == -1) {
+					return new Instruction(OP_CLASS, value, null);
+				}
+				return new Instruction(OP_ATTRIBUTE, name, new Object[] {match, value});
+
+			case PSEUDO_CLASS:
+				PseudoClass pseudoClass = ((PseudoClassSelector) selector).getPseudoClass();
+
+				return new Instruction(OP_PSEUDO_CLASS, pseudoClass, null);
+
+			case PSEUDO_FUNCTION:
+				PseudoFunctionSelector<?> pseudoFunctionSelector = (PseudoFunctionSelector<?>) selector;
+				Class<?> pseudoFunctionType = pseudoFunctionSelector.getPseudoFunction().getClass();
+
+				int op = 0;
+				if (pseudoFunctionType == PseudoFunction.NTH_CHILD.class) {
+					op = OP_NTH_CHILD;
+				} else if (pseudoFunctionType == PseudoFunction.NTH_LAST_CHILD.class) {
+					op = OP_NTH_LAST_CHILD;
+				} else if (pseudoFunctionType == PseudoFunction.NTH_OF_TYPE.class) {
+					op = OP_NTH_OF_TYPE;
+				} else if (pseudoFunctionType == PseudoFunction.NTH_LAST_OF_TYPE.class) {
+					op = OP_NTH_LAST_OF_TYPE;
+				}
+
+				if (op == 0) {
+					return new Instruction(OP_PSEUDO_FUNCTION, pseudoFunctionSelector, null);
+				}
+
+				return new Instruction(op, pseudoFunctionSelector.getParsedExpression(), null);
+		}
+
+		throw new CSSellyException("Unsupported selector: " + selector.getType());
+	}
+
+	// ---------------------------------------------------------------- match
+
+	/**
+	 * Accepts single node.
+	 */
+	public boolean accept(Node node) {
+		if (node.getNodeType() != Node.NodeType.ELEMENT) {
+			return false;
+		}
+
+		for (int i = 0; i < ops.length; i++) {
+			switch (ops[i]) {
+				case OP_ELEMENT:
+					if (!operands[i].equals(node.getNodeName())) {
+						return false;
+					}
+					break;
+				case OP_ID:
+					String value = attributeValue(node, ID);
+					if (value == null || !value.equals(operands[i])) {
+						return false;
+					}
+					break;
+				case OP_CLASS:
+					value = attributeValue(node, CLASS);
+					if (value == null || !containsWord(value, (String) operands[i])) {
+						return false;
+					}
+					break;
+				case OP_ATTRIBUTE_EXIST:
+					if (!node.hasAttribute((String) operands[i])) {
+						return false;
+					}
+					break;
+				case OP_ATTRIBUTE:
+					value = attributeValue(node, (String) operands[i]);
+					if (value == null) {
+						return false;
+					}
+					Object[] matchValue = (Object[]) values[i];
+					if (!((Match) matchValue[0]).compare(value, (String) matchValue[1])) {
+						return false;
+					}
+					break;
+				case OP_NTH_CHILD:
+					if (!((PseudoFunctionExpression) operands[i]).match(node.getSiblingElementIndex() + 1)) {
+						return false;
+					}
+					break;
+				case OP_NTH_LAST_CHILD:
+					int nth = node.getParentNode().getChildElementsCount() - node.getSiblingElementIndex();
+					if (!((PseudoFunctionExpression) operands[i]).match(nth)) {
+						return false;
+					}
+					break;
+				case OP_NTH_OF_TYPE:
+					if (!((PseudoFunctionExpression) operands[i]).match(node.getSiblingNameIndex() + 1)) {
+						return false;
+					}
+					break;
+				case OP_NTH_LAST_OF_TYPE:
+					Node child = node.getParentNode().getLastChildElement(node.getNodeName());
+					nth = child.getSiblingNameIndex() + 1 - node.getSiblingNameIndex();
+					if (!((PseudoFunctionExpression) operands[i]).match(nth)) {
+						return false;
+					}
+					break;
+				case OP_PSEUDO_CLASS:
+					if (!((PseudoClass) operands[i]).match(node)) {
+						return false;
+					}
+					break;
+				case OP_PSEUDO_FUNCTION:
+					if (!((PseudoFunctionSelector<?>) operands[i]).accept(node)) {
+						return false;
+					}
+					break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns value of the attribute with exact name. Attribute instances
+	 * are not accessed, so compact DOM attributes are not materialized.
+	 */
+	private static String attributeValue(Node node, String name) {
+		if (!node.hasAttribute(name)) {
+			return null;
+		}
+		return node.getAttribute(name);
+	}
+
+	/**
+	 * Returns <code>true</code> if value, as a list of words separated
+	 * by a space, contains given word. Does not split the value.
+	 */
+	private static boolean containsWord(String value, String word) {
+		int wordLength = word.length();
+		int from = 0;
+
+		while (true) {
+			int ndx = value.indexOf(word, from);
+
+			if (ndx == -1) {
+				return false;
+			}
+
+			int end = ndx + wordLength;
+
+			if ((ndx == 0 || value.charAt(ndx - 1) == ' ') && (end == value.length() || value.charAt(end) == ' ')) {
+				return true;
+			}
+
+			from = ndx + 1;
+		}
+	}
+
+}
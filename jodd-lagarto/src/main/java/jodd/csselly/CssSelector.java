@@ -133,26 +133,31 @@ public class CssSelector implements NodeFilter {
 	public void addIdSelector(String id) {
 		id = unescape(id);
 		selectors.add(new AttributeSelector(ID, EQUALS, id));
+		compiledCssSelector = null;
 	}
 
 	public void addClassSelector(String clazz) {
 		clazz = unescape(clazz);
 		selectors.add(new AttributeSelector(CLASS, INCLUDES, clazz));
+		compiledCssSelector = null;
 	}
 
 	public void addAttributeSelector(String attribute) {
 		attribute = unescape(attribute);
 		selectors.add(new AttributeSelector(attribute));
+		compiledCssSelector = null;
 	}
 
 	// ---------------------------------------------------------------- pseudo class
 
 	public void addPseudoClassSelector(String pseudoClass) {
 		selectors.add(new PseudoClassSelector(pseudoClass));
+		compiledCssSelector = null;
 	}
 
 	public void addPseudoFunctionSelector(String pseudoFunction, String expression) {
 		selectors.add(new PseudoFunctionSelector(pseudoFunction, expression));
+		compiledCssSelector = null;
 	}
 
 	// ---------------------------------------------------------------- string
@@ -267,6 +272,47 @@ public class CssSelector implements NodeFilter {
 	}
 
 
+	/**
+	 * Returns <code>true</code> if some pseudo selector matches nodes
+	 * {@link #accept(List, Node, int) within current results}.
+	 */
+	public boolean isPositional() {
+		for (Selector selector : selectors) {
+			switch (selector.getType()) {
+				case PSEUDO_CLASS:
+					if (((PseudoClassSelector) selector).getPseudoClass().isPositional()) {
+						return true;
+					}
+					break;
+				case PSEUDO_FUNCTION:
+					if (((PseudoFunctionSelector) selector).getPseudoFunction().isPositional()) {
+						return true;
+					}
+					break;
+				default:
+			}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- compile
+
+	protected CompiledCssSelector compiledCssSelector;
+
+	/**
+	 * Returns {@link CompiledCssSelector compiled form} of this selector.
+	 * Selector is compiled once, on first usage.
+	 */
+	public CompiledCssSelector compile() {
+		CompiledCssSelector compiled = compiledCssSelector;
+
+		if (compiled == null) {
+			compiled = new CompiledCssSelector(this);
+			compiledCssSelector = compiled;
+		}
+		return compiled;
+	}
+
 	// ---------------------------------------------------------------- post process
 
 	/**
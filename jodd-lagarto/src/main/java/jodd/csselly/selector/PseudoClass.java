@@ -25,6 +25,7 @@
 
 package jodd.csselly.selector;
 
+import jodd.csselly.CSSellyException;
 import jodd.lagarto.dom.Node;
 
 import java.util.List;
@@ -424,6 +425,25 @@ public abstract class PseudoClass {
 		return true;
 	}
 
+	private final boolean positional = resolvePositional();
+
+	private boolean resolvePositional() {
+		try {
+			return getClass().getMethod("match", List.class, Node.class, int.class).getDeclaringClass() != PseudoClass.class;
+		} catch (NoSuchMethodException nsmex) {
+			throw new CSSellyException(nsmex);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if pseudo-class matches nodes within current
+	 * results, like <code>:first</code> does. Result of such pseudo-classes
+	 * depends on the order of selection.
+	 */
+	public boolean isPositional() {
+		return positional;
+	}
+
 	/**
 	 * Returns pseudo-class name from simple class name.
 	 */
@@ -25,6 +25,7 @@
 
 package jodd.csselly.selector;
 
+import jodd.csselly.CSSellyException;
 import jodd.lagarto.dom.Node;
 import jodd.util.StringUtil;
 
@@ -233,6 +234,25 @@ public abstract class PseudoFunction<E> {
 		return true;
 	}
 
+	private final boolean positional = resolvePositional();
+
+	private boolean resolvePositional() {
+		try {
+			return getClass().getMethod("match", List.class, Node.class, int.class, Object.class).getDeclaringClass() != PseudoFunction.class;
+		} catch (NoSuchMethodException nsmex) {
+			throw new CSSellyException(nsmex);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if pseudo-function matches nodes within current
+	 * results, like <code>:eq()</code> does. Result of such pseudo-functions
+	 * depends on the order of selection.
+	 */
+	public boolean isPositional() {
+		return positional;
+	}
+
 	/**
 	 * Returns pseudo-function name.
 	 */
@@ -0,0 +1,426 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.jerry;
+
+import jodd.io.StreamUtil;
+import jodd.lagarto.LagartoException;
+import jodd.lagarto.LagartoParser;
+import jodd.lagarto.dom.Document;
+import jodd.lagarto.dom.LagartoDOMBuilder;
+import jodd.lagarto.dom.LagartoDomBuilderConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses many documents in parallel, using a fork-join pool, and extracts
+ * a result from each document using {@link Jerry}. Each pool thread reuses
+ * its own parser, DOM builder and content buffer, while all of them
+ * share the same {@link LagartoDomBuilderConfig configuration}.
+ * <p>
+ * Results are streamed out by the {@link Results iterator}. Documents are
+ * taken from the sources only when there is room for them: at most
+ * {@link #maxInFlight(int) max in-flight} documents are parsed or
+ * waiting to be consumed at any time. Results may be returned in the order
+ * of sources or in the order of completion.
+ */
+public class JerryBatch<T> {
+
+	/**
+	 * Source of a single document.
+	 */
+	public interface Source {
+
+		/**
+		 * Opens the reader of the document content.
+		 */
+		Reader open() throws IOException;
+	}
+
+	/**
+	 * Extracts the result from a single parsed document.
+	 * Invoked concurrently, from the pool threads.
+	 */
+	public interface Extractor<T> {
+
+		/**
+		 * Returns the result for the parsed document.
+		 */
+		T extract(Jerry doc);
+	}
+
+	// ---------------------------------------------------------------- sources
+
+	/**
+	 * Creates document source from a string.
+	 */
+	public static Source source(final String content) {
+		return new Source() {
+			public Reader open() {
+				return new StringReader(content);
+			}
+		};
+	}
+
+	/**
+	 * Creates document source from the bytes in given encoding.
+	 */
+	public static Source source(final byte[] content, final String encoding) {
+		return new Source() {
+			public Reader open() throws IOException {
+				return new InputStreamReader(new ByteArrayInputStream(content), encoding);
+			}
+		};
+	}
+
+	/**
+	 * Creates document source from a file in given encoding.
+	 */
+	public static Source source(final File file, final String encoding) {
+		return new Source() {
+			public Reader open() throws IOException {
+				return new InputStreamReader(new FileInputStream(file), encoding);
+			}
+		};
+	}
+
+	// ---------------------------------------------------------------- ctor
+
+	protected static final int BUFFER_SIZE = 64 * 1024;
+	protected static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	protected final Extractor<T> extractor;
+	protected final LagartoDomBuilderConfig config;
+	protected final ThreadLocal<Worker> workers;
+	protected ForkJoinPool pool;
+	protected boolean ordered = true;
+	protected int maxInFlight;
+
+	/**
+	 * Creates batch with default HTML configuration.
+	 */
+	public JerryBatch(Extractor<T> extractor) {
+		this(new LagartoDOMBuilder().getConfig(), extractor);
+	}
+
+	/**
+	 * Creates batch with given DOM builder configuration. Configuration
+	 * must not be changed while documents are being parsed.
+	 */
+	public JerryBatch(LagartoDomBuilderConfig config, Extractor<T> extractor) {
+		this.config = config;
+		this.extractor = extractor;
+		this.workers = new ThreadLocal<Worker>() {
+			@Override
+			protected Worker initialValue() {
+				return new Worker();
+			}
+		};
+	}
+
+	/**
+	 * Sets the pool used for parsing. By default, each processing
+	 * creates its own pool and shuts it down when done.
+	 */
+	public JerryBatch<T> pool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * Defines if results are returned in the order of sources (default)
+	 * or as soon as they are available.
+	 */
+	public JerryBatch<T> ordered(boolean ordered) {
+		this.ordered = ordered;
+		return this;
+	}
+
+	/**
+	 * Sets the maximal number of documents that are parsed or wait
+	 * to be consumed. By default it is four times the pool parallelism.
+	 */
+	public JerryBatch<T> maxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+
+	// ---------------------------------------------------------------- process
+
+	/**
+	 * Starts processing of documents and returns the results.
+	 */
+	public Results process(Iterable<? extends Source> sources) {
+		return process(sources.iterator());
+	}
+
+	/**
+	 * Starts processing of documents and returns the results.
+	 * Sources are consumed lazily, from the thread that consumes the results.
+	 */
+	public Results process(Iterator<? extends Source> sources) {
+		return new Results(sources);
+	}
+
+	/**
+	 * Results of the batch processing, available as soon as possible.
+	 * Failure of a single document is thrown by {@link #next()} as
+	 * <code>LagartoException</code> (or as extractor's runtime exception);
+	 * iteration may continue with the next document. Errors, like
+	 * <code>OutOfMemoryError</code>, are thrown unchanged. Results should be
+	 * {@link #close() closed} if iteration stops before the end.
+	 */
+	public class Results implements Iterator<T>, Closeable {
+
+		protected final Iterator<? extends Source> sources;
+		protected final ForkJoinPool executor;
+		protected final boolean ownExecutor;
+		protected final int limit;
+		protected final ArrayDeque<Future<ParseTask>> pending;
+		protected final ExecutorCompletionService<ParseTask> completionService;
+		protected int inFlight;
+		protected boolean closed;
+
+		protected Results(Iterator<? extends Source> sources) {
+			this.sources = sources;
+
+			if (pool != null) {
+				this.executor = pool;
+				this.ownExecutor = false;
+			} else {
+				this.executor = new ForkJoinPool();
+				this.ownExecutor = true;
+			}
+
+			this.limit = maxInFlight > 0 ? maxInFlight : executor.getParallelism() * 4;
+			this.pending = new ArrayDeque<>(limit);
+			this.completionService = ordered ? null : new ExecutorCompletionService<ParseTask>(executor);
+		}
+
+		/**
+		 * Submits documents until the limit is reached.
+		 */
+		protected void submit() {
+			while (!closed && inFlight < limit && sources.hasNext()) {
+				ParseTask parseTask = new ParseTask(sources.next());
+
+				if (completionService == null) {
+					pending.add(executor.submit(parseTask));
+				} else {
+					pending.add(completionService.submit(parseTask));
+				}
+				inFlight++;
+			}
+		}
+
+		public boolean hasNext() {
+			submit();
+
+			if (inFlight == 0) {
+				close();
+				return false;
+			}
+			return true;
+		}
+
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			ParseTask parseTask;
+
+			try {
+				Future<ParseTask> future;
+
+				if (completionService == null) {
+					future = pending.removeFirst();
+				} else {
+					future = completionService.take();
+					pending.remove(future);
+				}
+				inFlight--;
+
+				// keeps the pool busy while the result is consumed
+				submit();
+
+				parseTask = future.get();
+			}
+			catch (InterruptedException iex) {
+				Thread.currentThread().interrupt();
+				throw new LagartoException(iex);
+			}
+			catch (ExecutionException eex) {
+				throw failure(eex.getCause());
+			}
+
+			if (parseTask.error != null) {
+				throw failure(parseTask.error);
+			}
+			return parseTask.result;
+		}
+
+		/**
+		 * Returns runtime exception to throw for the failure of a document.
+		 * Errors are thrown unchanged.
+		 */
+		protected RuntimeException failure(Throwable throwable) {
+			if (throwable instanceof Error) {
+				throw (Error) throwable;
+			}
+			if (throwable instanceof RuntimeException) {
+				return (RuntimeException) throwable;
+			}
+			return new LagartoException(throwable);
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Cancels documents not yet processed and releases the pool.
+		 */
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			for (Future<ParseTask> future : pending) {
+				future.cancel(false);
+			}
+			pending.clear();
+			inFlight = 0;
+
+			if (ownExecutor) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- worker
+
+	/**
+	 * Parses single document and extracts the result. Task holds the
+	 * result or the failure, so they are passed unchanged to the consumer.
+	 */
+	protected class ParseTask implements Callable<ParseTask> {
+		protected final Source source;
+		protected T result;
+		protected Throwable error;
+
+		protected ParseTask(Source source) {
+			this.source = source;
+		}
+
+		public ParseTask call() {
+			try {
+				Worker worker = workers.get();
+
+				Document document = worker.parse(source);
+
+				result = extractor.extract(new Jerry(worker.domBuilder, document));
+			}
+			catch (Throwable throwable) {
+				error = throwable;
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Parsing resources of a single thread.
+	 */
+	protected class Worker {
+		protected final LagartoDOMBuilder domBuilder;
+		protected char[] buffer;
+		protected LagartoParser lagartoParser;
+
+		protected Worker() {
+			this.domBuilder = new LagartoDOMBuilder();
+			this.domBuilder.setConfig(config);
+			this.buffer = new char[BUFFER_SIZE];
+		}
+
+		/**
+		 * Reads the content into the buffer and parses it.
+		 */
+		protected Document parse(Source source) throws IOException {
+			int length = 0;
+
+			Reader reader = source.open();
+			try {
+				while (true) {
+					if (length + 1 >= buffer.length) {
+						buffer = Arrays.copyOf(buffer, buffer.length << 1);
+					}
+
+					// one char is left for the parser
+					int count = reader.read(buffer, length, buffer.length - length - 1);
+
+					if (count == -1) {
+						break;
+					}
+					length += count;
+				}
+			}
+			finally {
+				StreamUtil.close(reader);
+			}
+
+			if (lagartoParser == null) {
+				lagartoParser = new LagartoParser(buffer, true);
+			}
+			lagartoParser.reset(buffer, length);
+
+			Document document = domBuilder.parse(lagartoParser);
+
+			if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+				buffer = new char[BUFFER_SIZE];
+				lagartoParser.reset(buffer, 0);
+			}
+
+			return document;
+		}
+	}
+
+}
@@ -32,6 +32,13 @@ import jodd.Jodd;
  */
 public class JoddLagarto {
 
+	/**
+	 * Defines default behavior of a {@link jodd.lagarto.dom.NodeSelector}.
+	 * If set to <code>true</code>, nodes will be matched using
+	 * {@link jodd.csselly.CompiledCssSelector compiled selectors}.
+	 */
+	public static boolean compiledSelectors = false;
+
 	// ---------------------------------------------------------------- module
 
 	static {
@@ -31,6 +31,7 @@ import jodd.util.HtmlDecoder;
 import jodd.util.StringPool;
 import jodd.util.UnsafeUtil;
 
+import java.io.Reader;
 import java.nio.CharBuffer;
 
 import static jodd.util.CharUtil.equalsOne;
@@ -61,6 +62,11 @@ import static jodd.util.CharUtil.isDigit;
  * gives excellent performances. However, if you need more <code>Strings</code>
  * than enable it, and all text will be strings. This is faster
  * then first converting to char buffer and then to strings.
+ * <p>
+ * Parser may also read the content from a <code>Reader</code>.
+ * Then the input is parsed in a sliding window and visitor
+ * callbacks are invoked as parsing proceeds. In that case,
+ * emitted char sequences are valid only during the callback.
  */
 public class LagartoParser extends Scanner {
 
@@ -85,6 +91,25 @@ public class LagartoParser extends Scanner {
 		initialize(UnsafeUtil.getChars(string));
 	}
 
+	/**
+	 * Creates parser on a reader, using the default window size.
+	 */
+	public LagartoParser(Reader reader, boolean emitStrings) {
+		this(reader, DEFAULT_WINDOW_SIZE, emitStrings);
+	}
+
+	/**
+	 * Creates parser on a reader that reads the content in a window
+	 * of given size. Window grows only when single token, like
+	 * script or comment, does not fit in the half of it.
+	 */
+	public LagartoParser(Reader reader, int windowSize, boolean emitStrings) {
+		super(emitStrings);
+		initialize(reader, windowSize);
+	}
+
+	public static final int DEFAULT_WINDOW_SIZE = 8192;
+
 	/**
 	 * Initializes parser.
 	 */
@@ -97,6 +122,38 @@ public class LagartoParser extends Scanner {
 		this.parsingTime = -1;
 	}
 
+	/**
+	 * Initializes parser over a reader.
+	 */
+	protected void initialize(Reader reader, int windowSize) {
+		super.initialize(reader, windowSize);
+		this.tag = new ParsedTag();
+		this.doctype = new ParsedDoctype();
+		this.text = new char[1024];
+		this.textLen = 0;
+		this.parsingTime = -1;
+	}
+
+	/**
+	 * Resets the parser for parsing new content, so the parser and its
+	 * buffers are reused. Only the first <code>length</code> chars of the
+	 * input are parsed; if there is more room in the array, the char after
+	 * the content is overwritten. Configuration remains the same.
+	 * Parser must not be reset during the parsing.
+	 */
+	public void reset(char[] input, int length) {
+		super.initialize(input, length);
+		this.textLen = 0;
+		this.parsingTime = -1;
+		this.state = DATA_STATE;
+		this.rcdataTagStart = -1;
+		this.scriptStartNdx = -1;
+		this.scriptEndNdx = -1;
+		this.scriptEndTagName = -1;
+		this.attrStartNdx = -1;
+		this.attrEndNdx = -1;
+	}
+
 	// ---------------------------------------------------------------- configuration
 
 	protected LagartoParserConfig config = new LagartoParserConfig();
@@ -161,6 +218,11 @@ public class LagartoParser extends Scanner {
 			while (true) {
 				ndx++;
 
+				if (ndx >= refillNdx) {
+					// safe point: text is collected separately
+					refill();
+				}
+
 				if (isEOF()) {
 					emitText();
 					parsing = false;
@@ -2861,6 +2923,10 @@ public class LagartoParser extends Scanner {
 			tag.setPosition(position(tag.getTagPosition()));
 		}
 
+		if (windowOffset != 0) {
+			tag.shiftPosition(windowOffset);
+		}
+
 		if (tag.getType().isStartingTag()) {
 
 			if (tag.matchTagName(T_SCRIPT)) {
@@ -3008,7 +3074,7 @@ public class LagartoParser extends Scanner {
 		} else {
 			message = message
 					.concat(" [@")
-					.concat(Integer.toString(ndx))
+					.concat(Integer.toString(windowOffset + ndx))
 					.concat(StringPool.RIGHT_SQ_BRACKET);
 		}
 
@@ -92,6 +92,14 @@ class ParsedTag implements Tag {
 		this.modified = false;
 	}
 
+	/**
+	 * Shifts tag start index by given offset, when input
+	 * is parsed in a window.
+	 */
+	void shiftPosition(int offset) {
+		this.tagStartIndex += offset;
+	}
+
 	void increaseDeepLevel() {
 		deepLevel++;
 	}
@@ -28,13 +28,23 @@ package jodd.lagarto;
 import jodd.util.CharUtil;
 import jodd.util.StringPool;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.nio.CharBuffer;
+import java.util.Arrays;
 
 /**
- * Utility scanner over a char buffer.
+ * Utility scanner over a char buffer. Buffer may contain the whole input
+ * or it may be a sliding window over a <code>Reader</code>.
  */
 class Scanner {
 
+	/**
+	 * Minimal number of chars available ahead of current position
+	 * when reading from a <code>Reader</code>.
+	 */
+	protected static final int LOOKAHEAD = 64;
+
 	protected final boolean emitStrings;
 
 	protected char[] input;
@@ -49,9 +59,127 @@ class Scanner {
 	 * Initializes scanner.
 	 */
 	protected void initialize(char[] input) {
+		initialize(input, input.length);
+	}
+
+	/**
+	 * Initializes scanner over the first <code>length</code> chars of the input.
+	 */
+	protected void initialize(char[] input, int length) {
 		this.input = input;
 		this.ndx = -1;
-		this.total = input.length;
+		this.total = length;
+		this.fillNdx = total;
+		this.refillNdx = Integer.MAX_VALUE;
+		this.reader = null;
+		this.windowOffset = 0;
+		this.discardedLines = 0;
+		this.discardedLastNewLineOffset = 0;
+		this.lastOffset = -1;
+
+		if (length < input.length) {
+			// terminates the content for the lookahead
+			input[length] = 0;
+		}
+	}
+
+	// ---------------------------------------------------------------- reader
+
+	protected Reader reader;
+	protected int windowOffset;
+	protected int fillNdx;
+	protected int refillNdx;
+	private int discardedLines;
+	private int discardedLastNewLineOffset;
+
+	/**
+	 * Initializes scanner over a reader. Input is read in a window
+	 * of given size. Window only grows when a single token, like a
+	 * script, is larger than half of the window.
+	 */
+	protected void initialize(Reader reader, int windowSize) {
+		this.reader = reader;
+		this.windowOffset = 0;
+		this.input = new char[Math.max(windowSize, LOOKAHEAD * 4)];
+		this.ndx = -1;
+		this.total = 0;
+		this.fillNdx = 0;
+		this.refillNdx = Integer.MAX_VALUE;
+		this.discardedLines = 0;
+		this.discardedLastNewLineOffset = 0;
+
+		fill();
+	}
+
+	/**
+	 * Reads more chars into the window, while keeping all existing content.
+	 * Invoked when there is not enough chars ahead of current position.
+	 */
+	protected void fill() {
+		if (reader == null) {
+			return;
+		}
+
+		int required = Math.max(ndx, 0) + LOOKAHEAD + 1;
+
+		try {
+			while (total < required) {
+				if (total == input.length) {
+					// new array, so existing char sequences remain valid
+					input = Arrays.copyOf(input, input.length << 1);
+				}
+
+				int count = reader.read(input, total, input.length - total);
+
+				if (count == -1) {
+					// no more input, clean the rest of the window
+					Arrays.fill(input, total, input.length, '\u0000');
+					reader = null;
+					fillNdx = total;
+					refillNdx = Integer.MAX_VALUE;
+					return;
+				}
+
+				total += count;
+			}
+		}
+		catch (IOException ioex) {
+			throw new LagartoException(ioex);
+		}
+
+		fillNdx = total - LOOKAHEAD;
+		refillNdx = input.length >> 1;
+	}
+
+	/**
+	 * Discards content before current position and reads more chars.
+	 * May be invoked only when no positions before current one
+	 * are in use. Char sequences of the discarded content become invalid.
+	 */
+	protected void refill() {
+		if (reader == null) {
+			return;
+		}
+
+		int shift = Math.min(ndx, total);
+
+		if (shift > 0) {
+			for (int i = 0; i < shift; i++) {
+				if (input[i] == '\n') {
+					discardedLines++;
+					discardedLastNewLineOffset = windowOffset + i + 1;
+				}
+			}
+
+			System.arraycopy(input, shift, input, 0, total - shift);
+
+			total -= shift;
+			ndx -= shift;
+			windowOffset += shift;
+			lastOffset = -1;
+		}
+
+		fill();
 	}
 
 	// ---------------------------------------------------------------- find
@@ -61,14 +189,26 @@ class Scanner {
 	 * Returns <code>-1</code> if character is not found.
 	 */
 	protected final int find(char target, int from, int end) {
-		while (from < end) {
-			if (input[from] == target) {
-				break;
+		while (true) {
+			while (from < end) {
+				if (input[from] == target) {
+					return from;
+				}
+				from++;
+			}
+
+			if (end != total || reader == null) {
+				return -1;
 			}
-			from++;
-		}
 
-		return (from == end) ? -1 : from;
+			// search till the end of the input
+			int currentNdx = ndx;
+			ndx = from;
+			fill();
+			ndx = currentNdx;
+
+			end = total;
+		}
 	}
 
 	/**
@@ -76,14 +216,41 @@ class Scanner {
 	 * Returns <code>-1</code> if character is not found.
 	 */
 	protected final int find(char[] target, int from, int end) {
-		while (from < end) {
-			if (match(target, from)) {
-				break;
+		boolean toTheEnd = end == total && reader != null;
+
+		while (true) {
+			while (from < end) {
+				if (match(target, from)) {
+					return from;
+				}
+				from++;
+			}
+
+			if (!toTheEnd) {
+				return -1;
+			}
+
+			// search till the end of the input
+			ensureAvailable(from + target.length + 1);
+
+			if (end == total) {
+				return -1;
 			}
-			from++;
+
+			end = total;
 		}
+	}
 
-		return (from == end) ? -1 : from;
+	/**
+	 * Reads more input, if needed, so the content up to given index is available.
+	 */
+	private void ensureAvailable(int index) {
+		while (reader != null && index > total) {
+			int currentNdx = ndx;
+			ndx = index - LOOKAHEAD;
+			fill();
+			ndx = currentNdx;
+		}
 	}
 
 	// ---------------------------------------------------------------- match
@@ -93,7 +260,11 @@ class Scanner {
 	 */
 	protected final boolean match(char[] target, int ndx) {
 		if (ndx + target.length >= total) {
-			return false;
+			ensureAvailable(ndx + target.length + 1);
+
+			if (ndx + target.length >= total) {
+				return false;
+			}
 		}
 
 		int j = ndx;
@@ -120,7 +291,11 @@ class Scanner {
 	 */
 	public final boolean matchUpperCase(char[] uppercaseTarget) {
 		if (ndx + uppercaseTarget.length > total) {
-			return false;
+			ensureAvailable(ndx + uppercaseTarget.length);
+
+			if (ndx + uppercaseTarget.length > total) {
+				return false;
+			}
 		}
 
 		int j = ndx;
@@ -163,6 +338,12 @@ class Scanner {
 	 * Returns <code>true</code> if EOF.
 	 */
 	protected final boolean isEOF() {
+		if (ndx < fillNdx) {
+			return false;
+		}
+		if (reader != null) {
+			fill();
+		}
 		return ndx >= total;
 	}
 
@@ -170,11 +351,15 @@ class Scanner {
 	 * Calculates {@link Position current position}: offset, line and column.
 	 */
 	protected Position position(int position) {
+		if (windowOffset != 0 || reader != null) {
+			return windowPosition(position);
+		}
+
 		int line;
 		int offset;
 		int lastNewLineOffset;
 
-		if (position > lastOffset) {
+		if (lastOffset == -1 || position < lastOffset) {
 			line = 1;
 			offset = 0;
 			lastNewLineOffset = 0;
@@ -202,6 +387,25 @@ class Scanner {
 		return new Position(position, line, position - lastNewLineOffset + 1);
 	}
 
+	/**
+	 * Calculates position when input is read in a window.
+	 */
+	private Position windowPosition(int position) {
+		int line = discardedLines + 1;
+		int lastNewLineOffset = discardedLastNewLineOffset;
+
+		for (int i = 0; i < position; i++) {
+			if (input[i] == '\n') {
+				line++;
+				lastNewLineOffset = windowOffset + i + 1;
+			}
+		}
+
+		int offset = windowOffset + position;
+
+		return new Position(offset, line, offset - lastNewLineOffset + 1);
+	}
+
 	/**
 	 * Current position.
 	 */
@@ -36,6 +36,7 @@ public class Attribute implements Cloneable {
 	protected final String name;
 	protected String value;
 	protected String[] splits;
+	protected Node ownerNode;
 
 	public Attribute(String rawName, String name, String value) {
 		this.rawName = rawName;
@@ -70,10 +71,15 @@ public class Attribute implements Cloneable {
 	}
 
 	/**
-	 * Sets attribute value.
+	 * Sets attribute value. Invalidates the document index of the owner node.
 	 */
 	public void setValue(String value) {
 		this.value = value;
+		this.splits = null;
+
+		if (ownerNode != null) {
+			ownerNode.invalidateDocumentIndex();
+		}
 	}
 
 	// ---------------------------------------------------------------- splits
@@ -0,0 +1,132 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Attributes of the compact DOM element. Names are shared symbols and
+ * values are ranges in the {@link TextPool}, so no {@link Attribute}
+ * instances exist until the element attributes are modified.
+ * Once created, compact attributes are never changed.
+ */
+class CompactAttributes {
+
+	protected final TextPool textPool;
+	protected final String[] rawNames;
+	protected final String[] names;
+	protected final int[] valueOffsets;
+	protected final int[] valueLengths;
+	protected int size;
+
+	CompactAttributes(TextPool textPool, int capacity) {
+		this.textPool = textPool;
+		this.rawNames = new String[capacity];
+		this.names = new String[capacity];
+		this.valueOffsets = new int[capacity];
+		this.valueLengths = new int[capacity];
+	}
+
+	/**
+	 * Adds an attribute. As with {@link Node#setAttribute(String, String)},
+	 * value of already existing attribute is replaced.
+	 */
+	void add(String rawName, String name, CharSequence value) {
+		int index = indexOf(name);
+
+		if (index == -1) {
+			index = size++;
+			rawNames[index] = rawName;
+			names[index] = name;
+		}
+
+		if (value == null) {
+			valueOffsets[index] = -1;
+			valueLengths[index] = 0;
+		} else {
+			valueOffsets[index] = textPool.append(value);
+			valueLengths[index] = value.length();
+		}
+	}
+
+	/**
+	 * Returns number of attributes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns index of attribute with given name or <code>-1</code>.
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * Returns attribute value, created from the pool on each call.
+	 */
+	public String getValue(int index) {
+		int offset = valueOffsets[index];
+		if (offset == -1) {
+			return null;
+		}
+		return textPool.toString(offset, valueLengths[index]);
+	}
+
+	/**
+	 * Returns <code>true</code> if attribute value contains given word.
+	 */
+	public boolean isContaining(int index, String word) {
+		int offset = valueOffsets[index];
+		if (offset == -1) {
+			return false;
+		}
+		return textPool.containsWord(offset, valueLengths[index], word);
+	}
+
+	/**
+	 * Creates the list of regular {@link Attribute attributes}.
+	 */
+	public List<Attribute> toList() {
+		List<Attribute> attributes = new ArrayList<>(Math.max(size, 5));
+
+		for (int i = 0; i < size; i++) {
+			attributes.add(new Attribute(rawNames[i], names[i], getValue(i)));
+		}
+		return attributes;
+	}
+}
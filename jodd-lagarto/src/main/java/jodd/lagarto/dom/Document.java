@@ -94,6 +94,28 @@ public class Document extends Node {
 		return errors;
 	}
 
+	// ---------------------------------------------------------------- index
+
+	protected DocumentIndex index;
+
+	/**
+	 * Returns document index of all elements, building it if needed.
+	 * Index is invalidated on DOM changes made through the {@link Node} API.
+	 */
+	DocumentIndex getIndex() {
+		DocumentIndex documentIndex = index;
+		if (documentIndex == null) {
+			documentIndex = new DocumentIndex(this);
+			index = documentIndex;
+		}
+		return documentIndex;
+	}
+
+	@Override
+	protected void invalidateDocumentIndex() {
+		index = null;
+	}
+
 	// ---------------------------------------------------------------- attr
 
 	/**
@@ -0,0 +1,240 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import jodd.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of all document elements, in document order. Elements
+ * are also indexed by name, id and class names. Index is built
+ * lazily by the {@link Document} and dropped on every DOM change.
+ */
+class DocumentIndex {
+
+	private static final String ID = "id";
+	private static final String CLASS = "class";
+	private static final Node[] NO_NODES = new Node[0];
+
+	protected final Node[] elements;
+	protected final Map<String, Node[]> elementsByName;
+	protected final Map<String, Node[]> elementsById;
+	protected final Map<String, Node[]> elementsByClass;
+
+	DocumentIndex(Document document) {
+		List<Node> elementsList = new ArrayList<>();
+		Map<String, List<Node>> byName = new HashMap<>();
+		Map<String, List<Node>> byId = new HashMap<>();
+		Map<String, List<Node>> byClass = new HashMap<>();
+
+		// iterative walk in the document order
+		List<Node> stack = new ArrayList<>();
+		stack.add(document);
+
+		while (!stack.isEmpty()) {
+			Node node = stack.remove(stack.size() - 1);
+
+			if (node.getNodeType() == Node.NodeType.ELEMENT) {
+				node.documentElementIndex = elementsList.size();
+				elementsList.add(node);
+
+				add(byName, node.getNodeName(), node);
+
+				CompactAttributes compactAttributes = node.compactAttributes;
+				if (compactAttributes != null) {
+					for (int i = 0, attributesSize = compactAttributes.size(); i < attributesSize; i++) {
+						String name = compactAttributes.getName(i);
+
+						if (name.equals(ID) || name.equals(CLASS)) {
+							addAttribute(byId, byClass, name, compactAttributes.getValue(i), node);
+						}
+					}
+				}
+
+				List<Attribute> attributes = node.attributes;
+				if (attributes != null) {
+					for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
+						Attribute attribute = attributes.get(i);
+						addAttribute(byId, byClass, attribute.getName(), attribute.getValue(), node);
+					}
+				}
+			}
+
+			List<Node> childNodes = node.childNodes;
+			if (childNodes != null) {
+				for (int i = childNodes.size() - 1; i >= 0; i--) {
+					stack.add(childNodes.get(i));
+				}
+			}
+		}
+
+		this.elements = elementsList.toArray(new Node[elementsList.size()]);
+		this.elementsByName = toArrays(byName);
+		this.elementsById = toArrays(byId);
+		this.elementsByClass = toArrays(byClass);
+	}
+
+	private static void addAttribute(
+			Map<String, List<Node>> byId, Map<String, List<Node>> byClass,
+			String name, String value, Node node) {
+
+		if (value == null) {
+			return;
+		}
+
+		if (name.equals(ID)) {
+			add(byId, value, node);
+		}
+		else if (name.equals(CLASS)) {
+			for (String className : StringUtil.splitc(value, ' ')) {
+				if (className.length() != 0) {
+					add(byClass, className, node);
+				}
+			}
+		}
+	}
+
+	private static void add(Map<String, List<Node>> map, String key, Node node) {
+		List<Node> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<>(4);
+			map.put(key, list);
+		}
+		else if (list.get(list.size() - 1) == node) {
+			// repeated class name
+			return;
+		}
+		list.add(node);
+	}
+
+	private static Map<String, Node[]> toArrays(Map<String, List<Node>> map) {
+		Map<String, Node[]> result = new HashMap<>(map.size() * 4 / 3 + 1);
+		for (Map.Entry<String, List<Node>> entry : map.entrySet()) {
+			List<Node> list = entry.getValue();
+			result.put(entry.getKey(), list.toArray(new Node[list.size()]));
+		}
+		return result;
+	}
+
+	// ---------------------------------------------------------------- lookup
+
+	/**
+	 * Returns all elements in document order.
+	 */
+	public Node[] getElements() {
+		return elements;
+	}
+
+	/**
+	 * Returns elements with given name, in document order.
+	 */
+	public Node[] getElementsByName(String name) {
+		return lookup(elementsByName, name);
+	}
+
+	/**
+	 * Returns elements with given id, in document order.
+	 */
+	public Node[] getElementsById(String id) {
+		return lookup(elementsById, id);
+	}
+
+	/**
+	 * Returns elements that contains given class name, in document order.
+	 */
+	public Node[] getElementsByClass(String className) {
+		return lookup(elementsByClass, className);
+	}
+
+	private static Node[] lookup(Map<String, Node[]> map, String key) {
+		Node[] nodes = map.get(key);
+		if (nodes == null) {
+			return NO_NODES;
+		}
+		return nodes;
+	}
+
+	// ---------------------------------------------------------------- range
+
+	/**
+	 * Returns <code>true</code> if node is indexed.
+	 */
+	public boolean isIndexed(Node node) {
+		int index = node.documentElementIndex;
+		return index >= 0 && index < elements.length && elements[index] == node;
+	}
+
+	/**
+	 * Returns index of the first element in the given document-ordered
+	 * array that comes after the given document position.
+	 */
+	public static int indexAfter(Node[] nodes, int documentElementIndex) {
+		int low = 0;
+		int high = nodes.length - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (nodes[mid].documentElementIndex <= documentElementIndex) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the document position of the last descendant element
+	 * of the given node, or its own position if there is none.
+	 * Node must be indexed.
+	 */
+	public int lastDescendantIndex(Node node) {
+		while (true) {
+			Node lastChild = null;
+			List<Node> childNodes = node.childNodes;
+
+			if (childNodes != null) {
+				for (int i = childNodes.size() - 1; i >= 0; i--) {
+					Node child = childNodes.get(i);
+					if (child.getNodeType() == Node.NodeType.ELEMENT) {
+						lastChild = child;
+						break;
+					}
+				}
+			}
+
+			if (lastChild == null) {
+				return node.documentElementIndex;
+			}
+			node = lastChild;
+		}
+	}
+}
@@ -64,6 +64,16 @@ public class Element extends Node {
 		this.rawTag = rawTag;
 	}
 
+	/**
+	 * Creates element with already resolved names, used by compact DOM.
+	 */
+	protected Element(Document ownerDocument, String rawName, String name, boolean voidElement, boolean selfClosed, boolean rawTag) {
+		super(ownerDocument, NodeType.ELEMENT, rawName, name);
+		this.voidElement = voidElement;
+		this.selfClosed = selfClosed;
+		this.rawTag = rawTag;
+	}
+
 	@Override
 	public Element clone() {
 		return cloneTo(new Element(ownerDocument, nodeName, voidElement, selfClosed, rawTag));
@@ -143,6 +143,15 @@ public class LagartoDOMBuilder implements DOMBuilder {
 		return doParse(lagartoParser);
 	}
 
+	/**
+	 * Creates DOM tree using provided lagarto parser. Parser has to
+	 * emit strings, since the DOM tree outlives the parsed content.
+	 * Parser gets the configuration of this builder.
+	 */
+	public Document parse(LagartoParser lagartoParser) {
+		return doParse(lagartoParser);
+	}
+
 	/**
 	 * Parses the content using provided lagarto parser.
 	 */
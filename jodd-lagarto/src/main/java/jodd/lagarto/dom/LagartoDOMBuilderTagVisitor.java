@@ -35,6 +35,9 @@ import jodd.util.StringPool;
 import jodd.log.Logger;
 import jodd.log.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Lagarto tag visitor that builds DOM tree.
  * It (still) does not build the tree <i>fully</i> by the HTML specs,
@@ -60,6 +63,10 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 	protected Document rootNode;
 	protected Node parentNode;
 
+	// compact DOM
+	protected SymbolTable symbolTable;
+	protected TextPool textPool;
+
 	/**
 	 * While enabled, nodes will be added to the DOM tree.
 	 * Useful for skipping some tags.
@@ -95,6 +102,11 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 		if (domBuilder.config.isEnabledVoidTags()) {
 			htmlVoidRules = new HtmlVoidRules();
 		}
+
+		if (domBuilder.config.isCompactMode()) {
+			symbolTable = new SymbolTable();
+			textPool = new TextPool(1024);
+		}
 	}
 
 	/**
@@ -130,6 +142,12 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			fosterRules.fixFosterElements(rootNode);
 		}
 
+		// compact
+		if (textPool != null) {
+			textPool.trim();
+			trimChildNodes(rootNode);
+		}
+
 		// elapsed
 		rootNode.end();
 
@@ -162,9 +180,77 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			selfClosed = domBuilder.config.isSelfCloseVoidTags();
 		}
 
+		if (symbolTable != null) {
+			return createCompactElementNode(tag, isVoid, selfClosed);
+		}
+
 		return new Element(rootNode, tag, isVoid, selfClosed);
 	}
 
+	/**
+	 * Creates compact element, with shared names and attribute
+	 * values stored in the text pool.
+	 */
+	protected Element createCompactElementNode(Tag tag, boolean isVoid, boolean selfClosed) {
+		boolean caseSensitive = rootNode.config.isCaseSensitive();
+
+		String rawName = symbolTable.lookup(tag.getName());
+		String name = caseSensitive ? rawName : symbolTable.lookupLowerCase(rawName);
+
+		Element element = new Element(rootNode, rawName, name, isVoid, selfClosed, tag.isRawTag());
+
+		int attrCount = tag.getAttributeCount();
+
+		if (attrCount != 0) {
+			CompactAttributes compactAttributes = new CompactAttributes(textPool, attrCount);
+
+			for (int i = 0; i < attrCount; i++) {
+				String rawAttrName = symbolTable.lookup(tag.getAttributeName(i));
+				String attrName = caseSensitive ? rawAttrName : symbolTable.lookupLowerCase(rawAttrName);
+
+				compactAttributes.add(rawAttrName, attrName, tag.getAttributeValue(i));
+			}
+
+			element.compactAttributes = compactAttributes;
+		}
+
+		return element;
+	}
+
+	/**
+	 * Creates text node.
+	 */
+	protected Text createTextNode(CharSequence text) {
+		if (textPool != null) {
+			return new Text(rootNode, textPool, textPool.append(text), text.length());
+		}
+
+		return new Text(rootNode, text.toString());
+	}
+
+	/**
+	 * Trims the capacity of all child lists, once the tree is built.
+	 */
+	protected void trimChildNodes(Node root) {
+		// iterative walk, as documents may be very deep
+		List<Node> stack = new ArrayList<>();
+		stack.add(root);
+
+		while (!stack.isEmpty()) {
+			List<Node> childNodes = stack.remove(stack.size() - 1).childNodes;
+
+			if (childNodes == null) {
+				continue;
+			}
+
+			if (childNodes instanceof ArrayList) {
+				((ArrayList<Node>) childNodes).trimToSize();
+			}
+
+			stack.addAll(childNodes);
+		}
+	}
+
 	/**
 	 * Visits tags.
 	 */
@@ -401,7 +487,7 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 		parentNode.addChild(node);
 
 		if (body.length() != 0) {
-			Node text = new Text(rootNode, body.toString());
+			Node text = createTextNode(body);
 			node.addChild(text);
 		}
 	}
@@ -429,9 +515,7 @@ public class LagartoDOMBuilderTagVisitor implements TagVisitor {
 			return;
 		}
 
-		String textValue = text.toString();
-
-		Node node = new Text(rootNode, textValue);
+		Node node = createTextNode(text);
 
 		parentNode.addChild(node);
 	}
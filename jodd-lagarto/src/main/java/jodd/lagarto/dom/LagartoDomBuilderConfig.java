@@ -45,6 +45,7 @@ public class LagartoDomBuilderConfig extends LagartoParserConfig<LagartoDomBuild
 
 	protected boolean useFosterRules;
 	protected boolean unclosedTagAsOrphanCheck;
+	protected boolean compactMode;
 
 	protected LagartoHtmlRenderer lagartoHtmlRenderer = new LagartoHtmlRenderer();
 
@@ -72,6 +73,22 @@ public class LagartoDomBuilderConfig extends LagartoParserConfig<LagartoDomBuild
 		return this;
 	}
 
+	public boolean isCompactMode() {
+		return compactMode;
+	}
+
+	/**
+	 * Enables compact DOM, for large and mostly read-only documents.
+	 * Tag and attribute names are shared, text and attribute values
+	 * are stored as ranges of a single document character array.
+	 * Values are converted to strings on access and nodes are
+	 * converted to the regular form on modification.
+	 */
+	public LagartoDomBuilderConfig setCompactMode(boolean compactMode) {
+		this.compactMode = compactMode;
+		return this;
+	}
+
 	public boolean isIgnoreWhitespacesBetweenTags() {
 		return ignoreWhitespacesBetweenTags;
 	}
@@ -53,6 +53,7 @@ public abstract class Node implements Cloneable {
 	// attributes
 
 	protected List<Attribute> attributes;
+	protected CompactAttributes compactAttributes;
 
 	// parent
 
@@ -70,6 +71,9 @@ public abstract class Node implements Cloneable {
 	protected int siblingElementIndex = -1;
 	protected int siblingNameIndex = -1;
 
+	// document index
+	protected int documentElementIndex = -1;
+
 	/**
 	 * Creates new node.
 	 */
@@ -84,6 +88,16 @@ public abstract class Node implements Cloneable {
 		this.nodeType = nodeType;
 	}
 
+	/**
+	 * Creates new node with already resolved names.
+	 */
+	protected Node(Document document, NodeType nodeType, String nodeRawName, String nodeName) {
+		this.ownerDocument = document;
+		this.nodeRawName = nodeRawName;
+		this.nodeName = nodeName;
+		this.nodeType = nodeType;
+	}
+
 	// ---------------------------------------------------------------- clone
 
 	/**
@@ -97,10 +111,12 @@ public abstract class Node implements Cloneable {
 		if (attributes != null) {
 			dest.attributes = new ArrayList<>(attributes.size());
 			for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
-				Attribute attr = attributes.get(i);
-				dest.attributes.add(attr.clone());
+				Attribute attr = attributes.get(i).clone();
+				attr.ownerNode = dest;
+				dest.attributes.add(attr);
 			}
 		}
+		dest.compactAttributes = compactAttributes;	// immutable, may be shared
 
 		if (childNodes != null) {
 			dest.childNodes = new ArrayList<>(childNodes.size());
@@ -176,6 +192,7 @@ public abstract class Node implements Cloneable {
 			parentNode.childNodes.remove(siblingIndex);
 			parentNode.reindexChildren();
 		}
+		parentNode.invalidateDocumentIndex();
 		parentNode = null;
 	}
 
@@ -189,6 +206,7 @@ public abstract class Node implements Cloneable {
 		initChildNodes(node);
 		childNodes.add(node);
 		reindexChildrenOnAdd(1);
+		invalidateDocumentIndex();
 	}
 
 	/**
@@ -206,6 +224,7 @@ public abstract class Node implements Cloneable {
 			childNodes.add(node);
 		}
 		reindexChildrenOnAdd(nodes.length);
+		invalidateDocumentIndex();
 	}
 
 	/**
@@ -221,6 +240,7 @@ public abstract class Node implements Cloneable {
 			throw new LagartoDOMException("Invalid node index: " + index);
 		}
 		reindexChildren();
+		invalidateDocumentIndex();
 	}
 
 	/**
@@ -240,6 +260,7 @@ public abstract class Node implements Cloneable {
 			}
 		}
 		reindexChildren();
+		invalidateDocumentIndex();
 	}
 
 	/**
@@ -326,6 +347,7 @@ public abstract class Node implements Cloneable {
 		childNodes = null;
 		childElementNodes = null;
 		childElementNodesCount = 0;
+		invalidateDocumentIndex();
 
 		if (removedNodes != null) {
 			for (int i = 0, removedNodesSize = removedNodes.size(); i < removedNodesSize; i++) {
@@ -348,6 +370,9 @@ public abstract class Node implements Cloneable {
 	 * Returns <code>true</code> if node has attributes.
 	 */
 	public boolean hasAttributes() {
+		if (compactAttributes != null) {
+			return compactAttributes.size() != 0;
+		}
 		if (attributes == null) {
 			return false;
 		}
@@ -358,6 +383,9 @@ public abstract class Node implements Cloneable {
 	 * Returns total number of attributes.
 	 */
 	public int getAttributesCount() {
+		if (compactAttributes != null) {
+			return compactAttributes.size();
+		}
 		if (attributes == null) {
 			return 0;
 		}
@@ -368,6 +396,7 @@ public abstract class Node implements Cloneable {
 	 * Returns attribute at given index or <code>null</code> if index not found.
 	 */
 	public Attribute getAttribute(int index) {
+		materializeAttributes();
 		if (attributes == null) {
 			return null;
 		}
@@ -381,6 +410,9 @@ public abstract class Node implements Cloneable {
 	 * Returns <code>true</code> if node contains an attribute.
 	 */
 	public boolean hasAttribute(String name) {
+		if (compactAttributes != null) {
+			return compactAttributes.indexOf(name) != -1;
+		}
 		if (attributes == null) {
 			return false;
 		}
@@ -399,6 +431,13 @@ public abstract class Node implements Cloneable {
 	 * specify a value.
 	 */
 	public String getAttribute(String name) {
+		if (compactAttributes != null) {
+			int index = compactAttributes.indexOf(resolveAttributeName(name));
+			if (index == -1) {
+				return null;
+			}
+			return compactAttributes.getValue(index);
+		}
 		Attribute attribute = getAttributeInstance(name);
 		if (attribute == null) {
 			return null;
@@ -407,6 +446,7 @@ public abstract class Node implements Cloneable {
 	}
 
 	protected Attribute getAttributeInstance(String name) {
+		materializeAttributes();
 		if (attributes == null) {
 			return null;
 		}
@@ -425,6 +465,7 @@ public abstract class Node implements Cloneable {
 	}
 
 	protected int indexOfAttributeInstance(String name) {
+		materializeAttributes();
 		if (attributes == null) {
 			return -1;
 		}
@@ -448,6 +489,7 @@ public abstract class Node implements Cloneable {
 			return false;
 		}
 		attributes.remove(index);
+		invalidateDocumentIndex();
 		return true;
 	}
 
@@ -455,6 +497,7 @@ public abstract class Node implements Cloneable {
 	 * Sets attribute value. Value may be <code>null</code>.
 	 */
 	public void setAttribute(String name, String value) {
+		materializeAttributes();
 		initAttributes();
 
 		String rawAttributeName = name;
@@ -467,10 +510,14 @@ public abstract class Node implements Cloneable {
 			Attribute attr = attributes.get(i);
 			if (attr.getName().equals(name)) {
 				attr.setValue(value);
+				invalidateDocumentIndex();
 				return;
 			}
 		}
-		attributes.add(new Attribute(rawAttributeName, name, value));
+		Attribute attribute = new Attribute(rawAttributeName, name, value);
+		attribute.ownerNode = this;
+		attributes.add(attribute);
+		invalidateDocumentIndex();
 	}
 
 	/**
@@ -484,6 +531,13 @@ public abstract class Node implements Cloneable {
 	 * Returns <code>true</code> if attribute containing some word.
 	 */
 	public boolean isAttributeContaining(String name, String word) {
+		if (compactAttributes != null) {
+			int index = compactAttributes.indexOf(resolveAttributeName(name));
+			if (index == -1) {
+				return false;
+			}
+			return compactAttributes.isContaining(index, word);
+		}
 		Attribute attr = getAttributeInstance(name);
 		if (attr == null) {
 			return false;
@@ -848,6 +902,32 @@ public abstract class Node implements Cloneable {
 		}
 	}
 
+	/**
+	 * Replaces {@link CompactAttributes compact attributes} with the
+	 * regular attributes list. Invoked before attributes are modified
+	 * or before attribute instances are returned.
+	 */
+	protected void materializeAttributes() {
+		if (compactAttributes != null) {
+			attributes = compactAttributes.toList();
+			compactAttributes = null;
+
+			for (int i = 0, attributesSize = attributes.size(); i < attributesSize; i++) {
+				attributes.get(i).ownerNode = this;
+			}
+		}
+	}
+
+	/**
+	 * Returns attribute name as stored, depending on case sensitivity.
+	 */
+	protected String resolveAttributeName(String name) {
+		if (!ownerDocument.config.isCaseSensitive()) {
+			name = name.toLowerCase();
+		}
+		return name;
+	}
+
 	/**
 	 * Initializes child nodes list when needed.
 	 * Also fix owner document for new node, if needed.
@@ -863,6 +943,16 @@ public abstract class Node implements Cloneable {
 		}
 	}
 
+	/**
+	 * Invalidates {@link Document document} index after the change
+	 * of the DOM tree or of some attribute.
+	 */
+	protected void invalidateDocumentIndex() {
+		if (ownerDocument != null) {
+			ownerDocument.index = null;
+		}
+	}
+
 	/**
 	 * Changes owner document for given node and all its children.
 	 */
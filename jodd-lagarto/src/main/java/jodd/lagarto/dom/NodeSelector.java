@@ -28,31 +28,56 @@ package jodd.lagarto.dom;
 import jodd.csselly.CSSelly;
 import jodd.csselly.Combinator;
 import jodd.csselly.CssSelector;
+import jodd.csselly.Selector;
+import jodd.csselly.selector.AttributeSelector;
+import jodd.csselly.selector.Match;
+import jodd.lagarto.JoddLagarto;
+import jodd.util.StringPool;
 import jodd.util.collection.JoddArrayList;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Node selector selects DOM nodes using {@link CSSelly CSS3 selectors}.
  * Group of queries are supported.
+ * <p>
+ * When selectors do not depend on current results (like <code>:first</code>
+ * does), nodes are selected using the {@link Document document index}:
+ * candidates for the last selector are looked up by id, class or
+ * element name and then matched from right to left. Such results
+ * are in the document order.
  */
 public class NodeSelector {
 
 	protected final Node rootNode;
+	protected boolean compiled = JoddLagarto.compiledSelectors;
 
 	public NodeSelector(Node rootNode) {
 		this.rootNode = rootNode;
 	}
 
+	/**
+	 * Defines if {@link jodd.csselly.CompiledCssSelector compiled selectors}
+	 * are used for matching the nodes.
+	 */
+	public NodeSelector compiled(boolean compiled) {
+		this.compiled = compiled;
+		return this;
+	}
+
 	// ---------------------------------------------------------------- selector
 
 	/**
 	 * Selects nodes using CSS3 selector query.
+	 * Parsed queries are {@link CSSelly#parseCached(String) cached}.
 	 */
 	public List<Node> select(String query) {
-		Collection<List<CssSelector>> selectorsCollection = CSSelly.parse(query);
+		Collection<List<CssSelector>> selectorsCollection = CSSelly.parseCached(query);
 		return select(selectorsCollection);
 	}
 
@@ -74,8 +99,15 @@ public class NodeSelector {
 	protected void processSelectors(List<Node> results, List<CssSelector> selectors) {
 		List<Node> selectedNodes = select(rootNode, selectors);
 
+		if (results.isEmpty()) {
+			results.addAll(selectedNodes);
+			return;
+		}
+
+		Set<Node> resultsSet = newIdentitySet(results);
+
 		for (Node selectedNode : selectedNodes) {
-			if (!results.contains(selectedNode)) {
+			if (resultsSet.add(selectedNode)) {
 				results.add(selectedNode);
 			}
 		}
@@ -127,6 +159,12 @@ public class NodeSelector {
 
 	protected List<Node> select(Node rootNode, List<CssSelector> selectors) {
 
+		DocumentIndex documentIndex = resolveDocumentIndex(rootNode, selectors);
+
+		if (documentIndex != null) {
+			return selectIndexed(documentIndex, rootNode, selectors);
+		}
+
 		// start with the root node
 		List<Node> nodes = new ArrayList<>();
 		nodes.add(rootNode);
@@ -140,6 +178,11 @@ public class NodeSelector {
 				walk(node, cssSelector, selectedNodes);
 			}
 
+			if (nodes.size() > 1) {
+				// walking from several nodes may select the same node more than once
+				selectedNodes = removeDuplicates(selectedNodes);
+			}
+
 			// post-processing: filter out the results
 			List<Node> resultNodes = new ArrayList<>();
 			int index = 0;
@@ -231,17 +274,23 @@ public class NodeSelector {
 		if (node.getNodeType() != Node.NodeType.ELEMENT) {
 			return;
 		}
-		boolean matched = cssSelector.accept(node);
+		boolean matched = accept(cssSelector, node);
 		if (matched) {
-			// check for duplicates
-			if (result.contains(node)) {
-				return;
-			}
-			// no duplicate found, add it to the results
 			result.add(node);
 		}
 	}
 
+	/**
+	 * Matches single node with the selector. Uses compiled
+	 * selector if enabled.
+	 */
+	protected boolean accept(CssSelector cssSelector, Node node) {
+		if (compiled) {
+			return cssSelector.compile().accept(node);
+		}
+		return cssSelector.accept(node);
+	}
+
 	/**
 	 * Filter nodes.
 	 */
@@ -249,4 +298,201 @@ public class NodeSelector {
 		return cssSelector.accept(currentResults, node, index);
 	}
 
+	// ---------------------------------------------------------------- index
+
+	private static final String ID = "id";
+	private static final String CLASS = "class";
+
+	/**
+	 * Returns document index if selectors may be matched using it,
+	 * otherwise returns <code>null</code>.
+	 */
+	private DocumentIndex resolveDocumentIndex(Node rootNode, List<CssSelector> selectors) {
+		if (selectors.isEmpty()) {
+			return null;
+		}
+
+		for (CssSelector cssSelector : selectors) {
+			if (cssSelector.isPositional()) {
+				return null;
+			}
+		}
+
+		Document document;
+
+		if (rootNode.getNodeType() == Node.NodeType.DOCUMENT) {
+			document = (Document) rootNode;
+		} else {
+			document = rootNode.getOwnerDocument();
+			if (document == null) {
+				return null;
+			}
+		}
+
+		DocumentIndex documentIndex = document.getIndex();
+
+		if (rootNode != document && !documentIndex.isIndexed(rootNode)) {
+			// detached node
+			return null;
+		}
+
+		return documentIndex;
+	}
+
+	/**
+	 * Selects nodes using document index. Candidates for the last selector
+	 * are taken from the index and then matched from right to left.
+	 */
+	private List<Node> selectIndexed(DocumentIndex documentIndex, Node rootNode, List<CssSelector> selectors) {
+		int last = selectors.size() - 1;
+		CssSelector cssSelector = selectors.get(last);
+
+		Node[] candidates = lookupCandidates(documentIndex, cssSelector);
+
+		int from = 0;
+		int to = candidates.length;
+
+		if (rootNode.getNodeType() != Node.NodeType.DOCUMENT) {
+			// only descendants of the root node
+			from = DocumentIndex.indexAfter(candidates, rootNode.documentElementIndex);
+			to = DocumentIndex.indexAfter(candidates, documentIndex.lastDescendantIndex(rootNode));
+		}
+
+		List<Node> result = new ArrayList<>();
+
+		for (int i = from; i < to; i++) {
+			Node node = candidates[i];
+
+			if (accept(cssSelector, node) && matchPrevious(rootNode, node, selectors, last)) {
+				result.add(node);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the smallest set of candidates for the selector.
+	 */
+	private Node[] lookupCandidates(DocumentIndex documentIndex, CssSelector cssSelector) {
+		Node[] candidates;
+
+		String element = cssSelector.getElement();
+
+		if (element.equals(StringPool.STAR)) {
+			candidates = documentIndex.getElements();
+		} else {
+			candidates = documentIndex.getElementsByName(element);
+		}
+
+		int totalSelectors = cssSelector.selectorsCount();
+
+		for (int i = 0; i < totalSelectors; i++) {
+			Selector selector = cssSelector.getSelector(i);
+
+			if (selector.getType() != Selector.Type.ATTRIBUTE) {
+				continue;
+			}
+
+			AttributeSelector attributeSelector = (AttributeSelector) selector;
+			String value = attributeSelector.getValue();
+
+			if (value == null) {
+				continue;
+			}
+
+			Node[] nodes;
+
+			if (attributeSelector.getMatch() == Match.EQUALS && attributeSelector.getName().equals(ID)) {
+				nodes = documentIndex.getElementsById(value);
+			}
+			else if (attributeSelector.getMatch() == Match.INCLUDES && attributeSelector.getName().equals(CLASS)) {
+				nodes = documentIndex.getElementsByClass(value);
+			}
+			else {
+				continue;
+			}
+
+			if (nodes.length < candidates.length) {
+				candidates = nodes;
+			}
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Matches selectors before the given one, from right to left.
+	 * Node is already matched by the selector at given index.
+	 */
+	private boolean matchPrevious(Node rootNode, Node node, List<CssSelector> selectors, int index) {
+		if (index == 0) {
+			// node is a descendant of the root node
+			return true;
+		}
+
+		CssSelector previousCssSelector = selectors.get(index - 1);
+
+		switch (previousCssSelector.getCombinator()) {
+			case DESCENDANT:
+				Node parent = node.getParentNode();
+				while (parent != null && parent != rootNode) {
+					if (accept(previousCssSelector, parent) && matchPrevious(rootNode, parent, selectors, index - 1)) {
+						return true;
+					}
+					parent = parent.getParentNode();
+				}
+				return false;
+			case CHILD:
+				parent = node.getParentNode();
+				if (parent == null || parent == rootNode) {
+					return false;
+				}
+				return accept(previousCssSelector, parent) && matchPrevious(rootNode, parent, selectors, index - 1);
+			case ADJACENT_SIBLING:
+				Node sibling = node.getPreviousSiblingElement();
+				if (sibling == null) {
+					return false;
+				}
+				return accept(previousCssSelector, sibling) && matchPrevious(rootNode, sibling, selectors, index - 1);
+			case GENERAL_SIBLING:
+				sibling = node;
+				while (true) {
+					sibling = sibling.getPreviousSiblingElement();
+					if (sibling == null) {
+						return false;
+					}
+					if (accept(previousCssSelector, sibling) && matchPrevious(rootNode, sibling, selectors, index - 1)) {
+						return true;
+					}
+				}
+		}
+		return false;
+	}
+
+	// ---------------------------------------------------------------- util
+
+	/**
+	 * Removes duplicated nodes, keeping the first occurrence.
+	 */
+	protected List<Node> removeDuplicates(List<Node> nodes) {
+		Set<Node> nodesSet = newIdentitySet(null);
+		List<Node> result = new ArrayList<>(nodes.size());
+
+		for (Node node : nodes) {
+			if (nodesSet.add(node)) {
+				result.add(node);
+			}
+		}
+		return result;
+	}
+
+	private static Set<Node> newIdentitySet(List<Node> nodes) {
+		Set<Node> set = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		if (nodes != null) {
+			set.addAll(nodes);
+		}
+		return set;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Symbol table of tag and attribute names, used by the compact DOM.
+ * Equal names are always returned as the same <code>String</code> instance,
+ * and lookup of already known name does not allocate.
+ */
+class SymbolTable {
+
+	protected String[] symbols = new String[64];
+	protected int size;
+	protected final Map<String, String> lowerCaseSymbols = new HashMap<>();
+
+	/**
+	 * Returns the symbol for given characters.
+	 */
+	public String lookup(CharSequence chars) {
+		int length = chars.length();
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+
+		int mask = symbols.length - 1;
+		int index = (hash ^ (hash >>> 16)) & mask;
+
+		while (true) {
+			String symbol = symbols[index];
+
+			if (symbol == null) {
+				symbol = chars.toString();
+				symbols[index] = symbol;
+				size++;
+				if (size << 1 > symbols.length) {
+					rehash();
+				}
+				return symbol;
+			}
+
+			if (symbol.hashCode() == hash && equals(symbol, chars)) {
+				return symbol;
+			}
+
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Returns the lower-cased symbol of given symbol.
+	 */
+	public String lookupLowerCase(String symbol) {
+		String lowerCaseSymbol = lowerCaseSymbols.get(symbol);
+
+		if (lowerCaseSymbol == null) {
+			lowerCaseSymbol = lookup(symbol.toLowerCase());
+			lowerCaseSymbols.put(symbol, lowerCaseSymbol);
+		}
+		return lowerCaseSymbol;
+	}
+
+	private static boolean equals(String symbol, CharSequence chars) {
+		int length = chars.length();
+		if (symbol.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (symbol.charAt(i) != chars.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		String[] oldSymbols = symbols;
+		symbols = new String[oldSymbols.length << 1];
+
+		int mask = symbols.length - 1;
+
+		for (String symbol : oldSymbols) {
+			if (symbol == null) {
+				continue;
+			}
+			int hash = symbol.hashCode();
+			int index = (hash ^ (hash >>> 16)) & mask;
+
+			while (symbols[index] != null) {
+				index = (index + 1) & mask;
+			}
+			symbols[index] = symbol;
+		}
+	}
+}
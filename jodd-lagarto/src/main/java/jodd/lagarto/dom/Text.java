@@ -40,14 +40,32 @@ public class Text extends Node {
 
 	protected String encodedText;
 
+	// compact DOM text range
+	protected TextPool textPool;
+	protected int textOffset;
+	protected int textLength;
+
 	public Text(Document ownerDocument, String text) {
 		super(ownerDocument, NodeType.TEXT, null);
 		this.nodeValue = text;
 		this.encodedText = null;
 	}
 
+	/**
+	 * Creates compact text node, which value is a range in the {@link TextPool}.
+	 */
+	protected Text(Document ownerDocument, TextPool textPool, int textOffset, int textLength) {
+		super(ownerDocument, NodeType.TEXT, null);
+		this.textPool = textPool;
+		this.textOffset = textOffset;
+		this.textLength = textLength;
+	}
+
 	@Override
 	public Text clone() {
+		if (textPool != null) {
+			return cloneTo(new Text(ownerDocument, textPool, textOffset, textLength));
+		}
 		return cloneTo(new Text(ownerDocument, nodeValue));
 	}
 	
@@ -58,17 +76,35 @@ public class Text extends Node {
 	 */
 	public boolean isBlank() {
 		if (blank == null) {
-			blank = Boolean.valueOf(StringUtil.isBlank(nodeValue));
+			if (textPool != null) {
+				blank = Boolean.valueOf(textPool.isBlank(textOffset, textLength));
+			} else {
+				blank = Boolean.valueOf(StringUtil.isBlank(nodeValue));
+			}
 		}
 		return blank.booleanValue();
 	}
 
+	/**
+	 * Returns node value. Value of compact text node is
+	 * created on each call and it is not stored.
+	 */
+	@Override
+	public String getNodeValue() {
+		if (textPool != null) {
+			return textPool.toString(textOffset, textLength);
+		}
+		return nodeValue;
+	}
+
 	/**
 	 * Sets the plain text as node value.
 	 */
 	@Override
 	public void setNodeValue(String value) {
 		encodedText = null;
+		textPool = null;
+		blank = null;
 		super.setNodeValue(value);
 	}
 
@@ -77,6 +113,8 @@ public class Text extends Node {
 	 */
 	public void setTextContent(String text) {
 		encodedText = text;
+		textPool = null;
+		blank = null;
 		nodeValue = HtmlDecoder.decode(text);
 	}
 
@@ -85,6 +123,9 @@ public class Text extends Node {
 	 */
 	@Override
 	public String getTextContent() {
+		if (textPool != null) {
+			return HtmlEncoder.text(getNodeValue());
+		}
 		if (encodedText == null) {
 			encodedText = HtmlEncoder.text(nodeValue);
 		}
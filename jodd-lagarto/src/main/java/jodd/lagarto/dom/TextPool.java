@@ -0,0 +1,134 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import jodd.util.CharUtil;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Characters storage of the compact DOM. Text and attribute values of
+ * one document are appended to a single <code>char</code> array, and
+ * nodes keep just the offset and the length of their value.
+ */
+class TextPool {
+
+	protected char[] chars;
+	protected int size;
+
+	TextPool(int initialCapacity) {
+		this.chars = new char[initialCapacity];
+	}
+
+	/**
+	 * Appends characters and returns their offset in the pool.
+	 */
+	public int append(CharSequence text) {
+		int length = text.length();
+		int offset = size;
+
+		if (offset + length > chars.length) {
+			chars = Arrays.copyOf(chars, Math.max(chars.length << 1, offset + length));
+		}
+
+		if (text instanceof String) {
+			((String) text).getChars(0, length, chars, offset);
+		} else {
+			for (int i = 0; i < length; i++) {
+				chars[offset + i] = text.charAt(i);
+			}
+		}
+
+		size += length;
+		return offset;
+	}
+
+	/**
+	 * Creates new string from the range.
+	 */
+	public String toString(int offset, int length) {
+		return new String(chars, offset, length);
+	}
+
+	/**
+	 * Wraps the range into the char sequence, without copying.
+	 */
+	public CharSequence charSequence(int offset, int length) {
+		return CharBuffer.wrap(chars, offset, length);
+	}
+
+	/**
+	 * Returns <code>true</code> if range contains only white spaces.
+	 */
+	public boolean isBlank(int offset, int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (!CharUtil.isWhitespace(chars[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if range, split on spaces,
+	 * contains given word.
+	 */
+	public boolean containsWord(int offset, int length, String word) {
+		int wordLength = word.length();
+		int end = offset + length;
+		int start = offset;
+
+		for (int i = offset; i <= end; i++) {
+			if (i != end && chars[i] != ' ') {
+				continue;
+			}
+			if (i - start == wordLength && equals(start, word)) {
+				return true;
+			}
+			start = i + 1;
+		}
+		return false;
+	}
+
+	private boolean equals(int offset, String word) {
+		for (int i = 0, length = word.length(); i < length; i++) {
+			if (chars[offset + i] != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the unused capacity once the document is built.
+	 */
+	public void trim() {
+		if (size < chars.length) {
+			chars = Arrays.copyOf(chars, size);
+		}
+	}
+}
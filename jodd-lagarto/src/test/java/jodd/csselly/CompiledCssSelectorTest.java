@@ -0,0 +1,115 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.csselly;
+
+import jodd.lagarto.dom.Document;
+import jodd.lagarto.dom.LagartoDOMBuilder;
+import jodd.lagarto.dom.Node;
+import jodd.lagarto.dom.NodeSelector;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledCssSelectorTest {
+
+	@Test
+	public void testSameAsSelector() {
+		StringBuilder html = new StringBuilder();
+		html.append("<html><body>");
+		for (int i = 0; i < 20; i++) {
+			html.append("<div id=\"d").append(i).append("\" class=\" box  c").append(i % 3).append(" box-x\" data-i=\"").append(i).append("\">");
+			html.append("<p lang=\"en-").append(i % 2 == 0 ? "us" : "gb").append("\">p").append(i).append("</p>");
+			html.append("<ul><li>1</li><li class=\"x\">2</li><li>3</li><li>4</li><li>5</li></ul>");
+			html.append("<span></span><span title>t</span>");
+			html.append("</div>");
+		}
+		html.append("</body></html>");
+
+		Document document = new LagartoDOMBuilder().parse(html.toString());
+
+		String[] queries = new String[] {
+				"div", "*", ".box", ".c1", ".box-x", "#d7", "div#d7.c1", "[data-i]", "[data-i='3']",
+				"[data-i^='1']", "[data-i$='1']", "[data-i*='1']", "[lang|='en']", "[class~='box']",
+				"[class~='box c1']", "span[title]", "li:nth-child(2n+1)", "li:nth-child(-n+2)",
+				"li:nth-last-child(2)", "span:nth-of-type(2)", "span:nth-last-of-type(1)", "li:first-child",
+				"li:last-child", "span:empty", "p:contains('p1')", "div.c0 > ul > li:nth-child(odd)",
+				"DIV", "li:not(.x)"
+		};
+
+		for (String query : queries) {
+			List<Node> expected;
+			try {
+				expected = new NodeSelector(document).compiled(false).select(query);
+			} catch (CSSellyException ignore) {
+				continue;
+			}
+			List<Node> compiled = new NodeSelector(document).compiled(true).select(query);
+
+			assertEquals(query, expected, compiled);
+		}
+	}
+
+	@Test
+	public void testCompileOnce() {
+		CssSelector cssSelector = new CSSelly("div.a").parse().get(0);
+
+		CompiledCssSelector compiled = cssSelector.compile();
+		assertSame(compiled, cssSelector.compile());
+
+		cssSelector.addClassSelector("b");
+		assertNotSame(compiled, cssSelector.compile());
+	}
+
+	@Test
+	public void testParseCached() {
+		List<List<CssSelector>> selectors = CSSelly.parseCached("div > p, .a");
+
+		assertEquals(2, selectors.size());
+		assertSame(selectors, CSSelly.parseCached("div > p, .a"));
+
+		try {
+			selectors.get(0).clear();
+			fail();
+		} catch (UnsupportedOperationException ignore) {
+		}
+
+		int cacheSize = CSSelly.getCacheSize();
+		try {
+			CSSelly.setCacheSize(0);
+			assertNotSame(CSSelly.parseCached("div"), CSSelly.parseCached("div"));
+		} finally {
+			CSSelly.setCacheSize(cacheSize);
+		}
+
+		assertTrue(CSSelly.getCacheSize() > 0);
+	}
+}
@@ -0,0 +1,199 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.jerry;
+
+import jodd.io.FileUtil;
+import jodd.lagarto.LagartoException;
+import jodd.util.StringPool;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JerryBatchTest {
+
+	private static final JerryBatch.Extractor<String> TITLE = new JerryBatch.Extractor<String>() {
+		public String extract(Jerry doc) {
+			return doc.$("h1").text() + ':' + doc.$("li").length();
+		}
+	};
+
+	private List<JerryBatch.Source> createSources(int count, List<String> expected) {
+		List<JerryBatch.Source> sources = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			StringBuilder html = new StringBuilder();
+			html.append("<html><body><h1>doc").append(i).append("</h1><ul>");
+			for (int j = 0; j < i % 7; j++) {
+				html.append("<li>").append(j).append(" &amp; more</li>");
+			}
+			html.append("</ul><script>var a = '<li>';</script></body></html>");
+
+			String content = html.toString();
+
+			if (i % 2 == 0) {
+				sources.add(JerryBatch.source(content));
+			} else {
+				sources.add(JerryBatch.source(content.getBytes(), StringPool.ISO_8859_1));
+			}
+
+			expected.add(Jerry.jerry(content).$("h1").text() + ':' + (i % 7));
+		}
+		return sources;
+	}
+
+	@Test
+	public void testOrdered() {
+		List<String> expected = new ArrayList<>();
+		List<JerryBatch.Source> sources = createSources(200, expected);
+
+		List<String> results = new ArrayList<>();
+
+		JerryBatch.Results batchResults = new JerryBatch<>(TITLE).maxInFlight(3).process(sources);
+		while (batchResults.hasNext()) {
+			results.add((String) batchResults.next());
+		}
+
+		assertEquals(expected, results);
+		assertFalse(batchResults.hasNext());
+	}
+
+	@Test
+	public void testUnordered() {
+		List<String> expected = new ArrayList<>();
+		List<JerryBatch.Source> sources = createSources(200, expected);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		List<String> results = new ArrayList<>();
+
+		try {
+			JerryBatch<String> jerryBatch = new JerryBatch<>(TITLE).pool(pool).ordered(false);
+
+			for (JerryBatch<String>.Results it = jerryBatch.process(sources); it.hasNext(); ) {
+				results.add(it.next());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		Collections.sort(expected);
+		Collections.sort(results);
+
+		assertEquals(expected, results);
+	}
+
+	@Test
+	public void testFileSource() throws IOException {
+		File file = FileUtil.createTempFile();
+		try {
+			FileUtil.writeString(file, "<div><h1>\u017eaba</h1><li>1</li></div>", "UTF-8");
+
+			List<JerryBatch.Source> sources = new ArrayList<>();
+			sources.add(JerryBatch.source(file, "UTF-8"));
+
+			JerryBatch<String>.Results results = new JerryBatch<>(TITLE).process(sources);
+
+			assertEquals("\u017eaba:1", results.next());
+			assertFalse(results.hasNext());
+		} finally {
+			FileUtil.delete(file);
+		}
+	}
+
+	@Test
+	public void testFailure() {
+		List<JerryBatch.Source> sources = new ArrayList<>();
+		sources.add(JerryBatch.source("<h1>one</h1>"));
+		sources.add(new JerryBatch.Source() {
+			public Reader open() throws IOException {
+				throw new IOException("missing");
+			}
+		});
+		sources.add(JerryBatch.source("<h1>three</h1>"));
+
+		JerryBatch<String>.Results results = new JerryBatch<>(TITLE).process(sources);
+
+		assertEquals("one:0", results.next());
+
+		try {
+			results.next();
+			fail();
+		} catch (LagartoException lex) {
+			assertTrue(lex.getCause() instanceof IOException);
+		}
+
+		assertEquals("three:0", results.next());
+		assertFalse(results.hasNext());
+	}
+
+	@Test
+	public void testError() {
+		final Error error = new OutOfMemoryError();
+
+		List<JerryBatch.Source> sources = new ArrayList<>();
+		sources.add(JerryBatch.source("<h1>one</h1>"));
+
+		JerryBatch<String>.Results results = new JerryBatch<>(new JerryBatch.Extractor<String>() {
+			public String extract(Jerry doc) {
+				throw error;
+			}
+		}).process(sources);
+
+		try {
+			results.next();
+			fail();
+		} catch (OutOfMemoryError oome) {
+			assertSame(error, oome);
+		}
+		assertFalse(results.hasNext());
+	}
+
+	@Test
+	public void testClose() {
+		List<String> expected = new ArrayList<>();
+		List<JerryBatch.Source> sources = createSources(100, expected);
+
+		JerryBatch<String>.Results results = new JerryBatch<>(TITLE).maxInFlight(2).process(sources.iterator());
+
+		assertEquals(expected.get(0), results.next());
+
+		results.close();
+
+		assertFalse(results.hasNext());
+	}
+}
@@ -0,0 +1,216 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto;
+
+import jodd.io.FileUtil;
+import jodd.io.findfile.FindFile;
+import jodd.io.findfile.WildcardFindFile;
+import jodd.util.StringUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LagartoParserReaderTest {
+
+	@Test
+	public void testHtmls() throws IOException {
+		assertSameParsing("test", "**/*.*ml");
+		assertSameParsing("test2", "**/*.*ml");
+	}
+
+	@Test
+	public void testLiveHtmls() throws IOException {
+		assertSameParsing("live", "**/*.html");
+	}
+
+	@Test
+	public void testLargeTokens() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<html>\n<script>");
+		for (int i = 0; i < 1000; i++) {
+			sb.append("var a").append(i).append(" = '<b>';\n");
+		}
+		sb.append("</script>\n<!--");
+		for (int i = 0; i < 500; i++) {
+			sb.append("comment ");
+		}
+		sb.append("-->\n<style>p { color: red; }</style><textarea>&amp;<b></textarea>");
+		for (int i = 0; i < 1000; i++) {
+			sb.append("<p class=\"c").append(i).append("\">text &lt;").append(i).append("&gt;</p>\n");
+		}
+		sb.append("</html>");
+
+		String html = sb.toString();
+
+		String expected = parse(new LagartoParser(html, false));
+
+		assertEquals(expected, parse(new LagartoParser(new StringReader(html), 256, false)));
+		assertEquals(expected, parse(new LagartoParser(new TrickleReader(html), 256, true)));
+		assertEquals(expected, parse(new LagartoParser(new StringReader(html), false)));
+	}
+
+	@Test
+	public void testTagPosition() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sb.append("text\n");
+		}
+		sb.append("<b>");
+		String html = sb.toString();
+
+		final int[] position = new int[1];
+
+		LagartoParser lagartoParser = new LagartoParser(new StringReader(html), 256, false);
+		lagartoParser.getConfig().setCalculatePosition(true);
+		lagartoParser.parse(new EmptyTagVisitor() {
+			@Override
+			public void tag(Tag tag) {
+				position[0] = tag.getTagPosition();
+				assertEquals("[2001:1 @10000]", tag.getPosition());
+			}
+		});
+
+		assertEquals(10000, position[0]);
+	}
+
+	// ---------------------------------------------------------------- util
+
+	private void assertSameParsing(String root, String pattern) throws IOException {
+		URL data = LagartoParserTest.class.getResource(root);
+
+		FindFile ff = new WildcardFindFile().include(pattern);
+		ff.searchPath(data.getFile());
+
+		File file;
+		boolean processed = false;
+
+		while ((file = ff.nextFile()) != null) {
+			processed = true;
+
+			String content = FileUtil.readString(file);
+			content = StringUtil.removeChars(content, '\r');
+
+			boolean isXml = file.getName().endsWith(".xml");
+
+			String expected = parse(configure(new LagartoParser(content, false), isXml));
+
+			assertEquals(file.getName(), expected,
+				parse(configure(new LagartoParser(new StringReader(content), 256, false), isXml)));
+			assertEquals(file.getName(), expected,
+				parse(configure(new LagartoParser(new TrickleReader(content), 512, true), isXml)));
+		}
+
+		assertTrue(processed);
+	}
+
+	private LagartoParser configure(LagartoParser lagartoParser, boolean isXml) {
+		lagartoParser.getConfig().setCalculatePosition(true);
+		lagartoParser.getConfig().setParseXmlTags(isXml);
+		return lagartoParser;
+	}
+
+	/**
+	 * Parses the input and records all callbacks. Char sequences
+	 * are consumed during the callback.
+	 */
+	private String parse(LagartoParser lagartoParser) {
+		final StringBuilder out = new StringBuilder();
+
+		lagartoParser.parse(new TagVisitorChain(new EmptyTagVisitor() {
+			@Override
+			public void tag(Tag tag) {
+				out.append("tag:").append(tag.getTagPosition()).append(':').append(tag.getPosition()).append('\n');
+			}
+
+			@Override
+			public void script(Tag tag, CharSequence body) {
+				out.append("scr:").append(tag.getTagPosition()).append('[').append(body).append("]\n");
+			}
+
+			@Override
+			public void comment(CharSequence comment) {
+				out.append("com:[").append(comment).append("]\n");
+			}
+
+			@Override
+			public void text(CharSequence text) {
+				out.append("txt:[").append(text).append("]\n");
+			}
+
+			@Override
+			public void cdata(CharSequence cdata) {
+				out.append("cdt:[").append(cdata).append("]\n");
+			}
+
+			@Override
+			public void condComment(CharSequence expression, boolean isStartingTag, boolean isHidden, boolean isHiddenEndTag) {
+				out.append("cc:[").append(expression).append("]\n");
+			}
+
+			@Override
+			public void xml(CharSequence version, CharSequence encoding, CharSequence standalone) {
+				out.append("xml:").append(version).append(':').append(encoding).append(':').append(standalone).append('\n');
+			}
+
+			@Override
+			public void error(String message) {
+				out.append("wrn:[").append(message).append("]\n");
+			}
+		}, new TagWriter(out)));
+
+		return out.toString();
+	}
+
+	/**
+	 * Reader that returns just few chars at once.
+	 */
+	private static class TrickleReader extends Reader {
+		private final Reader reader;
+		private int count;
+
+		private TrickleReader(String content) {
+			this.reader = new StringReader(content);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			count++;
+			return reader.read(cbuf, off, Math.min(len, 1 + count % 7));
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
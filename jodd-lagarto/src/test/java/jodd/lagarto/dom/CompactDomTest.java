@@ -0,0 +1,167 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompactDomTest {
+
+	private static final String HTML =
+			"<html><body>" +
+			"<DIV id=\"one\" class=\"box  main\" Title=\"A &amp; B\">" +
+			"<p class=\"text\">Hello &lt;world&gt;</p>  <p data-x=\"1\" data-x=\"2\" hidden>second</p>" +
+			"</DIV>" +
+			"<div class=\"box\"><span>\u0161</span></div>" +
+			"</body></html>";
+
+	private static Document parse(String html, boolean compact) {
+		LagartoDOMBuilder domBuilder = new LagartoDOMBuilder();
+		domBuilder.getConfig().setCompactMode(compact);
+		return domBuilder.parse(html);
+	}
+
+	@Test
+	public void testSameAsRegular() {
+		Document regular = parse(HTML, false);
+		Document compact = parse(HTML, true);
+
+		assertEquals(regular.getHtml(), compact.getHtml());
+		assertEquals(regular.getTextContent(), compact.getTextContent());
+
+		NodeSelector regularSelector = new NodeSelector(regular);
+		NodeSelector compactSelector = new NodeSelector(compact);
+
+		String[] queries = {"div.box", "p[data-x='1']", "[hidden]", "#one > p", "div[title]", "span"};
+
+		for (String query : queries) {
+			List<Node> expected = regularSelector.select(query);
+			List<Node> actual = compactSelector.select(query);
+
+			assertEquals(query, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(query, expected.get(i).getHtml(), actual.get(i).getHtml());
+			}
+		}
+	}
+
+	@Test
+	public void testSharedNames() {
+		Document document = parse(HTML, true);
+		NodeSelector nodeSelector = new NodeSelector(document);
+
+		List<Node> divs = nodeSelector.select("div");
+		assertEquals(2, divs.size());
+
+		Node first = divs.get(0);
+		Node second = divs.get(1);
+
+		assertEquals("DIV", first.getNodeRawName());
+		assertEquals("div", first.getNodeName());
+		assertSame(first.getNodeName(), second.getNodeName());
+		assertSame(first.getAttribute(1).getName(), second.getAttribute(0).getName());
+	}
+
+	@Test
+	public void testAttributes() {
+		Document document = parse(HTML, true);
+		Node div = new NodeSelector(document).selectFirst("div");
+
+		assertTrue(div.hasAttributes());
+		assertEquals(3, div.getAttributesCount());
+		assertTrue(div.hasAttribute("title"));
+		assertEquals("A & B", div.getAttribute("TITLE"));
+		assertTrue(div.isAttributeContaining("class", "main"));
+		assertTrue(div.isAttributeContaining("class", ""));
+		assertFalse(div.isAttributeContaining("class", "ma"));
+		assertNull(div.getAttribute("foo"));
+
+		// reading does not materialize attributes
+		assertNotNull(div.compactAttributes);
+		assertNull(div.attributes);
+
+		Node p = new NodeSelector(document).selectFirst("p[hidden]");
+		assertEquals(2, p.getAttributesCount());
+		assertEquals("1", p.getAttribute("data-x"));
+		assertTrue(p.hasAttribute("hidden"));
+		assertNull(p.getAttribute("hidden"));
+
+		// modification materializes attributes
+		div.setAttribute("id", "two");
+
+		assertNull(div.compactAttributes);
+		assertEquals(3, div.attributes.size());
+		assertEquals("two", div.getAttribute("id"));
+		assertEquals("Title", div.getAttribute(2).getRawName());
+		assertEquals("A & B", div.getAttribute(2).getValue());
+		assertEquals(1, new NodeSelector(document).select("#two").size());
+	}
+
+	@Test
+	public void testText() {
+		Document document = parse(HTML, true);
+		Node p = new NodeSelector(document).selectFirst("p");
+
+		Text text = (Text) p.getFirstChild();
+		Text blank = (Text) p.getNextSibling();
+
+		assertEquals("Hello <world>", text.getNodeValue());
+		assertEquals("Hello &lt;world&gt;", text.getTextContent());
+		assertFalse(text.isBlank());
+		assertTrue(blank.isBlank());
+
+		Text clone = text.clone();
+		assertEquals("Hello <world>", clone.getNodeValue());
+
+		text.setNodeValue("  ");
+
+		assertNull(text.textPool);
+		assertEquals("  ", text.getNodeValue());
+		assertTrue(text.isBlank());
+		assertEquals("Hello <world>", clone.getNodeValue());
+	}
+
+	@Test
+	public void testClone() {
+		Document document = parse(HTML, true);
+		Element div = (Element) new NodeSelector(document).selectFirst("div");
+
+		Element clone = div.clone();
+		clone.setAttribute("class", "copy");
+
+		assertEquals("copy", clone.getAttribute("class"));
+		assertEquals("box  main", div.getAttribute("class"));
+		assertNotNull(div.compactAttributes);
+	}
+}
@@ -0,0 +1,177 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.lagarto.dom;
+
+import jodd.csselly.selector.PseudoClass;
+import jodd.csselly.selector.PseudoClassSelector;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentIndexTest {
+
+	/**
+	 * Positional pseudo class that accepts everything. Used to
+	 * select nodes without the document index.
+	 */
+	public static class IN_RESULTS extends PseudoClass {
+		@Override
+		public boolean match(Node node) {
+			return true;
+		}
+
+		@Override
+		public boolean match(List<Node> currentResults, Node node, int index) {
+			return true;
+		}
+	}
+
+	private static Document document;
+
+	@BeforeClass
+	public static void setUp() {
+		PseudoClassSelector.registerPseudoClass(IN_RESULTS.class);
+
+		StringBuilder html = new StringBuilder();
+		html.append("<html><body>");
+		for (int i = 0; i < 30; i++) {
+			html.append("<div id=\"d").append(i).append("\" class=\"box c").append(i % 3).append("\">");
+			html.append("<p class=\"text  c").append(i % 4).append("\">p").append(i).append("</p>");
+			html.append("<div class=\"inner\"><span>s</span><p>q").append(i).append("</p><b>b</b></div>");
+			html.append("<ul><li>1</li><li class=\"x\">2</li><li>3</li></ul>");
+			html.append("</div>");
+		}
+		html.append("</body></html>");
+
+		document = new LagartoDOMBuilder().parse(html.toString());
+	}
+
+	@Test
+	public void testSameAsWalking() {
+		String[] queries = new String[] {
+				"p", "div", "*", ".box", ".c1", "#d7", "div#d7", "p.c2", ".text.c1",
+				"div p", "div > p", "div.c0 p", ".inner > p", "span + p", "span ~ b",
+				"li + li", "li ~ li", "ul li.x", "body > div > div > span", "div div p",
+				"#d3 ~ div", "#d3 + div", "[class]", "li:first-child", "p:nth-child(1)",
+				"div .inner b", "html div.c2 > ul > li", "*.c3"
+		};
+
+		for (String query : queries) {
+			assertSameResults(query, document);
+
+			Node rootNode = new NodeSelector(document).selectFirst("#d5");
+			assertSameResults(query, rootNode);
+		}
+	}
+
+	@Test
+	public void testDocumentOrder() {
+		List<Node> nodes = new NodeSelector(document).select("div p");
+
+		assertEquals(60, nodes.size());
+
+		for (int i = 1; i < nodes.size(); i++) {
+			assertTrue(nodes.get(i - 1).documentElementIndex < nodes.get(i).documentElementIndex);
+		}
+	}
+
+	@Test
+	public void testGroupsWithoutDuplicates() {
+		List<Node> nodes = new NodeSelector(document).select("p, .text, div > p");
+
+		assertEquals(60, nodes.size());
+	}
+
+	@Test
+	public void testInvalidation() {
+		Document doc = new LagartoDOMBuilder().parse("<div><p class='a'>1</p><p>2</p></div>");
+		NodeSelector nodeSelector = new NodeSelector(doc);
+
+		assertEquals(1, nodeSelector.select(".a").size());
+
+		Node p2 = nodeSelector.select("p").get(1);
+		p2.setAttribute("class", "b a");
+		assertEquals(2, nodeSelector.select(".a").size());
+
+		p2.removeAttribute("class");
+		assertEquals(1, nodeSelector.select(".a").size());
+
+		Element span = new Element(doc, "span");
+		span.setAttribute("id", "s");
+		p2.addChild(span);
+		assertSame(span, nodeSelector.selectFirst("div p #s"));
+
+		p2.detachFromParent();
+		assertEquals(0, nodeSelector.select("#s").size());
+		assertEquals(1, nodeSelector.select("p").size());
+
+		// detached node is still selectable
+		assertSame(span, new NodeSelector(p2).selectFirst("span"));
+	}
+
+	@Test
+	public void testAttributeInstanceInvalidation() {
+		Document doc = new LagartoDOMBuilder().parse("<div><p id='x' class='a'>1</p><p>2</p></div>");
+		NodeSelector nodeSelector = new NodeSelector(doc);
+
+		assertEquals(1, nodeSelector.select(".a").size());
+		assertEquals(1, nodeSelector.select("#x").size());
+
+		Node p1 = nodeSelector.selectFirst("p");
+		p1.getAttribute(0).setValue("y");
+		p1.getAttribute(1).setValue("b");
+
+		assertEquals(0, nodeSelector.select("#x").size());
+		assertSame(p1, nodeSelector.selectFirst("#y"));
+		assertEquals(0, nodeSelector.select(".a").size());
+		assertSame(p1, nodeSelector.selectFirst(".b"));
+
+		// cloned attributes belong to the clone
+		Node clone = p1.clone();
+		clone.getAttribute(1).setValue("c");
+		assertEquals("b", p1.getAttribute("class"));
+	}
+
+	// ---------------------------------------------------------------- util
+
+	private void assertSameResults(String query, Node rootNode) {
+		NodeSelector nodeSelector = new NodeSelector(rootNode);
+
+		List<Node> indexed = nodeSelector.select(query);
+		List<Node> walked = nodeSelector.select(query + ":in-results");
+
+		assertEquals(query, walked.size(), indexed.size());
+
+		for (Node node : walked) {
+			assertTrue(query, indexed.contains(node));
+		}
+	}
+}
@@ -62,6 +62,7 @@ public class ActionRequest {
 
 	protected String nextActionPath;
 	protected ActionRequest previousActionRequest;
+	protected String[] actionPathMacroValues;
 
 	// ---------------------------------------------------------------- accessors
 
@@ -170,6 +171,21 @@ public class ActionRequest {
 		this.actionResult = actionResult;
 	}
 
+	/**
+	 * Returns macro values extracted from the action path while
+	 * action was looked up, or <code>null</code> if not available.
+	 */
+	public String[] getActionPathMacroValues() {
+		return actionPathMacroValues;
+	}
+
+	/**
+	 * Sets macro values extracted from the action path.
+	 */
+	public void setActionPathMacroValues(String[] actionPathMacroValues) {
+		this.actionPathMacroValues = actionPathMacroValues;
+	}
+
 	// ---------------------------------------------------------------- ctor
 
 	/**
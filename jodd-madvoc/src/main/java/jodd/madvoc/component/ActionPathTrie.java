@@ -0,0 +1,326 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.madvoc.component;
+
+import jodd.madvoc.ActionInfo;
+import jodd.madvoc.ActionPathInfo;
+import jodd.madvoc.ActionPathMatch;
+import jodd.madvoc.macro.BasePathMatcher;
+import jodd.madvoc.macro.PathMatcher;
+import jodd.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tree of action paths with macros, used for fast action path look-up.
+ * Action path is split on '/' into chunks and each chunk is a tree node.
+ * Chunks without macros are looked up by their exact value, while chunks
+ * with macros are tested just against their fixed head and tail. Only the
+ * action paths that pass the tree walk are matched with their own
+ * {@link PathMatcher}, so macro patterns and the "most matched chars wins"
+ * rule work the same as when all action paths are matched one by one.
+ * Action paths with macros that span over the '/' are not indexed
+ * and are always matched.
+ */
+public class ActionPathTrie {
+
+	protected final Node root = new Node(null, null, null);
+	protected final List<ActionPathInfo> unindexed = new ArrayList<>();
+	protected int size;
+
+	/**
+	 * Returns number of added action paths.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds action path with macros. Returns existing action path info
+	 * if the same action path has been already added; otherwise returns
+	 * provided action path info.
+	 */
+	public ActionPathInfo add(ActionPathInfo actionPathInfo, String[] separators) {
+		String actionPath = actionPathInfo.actionPath;
+		String[] chunks = split(actionPath, actionPathInfo.deep);
+
+		if (!isIndexable(actionPathInfo, chunks, separators)) {
+			for (ActionPathInfo existing : unindexed) {
+				if (existing.actionPath.equals(actionPath)) {
+					return existing;
+				}
+			}
+			unindexed.add(actionPathInfo);
+			size++;
+			return actionPathInfo;
+		}
+
+		Node node = root;
+		for (String chunk : chunks) {
+			node = node.child(chunk, separators);
+		}
+
+		if (node.actionPathInfo != null) {
+			return node.actionPathInfo;
+		}
+		node.actionPathInfo = actionPathInfo;
+		size++;
+		return actionPathInfo;
+	}
+
+	/**
+	 * Returns <code>true</code> if every macro of the action path
+	 * is contained within a single chunk.
+	 */
+	protected boolean isIndexable(ActionPathInfo actionPathInfo, String[] chunks, String[] separators) {
+		int macrosCount = 0;
+
+		for (String chunk : chunks) {
+			int offset = 0;
+			int[] ndx;
+			while ((ndx = StringUtil.indexOfRegion(chunk, separators[0], separators[2], offset)) != null) {
+				macrosCount++;
+				offset = ndx[3];
+			}
+		}
+
+		return macrosCount == actionPathInfo.pathMatcher.getPrefixCountInPath();
+	}
+
+	// ---------------------------------------------------------------- match
+
+	/**
+	 * Matches action path against all added action paths and returns
+	 * the action for given http method of the best matched one.
+	 * Returns <code>null</code> if action path is not matched or if
+	 * best matched action path does not define given method.
+	 */
+	public ActionPathMatch match(String actionPath, String method) {
+		if (size == 0) {
+			return null;
+		}
+
+		int deep = StringUtil.count(actionPath, '/');
+
+		Lookup lookup = new Lookup(actionPath);
+
+		if (size != unindexed.size()) {
+			walk(root, split(actionPath, deep), 0, lookup);
+		}
+
+		for (ActionPathInfo actionPathInfo : unindexed) {
+			if (actionPathInfo.deep == deep) {
+				lookup.offer(actionPathInfo);
+			}
+		}
+
+		if (lookup.actionPathInfo == null) {
+			return null;
+		}
+
+		ActionInfo actionInfo = lookup.actionPathInfo.lookup(method);
+		if (actionInfo == null) {
+			return null;
+		}
+
+		String[] macroValues = lookup.macroValues;
+		if (macroValues == null) {
+			macroValues = lookup.actionPathInfo.pathMatcher.extract(actionPath);
+		}
+
+		return new ActionPathMatch(actionInfo, macroValues);
+	}
+
+	/**
+	 * Walks the tree and offers all reached action paths.
+	 */
+	protected void walk(Node node, String[] chunks, int index, Lookup lookup) {
+		if (index == chunks.length) {
+			if (node.actionPathInfo != null) {
+				lookup.offer(node.actionPathInfo);
+			}
+			return;
+		}
+
+		String chunk = chunks[index];
+
+		if (node.children != null) {
+			Node child = node.children.get(chunk);
+			if (child != null) {
+				walk(child, chunks, index + 1, lookup);
+			}
+		}
+
+		if (node.macroChildren != null) {
+			for (Node child : node.macroChildren) {
+				if (child.accept(chunk)) {
+					walk(child, chunks, index + 1, lookup);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Splits action path into <code>deep + 1</code> chunks.
+	 */
+	protected static String[] split(String actionPath, int deep) {
+		String[] chunks = new String[deep + 1];
+
+		int from = 0;
+		for (int i = 0; i < deep; i++) {
+			int ndx = actionPath.indexOf('/', from);
+			chunks[i] = actionPath.substring(from, ndx);
+			from = ndx + 1;
+		}
+		chunks[deep] = actionPath.substring(from);
+
+		return chunks;
+	}
+
+	// ---------------------------------------------------------------- node
+
+	/**
+	 * Tree node, i.e. single action path chunk.
+	 */
+	protected static class Node {
+
+		protected final String chunk;
+		protected final String head;		// fixed string before the first macro
+		protected final String tail;		// fixed string after the last macro
+		protected HashMap<String, Node> children;	// chunks w/o macros
+		protected List<Node> macroChildren;			// chunks with macros
+		protected ActionPathInfo actionPathInfo;
+
+		protected Node(String chunk, String head, String tail) {
+			this.chunk = chunk;
+			this.head = head;
+			this.tail = tail;
+		}
+
+		/**
+		 * Returns existing or creates new child node for given chunk.
+		 */
+		protected Node child(String chunk, String[] separators) {
+			int[] ndx = StringUtil.indexOfRegion(chunk, separators[0], separators[2]);
+
+			if (ndx == null) {
+				if (children == null) {
+					children = new HashMap<>();
+				}
+				Node node = children.get(chunk);
+				if (node == null) {
+					node = new Node(chunk, null, null);
+					children.put(chunk, node);
+				}
+				return node;
+			}
+
+			if (macroChildren == null) {
+				macroChildren = new ArrayList<>();
+			}
+			for (Node node : macroChildren) {
+				if (node.chunk.equals(chunk)) {
+					return node;
+				}
+			}
+
+			String head = chunk.substring(0, ndx[0]);
+
+			int offset = ndx[3];
+			while ((ndx = StringUtil.indexOfRegion(chunk, separators[0], separators[2], offset)) != null) {
+				offset = ndx[3];
+			}
+			String tail = chunk.substring(offset);
+
+			Node node = new Node(chunk, head, tail);
+			macroChildren.add(node);
+			return node;
+		}
+
+		/**
+		 * Returns <code>true</code> if action path chunk may be matched
+		 * by this chunk with macros.
+		 */
+		protected boolean accept(String value) {
+			return
+				value.length() >= head.length() + tail.length() &&
+				value.startsWith(head) &&
+				value.endsWith(tail);
+		}
+	}
+
+	// ---------------------------------------------------------------- lookup
+
+	/**
+	 * Keeps the best matched action path during the single look-up.
+	 */
+	protected static class Lookup {
+
+		protected final String actionPath;
+		protected ActionPathInfo actionPathInfo;
+		protected String[] macroValues;
+		protected int maxMatchedChars = -1;
+
+		protected Lookup(String actionPath) {
+			this.actionPath = actionPath;
+		}
+
+		/**
+		 * Matches action path and remembers it if it is the best match so far.
+		 * On the same number of matched chars, the smaller action path wins.
+		 */
+		protected void offer(ActionPathInfo candidate) {
+			PathMatcher pathMatcher = candidate.pathMatcher;
+
+			String[] values = null;
+			int matchedChars;
+
+			if (pathMatcher instanceof BasePathMatcher) {
+				values = ((BasePathMatcher) pathMatcher).matchAndExtract(actionPath);
+				if (values == null) {
+					return;
+				}
+				matchedChars = BasePathMatcher.countMatchedChars(actionPath, values);
+			} else {
+				matchedChars = pathMatcher.match(actionPath);
+				if (matchedChars == -1) {
+					return;
+				}
+			}
+
+			if (matchedChars > maxMatchedChars ||
+				(matchedChars == maxMatchedChars && candidate.actionPath.compareTo(actionPathInfo.actionPath) < 0)) {
+
+				maxMatchedChars = matchedChars;
+				actionPathInfo = candidate;
+				macroValues = values;
+			}
+		}
+	}
+
+}
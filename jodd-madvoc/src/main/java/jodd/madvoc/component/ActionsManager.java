@@ -29,12 +29,12 @@ import jodd.introspector.ClassIntrospector;
 import jodd.introspector.MethodDescriptor;
 import jodd.madvoc.ActionInfo;
 import jodd.madvoc.ActionPathInfo;
+import jodd.madvoc.ActionPathMatch;
 import jodd.madvoc.ActionDef;
 import jodd.madvoc.MadvocException;
 import jodd.madvoc.macro.PathMatcher;
 import jodd.petite.meta.PetiteInject;
 import jodd.util.ClassLoaderUtil;
-import jodd.util.StringUtil;
 import jodd.util.collection.SortedArrayList;
 import jodd.log.Logger;
 import jodd.log.LoggerFactory;
@@ -64,12 +64,14 @@ public class ActionsManager {
 	protected final HashMap<String, ActionPathInfo> pathInfosNotWithMatcher;		// map of all action paths w/o macros
 	//deep排序,deep最小的放在第一位,从而达到优化
 	protected final SortedArrayList<ActionPathInfo> pathInfosWithMatcher;		// list of all action paths with macros
+	protected final ActionPathTrie pathInfosTrie;		// tree of all action paths with macros, for look-up
 	protected final HashMap<String, ActionInfo> actionInfos;		// another map of all action configs
 	protected Map<String, String> pathAliases;					// path aliases
 
 	public ActionsManager() {
 		this.pathInfosNotWithMatcher = new HashMap<>();
 		this.pathInfosWithMatcher = new SortedArrayList<>(new ActionConfigSetComparator());
+		this.pathInfosTrie = new ActionPathTrie();
 		this.pathAliases = new HashMap<>();
 		this.actionInfos = new HashMap<>();
 		this.asyncMode = false;
@@ -211,8 +213,6 @@ public class ActionsManager {
 	 * exception will be thrown.
 	 */
 	public ActionInfo registerAction(ActionInfo actionInfo) {
-		String actionPath = actionInfo.actionPath;
-
 		if (log.isDebugEnabled()) {
 			log.debug("Registering Madvoc action: " + actionInfo.actionPath + " to: " +
 					actionInfo.getClassMethod());
@@ -222,17 +222,11 @@ public class ActionsManager {
 
 		if (actionPathInfo.pathMatcher != null) {
 			// new action patch contain macros
-			int ndx = -1;
-			for (int i = 0; i < pathInfosWithMatcher.size(); i++) {
-				if (pathInfosWithMatcher.get(i).actionPath.equals(actionPath)) {
-					ndx = i;
-					break;
-				}
-			}
-			if (ndx < 0) {
+			ActionPathInfo existing = pathInfosTrie.add(actionPathInfo, madvocConfig.getPathMacroSeparators());
+			if (existing == actionPathInfo) {
 				pathInfosWithMatcher.add(actionPathInfo);
 			} else {
-				actionPathInfo = pathInfosWithMatcher.get(ndx);
+				actionPathInfo = existing;
 			}
 		} else {
 			// action path is without macros
@@ -285,61 +279,36 @@ public class ActionsManager {
 	 * and match against macros.
 	 * Returns <code>null</code> if action path is not registered.
 	 * <code>method</code> must be in uppercase.
+	 * @see #match(String, String)
 	 */
 	public ActionInfo lookup(String actionPath, String method) {
+		ActionPathMatch actionPathMatch = match(actionPath, method);
+		if (actionPathMatch == null) {
+			return null;
+		}
+		return actionPathMatch.actionInfo;
+	}
+
+	/**
+	 * Resolves action for provided action path, like {@link #lookup(String, String)}
+	 * does, and returns it together with macro values extracted during the matching.
+	 * Returns <code>null</code> if action path is not registered.
+	 */
+	public ActionPathMatch match(String actionPath, String method) {
 
 		// 1st try: the map
-//----------------------通过普通的没有通配符的路径查询actinpathinfo,
+
 		ActionPathInfo actionPathInfo = pathInfosNotWithMatcher.get(actionPath);
 		if (actionPathInfo != null) {
 			ActionInfo actionInfo = actionPathInfo.lookup(method);
 			if (actionInfo != null) {
-				return actionInfo;
+				return new ActionPathMatch(actionInfo, null);
 			}
 		}
 
-		// 2nd try: the list
-
-		int actionPathDeep = StringUtil.count(actionPath, '/');
-
-		int len = pathInfosWithMatcher.size();
-
-		int lastMatched = -1;
-		int maxMatchedChars = -1;
-//-------------------根据matcher查找
-		for (int i = 0; i < len; i++) {
-			actionPathInfo = pathInfosWithMatcher.get(i);
-
-			int deep = actionPathInfo.deep;
-			//------------"/"个数不对先排除
-			if (deep < actionPathDeep) {
-				continue;
-			}
-			if (deep > actionPathDeep) {
-				break;
-			}
-
-			// same deep level, try the fully match
-//-------------------------与deep相同的开始比较path
-			int matchedChars = actionPathInfo.pathMatcher.match(actionPath);
-
-			if (matchedChars == -1) {
-				continue;
-			}
-//-----------------------找到匹配最多的
-			if (matchedChars > maxMatchedChars) {
-				maxMatchedChars = matchedChars;
-				lastMatched = i;
-			}
-		}
-
-		if (lastMatched < 0) {
-			return null;
-		}
-
-		ActionPathInfo set = pathInfosWithMatcher.get(lastMatched);
+		// 2nd try: the tree
 
-		return set.lookup(method);
+		return pathInfosTrie.match(actionPath, method);
 	}
 
 	/**
@@ -26,6 +26,7 @@
 package jodd.madvoc.component;
 
 import jodd.madvoc.ActionInfo;
+import jodd.madvoc.ActionPathMatch;
 import jodd.madvoc.ActionRequest;
 import jodd.madvoc.MadvocException;
 import jodd.madvoc.result.ActionResult;
@@ -127,10 +128,11 @@ public class MadvocController {
 			actionPath = actionPathRewriter.rewrite(servletRequest, actionPath, httpMethod);
 //-----------------------------找到访问路径对应的类方法信息
 			// resolve action configuration
-			ActionInfo actionInfo = actionsManager.lookup(actionPath, httpMethod);
-			if (actionInfo == null) {
+			ActionPathMatch actionPathMatch = actionsManager.match(actionPath, httpMethod);
+			if (actionPathMatch == null) {
 				return actionPath;
 			}
+			ActionInfo actionInfo = actionPathMatch.actionInfo;
 			if (log.isDebugEnabled()) {
 				log.debug("Invoking action path '" + actionPath + "' using " + actionInfo.actionClass.getSimpleName());
 			}
@@ -155,6 +157,7 @@ public class MadvocController {
 			ActionRequest previousRequest = actionRequest;
 			actionRequest = createActionRequest(actionPath, actionInfo, action, servletRequest, servletResponse);
 			actionRequest.setPreviousActionRequest(previousRequest);
+			actionRequest.setActionPathMacroValues(actionPathMatch.macroValues);
 
 			// invoke and render
 			if (actionInfo.isAsync()) {
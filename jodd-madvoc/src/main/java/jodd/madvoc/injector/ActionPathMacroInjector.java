@@ -63,7 +63,10 @@ public class ActionPathMacroInjector extends BaseScopeInjector implements Inject
 		Target[] targets = actionRequest.getTargets();
 
 		String[] names = set.pathMatcher.getMatchContents();
-		String[] values = set.pathMatcher.extract(actionRequest.getActionPath());
+		String[] values = actionRequest.getActionPathMacroValues();
+		if (values == null) {
+			values = set.pathMatcher.extract(actionRequest.getActionPath());
+		}
 
 		for (int ndx = 0; ndx < values.length; ndx++) {
 			String value = values[ndx];
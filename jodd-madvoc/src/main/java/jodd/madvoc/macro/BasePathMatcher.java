@@ -134,8 +134,25 @@ public abstract class BasePathMatcher implements PathMatcher {
 			return -1;
 		}
 
+		return countMatchedChars(actionPath, matchContents);
+	}
+
+	/**
+	 * Matches provided action path and returns extracted macro values
+	 * in the same pass. Returns <code>null</code> if action path is not matched.
+	 * @see #match(String)
+	 * @see #extract(String)
+	 */
+	public String[] matchAndExtract(String actionPath) {
+		return process(actionPath, true);
+	}
+
+	/**
+	 * Returns the number of non-macro characters of matched action path.
+	 */
+	public static int countMatchedChars(String actionPath, String[] macroValues) {
 		int macroChars = 0;
-		for (String value : matchContents) {
+		for (String value : macroValues) {
 			if (value != null) {
 				macroChars += value.length();
 			}
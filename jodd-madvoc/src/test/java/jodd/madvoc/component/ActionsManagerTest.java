@@ -27,12 +27,14 @@ package jodd.madvoc.component;
 
 import jodd.madvoc.ActionInfo;
 import jodd.madvoc.ActionDef;
+import jodd.madvoc.ActionPathMatch;
 import jodd.madvoc.WebApplication;
 import jodd.madvoc.macro.RegExpPathMatcher;
 import jodd.madvoc.macro.WildcardPathMatcher;
 import org.junit.Assert;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -175,4 +177,95 @@ public class ActionsManagerTest {
 		actionInfo = actionsManager.lookup("/aab", null);
 		assertNull(actionInfo);
 	}
+
+	@Test
+	public void testActionPathMacrosMatch() {
+		WebApplication webapp = new WebApplication(true);
+		webapp.registerMadvocComponents();
+		ActionsManager actionsManager = webapp.getComponent(ActionsManager.class);
+
+		actionsManager.register(FooAction.class, "one", new ActionDef("/user/${id}"));
+		actionsManager.register(FooAction.class, "two", new ActionDef("/user/${id}/${page}.html"));
+		actionsManager.register(FooAction.class, "three", new ActionDef("/user/${id}/edit.html"));
+		actionsManager.register(FooAction.class, "one", new ActionDef("/user/all/edit.html"));	// no macro
+
+		for (int i = 0; i < 100; i++) {
+			actionsManager.register(FooAction.class, "one", new ActionDef("/api" + i + "/${id}"));
+		}
+		assertEquals(104, actionsManager.getActionsCount());
+
+		ActionPathMatch actionPathMatch = actionsManager.match("/user/173", null);
+		assertEquals("one", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"173"}, actionPathMatch.macroValues);
+
+		actionPathMatch = actionsManager.match("/user/173/info.html", null);
+		assertEquals("two", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"173", "info"}, actionPathMatch.macroValues);
+
+		actionPathMatch = actionsManager.match("/user/173/edit.html", null);
+		assertEquals("three", actionPathMatch.actionInfo.actionClassMethod.getName());	// best match!
+		assertArrayEquals(new String[] {"173"}, actionPathMatch.macroValues);
+
+		actionPathMatch = actionsManager.match("/user/all/edit.html", null);
+		assertEquals("/user/all/edit.html", actionPathMatch.actionInfo.actionPath);
+		assertNull(actionPathMatch.macroValues);
+
+		actionPathMatch = actionsManager.match("/api42/x", null);
+		assertEquals("/api42/${id}", actionPathMatch.actionInfo.actionPath);
+		assertArrayEquals(new String[] {"x"}, actionPathMatch.macroValues);
+
+		assertNull(actionsManager.match("/user/173/info.htm", null));
+		assertNull(actionsManager.match("/api100/x", null));
+		assertNull(actionsManager.match("/user", null));
+	}
+
+	@Test
+	public void testActionPathMacrosSameMatch() {
+		WebApplication webapp = new WebApplication(true);
+		webapp.registerMadvocComponents();
+		ActionsManager actionsManager = webapp.getComponent(ActionsManager.class);
+
+		actionsManager.register(FooAction.class, "two", new ActionDef("/${two}/x"));
+		actionsManager.register(FooAction.class, "one", new ActionDef("/${one}/x"));
+		actionsManager.register(FooAction.class, "three", new ActionDef("/${three}.x/y"));
+
+		// same number of matched chars, first one by action path wins
+		ActionInfo actionInfo = actionsManager.lookup("/foo/x", null);
+		assertEquals("one", actionInfo.actionClassMethod.getName());
+
+		// macro value is found by the fixed string that spans over the '/'
+		ActionPathMatch actionPathMatch = actionsManager.match("/a.x.x/y", null);
+		assertEquals("three", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"a.x"}, actionPathMatch.macroValues);
+	}
+
+	@Test
+	public void testActionPathMacrosRegexpChunks() {
+		WebApplication webapp = new WebApplication(true);
+		webapp.registerMadvocComponents();
+		ActionsManager actionsManager = webapp.getComponent(ActionsManager.class);
+
+		MadvocConfig madvocConfig = webapp.getComponent(MadvocConfig.class);
+		madvocConfig.setPathMacroClass(RegExpPathMatcher.class);
+
+		actionsManager.register(FooAction.class, "one", new ActionDef("/item/${id:[0-9]+}"));
+		actionsManager.register(FooAction.class, "two", new ActionDef("/item/${name:[a-z]+}"));
+		actionsManager.register(FooAction.class, "three", new ActionDef("/file/${path:[a-z]+/[a-z]+}"));	// macro over the '/'
+
+		ActionPathMatch actionPathMatch = actionsManager.match("/item/123", null);
+		assertEquals("one", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"123"}, actionPathMatch.macroValues);
+
+		actionPathMatch = actionsManager.match("/item/abc", null);
+		assertEquals("two", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"abc"}, actionPathMatch.macroValues);
+
+		assertNull(actionsManager.match("/item/a1", null));
+
+		actionPathMatch = actionsManager.match("/file/abc/def", null);
+		assertEquals("three", actionPathMatch.actionInfo.actionClassMethod.getName());
+		assertArrayEquals(new String[] {"abc/def"}, actionPathMatch.macroValues);
+
+		assertNull(actionsManager.match("/file/abc/1", null));
+	}
 }